@@ -39,6 +39,10 @@ android {
         viewBinding = true
         dataBinding = true
     }
+    testOptions {
+        // Lets plain JVM tests exercise classes that log through android.util.Log
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -1,6 +1,8 @@
 package com.example.nurse_connect;
 
 import android.app.Application;
+import com.example.nurse_connect.data.FavoritesIndex;
+import com.example.nurse_connect.services.cascade.MaterialCascadeDelete;
 import com.example.nurse_connect.utils.ThemeManager;
 
 /**
@@ -14,5 +16,11 @@ public class NurseConnectApplication extends Application {
         
         // Initialize theme system globally
         ThemeManager.getInstance(this).applyTheme();
+        
+        // Follow the signed-in user's favorites so favorite checks stay local
+        FavoritesIndex.init(this);
+        
+        // Finish cleaning up after study materials whose deletion was interrupted
+        MaterialCascadeDelete.init(this);
     }
 }
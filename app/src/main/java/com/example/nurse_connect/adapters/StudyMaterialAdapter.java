@@ -8,6 +8,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
@@ -20,10 +21,12 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 public class StudyMaterialAdapter extends RecyclerView.Adapter<StudyMaterialAdapter.StudyMaterialViewHolder> {
     
     private List<StudyMaterial> materials;
+    private List<String> contents = new ArrayList<>();
     private OnStudyMaterialClickListener listener;
     private SimpleDateFormat dateFormat;
     
@@ -53,9 +56,87 @@ public class StudyMaterialAdapter extends RecyclerView.Adapter<StudyMaterialAdap
     
     public void setMaterials(List<StudyMaterial> materials) {
         this.materials = materials != null ? materials : new ArrayList<>();
+        this.contents = new ArrayList<>();
         notifyDataSetChanged();
     }
     
+    /**
+     * Replace the list, animating only what changed. A list that extends the current one
+     * (the next page) is a plain range insert; anything else goes through DiffUtil.
+     */
+    public void submitMaterials(List<StudyMaterial> newMaterials) {
+        List<StudyMaterial> oldMaterials = this.materials;
+        List<String> oldContents = this.contents;
+        List<StudyMaterial> updated = newMaterials != null ? new ArrayList<>(newMaterials) : new ArrayList<>();
+        List<String> updatedContents = new ArrayList<>(updated.size());
+        for (StudyMaterial material : updated) {
+            updatedContents.add(contentsOf(material));
+        }
+
+        this.materials = updated;
+        this.contents = updatedContents;
+        if (oldContents.size() != oldMaterials.size()) {
+            // Changed through setMaterials(), so there is nothing reliable to diff against
+            notifyDataSetChanged();
+            return;
+        }
+        if (isPrefix(oldMaterials, oldContents, updated, updatedContents)) {
+            if (updated.size() > oldMaterials.size()) {
+                notifyItemRangeInserted(oldMaterials.size(), updated.size() - oldMaterials.size());
+            }
+            return;
+        }
+
+        DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldMaterials.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return updated.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return Objects.equals(oldMaterials.get(oldPosition).getId(), updated.get(newPosition).getId());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return oldContents.get(oldPosition).equals(updatedContents.get(newPosition));
+            }
+        }).dispatchUpdatesTo(this);
+    }
+
+    private static boolean isPrefix(List<StudyMaterial> oldMaterials, List<String> oldContents,
+                                    List<StudyMaterial> newMaterials, List<String> newContents) {
+        if (oldMaterials.size() > newMaterials.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldMaterials.size(); i++) {
+            if (!Objects.equals(oldMaterials.get(i).getId(), newMaterials.get(i).getId())
+                    || !oldContents.get(i).equals(newContents.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Everything bind() shows, captured when the list is submitted. Items are updated in
+     * place elsewhere, so comparing the objects themselves would miss those changes.
+     */
+    private static String contentsOf(StudyMaterial m) {
+        return m.getTitle() + '\u001F' + m.getDescription() + '\u001F' + m.getCategory()
+                + '\u001F' + m.getThumbnailURL() + '\u001F' + m.getFileSize() + '\u001F' + m.getUploadDate()
+                + '\u001F' + m.getAuthorId() + '\u001F' + m.getAuthorName() + '\u001F' + m.getPrivacy()
+                + '\u001F' + m.getLikes() + '\u001F' + m.getDownloads() + '\u001F' + m.getViews()
+                + '\u001F' + m.getCommentCount() + '\u001F' + m.getRating() + '\u001F' + m.getReviewCount()
+                + '\u001F' + m.isLikedByUser() + '\u001F' + m.hasRatedByUser();
+    }
+    
     public void addMaterial(StudyMaterial material) {
         this.materials.add(0, material);
         notifyItemInserted(0);
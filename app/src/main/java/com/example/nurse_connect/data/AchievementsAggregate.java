@@ -0,0 +1,221 @@
+package com.example.nurse_connect.data;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A user's achievements kept in user_achievements/{userId}: materials uploaded, downloads
+ * and likes across them, and the sum of their average ratings over the number of rated
+ * materials. Only the user writes it; the profile reads one document.
+ *
+ * The user's own uploads and deletes apply their deltas in the same transaction. Ratings
+ * and counter roll-ups by other users only change the material and stamp its
+ * statsUpdatedAt; the user's client folds materials stamped after foldedThrough into the
+ * document when it loads it. The document keeps the values it last took from each
+ * material under "materials", so folding a material twice changes nothing.
+ *
+ * A missing document is seeded from a scan of the user's materials the first time the
+ * user reads it (see StudyMaterialRepository).
+ */
+public final class AchievementsAggregate {
+
+    public static final String COLLECTION = "user_achievements";
+    /** Set on a material whenever its downloads, likes or rating change */
+    public static final String STATS_UPDATED_AT = "statsUpdatedAt";
+    static final String FOLDED_THROUGH = "foldedThrough";
+    static final String TOTAL_MATERIALS = "totalMaterials";
+    static final String TOTAL_DOWNLOADS = "totalDownloads";
+    static final String TOTAL_LIKES = "totalLikes";
+    static final String RATED_MATERIALS = "ratedMaterials";
+    static final String RATING_TOTAL = "ratingTotal";
+    static final String MATERIALS = "materials";
+    private static final String DOWNLOADS = "downloads";
+    private static final String LIKES = "likes";
+    private static final String RATING = "rating";
+
+    private AchievementsAggregate() {}
+
+    public static DocumentReference ref(FirebaseFirestore db, String userId) {
+        return db.collection(COLLECTION).document(userId);
+    }
+
+    /**
+     * Whether the document can take deltas; older documents without per-material
+     * values are seeded again
+     */
+    static boolean isCurrent(DocumentSnapshot achievements) {
+        return achievements.exists() && achievements.get(MATERIALS) instanceof Map;
+    }
+
+    /**
+     * Deltas for a new material, which starts with no downloads, likes or rating
+     */
+    static Map<String, Object> newMaterialDeltas(String materialId) {
+        Map<String, Object> deltas = new HashMap<>();
+        deltas.put(TOTAL_MATERIALS, FieldValue.increment(1));
+        deltas.put(MATERIALS + "." + materialId, valuesOf(0, 0, 0));
+        return deltas;
+    }
+
+    /**
+     * Deltas for one of the user's materials being deleted: what it contributed is taken out
+     */
+    static Map<String, Object> removedMaterialDeltas(DocumentSnapshot achievements, String materialId) {
+        Map<String, Object> applied = appliedValues(achievements, materialId);
+        Map<String, Object> deltas = new HashMap<>();
+        if (applied == null) {
+            return deltas;
+        }
+        deltas.put(TOTAL_MATERIALS, FieldValue.increment(-1));
+        deltas.put(TOTAL_DOWNLOADS, FieldValue.increment(-longOf(applied, DOWNLOADS)));
+        deltas.put(TOTAL_LIKES, FieldValue.increment(-longOf(applied, LIKES)));
+        double rating = doubleOf(applied, RATING);
+        if (rating > 0) {
+            deltas.put(RATED_MATERIALS, FieldValue.increment(-1));
+            deltas.put(RATING_TOTAL, FieldValue.increment(-rating));
+        }
+        deltas.put(MATERIALS + "." + materialId, FieldValue.delete());
+        return deltas;
+    }
+
+    /**
+     * Updates taking the current downloads, likes and rating of the given materials into
+     * the document. A material the document does not know yet is added to it.
+     */
+    static Map<String, Object> fold(DocumentSnapshot achievements, List<DocumentSnapshot> materials) {
+        long totalMaterials = longOf(achievements.getData(), TOTAL_MATERIALS);
+        long downloads = longOf(achievements.getData(), TOTAL_DOWNLOADS);
+        long likes = longOf(achievements.getData(), TOTAL_LIKES);
+        long rated = longOf(achievements.getData(), RATED_MATERIALS);
+        double ratingTotal = doubleOf(achievements.getData(), RATING_TOTAL);
+        Timestamp foldedThrough = achievements.getTimestamp(FOLDED_THROUGH);
+
+        Map<String, Object> updates = new HashMap<>();
+        for (DocumentSnapshot material : materials) {
+            Map<String, Object> applied = appliedValues(achievements, material.getId());
+            if (applied == null) {
+                totalMaterials++;
+                applied = valuesOf(0, 0, 0);
+            }
+            long materialDownloads = longOf(material.getData(), DOWNLOADS);
+            long materialLikes = longOf(material.getData(), LIKES);
+            double oldRating = doubleOf(applied, RATING);
+            double newRating = doubleOf(material.getData(), RATING);
+            downloads += materialDownloads - longOf(applied, DOWNLOADS);
+            likes += materialLikes - longOf(applied, LIKES);
+            if (oldRating > 0) {
+                rated--;
+                ratingTotal -= oldRating;
+            }
+            if (newRating > 0) {
+                rated++;
+                ratingTotal += newRating;
+            }
+            updates.put(MATERIALS + "." + material.getId(), valuesOf(materialDownloads, materialLikes, newRating));
+
+            Timestamp stamped = material.getTimestamp(STATS_UPDATED_AT);
+            if (stamped != null && (foldedThrough == null || stamped.compareTo(foldedThrough) > 0)) {
+                foldedThrough = stamped;
+            }
+        }
+        updates.put(TOTAL_MATERIALS, totalMaterials);
+        updates.put(TOTAL_DOWNLOADS, downloads);
+        updates.put(TOTAL_LIKES, likes);
+        updates.put(RATED_MATERIALS, rated);
+        updates.put(RATING_TOTAL, ratingTotal);
+        if (foldedThrough != null) {
+            updates.put(FOLDED_THROUGH, foldedThrough);
+        }
+        return updates;
+    }
+
+    /**
+     * The document's values computed from all of the user's materials
+     */
+    static Map<String, Object> seed(List<DocumentSnapshot> materials) {
+        long downloads = 0;
+        long likes = 0;
+        long rated = 0;
+        double ratingTotal = 0;
+        Timestamp foldedThrough = null;
+        Map<String, Object> applied = new HashMap<>();
+        for (DocumentSnapshot material : materials) {
+            long materialDownloads = longOf(material.getData(), DOWNLOADS);
+            long materialLikes = longOf(material.getData(), LIKES);
+            double rating = doubleOf(material.getData(), RATING);
+            downloads += materialDownloads;
+            likes += materialLikes;
+            if (rating > 0) {
+                rated++;
+                ratingTotal += rating;
+            }
+            applied.put(material.getId(), valuesOf(materialDownloads, materialLikes, rating));
+            Timestamp stamped = material.getTimestamp(STATS_UPDATED_AT);
+            if (stamped != null && (foldedThrough == null || stamped.compareTo(foldedThrough) > 0)) {
+                foldedThrough = stamped;
+            }
+        }
+        Map<String, Object> values = new HashMap<>();
+        values.put(TOTAL_MATERIALS, materials.size());
+        values.put(TOTAL_DOWNLOADS, downloads);
+        values.put(TOTAL_LIKES, likes);
+        values.put(RATED_MATERIALS, rated);
+        values.put(RATING_TOTAL, ratingTotal);
+        values.put(MATERIALS, applied);
+        values.put(FOLDED_THROUGH, foldedThrough != null ? foldedThrough : new Timestamp(0, 0));
+        return values;
+    }
+
+    static StudyMaterialRepository.UserAchievements fromDocument(DocumentSnapshot document) {
+        return fromValues(document.getData());
+    }
+
+    /**
+     * Achievements from stored values, or from the updates about to be stored
+     */
+    static StudyMaterialRepository.UserAchievements fromValues(Map<String, Object> values) {
+        StudyMaterialRepository.UserAchievements achievements = new StudyMaterialRepository.UserAchievements();
+        achievements.setTotalMaterials((int) Math.max(0, longOf(values, TOTAL_MATERIALS)));
+        achievements.setTotalDownloads((int) Math.max(0, longOf(values, TOTAL_DOWNLOADS)));
+        achievements.setTotalLikes((int) Math.max(0, longOf(values, TOTAL_LIKES)));
+        long rated = longOf(values, RATED_MATERIALS);
+        double ratingTotal = doubleOf(values, RATING_TOTAL);
+        achievements.setAverageRating(rated > 0 ? (float) Math.max(0, ratingTotal / rated) : 0.0f);
+        return achievements;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> appliedValues(DocumentSnapshot achievements, String materialId) {
+        Object materials = achievements.get(MATERIALS);
+        if (!(materials instanceof Map)) {
+            return null;
+        }
+        Object applied = ((Map<String, Object>) materials).get(materialId);
+        return applied instanceof Map ? (Map<String, Object>) applied : null;
+    }
+
+    private static Map<String, Object> valuesOf(long downloads, long likes, double rating) {
+        Map<String, Object> values = new HashMap<>();
+        values.put(DOWNLOADS, downloads);
+        values.put(LIKES, likes);
+        values.put(RATING, rating);
+        return values;
+    }
+
+    private static long longOf(Map<String, Object> values, String field) {
+        Object value = values != null ? values.get(field) : null;
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static double doubleOf(Map<String, Object> values, String field) {
+        Object value = values != null ? values.get(field) : null;
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.nurse_connect.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.nurse_connect.models.CallLog;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Paginated call history source.
+ * Pages the "caller" and "receiver" sides of the calls collection in parallel and
+ * merges them lazily by startTime, only fetching the next page of a side once its
+ * buffered entries have been consumed. Merged entries are cached so the screen can
+ * render instantly when reopened.
+ */
+public class CallHistoryRepository {
+
+    private static final String TAG = "CallHistoryRepository";
+    private static final String PREFS_NAME = "call_history_cache";
+    private static final String KEY_CACHED_HISTORY = "history_";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_CACHED_ENTRIES = 100;
+
+    public interface PageCallback {
+        void onPage(List<CallLog> page, boolean hasMore);
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Cursor over one side (outgoing or incoming) of the call history.
+     */
+    private static class Side {
+        final String userField;
+        final boolean outgoing;
+        final Deque<CallLog> buffer = new ArrayDeque<>();
+        DocumentSnapshot lastDocument;
+        boolean exhausted;
+
+        Side(String userField, boolean outgoing) {
+            this.userField = userField;
+            this.outgoing = outgoing;
+        }
+
+        boolean needsFetch() {
+            return buffer.isEmpty() && !exhausted;
+        }
+
+        void reset() {
+            buffer.clear();
+            lastDocument = null;
+            exhausted = false;
+        }
+    }
+
+    private final FirebaseFirestore db;
+    private final SharedPreferences prefs;
+    private final Gson gson;
+    private final int pageSize;
+
+    private final Side outgoingSide = new Side("callerId", true);
+    private final Side incomingSide = new Side("receiverId", false);
+    private final List<CallLog> loaded = new ArrayList<>();
+
+    private String userId;
+    private String filter = "all";
+    private int generation;
+    private boolean loading;
+
+    public CallHistoryRepository(Context context) {
+        this(context, DEFAULT_PAGE_SIZE);
+    }
+
+    public CallHistoryRepository(Context context, int pageSize) {
+        this.db = FirebaseFirestore.getInstance();
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.gson = new Gson();
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Get the cached merged history for a user and filter (returns immediately)
+     */
+    public List<CallLog> getCachedHistory(String userId, String filter) {
+        String json = prefs.getString(cacheKey(userId, filter), null);
+        if (json == null) {
+            return new ArrayList<>();
+        }
+        try {
+            Type listType = new TypeToken<List<CallLog>>(){}.getType();
+            List<CallLog> cached = gson.fromJson(json, listType);
+            return cached != null ? cached : new ArrayList<>();
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable call history cache", e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Restart pagination for the given user and filter and load the first page
+     */
+    public void loadFirstPage(String userId, String filter, PageCallback callback) {
+        this.userId = userId;
+        this.filter = filter != null ? filter : "all";
+        generation++;
+        loading = false;
+        outgoingSide.reset();
+        incomingSide.reset();
+        loaded.clear();
+        loadNextPage(callback);
+    }
+
+    /**
+     * Load the next merged page. Ignored while a page is already loading.
+     */
+    public void loadNextPage(PageCallback callback) {
+        if (userId == null || loading) {
+            return;
+        }
+        if (!hasMore()) {
+            callback.onPage(new ArrayList<>(), false);
+            return;
+        }
+        loading = true;
+        fillPage(generation, new ArrayList<>(), callback);
+    }
+
+    public boolean hasMore() {
+        return !outgoingSide.buffer.isEmpty() || !outgoingSide.exhausted
+                || !incomingSide.buffer.isEmpty() || !incomingSide.exhausted;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Two-cursor merge: an entry is only emitted once the other side either has a
+     * buffered head to compare against or is known to be exhausted.
+     */
+    private void fillPage(int requestGeneration, List<CallLog> page, PageCallback callback) {
+        while (page.size() < pageSize) {
+            if (outgoingSide.needsFetch() || incomingSide.needsFetch()) {
+                fetchPendingSides(requestGeneration, page, callback);
+                return;
+            }
+
+            CallLog outgoingHead = outgoingSide.buffer.peekFirst();
+            CallLog incomingHead = incomingSide.buffer.peekFirst();
+            if (outgoingHead == null && incomingHead == null) {
+                break;
+            }
+
+            if (incomingHead == null
+                    || (outgoingHead != null && outgoingHead.getStartTime() >= incomingHead.getStartTime())) {
+                page.add(outgoingSide.buffer.pollFirst());
+            } else {
+                page.add(incomingSide.buffer.pollFirst());
+            }
+        }
+
+        loading = false;
+        loaded.addAll(page);
+        cacheHistory();
+        callback.onPage(page, hasMore());
+    }
+
+    private void fetchPendingSides(int requestGeneration, List<CallLog> page, PageCallback callback) {
+        List<Task<QuerySnapshot>> fetches = new ArrayList<>();
+        List<Side> fetchedSides = new ArrayList<>();
+        for (Side side : new Side[]{outgoingSide, incomingSide}) {
+            if (side.needsFetch()) {
+                fetches.add(buildQuery(side).get());
+                fetchedSides.add(side);
+            }
+        }
+
+        Tasks.whenAllComplete(fetches).addOnCompleteListener(done -> {
+            if (requestGeneration != generation) {
+                // A newer loadFirstPage() superseded this request
+                return;
+            }
+
+            Exception failure = null;
+            for (int i = 0; i < fetches.size(); i++) {
+                Task<QuerySnapshot> task = fetches.get(i);
+                if (task.isSuccessful() && task.getResult() != null) {
+                    applyPage(fetchedSides.get(i), task.getResult());
+                } else if (failure == null) {
+                    failure = task.getException() != null
+                            ? task.getException() : new Exception("Failed to load call history");
+                }
+            }
+            if (failure != null) {
+                // The cursors already moved past the entries merged so far; buffer them again
+                unpoll(page);
+                loading = false;
+                Log.e(TAG, "Error loading call history page", failure);
+                callback.onFailure(failure);
+                return;
+            }
+            fillPage(requestGeneration, page, callback);
+        });
+    }
+
+    private void unpoll(List<CallLog> page) {
+        for (int i = page.size() - 1; i >= 0; i--) {
+            CallLog callLog = page.get(i);
+            (callLog.isOutgoing() ? outgoingSide : incomingSide).buffer.addFirst(callLog);
+        }
+    }
+
+    private void applyPage(Side side, QuerySnapshot snapshot) {
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        for (DocumentSnapshot document : documents) {
+            CallLog callLog = createCallLogFromDocument(document, side.outgoing);
+            if (callLog != null) {
+                side.buffer.addLast(callLog);
+            }
+        }
+        if (!documents.isEmpty()) {
+            side.lastDocument = documents.get(documents.size() - 1);
+        }
+        if (documents.size() < pageSize) {
+            side.exhausted = true;
+        }
+        Log.d(TAG, "Fetched " + documents.size() + (side.outgoing ? " outgoing" : " incoming") + " calls");
+    }
+
+    private Query buildQuery(Side side) {
+        Query query = db.collection("calls")
+                .whereEqualTo(side.userField, userId);
+
+        if ("video".equals(filter)) {
+            query = query.whereEqualTo("callType", "video");
+        } else if ("audio".equals(filter)) {
+            query = query.whereEqualTo("callType", "audio");
+        }
+
+        query = query.orderBy("startTime", Query.Direction.DESCENDING);
+        if (side.lastDocument != null) {
+            query = query.startAfter(side.lastDocument);
+        }
+        return query.limit(pageSize);
+    }
+
+    private void cacheHistory() {
+        List<CallLog> toCache = loaded.size() > MAX_CACHED_ENTRIES
+                ? new ArrayList<>(loaded.subList(0, MAX_CACHED_ENTRIES))
+                : loaded;
+        prefs.edit().putString(cacheKey(userId, filter), gson.toJson(toCache)).apply();
+    }
+
+    private static String cacheKey(String userId, String filter) {
+        return KEY_CACHED_HISTORY + userId + "_" + (filter != null ? filter : "all");
+    }
+
+    private CallLog createCallLogFromDocument(DocumentSnapshot document, boolean isOutgoing) {
+        try {
+            String callId = document.getId();
+            String callerId = document.getString("callerId");
+            String receiverId = document.getString("receiverId");
+            String callerName = document.getString("callerName");
+            String receiverName = document.getString("receiverName");
+            String callType = document.getString("callType");
+            String status = document.getString("status");
+            Long startTime = document.getLong("startTime");
+            Long endTime = document.getLong("endTime");
+            Long duration = document.getLong("duration");
+            String callerPhotoUrl = document.getString("callerPhotoUrl");
+            String receiverPhotoUrl = document.getString("receiverPhotoUrl");
+
+            if (startTime == null) {
+                startTime = System.currentTimeMillis();
+            }
+
+            // Determine the other user's info
+            String otherUserId, otherUserName, otherPhotoUrl;
+            if (isOutgoing) {
+                otherUserId = receiverId;
+                otherUserName = receiverName;
+                otherPhotoUrl = receiverPhotoUrl;
+            } else {
+                otherUserId = callerId;
+                otherUserName = callerName;
+                otherPhotoUrl = callerPhotoUrl;
+            }
+
+            return new CallLog(
+                    callId,
+                    otherUserId,
+                    otherUserName,
+                    otherPhotoUrl,
+                    callType,
+                    status,
+                    startTime,
+                    endTime,
+                    duration,
+                    isOutgoing
+            );
+        } catch (Exception e) {
+            Log.e(TAG, "Error parsing call document " + document.getId(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.nurse_connect.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.nurse_connect.utils.BloomFilter;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.gson.Gson;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The signed-in user's favorites, kept locally so a favorite check never needs the
+ * network. A snapshot listener on user_favorites keeps the material ID set current
+ * (the first snapshot reads the user's favorites once per session, later ones only
+ * carry changes), together with each favorite's document ID so a toggle can delete
+ * it without a lookup.
+ *
+ * A Bloom filter of the set is persisted per user. Until the first server snapshot
+ * arrives (cold start, offline) it answers isFavorite: a miss is definite, a hit is
+ * right except for about 1% of non-favorites.
+ */
+public class FavoritesIndex {
+
+    private static final String TAG = "FavoritesIndex";
+    private static final String PREFS_NAME = "favorites_index";
+    private static final String KEY_FILTER = "bloom_";
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 256;
+
+    private static FavoritesIndex instance;
+
+    private final FirebaseFirestore db;
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+
+    // materialId -> user_favorites document ID
+    private final Map<String, String> documentByMaterial = new HashMap<>();
+    private final Map<String, String> materialByDocument = new HashMap<>();
+    private BloomFilter filter;
+    private boolean synced;
+    private String userId;
+    private ListenerRegistration registration;
+
+    private FavoritesIndex(Context context) {
+        db = FirebaseFirestore.getInstance();
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        FirebaseAuth.getInstance().addAuthStateListener(auth -> {
+            FirebaseUser user = auth.getCurrentUser();
+            switchUser(user != null ? user.getUid() : null);
+        });
+    }
+
+    /**
+     * Start following the signed-in user's favorites; called once from the Application
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new FavoritesIndex(context.getApplicationContext());
+        }
+    }
+
+    public static synchronized FavoritesIndex getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("FavoritesIndex.init() was not called");
+        }
+        return instance;
+    }
+
+    /**
+     * True once the set reflects the server for this user, so answers are exact
+     */
+    public synchronized boolean isSyncedFor(String userId) {
+        return synced && userId != null && userId.equals(this.userId);
+    }
+
+    /**
+     * O(1) and offline: exact once synced, otherwise the persisted filter's answer
+     */
+    public synchronized boolean isFavorite(String materialId) {
+        if (documentByMaterial.containsKey(materialId)) {
+            return true;
+        }
+        if (synced) {
+            return false;
+        }
+        return filter != null && filter.mightContain(materialId);
+    }
+
+    public synchronized Set<String> getFavoriteIds() {
+        return new HashSet<>(documentByMaterial.keySet());
+    }
+
+    /**
+     * The user_favorites document holding this favorite, or null when it is not a favorite
+     */
+    public synchronized String getFavoriteDocumentId(String materialId) {
+        return documentByMaterial.get(materialId);
+    }
+
+    private synchronized void switchUser(String newUserId) {
+        if (newUserId == null ? userId == null : newUserId.equals(userId)) {
+            return;
+        }
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        documentByMaterial.clear();
+        materialByDocument.clear();
+        synced = false;
+        userId = newUserId;
+        filter = newUserId != null ? loadFilter(newUserId) : null;
+        if (newUserId == null) {
+            return;
+        }
+        registration = db.collection("user_favorites")
+                .whereEqualTo("userId", newUserId)
+                .addSnapshotListener((snapshot, e) -> onSnapshot(newUserId, snapshot, e));
+    }
+
+    private synchronized void onSnapshot(String forUser, QuerySnapshot snapshot, FirebaseFirestoreException e) {
+        if (!forUser.equals(userId)) {
+            return;
+        }
+        if (e != null || snapshot == null) {
+            Log.w(TAG, "Favorites listener failed; answers come from the stored filter", e);
+            return;
+        }
+        boolean changed = false;
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            String documentId = change.getDocument().getId();
+            String materialId = change.getDocument().getString("materialId");
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                String removed = materialByDocument.remove(documentId);
+                if (removed != null && documentId.equals(documentByMaterial.get(removed))) {
+                    documentByMaterial.remove(removed);
+                    // An older duplicate of the same favorite may still be present
+                    for (Map.Entry<String, String> entry : materialByDocument.entrySet()) {
+                        if (removed.equals(entry.getValue())) {
+                            documentByMaterial.put(removed, entry.getKey());
+                            break;
+                        }
+                    }
+                    changed = true;
+                }
+            } else if (materialId != null) {
+                materialByDocument.put(documentId, materialId);
+                changed |= documentByMaterial.put(materialId, documentId) == null;
+            }
+        }
+        // Cached snapshots may be incomplete; only the server's answer makes the set exact
+        boolean wasSynced = synced;
+        synced |= !snapshot.getMetadata().isFromCache();
+        if (changed || (synced && !wasSynced)) {
+            saveFilter();
+        }
+    }
+
+    private BloomFilter loadFilter(String forUser) {
+        String json = prefs.getString(KEY_FILTER + forUser, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return gson.fromJson(json, BloomFilter.class);
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable favorites filter", e);
+            return null;
+        }
+    }
+
+    // Bloom filters cannot forget, so the filter is rebuilt from the set on every change
+    private void saveFilter() {
+        if (!synced) {
+            return;
+        }
+        BloomFilter rebuilt = BloomFilter.create(
+                Math.max(MIN_CAPACITY, documentByMaterial.size() * 2), FALSE_POSITIVE_RATE);
+        for (String materialId : documentByMaterial.keySet()) {
+            rebuilt.put(materialId);
+        }
+        filter = rebuilt;
+        prefs.edit().putString(KEY_FILTER + userId, gson.toJson(rebuilt)).apply();
+        Log.d(TAG, "Favorites index holds " + documentByMaterial.size() + " materials");
+    }
+}
@@ -3,6 +3,8 @@ package com.example.nurse_connect.data;
 import android.util.Log;
 
 import com.example.nurse_connect.models.StudyMaterial;
+import com.example.nurse_connect.utils.ChunkedMultiGet;
+import com.example.nurse_connect.utils.FirestoreMultiGet;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -18,10 +20,12 @@ public class FavoritesRepository {
     private static final String TAG = "FavoritesRepository";
     private FirebaseFirestore firestore;
     private FirebaseAuth auth;
+    private FavoritesIndex favoritesIndex;
     
     public FavoritesRepository() {
         firestore = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
+        favoritesIndex = FavoritesIndex.getInstance();
     }
     
     public interface FavoritesCallback {
@@ -48,6 +52,16 @@ public class FavoritesRepository {
             return;
         }
         
+        if (favoritesIndex.isSyncedFor(userId)) {
+            List<String> favoriteIds = new ArrayList<>(favoritesIndex.getFavoriteIds());
+            if (favoriteIds.isEmpty()) {
+                callback.onSuccess(new ArrayList<>());
+            } else {
+                getStudyMaterialsByIds(favoriteIds, callback);
+            }
+            return;
+        }
+        
         firestore.collection("user_favorites")
                 .whereEqualTo("userId", userId)
                 .get()
@@ -72,38 +86,30 @@ public class FavoritesRepository {
                 .addOnFailureListener(callback::onFailure);
     }
     
-    // Get study materials by their IDs
+    // Get study materials by their IDs, in favorite order
     private void getStudyMaterialsByIds(List<String> materialIds, FavoritesCallback callback) {
-        List<StudyMaterial> favorites = new ArrayList<>();
-        final int[] completedCount = {0};
-        final int totalIds = materialIds.size();
-        
-        for (String materialId : materialIds) {
-            firestore.collection("study_materials")
-                    .document(materialId)
-                    .get()
-                    .addOnSuccessListener(documentSnapshot -> {
-                        if (documentSnapshot.exists()) {
-                            StudyMaterial material = documentSnapshot.toObject(StudyMaterial.class);
-                            if (material != null) {
-                                material.setId(documentSnapshot.getId());
-                                material.setLikedByUser(true); // Mark as liked since it's in favorites
-                                favorites.add(material);
-                            }
-                        }
-                        
-                        completedCount[0]++;
-                        if (completedCount[0] >= totalIds) {
-                            callback.onSuccess(favorites);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        completedCount[0]++;
-                        if (completedCount[0] >= totalIds) {
-                            callback.onSuccess(favorites);
-                        }
-                    });
-        }
+        FirestoreMultiGet.get("study_materials", materialIds, new ChunkedMultiGet.Callback<DocumentSnapshot>() {
+            @Override
+            public void onLoaded(List<DocumentSnapshot> documents, List<String> missingIds) {
+                List<StudyMaterial> favorites = new ArrayList<>();
+                for (DocumentSnapshot documentSnapshot : documents) {
+                    StudyMaterial material = StudyMaterialRepository.fromDocument(documentSnapshot);
+                    if (material != null) {
+                        material.setLikedByUser(true); // Mark as liked since it's in favorites
+                        favorites.add(material);
+                    }
+                }
+                if (!missingIds.isEmpty()) {
+                    Log.d(TAG, missingIds.size() + " favorite materials no longer exist");
+                }
+                callback.onSuccess(favorites);
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                callback.onFailure(e);
+            }
+        });
     }
     
     // Toggle favorite status for a material
@@ -115,6 +121,26 @@ public class FavoritesRepository {
             return;
         }
         
+        if (favoritesIndex.isSyncedFor(userId)) {
+            // The index knows the favorite's document, so no lookup query is needed
+            String documentId = favoritesIndex.getFavoriteDocumentId(materialId);
+            if (documentId != null) {
+                firestore.collection("user_favorites")
+                        .document(documentId)
+                        .delete()
+                        .addOnSuccessListener(aVoid -> callback.onSuccess(false))
+                        .addOnFailureListener(callback::onFailure);
+            } else {
+                // One document per user and material, so a repeated tap cannot add a duplicate
+                firestore.collection("user_favorites")
+                        .document(userId + "_" + materialId)
+                        .set(newFavorite(userId, materialId))
+                        .addOnSuccessListener(aVoid -> callback.onSuccess(true))
+                        .addOnFailureListener(callback::onFailure);
+            }
+            return;
+        }
+        
         // Check if already favorited
         firestore.collection("user_favorites")
                 .whereEqualTo("userId", userId)
@@ -134,13 +160,8 @@ public class FavoritesRepository {
                                 .addOnFailureListener(callback::onFailure);
                     } else {
                         // Add to favorites
-                        Map<String, Object> favorite = new HashMap<>();
-                        favorite.put("userId", userId);
-                        favorite.put("materialId", materialId);
-                        favorite.put("addedAt", com.google.firebase.Timestamp.now());
-                        
                         firestore.collection("user_favorites")
-                                .add(favorite)
+                                .add(newFavorite(userId, materialId))
                                 .addOnSuccessListener(documentReference -> {
                                     callback.onSuccess(true); // Now favorite
                                 })
@@ -159,6 +180,11 @@ public class FavoritesRepository {
             return;
         }
         
+        if (favoritesIndex.isSyncedFor(userId)) {
+            callback.onSuccess(favoritesIndex.isFavorite(materialId));
+            return;
+        }
+        
         firestore.collection("user_favorites")
                 .whereEqualTo("userId", userId)
                 .whereEqualTo("materialId", materialId)
@@ -169,4 +195,12 @@ public class FavoritesRepository {
                 })
                 .addOnFailureListener(callback::onFailure);
     }
+    
+    private static Map<String, Object> newFavorite(String userId, String materialId) {
+        Map<String, Object> favorite = new HashMap<>();
+        favorite.put("userId", userId);
+        favorite.put("materialId", materialId);
+        favorite.put("addedAt", com.google.firebase.Timestamp.now());
+        return favorite;
+    }
 } 
\ No newline at end of file
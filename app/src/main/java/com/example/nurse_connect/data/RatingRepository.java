@@ -3,12 +3,14 @@ package com.example.nurse_connect.data;
 import android.util.Log;
 
 import com.example.nurse_connect.models.DocumentRating;
+import com.example.nurse_connect.models.RatingAggregate;
 import com.example.nurse_connect.models.RatingStats;
 import com.example.nurse_connect.models.StudyMaterial;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -16,6 +18,7 @@ import java.util.Map;
 public class RatingRepository {
     
     private static final String TAG = "RatingRepository";
+    private static final String AGGREGATES = "rating_aggregates";
     private FirebaseFirestore firestore;
     private FirebaseAuth auth;
     
@@ -67,20 +70,63 @@ public class RatingRepository {
     
     // Get rating statistics for a document
     public void getRatingStats(String materialId, RatingStatsCallback callback) {
-        firestore.collection("document_ratings")
-                .whereEqualTo("documentId", materialId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    RatingStats stats = new RatingStats();
-                    
-                    for (DocumentSnapshot document : querySnapshot) {
-                        DocumentRating rating = document.toObject(DocumentRating.class);
-                        if (rating != null) {
-                            stats.addRating(rating.getRating());
-                        }
+        loadAggregate(materialId, new AggregateCallback() {
+            @Override
+            public void onSuccess(RatingAggregate aggregate) {
+                callback.onSuccess(aggregate.toStats());
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+    
+    private interface AggregateCallback {
+        void onSuccess(RatingAggregate aggregate);
+        void onFailure(Exception e);
+    }
+    
+    // Read a document's rating aggregate, building it from its ratings the first time
+    private void loadAggregate(String materialId, AggregateCallback callback) {
+        DocumentReference aggregateRef = firestore.collection(AGGREGATES).document(materialId);
+        aggregateRef.get()
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.exists()) {
+                        RatingAggregate aggregate = snapshot.toObject(RatingAggregate.class);
+                        callback.onSuccess(aggregate != null ? aggregate : new RatingAggregate());
+                        return;
                     }
                     
-                    callback.onSuccess(stats);
+                    // Rated before aggregates were kept: fold the existing ratings once
+                    firestore.collection("document_ratings")
+                            .whereEqualTo("documentId", materialId)
+                            .get()
+                            .addOnSuccessListener(querySnapshot -> {
+                                RatingAggregate built = new RatingAggregate();
+                                for (DocumentSnapshot document : querySnapshot) {
+                                    Long rating = document.getLong("rating");
+                                    if (rating != null) {
+                                        built.replace(0, rating.intValue());
+                                    }
+                                }
+                                Log.d(TAG, "Built rating aggregate for " + materialId + " from " + built.getCount() + " ratings");
+                                
+                                firestore.runTransaction(transaction -> {
+                                    DocumentSnapshot current = transaction.get(aggregateRef);
+                                    RatingAggregate existing = current.exists() ? current.toObject(RatingAggregate.class) : null;
+                                    if (existing != null) {
+                                        // Another client got there first
+                                        return existing;
+                                    }
+                                    transaction.set(aggregateRef, built);
+                                    return built;
+                                })
+                                        .addOnSuccessListener(callback::onSuccess)
+                                        .addOnFailureListener(callback::onFailure);
+                            })
+                            .addOnFailureListener(callback::onFailure);
                 })
                 .addOnFailureListener(callback::onFailure);
     }
@@ -132,55 +178,108 @@ public class RatingRepository {
                 .limit(1)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
-                    if (!querySnapshot.isEmpty()) {
-                        // Update existing rating
-                        DocumentSnapshot document = querySnapshot.getDocuments().get(0);
-                        Map<String, Object> updates = new HashMap<>();
-                        updates.put("rating", rating);
-                        updates.put("comment", comment);
-                        updates.put("updatedAt", com.google.firebase.Timestamp.now());
-                        
-                        firestore.collection("document_ratings")
-                                .document(document.getId())
-                                .update(updates)
-                                .addOnSuccessListener(aVoid -> {
-                                    // If there's a comment, also update/create comment in comments collection
-                                    if (comment != null && !comment.trim().isEmpty()) {
-                                        updateOrCreateComment(materialId, userId, userName, comment, rating, callback);
-                                    } else {
-                                        updateDocumentRating(materialId, callback);
-                                    }
-                                })
-                                .addOnFailureListener(callback::onFailure);
-                    } else {
-                        // Create new rating
-                        DocumentRating newRating = new DocumentRating(materialId, userId, userName, rating, comment);
+                    // Older ratings have generated IDs; new ones are keyed by document and user
+                    DocumentReference ratingRef = !querySnapshot.isEmpty()
+                            ? querySnapshot.getDocuments().get(0).getReference()
+                            : firestore.collection("document_ratings").document(materialId + "_" + userId);
+                    
+                    // Make sure the aggregate exists before the transaction adjusts it
+                    loadAggregate(materialId, new AggregateCallback() {
+                        @Override
+                        public void onSuccess(RatingAggregate aggregate) {
+                            saveRating(ratingRef, materialId, userId, userName, rating, comment, callback);
+                        }
                         
-                        firestore.collection("document_ratings")
-                                .add(newRating)
-                                .addOnSuccessListener(documentReference -> {
-                                    // If there's a comment, also create comment in comments collection
-                                    if (comment != null && !comment.trim().isEmpty()) {
-                                        createComment(materialId, userId, userName, comment, rating, callback);
-                                    } else {
-                                        updateDocumentRating(materialId, callback);
-                                    }
-                                })
-                                .addOnFailureListener(callback::onFailure);
-                    }
+                        @Override
+                        public void onFailure(Exception e) {
+                            callback.onFailure(e);
+                        }
+                    });
                 })
                 .addOnFailureListener(callback::onFailure);
     }
     
+    // Write the rating, the document's aggregate and its average on the study material in
+    // one transaction. The rules accept an aggregate change only if it matches the
+    // user's rating at {materialId}_{userId} going from its old to its new value, so a
+    // rating stored under a generated ID is moved to that key here and named in the
+    // aggregate's movedFrom. The author's achievements pick up the new average from the
+    // material's statsUpdatedAt.
+    private void saveRating(DocumentReference ratingRef, String materialId, String userId, String userName,
+                            int rating, String comment, SubmissionCallback callback) {
+        DocumentReference aggregateRef = firestore.collection(AGGREGATES).document(materialId);
+        DocumentReference materialRef = firestore.collection("study_materials").document(materialId);
+        DocumentReference keyedRef = firestore.collection("document_ratings").document(materialId + "_" + userId);
+        
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(ratingRef);
+            DocumentSnapshot aggregateSnapshot = transaction.get(aggregateRef);
+            DocumentSnapshot material = transaction.get(materialRef);
+            
+            RatingAggregate stored = aggregateSnapshot.exists() ? aggregateSnapshot.toObject(RatingAggregate.class) : null;
+            RatingAggregate aggregate = stored != null ? stored : new RatingAggregate();
+            Long previous = existing.exists() ? existing.getLong("rating") : null;
+            aggregate.replace(previous != null ? previous.intValue() : 0, rating);
+            
+            String movedFrom = null;
+            if (existing.exists() && !ratingRef.getId().equals(keyedRef.getId())) {
+                DocumentRating moved = new DocumentRating(materialId, userId, userName, rating, comment);
+                com.google.firebase.Timestamp createdAt = existing.getTimestamp("createdAt");
+                if (createdAt != null) {
+                    moved.setCreatedAt(createdAt);
+                }
+                transaction.set(keyedRef, moved);
+                transaction.delete(ratingRef);
+                movedFrom = ratingRef.getId();
+            } else if (existing.exists()) {
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("rating", rating);
+                updates.put("comment", comment);
+                updates.put("updatedAt", com.google.firebase.Timestamp.now());
+                transaction.update(ratingRef, updates);
+            } else {
+                transaction.set(ratingRef, new DocumentRating(materialId, userId, userName, rating, comment));
+            }
+            
+            Map<String, Object> aggregateData = new HashMap<>();
+            aggregateData.put("count", aggregate.getCount());
+            aggregateData.put("sum", aggregate.getSum());
+            aggregateData.put("histogram", aggregate.getHistogram());
+            if (movedFrom != null) {
+                aggregateData.put("movedFrom", movedFrom);
+            }
+            transaction.set(aggregateRef, aggregateData);
+            
+            if (material.exists()) {
+                Map<String, Object> updates = new HashMap<>();
+                // Exactly sum / count as a double; the rules compare it with the aggregate
+                updates.put("rating", (double) aggregate.getSum() / aggregate.getCount());
+                updates.put("reviewCount", aggregate.getCount());
+                updates.put(AchievementsAggregate.STATS_UPDATED_AT, FieldValue.serverTimestamp());
+                transaction.update(materialRef, updates);
+            }
+            return existing.exists();
+        }).addOnSuccessListener(updated -> {
+            // If there's a comment, also update/create comment in comments collection
+            if (comment != null && !comment.trim().isEmpty()) {
+                if (updated) {
+                    updateOrCreateComment(materialId, userId, userName, comment, rating, callback);
+                } else {
+                    createComment(materialId, userId, userName, comment, rating, callback);
+                }
+            } else {
+                callback.onSuccess();
+            }
+        }).addOnFailureListener(callback::onFailure);
+    }
+    
     // Create a new comment in the comments collection
     private void createComment(String materialId, String userId, String userName, String comment, int rating, SubmissionCallback callback) {
         com.example.nurse_connect.models.Comment newComment = new com.example.nurse_connect.models.Comment(userId, userName, comment);
         
         firestore.collection("comments")
                 .add(newComment)
-                .addOnSuccessListener(documentReference -> {
-                    updateDocumentRating(materialId, callback);
-                })
+                .addOnSuccessListener(documentReference -> callback.onSuccess())
                 .addOnFailureListener(callback::onFailure);
     }
     
@@ -204,9 +303,7 @@ public class RatingRepository {
                         firestore.collection("comments")
                                 .document(document.getId())
                                 .update(updates)
-                                .addOnSuccessListener(aVoid -> {
-                                    updateDocumentRating(materialId, callback);
-                                })
+                                .addOnSuccessListener(aVoid -> callback.onSuccess())
                                 .addOnFailureListener(callback::onFailure);
                     } else {
                         // Create new comment
@@ -215,27 +312,4 @@ public class RatingRepository {
                 })
                 .addOnFailureListener(callback::onFailure);
     }
-    
-    // Update the average rating in the study material document
-    private void updateDocumentRating(String materialId, SubmissionCallback callback) {
-        getRatingStats(materialId, new RatingStatsCallback() {
-            @Override
-            public void onSuccess(RatingStats stats) {
-                Map<String, Object> updates = new HashMap<>();
-                updates.put("rating", stats.getAverageRating());
-                updates.put("reviewCount", stats.getTotalRatings());
-                
-                firestore.collection("study_materials")
-                        .document(materialId)
-                        .update(updates)
-                        .addOnSuccessListener(aVoid -> callback.onSuccess())
-                        .addOnFailureListener(callback::onFailure);
-            }
-            
-            @Override
-            public void onFailure(Exception e) {
-                callback.onFailure(e);
-            }
-        });
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,269 @@
+package com.example.nurse_connect.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.nurse_connect.models.StudyMaterial;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Paginated study-material library.
+ * Pages the study_materials query newest first with a document cursor, so each page
+ * costs pageSize reads however large the library grows. Loaded pages stay in memory
+ * and only new pages are appended; the next page is prefetched once the visible
+ * position comes within prefetchDistance of the end. Favorites come from
+ * FavoritesIndex, or from one read per refresh until the index has synced, and the
+ * first pages of each query are cached so the library renders instantly when reopened.
+ */
+public class StudyMaterialFeed {
+
+    private static final String TAG = "StudyMaterialFeed";
+    private static final String PREFS_NAME = "study_material_feed_cache";
+    private static final String KEY_CACHED_PAGES = "pages_";
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 8;
+    private static final int MAX_CACHED_ENTRIES = 100;
+
+    public interface PageCallback {
+        /** Everything loaded so far, in order, and whether another page may follow */
+        void onPage(List<StudyMaterial> loaded, boolean hasMore);
+        void onFailure(Exception e);
+    }
+
+    private final FirebaseFirestore db;
+    private final FirebaseAuth auth;
+    private final SharedPreferences prefs;
+    private final Gson gson;
+    private final int pageSize;
+    private final int prefetchDistance;
+
+    private final FavoritesIndex favoritesIndex;
+    private final List<StudyMaterial> loaded = new ArrayList<>();
+    private final Set<String> loadedIds = new HashSet<>();
+    private Set<String> favoriteIds = Collections.emptySet();
+
+    private String category;
+    private String authorId;
+    private String userId;
+    private DocumentSnapshot lastDocument;
+    private boolean started;
+    private boolean exhausted;
+    private boolean loading;
+    private int generation;
+
+    public StudyMaterialFeed(Context context) {
+        this(context, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE);
+    }
+
+    public StudyMaterialFeed(Context context, int pageSize, int prefetchDistance) {
+        this.db = FirebaseFirestore.getInstance();
+        this.auth = FirebaseAuth.getInstance();
+        this.favoritesIndex = FavoritesIndex.getInstance();
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.gson = new Gson();
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Get the cached first pages for a category and/or author (null for any); returns immediately
+     */
+    public List<StudyMaterial> getCachedPages(String category, String authorId) {
+        String json = prefs.getString(cacheKey(currentUserId(), category, authorId), null);
+        if (json == null) {
+            return new ArrayList<>();
+        }
+        try {
+            Type listType = new TypeToken<List<StudyMaterial>>(){}.getType();
+            List<StudyMaterial> cached = gson.fromJson(json, listType);
+            return cached != null ? cached : new ArrayList<>();
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable study material cache", e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Restart pagination for a category and/or author (null for any) and load the first page
+     */
+    public void loadFirstPage(String category, String authorId, PageCallback callback) {
+        this.category = category;
+        this.authorId = authorId;
+        this.userId = currentUserId();
+        generation++;
+        started = true;
+        loading = true;
+        exhausted = false;
+        lastDocument = null;
+
+        int requestGeneration = generation;
+        Task<QuerySnapshot> pageTask = buildQuery().get();
+        // The favorites index answers locally once synced; otherwise read favorites with the page
+        boolean useIndex = favoritesIndex.isSyncedFor(userId);
+        Task<QuerySnapshot> favoritesTask = userId != null && !useIndex
+                ? db.collection("user_favorites").whereEqualTo("userId", userId).get()
+                : Tasks.forResult(null);
+
+        Tasks.whenAllComplete(pageTask, favoritesTask).addOnCompleteListener(done -> {
+            if (requestGeneration != generation) {
+                // A newer loadFirstPage() superseded this request
+                return;
+            }
+            if (!pageTask.isSuccessful() || pageTask.getResult() == null) {
+                fail(pageTask.getException(), callback);
+                return;
+            }
+            // Without favorites the page still shows, just unmarked (as before)
+            favoriteIds = favoritesTask.isSuccessful()
+                    ? readFavoriteIds(favoritesTask.getResult()) : Collections.emptySet();
+            loaded.clear();
+            loadedIds.clear();
+            applyPage(pageTask.getResult(), callback);
+        });
+    }
+
+    /**
+     * Load the page after the last one loaded. Ignored while a page is already loading.
+     */
+    public void loadNextPage(PageCallback callback) {
+        if (!started || loading) {
+            return;
+        }
+        if (exhausted) {
+            callback.onPage(getLoaded(), false);
+            return;
+        }
+        loading = true;
+        int requestGeneration = generation;
+        buildQuery().get().addOnCompleteListener(task -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            if (!task.isSuccessful() || task.getResult() == null) {
+                fail(task.getException(), callback);
+                return;
+            }
+            applyPage(task.getResult(), callback);
+        });
+    }
+
+    /**
+     * Prefetch the next page when the last visible position is within prefetchDistance
+     * of the end of what is loaded; returns true if a page was requested.
+     */
+    public boolean onPositionVisible(int lastVisiblePosition, PageCallback callback) {
+        if (!started || loading || exhausted || lastVisiblePosition < loaded.size() - prefetchDistance) {
+            return false;
+        }
+        loadNextPage(callback);
+        return true;
+    }
+
+    public boolean hasMore() {
+        return !exhausted;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public List<StudyMaterial> getLoaded() {
+        return new ArrayList<>(loaded);
+    }
+
+    private void applyPage(QuerySnapshot snapshot, PageCallback callback) {
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        for (DocumentSnapshot document : documents) {
+            StudyMaterial material = StudyMaterialRepository.fromDocument(document);
+            // A document edited between two pages can come back; IDs stay unique for the adapter diff
+            if (material != null && loadedIds.add(material.getId())) {
+                material.setLikedByUser(favoritesIndex.isSyncedFor(userId)
+                        ? favoritesIndex.isFavorite(material.getId()) : favoriteIds.contains(material.getId()));
+                loaded.add(material);
+            }
+        }
+        if (!documents.isEmpty()) {
+            lastDocument = documents.get(documents.size() - 1);
+        }
+        exhausted = documents.size() < pageSize;
+        loading = false;
+        Log.d(TAG, "Fetched " + documents.size() + " study materials, " + loaded.size() + " loaded");
+
+        // Pages past the cached prefix leave the cache as it is
+        if (loaded.size() - documents.size() < MAX_CACHED_ENTRIES) {
+            cachePages();
+        }
+        callback.onPage(getLoaded(), !exhausted);
+    }
+
+    private void fail(Exception exception, PageCallback callback) {
+        loading = false;
+        Exception e = exception != null ? exception : new Exception("Failed to load study materials");
+        Log.e(TAG, "Error loading study materials page", e);
+        callback.onFailure(e);
+    }
+
+    private Query buildQuery() {
+        Query query = db.collection("study_materials");
+        if (category != null) {
+            query = query.whereEqualTo("category", category);
+        }
+        if (authorId != null) {
+            query = query.whereEqualTo("authorId", authorId);
+        }
+        query = query.orderBy("uploadDate", Query.Direction.DESCENDING);
+        if (lastDocument != null) {
+            query = query.startAfter(lastDocument);
+        }
+        return query.limit(pageSize);
+    }
+
+    private static Set<String> readFavoriteIds(QuerySnapshot snapshot) {
+        Set<String> ids = new HashSet<>();
+        if (snapshot != null) {
+            for (DocumentSnapshot document : snapshot) {
+                String materialId = document.getString("materialId");
+                if (materialId != null) {
+                    ids.add(materialId);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void cachePages() {
+        List<StudyMaterial> toCache = loaded.size() > MAX_CACHED_ENTRIES
+                ? new ArrayList<>(loaded.subList(0, MAX_CACHED_ENTRIES))
+                : loaded;
+        prefs.edit().putString(cacheKey(userId, category, authorId), gson.toJson(toCache)).apply();
+    }
+
+    private String currentUserId() {
+        FirebaseUser user = auth.getCurrentUser();
+        return user != null ? user.getUid() : null;
+    }
+
+    // Favorite flags are per user, so each user gets their own cache
+    private static String cacheKey(String userId, String category, String authorId) {
+        return KEY_CACHED_PAGES + (userId != null ? userId : "guest")
+                + "_" + (category != null ? category : "all")
+                + "_" + (authorId != null ? authorId : "all");
+    }
+}
@@ -6,11 +6,19 @@ import android.net.Uri;
 import android.util.Log;
 
 import com.example.nurse_connect.models.StudyMaterial;
+import com.example.nurse_connect.services.cascade.MaterialCascadeDelete;
+import com.example.nurse_connect.services.counters.CounterStore;
+import com.example.nurse_connect.services.counters.MaterialCounters;
+import com.example.nurse_connect.services.counters.ShardedCounter;
+import com.example.nurse_connect.utils.ChunkedMultiGet;
+import com.example.nurse_connect.utils.FirestoreMultiGet;
 import com.example.nurse_connect.utils.PdfThumbnailGenerator;
 import com.google.android.gms.tasks.Task;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.storage.FirebaseStorage;
@@ -18,6 +26,7 @@ import com.google.firebase.storage.StorageReference;
 import com.google.firebase.storage.UploadTask;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -98,10 +107,17 @@ public class StudyMaterialRepository {
                         Log.w(TAG, "No thumbnail URL generated, material will have no thumbnail");
                     }
                     
-                    // Save to Firestore
-                    firestore.collection("study_materials")
-                            .document(material.getId())
-                            .set(material)
+                    // Save to Firestore, counting it in the author's achievements
+                    DocumentReference materialRef = firestore.collection("study_materials").document(material.getId());
+                    DocumentReference achievementsRef = AchievementsAggregate.ref(firestore, authorId);
+                    firestore.runTransaction(transaction -> {
+                        DocumentSnapshot achievements = transaction.get(achievementsRef);
+                        transaction.set(materialRef, material);
+                        if (AchievementsAggregate.isCurrent(achievements)) {
+                            transaction.update(achievementsRef, AchievementsAggregate.newMaterialDeltas(material.getId()));
+                        }
+                        return null;
+                    })
                             .addOnSuccessListener(aVoid -> {
                                 callback.onSuccess(material);
                             })
@@ -119,26 +135,8 @@ public class StudyMaterialRepository {
                 .addOnSuccessListener(querySnapshot -> {
                     List<StudyMaterial> materials = new ArrayList<>();
                     for (DocumentSnapshot document : querySnapshot) {
-                        StudyMaterial material = document.toObject(StudyMaterial.class);
+                        StudyMaterial material = fromDocument(document);
                         if (material != null) {
-                            material.setId(document.getId());
-                            
-                            // Ensure likes field is properly initialized
-                            Long likesLong = document.getLong("likes");
-                            if (likesLong != null) {
-                                material.setLikes(likesLong.intValue());
-                            } else {
-                                material.setLikes(0);
-                            }
-                            
-                            // Ensure commentCount field is properly initialized
-                            Long commentCountLong = document.getLong("commentCount");
-                            if (commentCountLong != null) {
-                                material.setCommentCount(commentCountLong.intValue());
-                            } else {
-                                material.setCommentCount(0);
-                            }
-                            
                             materials.add(material);
                         }
                     }
@@ -149,6 +147,23 @@ public class StudyMaterialRepository {
                 .addOnFailureListener(callback::onFailure);
     }
     
+    /**
+     * Map a study_materials document, with likes and commentCount defaulting to 0
+     * when the document predates those fields. Returns null for unreadable documents.
+     */
+    static StudyMaterial fromDocument(DocumentSnapshot document) {
+        StudyMaterial material = document.toObject(StudyMaterial.class);
+        if (material == null) {
+            return null;
+        }
+        material.setId(document.getId());
+        Long likesLong = document.getLong("likes");
+        material.setLikes(likesLong != null ? likesLong.intValue() : 0);
+        Long commentCountLong = document.getLong("commentCount");
+        material.setCommentCount(commentCountLong != null ? commentCountLong.intValue() : 0);
+        return material;
+    }
+    
     // Check favorite status for a list of materials
     private void checkFavoriteStatusForMaterials(List<StudyMaterial> materials, StudyMaterialCallback callback) {
         String currentUserId = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
@@ -158,6 +173,15 @@ public class StudyMaterialRepository {
             return;
         }
         
+        FavoritesIndex favoritesIndex = FavoritesIndex.getInstance();
+        if (favoritesIndex.isSyncedFor(currentUserId)) {
+            for (StudyMaterial material : materials) {
+                material.setLikedByUser(favoritesIndex.isFavorite(material.getId()));
+            }
+            callback.onSuccess(materials);
+            return;
+        }
+        
         // Get all user favorites in a single query
         firestore.collection("user_favorites")
                 .whereEqualTo("userId", currentUserId)
@@ -194,26 +218,8 @@ public class StudyMaterialRepository {
                 .addOnSuccessListener(querySnapshot -> {
                     List<StudyMaterial> materials = new ArrayList<>();
                     for (DocumentSnapshot document : querySnapshot) {
-                        StudyMaterial material = document.toObject(StudyMaterial.class);
+                        StudyMaterial material = fromDocument(document);
                         if (material != null) {
-                            material.setId(document.getId());
-                            
-                            // Ensure likes field is properly initialized
-                            Long likesLong = document.getLong("likes");
-                            if (likesLong != null) {
-                                material.setLikes(likesLong.intValue());
-                            } else {
-                                material.setLikes(0);
-                            }
-                            
-                            // Ensure commentCount field is properly initialized
-                            Long commentCountLong = document.getLong("commentCount");
-                            if (commentCountLong != null) {
-                                material.setCommentCount(commentCountLong.intValue());
-                            } else {
-                                material.setCommentCount(0);
-                            }
-                            
                             materials.add(material);
                         }
                     }
@@ -233,26 +239,8 @@ public class StudyMaterialRepository {
                 .addOnSuccessListener(querySnapshot -> {
                     List<StudyMaterial> materials = new ArrayList<>();
                     for (DocumentSnapshot document : querySnapshot) {
-                        StudyMaterial material = document.toObject(StudyMaterial.class);
+                        StudyMaterial material = fromDocument(document);
                         if (material != null) {
-                            material.setId(document.getId());
-                            
-                            // Ensure likes field is properly initialized
-                            Long likesLong = document.getLong("likes");
-                            if (likesLong != null) {
-                                material.setLikes(likesLong.intValue());
-                            } else {
-                                material.setLikes(0);
-                            }
-                            
-                            // Ensure commentCount field is properly initialized
-                            Long commentCountLong = document.getLong("commentCount");
-                            if (commentCountLong != null) {
-                                material.setCommentCount(commentCountLong.intValue());
-                            } else {
-                                material.setCommentCount(0);
-                            }
-                            
                             materials.add(material);
                         }
                     }
@@ -282,40 +270,27 @@ public class StudyMaterialRepository {
                         return;
                     }
                     
-                    // Then get the actual study materials
-                    firestore.collection("study_materials")
-                            .whereIn("id", downloadedMaterialIds)
-                            .orderBy("uploadDate", com.google.firebase.firestore.Query.Direction.DESCENDING)
-                            .get()
-                            .addOnSuccessListener(materialsSnapshot -> {
-                                List<StudyMaterial> materials = new ArrayList<>();
-                                for (DocumentSnapshot document : materialsSnapshot) {
-                                    StudyMaterial material = document.toObject(StudyMaterial.class);
-                                    if (material != null) {
-                                        material.setId(document.getId());
-                                        
-                                        // Ensure likes field is properly initialized
-                                        Long likesLong = document.getLong("likes");
-                                        if (likesLong != null) {
-                                            material.setLikes(likesLong.intValue());
-                                        } else {
-                                            material.setLikes(0);
-                                        }
-                                        
-                                        // Ensure commentCount field is properly initialized
-                                        Long commentCountLong = document.getLong("commentCount");
-                                        if (commentCountLong != null) {
-                                            material.setCommentCount(commentCountLong.intValue());
-                                        } else {
-                                            material.setCommentCount(0);
-                                        }
-                                        
-                                        materials.add(material);
-                                    }
+                    // Then get the actual study materials, in chunks past the whereIn limit
+                    FirestoreMultiGet.get("study_materials", downloadedMaterialIds, new ChunkedMultiGet.Callback<DocumentSnapshot>() {
+                        @Override
+                        public void onLoaded(List<DocumentSnapshot> documents, List<String> missingIds) {
+                            List<StudyMaterial> materials = new ArrayList<>();
+                            for (DocumentSnapshot document : documents) {
+                                StudyMaterial material = fromDocument(document);
+                                if (material != null) {
+                                    materials.add(material);
                                 }
-                                checkFavoriteStatusForMaterials(materials, callback);
-                            })
-                            .addOnFailureListener(callback::onFailure);
+                            }
+                            // Newest uploads first, as the single query used to order them
+                            Collections.sort(materials, (m1, m2) -> Long.compare(m2.getUploadDate(), m1.getUploadDate()));
+                            checkFavoriteStatusForMaterials(materials, callback);
+                        }
+                        
+                        @Override
+                        public void onError(Exception e) {
+                            callback.onFailure(e);
+                        }
+                    });
                 })
                 .addOnFailureListener(callback::onFailure);
     }
@@ -328,51 +303,14 @@ public class StudyMaterialRepository {
                 .addOnFailureListener(callback::onFailure);
     }
     
-    // Increment download count
+    // Increment download count. Counts go to the material's sharded counters and are
+    // written out in batches (see MaterialCounters), so the callback fires once queued.
     public void incrementDownloadCount(String materialId, IncrementCallback callback) {
-        Log.d(TAG, "Attempting to increment download count for material: " + materialId);
-        
-        // Try to update the main document first (should work with new rules)
-        firestore.collection("study_materials")
-                .document(materialId)
-                .update("downloads", com.google.firebase.firestore.FieldValue.increment(1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Successfully incremented download count for material: " + materialId);
-                    if (callback != null) {
-                        callback.onSuccess();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "Failed to update main document download count, creating tracking instead: " + materialId);
-                    // Fallback: Create tracking document
-                    createDownloadTracking(materialId, callback);
-                });
-    }
-    
-    // Create download tracking as fallback
-    private void createDownloadTracking(String materialId, IncrementCallback callback) {
-        String trackingId = materialId + "_downloads_" + System.currentTimeMillis();
-        Map<String, Object> trackingData = new HashMap<>();
-        trackingData.put("materialId", materialId);
-        trackingData.put("timestamp", System.currentTimeMillis());
-        trackingData.put("userId", auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : "anonymous");
-        trackingData.put("type", "download");
-        
-        firestore.collection("view_download_tracking")
-                .document(trackingId)
-                .set(trackingData)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Successfully created download tracking for material: " + materialId);
-                    if (callback != null) {
-                        callback.onSuccess();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error creating download tracking for material: " + materialId, e);
-                    if (callback != null) {
-                        callback.onFailure(e);
-                    }
-                });
+        Log.d(TAG, "Incrementing download count for material: " + materialId);
+        MaterialCounters.getInstance().increment(materialId, ShardedCounter.DOWNLOADS, 1);
+        if (callback != null) {
+            callback.onSuccess();
+        }
     }
     
     // Overloaded method for backward compatibility
@@ -382,49 +320,11 @@ public class StudyMaterialRepository {
     
     // Increment view count
     public void incrementViewCount(String materialId, IncrementCallback callback) {
-        Log.d(TAG, "Attempting to increment view count for material: " + materialId);
-        
-        // Try to update the main document first (should work with new rules)
-        firestore.collection("study_materials")
-                .document(materialId)
-                .update("views", com.google.firebase.firestore.FieldValue.increment(1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Successfully incremented view count for material: " + materialId);
-                    if (callback != null) {
-                        callback.onSuccess();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "Failed to update main document view count, creating tracking instead: " + materialId);
-                    // Fallback: Create tracking document
-                    createViewTracking(materialId, callback);
-                });
-    }
-    
-    // Create view tracking as fallback
-    private void createViewTracking(String materialId, IncrementCallback callback) {
-        String trackingId = materialId + "_views_" + System.currentTimeMillis();
-        Map<String, Object> trackingData = new HashMap<>();
-        trackingData.put("materialId", materialId);
-        trackingData.put("timestamp", System.currentTimeMillis());
-        trackingData.put("userId", auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : "anonymous");
-        trackingData.put("type", "view");
-        
-        firestore.collection("view_download_tracking")
-                .document(trackingId)
-                .set(trackingData)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Successfully created view tracking for material: " + materialId);
-                    if (callback != null) {
-                        callback.onSuccess();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error creating view tracking for material: " + materialId, e);
-                    if (callback != null) {
-                        callback.onFailure(e);
-                    }
-                });
+        Log.d(TAG, "Incrementing view count for material: " + materialId);
+        MaterialCounters.getInstance().increment(materialId, ShardedCounter.VIEWS, 1);
+        if (callback != null) {
+            callback.onSuccess();
+        }
     }
     
     // Overloaded method for backward compatibility
@@ -463,42 +363,48 @@ public class StudyMaterialRepository {
         void onFailure(Exception e);
     }
     
-    // Like/Unlike study material
+    // Like/Unlike study material. Who liked it is kept in a likes subcollection and the
+    // count goes through the sharded counters, so the material document stays cool.
     public void toggleLike(String materialId, String userId, boolean isLiked) {
-        Map<String, Object> update = new HashMap<>();
-        if (isLiked) {
-            update.put("likes", com.google.firebase.firestore.FieldValue.increment(1));
-            update.put("likedBy." + userId, true);
-        } else {
-            update.put("likes", com.google.firebase.firestore.FieldValue.increment(-1));
-            update.put("likedBy." + userId, com.google.firebase.firestore.FieldValue.delete());
-        }
-        
-        firestore.collection("study_materials")
-                .document(materialId)
-                .update(update)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Like count updated successfully for material: " + materialId);
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Error toggling like", e));
+        // The like document and the like count change in one transaction, only if the like does
+        MaterialCounters.getInstance().setLiked(materialId, userId, isLiked, new CounterStore.Callback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean changed) {
+                Log.d(TAG, changed ? "Like updated successfully for material: " + materialId
+                        : "Like already up to date for material: " + materialId);
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error toggling like", e);
+            }
+        });
     }
     
-    // Get updated counts for a material
+    // Get updated counts for a material; likes include what the counter shards still hold
     public void getMaterialCounts(String materialId, MaterialCountsCallback callback) {
         firestore.collection("study_materials")
                 .document(materialId)
                 .get()
                 .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        int likes = documentSnapshot.getLong("likes") != null ? 
-                                   documentSnapshot.getLong("likes").intValue() : 0;
-                        int commentCount = documentSnapshot.getLong("commentCount") != null ? 
-                                         documentSnapshot.getLong("commentCount").intValue() : 0;
-                        
-                        callback.onSuccess(likes, commentCount);
-                    } else {
+                    if (!documentSnapshot.exists()) {
                         callback.onSuccess(0, 0);
+                        return;
                     }
+                    int commentCount = documentSnapshot.getLong("commentCount") != null ? 
+                                     documentSnapshot.getLong("commentCount").intValue() : 0;
+                    MaterialCounters.getInstance().readTotals(materialId, new CounterStore.Callback<Map<String, Long>>() {
+                        @Override
+                        public void onSuccess(Map<String, Long> totals) {
+                            Long likes = totals.get(ShardedCounter.LIKES);
+                            callback.onSuccess(likes != null ? (int) Math.max(0, likes) : 0, commentCount);
+                        }
+                        
+                        @Override
+                        public void onFailure(Exception e) {
+                            callback.onFailure(e);
+                        }
+                    });
                 })
                 .addOnFailureListener(callback::onFailure);
     }
@@ -514,9 +420,7 @@ public class StudyMaterialRepository {
         StorageReference storageRef = storage.getReference().child(fileName);
         storageRef.delete().addOnSuccessListener(aVoid -> {
             // Delete from Firestore
-            firestore.collection("study_materials")
-                    .document(materialId)
-                    .delete()
+            deleteMaterialDocument(materialId)
                     .addOnSuccessListener(aVoid2 -> {
                         // Delete related data (comments, ratings, favorites)
                         deleteRelatedData(materialId, callback);
@@ -539,9 +443,7 @@ public class StudyMaterialRepository {
                     
                     // Even if storage deletion fails due to permissions, 
                     // we can still delete from Firestore and related data
-                    firestore.collection("study_materials")
-                            .document(materialId)
-                            .delete()
+                    deleteMaterialDocument(materialId)
                             .addOnSuccessListener(aVoid -> {
                                 deleteRelatedData(materialId, callback);
                             })
@@ -551,9 +453,7 @@ public class StudyMaterialRepository {
                             });
                 } else {
                     // For other storage errors, still try to delete from Firestore
-                    firestore.collection("study_materials")
-                            .document(materialId)
-                            .delete()
+                    deleteMaterialDocument(materialId)
                             .addOnSuccessListener(aVoid -> {
                                 deleteRelatedData(materialId, callback);
                             })
@@ -564,9 +464,7 @@ public class StudyMaterialRepository {
                 }
             } else {
                 // For non-storage exceptions, still try to delete from Firestore
-                firestore.collection("study_materials")
-                        .document(materialId)
-                        .delete()
+                deleteMaterialDocument(materialId)
                         .addOnSuccessListener(aVoid -> {
                             deleteRelatedData(materialId, callback);
                         })
@@ -578,6 +476,35 @@ public class StudyMaterialRepository {
         });
     }
 
+    // Delete the material document and take it out of the author's achievements. A
+    // tombstone naming the author lets the cascade delete remove other users' likes.
+    private Task<Void> deleteMaterialDocument(String materialId) {
+        DocumentReference materialRef = firestore.collection("study_materials").document(materialId);
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot material = transaction.get(materialRef);
+            if (!material.exists()) {
+                return null;
+            }
+            String authorId = material.getString("authorId");
+            DocumentSnapshot achievements = authorId != null && !authorId.isEmpty()
+                    ? transaction.get(AchievementsAggregate.ref(firestore, authorId)) : null;
+            transaction.delete(materialRef);
+            if (authorId != null && !authorId.isEmpty()) {
+                Map<String, Object> tombstone = new HashMap<>();
+                tombstone.put("authorId", authorId);
+                tombstone.put("deletedAt", FieldValue.serverTimestamp());
+                transaction.set(firestore.collection(MaterialCascadeDelete.TOMBSTONES).document(materialId), tombstone);
+            }
+            if (achievements != null && AchievementsAggregate.isCurrent(achievements)) {
+                Map<String, Object> deltas = AchievementsAggregate.removedMaterialDeltas(achievements, materialId);
+                if (!deltas.isEmpty()) {
+                    transaction.update(achievements.getReference(), deltas);
+                }
+            }
+            return null;
+        });
+    }
+    
     // Overloaded method for backward compatibility
     public void deleteStudyMaterial(String materialId, String fileName, Runnable onSuccess) {
         deleteStudyMaterial(materialId, fileName, new DeleteCallback() {
@@ -595,39 +522,27 @@ public class StudyMaterialRepository {
         });
     }
 
-    // Delete related data (comments, ratings, favorites)
+    // Delete related data (comments, ratings, favorites, likes, counters) in batches.
+    // The material is reported deleted once the job is checkpointed; the cleanup runs
+    // on in the background and an interrupted one resumes on the next start.
     private void deleteRelatedData(String materialId, DeleteCallback callback) {
-        // Delete comments
-        firestore.collection("comments")
-                .whereEqualTo("materialId", materialId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    for (DocumentSnapshot document : querySnapshot) {
-                        document.getReference().delete();
-                    }
-                });
-
-        // Delete ratings
-        firestore.collection("document_ratings")
-                .whereEqualTo("materialId", materialId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    for (DocumentSnapshot document : querySnapshot) {
-                        document.getReference().delete();
-                    }
-                });
-
-        // Delete favorites
-        firestore.collection("user_favorites")
-                .whereEqualTo("materialId", materialId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    for (DocumentSnapshot document : querySnapshot) {
-                        document.getReference().delete();
-                    }
-                    // Call success callback after all deletions
-                    callback.onSuccess();
-                });
+        MaterialCascadeDelete.getInstance().delete(materialId, new MaterialCascadeDelete.ProgressCallback() {
+            @Override
+            public void onProgress(int deleted) {
+                Log.d(TAG, "Deleted " + deleted + " documents related to material: " + materialId);
+            }
+            
+            @Override
+            public void onComplete(int deleted) {
+                Log.d(TAG, "Finished deleting data related to material: " + materialId);
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                Log.w(TAG, "Deleting data related to material " + materialId + " will be retried", e);
+            }
+        });
+        callback.onSuccess();
     }
     
     // Search study materials by title or description
@@ -641,26 +556,8 @@ public class StudyMaterialRepository {
                 .addOnSuccessListener(querySnapshot -> {
                     List<StudyMaterial> materials = new ArrayList<>();
                     for (DocumentSnapshot document : querySnapshot) {
-                        StudyMaterial material = document.toObject(StudyMaterial.class);
+                        StudyMaterial material = fromDocument(document);
                         if (material != null) {
-                            material.setId(document.getId());
-                            
-                            // Ensure likes field is properly initialized
-                            Long likesLong = document.getLong("likes");
-                            if (likesLong != null) {
-                                material.setLikes(likesLong.intValue());
-                            } else {
-                                material.setLikes(0);
-                            }
-                            
-                            // Ensure commentCount field is properly initialized
-                            Long commentCountLong = document.getLong("commentCount");
-                            if (commentCountLong != null) {
-                                material.setCommentCount(commentCountLong.intValue());
-                            } else {
-                                material.setCommentCount(0);
-                            }
-                            
                             // Check if title or description contains the search query
                             String title = material.getTitle().toLowerCase();
                             String description = material.getDescription().toLowerCase();
@@ -687,26 +584,8 @@ public class StudyMaterialRepository {
                 .addOnSuccessListener(querySnapshot -> {
                     List<StudyMaterial> materials = new ArrayList<>();
                     for (DocumentSnapshot document : querySnapshot) {
-                        StudyMaterial material = document.toObject(StudyMaterial.class);
+                        StudyMaterial material = fromDocument(document);
                         if (material != null) {
-                            material.setId(document.getId());
-                            
-                            // Ensure likes field is properly initialized
-                            Long likesLong = document.getLong("likes");
-                            if (likesLong != null) {
-                                material.setLikes(likesLong.intValue());
-                            } else {
-                                material.setLikes(0);
-                            }
-                            
-                            // Ensure commentCount field is properly initialized
-                            Long commentCountLong = document.getLong("commentCount");
-                            if (commentCountLong != null) {
-                                material.setCommentCount(commentCountLong.intValue());
-                            } else {
-                                material.setCommentCount(0);
-                            }
-                            
                             // Check if title or description contains the search query
                             String title = material.getTitle().toLowerCase();
                             String description = material.getDescription().toLowerCase();
@@ -733,26 +612,8 @@ public class StudyMaterialRepository {
                 .addOnSuccessListener(querySnapshot -> {
                     List<StudyMaterial> materials = new ArrayList<>();
                     for (DocumentSnapshot document : querySnapshot) {
-                        StudyMaterial material = document.toObject(StudyMaterial.class);
+                        StudyMaterial material = fromDocument(document);
                         if (material != null) {
-                            material.setId(document.getId());
-                            
-                            // Ensure likes field is properly initialized
-                            Long likesLong = document.getLong("likes");
-                            if (likesLong != null) {
-                                material.setLikes(likesLong.intValue());
-                            } else {
-                                material.setLikes(0);
-                            }
-                            
-                            // Ensure commentCount field is properly initialized
-                            Long commentCountLong = document.getLong("commentCount");
-                            if (commentCountLong != null) {
-                                material.setCommentCount(commentCountLong.intValue());
-                            } else {
-                                material.setCommentCount(0);
-                            }
-                            
                             // Check if title or description contains the search query
                             String title = material.getTitle().toLowerCase();
                             String description = material.getDescription().toLowerCase();
@@ -826,41 +687,75 @@ public class StudyMaterialRepository {
                 .addOnFailureListener(callback::onFailure);
     }
     
-    // Calculate user achievements from their study materials
+    // Load user achievements from their aggregate document. Only the user writes it: their
+    // own client seeds it from their study materials the first time and folds in the
+    // materials others have rated, downloaded or liked since; other users read it as is.
     public void calculateUserAchievements(String userId, UserAchievementsCallback callback) {
+        DocumentReference achievementsRef = AchievementsAggregate.ref(firestore, userId);
+        boolean isOwner = userId.equals(FirebaseAuth.getInstance().getUid());
+        achievementsRef.get()
+                .addOnSuccessListener(snapshot -> {
+                    if (AchievementsAggregate.isCurrent(snapshot)) {
+                        if (isOwner) {
+                            foldAchievements(userId, snapshot, callback);
+                        } else {
+                            callback.onSuccess(AchievementsAggregate.fromDocument(snapshot));
+                        }
+                        return;
+                    }
+                    
+                    firestore.collection("study_materials")
+                            .whereEqualTo("authorId", userId)
+                            .get()
+                            .addOnSuccessListener(querySnapshot -> {
+                                Map<String, Object> seed = AchievementsAggregate.seed(querySnapshot.getDocuments());
+                                if (!isOwner) {
+                                    // Not ours to write; the user's own client seeds it
+                                    callback.onSuccess(AchievementsAggregate.fromValues(seed));
+                                    return;
+                                }
+                                Log.d(TAG, "Seeding achievements for " + userId + " from " + querySnapshot.size() + " materials");
+                                firestore.runTransaction(transaction -> {
+                                    // Only the first of the user's clients seeds; later ones read what it wrote
+                                    if (!AchievementsAggregate.isCurrent(transaction.get(achievementsRef))) {
+                                        transaction.set(achievementsRef, seed);
+                                    }
+                                    return null;
+                                })
+                                        .addOnSuccessListener(aVoid -> calculateUserAchievements(userId, callback))
+                                        .addOnFailureListener(callback::onFailure);
+                            })
+                            .addOnFailureListener(callback::onFailure);
+                })
+                .addOnFailureListener(callback::onFailure);
+    }
+    
+    // Fold the user's materials whose stats changed since the last fold into their achievements
+    private void foldAchievements(String userId, DocumentSnapshot snapshot, UserAchievementsCallback callback) {
+        Timestamp foldedThrough = snapshot.getTimestamp(AchievementsAggregate.FOLDED_THROUGH);
         firestore.collection("study_materials")
                 .whereEqualTo("authorId", userId)
+                .whereGreaterThan(AchievementsAggregate.STATS_UPDATED_AT,
+                        foldedThrough != null ? foldedThrough : new Timestamp(0, 0))
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
-                    int totalMaterials = 0;
-                    int totalDownloads = 0;
-                    int totalLikes = 0;
-                    float totalRating = 0.0f;
-                    int materialsWithRating = 0;
-                    
-                    for (DocumentSnapshot document : querySnapshot) {
-                        StudyMaterial material = document.toObject(StudyMaterial.class);
-                        if (material != null) {
-                            totalMaterials++;
-                            totalDownloads += material.getDownloads();
-                            totalLikes += material.getLikes();
-                            
-                            if (material.getRating() > 0) {
-                                totalRating += material.getRating();
-                                materialsWithRating++;
-                            }
-                        }
+                    if (querySnapshot.isEmpty()) {
+                        callback.onSuccess(AchievementsAggregate.fromDocument(snapshot));
+                        return;
                     }
-                    
-                    float averageRating = materialsWithRating > 0 ? totalRating / materialsWithRating : 0.0f;
-                    
-                    UserAchievements achievements = new UserAchievements();
-                    achievements.setTotalMaterials(totalMaterials);
-                    achievements.setTotalDownloads(totalDownloads);
-                    achievements.setTotalLikes(totalLikes);
-                    achievements.setAverageRating(averageRating);
-                    
-                    callback.onSuccess(achievements);
+                    List<DocumentSnapshot> changed = querySnapshot.getDocuments();
+                    DocumentReference achievementsRef = snapshot.getReference();
+                    firestore.runTransaction(transaction -> {
+                        Map<String, Object> updates = AchievementsAggregate.fold(transaction.get(achievementsRef), changed);
+                        transaction.update(achievementsRef, updates);
+                        return AchievementsAggregate.fromValues(updates);
+                    })
+                            .addOnSuccessListener(callback::onSuccess)
+                            .addOnFailureListener(e -> {
+                                // Still show what is stored
+                                Log.w(TAG, "Failed to fold achievements for " + userId, e);
+                                callback.onSuccess(AchievementsAggregate.fromDocument(snapshot));
+                            });
                 })
                 .addOnFailureListener(callback::onFailure);
     }
@@ -294,6 +294,13 @@ public class UserProfileRepository {
         return null;
     }
     
+    /**
+     * Get the locally cached profile regardless of its age (returns immediately, may be null)
+     */
+    public User peekCachedProfile(String userId) {
+        return getCachedProfile(userId);
+    }
+    
     private boolean isCacheValid(String userId) {
         long timestamp = prefs.getLong(KEY_CACHED_PROFILE_TIMESTAMP + userId, 0);
         return (System.currentTimeMillis() - timestamp) < CACHE_DURATION;
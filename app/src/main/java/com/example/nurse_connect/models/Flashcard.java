@@ -2,8 +2,13 @@ package com.example.nurse_connect.models;
 
 import android.os.Parcel;
 import android.os.Parcelable;
+
+import com.example.nurse_connect.services.srs.CardSchedule;
+import com.example.nurse_connect.services.srs.ReviewScheduler;
+import com.example.nurse_connect.services.srs.ReviewSchedulers;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentId;
+import com.google.firebase.firestore.Exclude;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -40,6 +45,16 @@ public class Flashcard implements Parcelable {
     private Timestamp lastReviewed = null;
     private Timestamp nextReview = null; // Spaced repetition scheduling
     
+    // Scheduler state (see services.srs.CardSchedule)
+    private double easeFactor = CardSchedule.INITIAL_EASE;
+    private double stability = 0.0;
+    private double memoryDifficulty = 0.0;
+    private double intervalDays = 0.0;
+    private int repetitions = 0;
+    private int lapses = 0;
+    // Loaded from an offline deck pack: content only, the stored schedule is unknown
+    private boolean fromDeckPack = false;
+    
     // Study Progress & Streak Tracking
     private int currentStreakDays = 0; // Current consecutive days studied
     private int maxStreakDays = 0; // Longest streak achieved
@@ -139,6 +154,24 @@ public class Flashcard implements Parcelable {
     public Timestamp getNextReview() { return nextReview; }
     public void setNextReview(Timestamp nextReview) { this.nextReview = nextReview; }
     
+    public double getEaseFactor() { return easeFactor; }
+    public void setEaseFactor(double easeFactor) { this.easeFactor = easeFactor; }
+    
+    public double getStability() { return stability; }
+    public void setStability(double stability) { this.stability = stability; }
+    
+    public double getMemoryDifficulty() { return memoryDifficulty; }
+    public void setMemoryDifficulty(double memoryDifficulty) { this.memoryDifficulty = memoryDifficulty; }
+    
+    public double getIntervalDays() { return intervalDays; }
+    public void setIntervalDays(double intervalDays) { this.intervalDays = intervalDays; }
+    
+    public int getRepetitions() { return repetitions; }
+    public void setRepetitions(int repetitions) { this.repetitions = repetitions; }
+    
+    public int getLapses() { return lapses; }
+    public void setLapses(int lapses) { this.lapses = lapses; }
+    
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
     
@@ -184,6 +217,10 @@ public class Flashcard implements Parcelable {
     
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { isActive = active; }
+    @Exclude
+    public boolean isFromDeckPack() { return fromDeckPack; }
+    @Exclude
+    public void setFromDeckPack(boolean fromDeckPack) { this.fromDeckPack = fromDeckPack; }
     
     // Utility methods
     public double getAccuracyRate() {
@@ -266,14 +303,21 @@ public class Flashcard implements Parcelable {
     }
     
     public void recordAnswer(boolean isCorrect) {
+        recordReview(ReviewScheduler.gradeFor(isCorrect));
+    }
+    
+    /**
+     * Record a review graded AGAIN..EASY and reschedule with the current scheduler
+     */
+    public void recordReview(int grade) {
         timesReviewed++;
-        if (isCorrect) {
+        if (grade != ReviewScheduler.AGAIN) {
             timesCorrect++;
         } else {
             timesIncorrect++;
         }
         updateConfidenceScore();
-        updateNextReview(isCorrect);
+        updateNextReview(grade);
     }
     
     private void updateConfidenceScore() {
@@ -284,25 +328,37 @@ public class Flashcard implements Parcelable {
         }
     }
     
-    private void updateNextReview(boolean isCorrect) {
-        // Simple spaced repetition algorithm
-        // Correct answers: review later, incorrect answers: review sooner
+    private void updateNextReview(int grade) {
         long currentTime = System.currentTimeMillis();
-        long delay;
-        
-        if (isCorrect) {
-            // Increase interval for correct answers (1 day, 3 days, 7 days, 14 days, 30 days)
-            if (timesCorrect <= 1) delay = 24 * 60 * 60 * 1000L; // 1 day
-            else if (timesCorrect <= 2) delay = 3 * 24 * 60 * 60 * 1000L; // 3 days
-            else if (timesCorrect <= 3) delay = 7 * 24 * 60 * 60 * 1000L; // 7 days
-            else if (timesCorrect <= 4) delay = 14 * 24 * 60 * 60 * 1000L; // 14 days
-            else delay = 30 * 24 * 60 * 60 * 1000L; // 30 days
-        } else {
-            // Incorrect answers: review in 1 day
-            delay = 24 * 60 * 60 * 1000L;
-        }
-        
-        nextReview = new Timestamp(new Date(currentTime + delay));
+        applySchedule(ReviewSchedulers.get().review(getSchedule(), grade, currentTime));
+    }
+    
+    /**
+     * Scheduler state of this card
+     */
+    @Exclude
+    public CardSchedule getSchedule() {
+        CardSchedule schedule = new CardSchedule();
+        schedule.setEase(easeFactor);
+        schedule.setStability(stability);
+        schedule.setDifficulty(memoryDifficulty);
+        schedule.setIntervalDays(intervalDays);
+        schedule.setRepetitions(repetitions);
+        schedule.setLapses(lapses);
+        schedule.setLastReviewMillis(lastReviewed != null ? lastReviewed.toDate().getTime() : 0);
+        schedule.setDueMillis(nextReview != null ? nextReview.toDate().getTime() : 0);
+        return schedule;
+    }
+    
+    public void applySchedule(CardSchedule schedule) {
+        easeFactor = schedule.getEase();
+        stability = schedule.getStability();
+        memoryDifficulty = schedule.getDifficulty();
+        intervalDays = schedule.getIntervalDays();
+        repetitions = schedule.getRepetitions();
+        lapses = schedule.getLapses();
+        lastReviewed = schedule.getLastReviewMillis() > 0 ? new Timestamp(new Date(schedule.getLastReviewMillis())) : null;
+        nextReview = schedule.getDueMillis() > 0 ? new Timestamp(new Date(schedule.getDueMillis())) : null;
     }
     
     public boolean isDueForReview() {
@@ -447,6 +503,14 @@ public class Flashcard implements Parcelable {
         updatedAt = updatedAtTime > 0 ? new Timestamp(updatedAtTime / 1000, 0) : Timestamp.now();
         
         isActive = in.readByte() != 0;
+        
+        easeFactor = in.readDouble();
+        stability = in.readDouble();
+        memoryDifficulty = in.readDouble();
+        intervalDays = in.readDouble();
+        repetitions = in.readInt();
+        lapses = in.readInt();
+        fromDeckPack = in.readByte() != 0;
     }
 
     public static final Creator<Flashcard> CREATOR = new Creator<Flashcard>() {
@@ -502,5 +566,13 @@ public class Flashcard implements Parcelable {
         dest.writeLong(updatedAt != null ? updatedAt.toDate().getTime() : -1);
         
         dest.writeByte((byte) (isActive ? 1 : 0));
+        
+        dest.writeDouble(easeFactor);
+        dest.writeDouble(stability);
+        dest.writeDouble(memoryDifficulty);
+        dest.writeDouble(intervalDays);
+        dest.writeInt(repetitions);
+        dest.writeInt(lapses);
+        dest.writeByte((byte) (fromDeckPack ? 1 : 0));
     }
 }
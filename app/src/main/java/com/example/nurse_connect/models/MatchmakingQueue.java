@@ -8,9 +8,11 @@ public class MatchmakingQueue {
     private String unit;
     private String career;
     private long joinTime;
-    private String status; // "waiting", "matched", "expired"
+    private String status; // "waiting", "matched", "expired", "cancelled"
     private int preferredDifficulty; // 1-3 (easy, medium, hard)
     private String playerRank; // For skill-based matching
+    private int rankBand; // Bucket index derived from playerRank
+    private String matchId; // Set once the ticket has been paired
     
     public MatchmakingQueue() {}
     
@@ -58,6 +60,12 @@ public class MatchmakingQueue {
     public String getPlayerRank() { return playerRank; }
     public void setPlayerRank(String playerRank) { this.playerRank = playerRank; }
     
+    public int getRankBand() { return rankBand; }
+    public void setRankBand(int rankBand) { this.rankBand = rankBand; }
+    
+    public String getMatchId() { return matchId; }
+    public void setMatchId(String matchId) { this.matchId = matchId; }
+    
     // Helper methods
     public boolean isCompatibleWith(MatchmakingQueue other) {
         return this.course.equals(other.course) &&
@@ -4,6 +4,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class PlayerStats {
+    public static final double INITIAL_RATING = 1200;
+    
     private String playerId;
     private String playerName;
     private int totalMatches;
@@ -21,6 +23,7 @@ public class PlayerStats {
     private int streak; // current win streak
     private int bestStreak;
     private long lastPlayedTime;
+    private double rating; // Elo rating, drives currentRank; 0 on stats saved before ratings
     
     public PlayerStats() {
         this.subjectStats = new HashMap<>();
@@ -87,8 +90,12 @@ public class PlayerStats {
     public long getLastPlayedTime() { return lastPlayedTime; }
     public void setLastPlayedTime(long lastPlayedTime) { this.lastPlayedTime = lastPlayedTime; }
     
+    public double getRating() { return rating > 0 ? rating : ratingFromRankPoints(rankPoints); }
+    public void setRating(double rating) { this.rating = rating; }
+    
     // Helper methods
-    public void updateAfterMatch(boolean won, int questionsAnswered, int correctAnswers, String course) {
+    public void updateAfterMatch(boolean won, int questionsAnswered, int correctAnswers, String course,
+                                 double newRating) {
         totalMatches++;
         if (won) {
             wins++;
@@ -96,11 +103,9 @@ public class PlayerStats {
             if (streak > bestStreak) {
                 bestStreak = streak;
             }
-            rankPoints += 25; // Win points
         } else {
             losses++;
             streak = 0;
-            rankPoints -= 10; // Loss penalty
         }
         
         totalQuestions += questionsAnswered;
@@ -114,27 +119,36 @@ public class PlayerStats {
         subjectStats.put(course, subjectStats.getOrDefault(course, 0) + questionsAnswered);
         
         // Update rank
+        rating = newRating;
         updateRank();
         
         lastPlayedTime = System.currentTimeMillis();
     }
     
+    /**
+     * Starting rating for stats saved before ratings existed: each old 250-point tier
+     * maps onto the matching 150-point rating band, so nobody changes tier
+     */
+    public static double ratingFromRankPoints(int rankPoints) {
+        if (rankPoints < 250) {
+            return INITIAL_RATING;
+        }
+        return 1250 + (rankPoints - 250) * 0.6;
+    }
+    
     private void updateRank() {
-        if (rankPoints >= 1000) {
+        // Rank tiers are bands of the Elo rating; new players start at 1200 (Bronze)
+        rankPoints = (int) Math.round(rating);
+        if (rating >= 1700) {
             currentRank = "Diamond";
-        } else if (rankPoints >= 750) {
+        } else if (rating >= 1550) {
             currentRank = "Platinum";
-        } else if (rankPoints >= 500) {
+        } else if (rating >= 1400) {
             currentRank = "Gold";
-        } else if (rankPoints >= 250) {
+        } else if (rating >= 1250) {
             currentRank = "Silver";
         } else {
             currentRank = "Bronze";
         }
-        
-        // Prevent negative points
-        if (rankPoints < 0) {
-            rankPoints = 0;
-        }
     }
 }
@@ -1,6 +1,11 @@
 package com.example.nurse_connect.models;
 
 import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.ServerTimestamp;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -44,6 +49,14 @@ public class QuizMatch {
     // Track which players have pressed next question button
     private Map<String, Boolean> playersPressedNext;
     
+    // Server-clock question timing; a null questionStartedAt is stamped by the server on write
+    @ServerTimestamp
+    private Timestamp questionStartedAt;
+    private Timestamp questionCompletedAt;
+    
+    // Set once the result has been applied to both players' ratings
+    private boolean rated;
+    
     public QuizMatch() {
         this.playerIds = new ArrayList<>();
         this.playerNames = new HashMap<>();
@@ -165,6 +178,34 @@ public class QuizMatch {
     public Map<String, Boolean> getPlayersPressedNext() { return playersPressedNext; }
     public void setPlayersPressedNext(Map<String, Boolean> playersPressedNext) { this.playersPressedNext = playersPressedNext; }
     
+    public Timestamp getQuestionStartedAt() { return questionStartedAt; }
+    public void setQuestionStartedAt(Timestamp questionStartedAt) { this.questionStartedAt = questionStartedAt; }
+    
+    public Timestamp getQuestionCompletedAt() { return questionCompletedAt; }
+    public void setQuestionCompletedAt(Timestamp questionCompletedAt) { this.questionCompletedAt = questionCompletedAt; }
+    
+    public boolean isRated() { return rated; }
+    public void setRated(boolean rated) { this.rated = rated; }
+    
+    /**
+     * Server time at which the current question closes, or 0 while the start is not stamped yet
+     */
+    @Exclude
+    public long getQuestionDeadlineMillis() {
+        if (questionStartedAt == null) {
+            return 0;
+        }
+        return questionStartedAt.toDate().getTime() + questionTimeLimit * 1000L;
+    }
+    
+    /**
+     * Host player; its client is the first choice to advance questions
+     */
+    @Exclude
+    public String getHostId() {
+        return playerIds != null && !playerIds.isEmpty() ? playerIds.get(0) : null;
+    }
+    
     // Helper methods
     public void addPlayer(String playerId, String playerName) {
         if (!playerIds.contains(playerId)) {
@@ -244,6 +285,26 @@ public class QuizMatch {
         }
     }
     
+    /**
+     * Complete the match and pick the winner; a shared top score is a tie (no winner)
+     */
+    public void finishMatch(long endTime) {
+        status = "completed";
+        this.endTime = endTime;
+        
+        String topPlayerId = null;
+        int highestScore = -1;
+        for (Map.Entry<String, Integer> entry : playerScores.entrySet()) {
+            if (entry.getValue() > highestScore) {
+                highestScore = entry.getValue();
+                topPlayerId = entry.getKey();
+            } else if (entry.getValue() == highestScore) {
+                topPlayerId = null;
+            }
+        }
+        winnerId = topPlayerId;
+    }
+    
     /**
      * Reset the state for a new question
      */
@@ -252,6 +313,8 @@ public class QuizMatch {
         currentQuestionAnsweredBy = null;
         currentQuestionCompleted = false;
         currentQuestionStartTime = System.currentTimeMillis();
+        questionStartedAt = null; // stamped with server time when the match is written
+        questionCompletedAt = null;
         
         // Initialize all players as not answered for the new question
         for (String playerId : playerIds) {
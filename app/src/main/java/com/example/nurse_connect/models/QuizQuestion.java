@@ -20,11 +20,17 @@ public class QuizQuestion {
     private String uploadedBy;
     private long uploadDate;
     
-    public QuizQuestion() {}
+    // Uniform [0, 1) key used to sample random questions with range queries
+    private double randomKey;
+    
+    public QuizQuestion() {
+        this.randomKey = Math.random();
+    }
     
     public QuizQuestion(String questionId, String question, List<String> options, 
                        int correctAnswerIndex, String explanation, 
                        String course, String unit, String career) {
+        this();
         this.questionId = questionId;
         this.question = question;
         this.options = options;
@@ -78,6 +84,9 @@ public class QuizQuestion {
     public long getUploadDate() { return uploadDate; }
     public void setUploadDate(long uploadDate) { this.uploadDate = uploadDate; }
     
+    public double getRandomKey() { return randomKey; }
+    public void setRandomKey(double randomKey) { this.randomKey = randomKey; }
+    
     // Helper methods
     public boolean isAnswerCorrect(int selectedIndex) {
         return selectedIndex == correctAnswerIndex;
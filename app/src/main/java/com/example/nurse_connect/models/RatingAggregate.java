@@ -0,0 +1,67 @@
+package com.example.nurse_connect.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running totals of a material's ratings, stored in rating_aggregates/{materialId} and
+ * updated in the same transaction as the rating itself, so reading the stats is one
+ * document instead of every rating. The histogram is keyed by star ("1".."5").
+ */
+public class RatingAggregate {
+    private long count = 0;
+    private long sum = 0;
+    private Map<String, Long> histogram = new HashMap<>();
+
+    // Default constructor for Firestore
+    public RatingAggregate() {}
+
+    // Getters and Setters
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public long getSum() { return sum; }
+    public void setSum(long sum) { this.sum = sum; }
+
+    public Map<String, Long> getHistogram() { return histogram; }
+    public void setHistogram(Map<String, Long> histogram) {
+        this.histogram = histogram != null ? histogram : new HashMap<>();
+    }
+
+    /**
+     * Apply one user's rating changing from oldRating to newRating; 0 means no rating,
+     * so (0, n) adds a rating and (n, 0) removes one
+     */
+    public void replace(int oldRating, int newRating) {
+        if (isStar(oldRating)) {
+            count = Math.max(0, count - 1);
+            sum = Math.max(0, sum - oldRating);
+            long stars = starCount(oldRating);
+            histogram.put(String.valueOf(oldRating), Math.max(0, stars - 1));
+        }
+        if (isStar(newRating)) {
+            count++;
+            sum += newRating;
+            histogram.put(String.valueOf(newRating), starCount(newRating) + 1);
+        }
+    }
+
+    public long starCount(int star) {
+        Long value = histogram.get(String.valueOf(star));
+        return value != null ? value : 0;
+    }
+
+    public float average() {
+        return count > 0 ? (float) sum / count : 0.0f;
+    }
+
+    public RatingStats toStats() {
+        return new RatingStats(average(), (int) count,
+                (int) starCount(1), (int) starCount(2), (int) starCount(3),
+                (int) starCount(4), (int) starCount(5));
+    }
+
+    private static boolean isStar(int rating) {
+        return rating >= 1 && rating <= 5;
+    }
+}
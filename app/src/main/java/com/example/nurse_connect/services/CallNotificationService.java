@@ -14,22 +14,33 @@ import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 
 import com.example.nurse_connect.R;
+import com.example.nurse_connect.data.UserProfileRepository;
+import com.example.nurse_connect.models.User;
 import com.example.nurse_connect.ui.chat.AudioCallActivity;
+import com.example.nurse_connect.ui.chat.VideoCallActivity;
+import com.example.nurse_connect.utils.CallMetricsRecorder;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
-import com.google.firebase.firestore.Query;
+
+import java.util.HashSet;
+import java.util.Set;
 
 public class CallNotificationService extends Service {
 
     private static final String TAG = "CallNotificationService";
     private static final String CHANNEL_ID = "call_notifications";
     private static final int NOTIFICATION_ID = 1001;
+    private static final long INCOMING_CALL_TIMEOUT_MS = 45000;
 
     private FirebaseFirestore db;
     private FirebaseUser currentUser;
     private ListenerRegistration callListener;
+    private UserProfileRepository profileRepository;
+    private final Set<String> handledCallIds = new HashSet<>();
 
     private boolean isForegroundRunning = false;
 
@@ -40,6 +51,7 @@ public class CallNotificationService extends Service {
 
         db = FirebaseFirestore.getInstance();
         currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        profileRepository = new UserProfileRepository(this);
 
         if (currentUser == null) {
             Log.e(TAG, "No authenticated user found, stopping service");
@@ -167,32 +179,23 @@ public class CallNotificationService extends Service {
                         return;
                     }
 
-                    if (value != null && !value.isEmpty()) {
-                        Log.d(TAG, "Found " + value.size() + " active incoming calls");
-                        
-                        // Start as foreground service when we have incoming calls
-                        startAsForegroundService();
-
-                        // Process each active call
-                        for (com.google.firebase.firestore.DocumentSnapshot doc : value.getDocuments()) {
-                            String callerId = doc.getString("callerId");
-                            String callerName = doc.getString("callerName");
-                            Long startTime = doc.getLong("startTime");
-                            
-                            // Only auto-accept recent calls (within last 30 seconds)
-                            if (startTime != null && (System.currentTimeMillis() - startTime) < 30000) {
-                                Log.d(TAG, "Auto-accepting incoming call from: " + callerName);
-                                autoAcceptIncomingCall(
-                                        doc.getId(),
-                                        callerId,
-                                        callerName,
-                                        doc.getString("callerPhotoUrl")
-                                );
-                            } else {
-                                Log.d(TAG, "Ignoring old call from: " + callerName + " (timestamp: " + startTime + ")");
-                            }
+                    if (value == null) {
+                        return;
+                    }
+
+                    // Only react to calls that just started ringing; modified or
+                    // already-seen documents must not rebuild the ringing UI
+                    for (DocumentChange change : value.getDocumentChanges()) {
+                        DocumentSnapshot doc = change.getDocument();
+                        if (change.getType() == DocumentChange.Type.ADDED) {
+                            handleIncomingCall(doc);
+                        } else if (change.getType() == DocumentChange.Type.REMOVED) {
+                            // No longer "calling" (accepted, declined or ended)
+                            cancelIncomingCallNotification(doc.getId());
                         }
-                    } else {
+                    }
+
+                    if (value.isEmpty()) {
                         Log.d(TAG, "No active incoming calls found");
                         
                         // Stop foreground service when no more incoming calls
@@ -201,6 +204,115 @@ public class CallNotificationService extends Service {
                 });
     }
 
+    /**
+     * Fast path for a newly ringing call: everything needed to ring comes from the
+     * snapshot and the local profile cache, secondary lookups happen afterwards.
+     */
+    private void handleIncomingCall(DocumentSnapshot doc) {
+        long ringTime = System.currentTimeMillis();
+        String callId = doc.getId();
+        Long startTime = doc.getLong("startTime");
+
+        // Only auto-accept recent calls (within last 30 seconds)
+        if (startTime == null || (ringTime - startTime) >= 30000) {
+            Log.d(TAG, "Ignoring old call " + callId + " (timestamp: " + startTime + ")");
+            return;
+        }
+        if (!handledCallIds.add(callId)) {
+            return;
+        }
+
+        String callerId = doc.getString("callerId");
+        String callerName = doc.getString("callerName");
+        String callerPhotoUrl = doc.getString("callerPhotoUrl");
+
+        User cachedCaller = callerId != null ? profileRepository.peekCachedProfile(callerId) : null;
+        if (cachedCaller != null) {
+            if (cachedCaller.getDisplayName() != null && !cachedCaller.getDisplayName().isEmpty()) {
+                callerName = cachedCaller.getDisplayName();
+            } else if (cachedCaller.getUsername() != null && !cachedCaller.getUsername().isEmpty()) {
+                callerName = cachedCaller.getUsername();
+            }
+            if (cachedCaller.getPhotoURL() != null && !cachedCaller.getPhotoURL().isEmpty()) {
+                callerPhotoUrl = cachedCaller.getPhotoURL();
+            }
+        }
+        if (callerName == null || callerName.isEmpty()) {
+            callerName = "Unknown Caller";
+        }
+
+        // Start as foreground service when we have incoming calls
+        startAsForegroundService();
+        showIncomingCallNotification(callId, callerId, callerName, doc.getString("callType"));
+        CallMetricsRecorder.getInstance().recordRing(doc, currentUser.getUid(), ringTime);
+
+        Log.d(TAG, "Auto-accepting incoming call from: " + callerName);
+        autoAcceptIncomingCall(callId, callerId, callerName, callerPhotoUrl);
+
+        // Secondary lookup: refresh the caller's cached profile for the next call
+        if (callerId != null) {
+            profileRepository.getUserProfile(callerId, new UserProfileRepository.UserProfileCallback() {
+                @Override
+                public void onSuccess(User user) {
+                    Log.d(TAG, "Caller profile cached for: " + callerId);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    Log.w(TAG, "Could not refresh caller profile: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void showIncomingCallNotification(String callId, String callerId, String callerName, String callType) {
+        Class<?> callActivity = "video".equals(callType) ? VideoCallActivity.class : AudioCallActivity.class;
+        Intent fullScreenIntent = new Intent(this, callActivity);
+        fullScreenIntent.putExtra("callId", callId);
+        fullScreenIntent.putExtra("otherUserId", callerId);
+        fullScreenIntent.putExtra("otherUserName", callerName);
+        fullScreenIntent.putExtra("isOutgoing", false);
+        fullScreenIntent.putExtra("callType", callType);
+        fullScreenIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+
+        PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(
+                this, callId.hashCode(), fullScreenIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        Intent declineIntent = new Intent(this, CallActionReceiver.class);
+        declineIntent.setAction("DECLINE_CALL");
+        declineIntent.putExtra("callId", callId);
+        PendingIntent declinePendingIntent = PendingIntent.getBroadcast(
+                this, callId.hashCode(), declineIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("video".equals(callType) ? "Incoming video call" : "Incoming call")
+                .setContentText(callerName)
+                .setSmallIcon(R.drawable.ic_phone)
+                .setPriority(NotificationCompat.PRIORITY_MAX)
+                .setCategory(NotificationCompat.CATEGORY_CALL)
+                .setFullScreenIntent(fullScreenPendingIntent, true)
+                .setContentIntent(fullScreenPendingIntent)
+                .addAction(R.drawable.ic_phone, "Decline", declinePendingIntent)
+                .setTimeoutAfter(INCOMING_CALL_TIMEOUT_MS)
+                .setAutoCancel(true)
+                .setOngoing(true)
+                .build();
+
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        if (manager != null) {
+            manager.notify(callId.hashCode(), notification);
+        }
+    }
+
+    private void cancelIncomingCallNotification(String callId) {
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        if (manager != null) {
+            manager.cancel(callId.hashCode());
+        }
+    }
+
     private void autoAcceptIncomingCall(String callId, String callerId, String callerName, String callerPhotoUrl) {
         Log.d(TAG, "Auto-accepting incoming call for call: " + callId + " from: " + callerName);
 
@@ -219,6 +331,7 @@ public class CallNotificationService extends Service {
                     callIntent.putExtra("isOutgoing", false);
                     callIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
                     startActivity(callIntent);
+                    cancelIncomingCallNotification(callId);
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Failed to auto-accept call", e);
@@ -0,0 +1,75 @@
+package com.example.nurse_connect.services;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * NTP-style estimate of the offset between this device's clock and server time.
+ * Each sample is a request sent at localSend, answered at localReceive, carrying
+ * the server time it was handled at. The server time is assumed to sit in the middle
+ * of the round trip, so the sample with the shortest round trip is the most accurate
+ * and is the one used.
+ */
+public class ClockOffsetEstimator {
+
+    private static final int MAX_SAMPLES = 8;
+
+    private static class Sample {
+        final long offset;
+        final long roundTrip;
+
+        Sample(long offset, long roundTrip) {
+            this.offset = offset;
+            this.roundTrip = roundTrip;
+        }
+    }
+
+    private final Deque<Sample> samples = new ArrayDeque<>();
+    private Sample best;
+
+    /**
+     * Add a sample; returns false if it was rejected as inconsistent
+     */
+    public synchronized boolean addSample(long localSend, long localReceive, long serverTime) {
+        long roundTrip = localReceive - localSend;
+        if (roundTrip < 0) {
+            return false;
+        }
+        long offset = serverTime - (localSend + roundTrip / 2);
+
+        if (samples.size() >= MAX_SAMPLES) {
+            samples.removeFirst();
+        }
+        samples.addLast(new Sample(offset, roundTrip));
+
+        best = null;
+        for (Sample sample : samples) {
+            if (best == null || sample.roundTrip < best.roundTrip) {
+                best = sample;
+            }
+        }
+        return true;
+    }
+
+    public synchronized boolean hasEstimate() {
+        return best != null;
+    }
+
+    /**
+     * Milliseconds to add to the local clock to get server time (0 without samples)
+     */
+    public synchronized long getOffset() {
+        return best != null ? best.offset : 0;
+    }
+
+    /**
+     * Worst-case error of the offset: half the best round trip, or -1 without samples
+     */
+    public synchronized long getUncertainty() {
+        return best != null ? best.roundTrip / 2 : -1;
+    }
+
+    public synchronized int getSampleCount() {
+        return samples.size();
+    }
+}
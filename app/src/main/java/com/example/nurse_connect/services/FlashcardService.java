@@ -1,10 +1,19 @@
 package com.example.nurse_connect.services;
 
+import android.content.Context;
 import android.util.Log;
 
 import com.example.nurse_connect.models.Flashcard;
 import com.example.nurse_connect.models.FlashcardDeck;
 import com.example.nurse_connect.models.User;
+import com.example.nurse_connect.services.deckpack.DeckPackManager;
+import com.example.nurse_connect.services.progress.FlashcardProgressRecorder;
+import com.example.nurse_connect.services.srs.DueQueue;
+import com.example.nurse_connect.services.srs.DueQueueIndex;
+import com.example.nurse_connect.services.srs.ReviewScheduler;
+import com.example.nurse_connect.utils.ChunkedMultiGet;
+import com.example.nurse_connect.utils.FirestoreMultiGet;
+import com.example.nurse_connect.utils.NetworkUtils;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -26,9 +35,16 @@ import java.util.Map;
 public class FlashcardService {
     private static final String TAG = "FlashcardService";
     
+    // Default study session: due reviews first, topped up with new cards
+    public static final int SESSION_DUE_LIMIT = 15;
+    public static final int SESSION_NEW_LIMIT = 5;
+    
     private FirebaseFirestore db;
     private FirebaseAuth auth;
     private GeminiFlashcardService geminiService;
+    private FlashcardProgressRecorder progressRecorder;
+    private DeckPackManager deckPacks;
+    private Context context;
     
     public interface FlashcardCallback {
         void onFlashcardsLoaded(List<Flashcard> flashcards);
@@ -52,6 +68,16 @@ public class FlashcardService {
         Log.d(TAG, "FlashcardService initialized with Gemini AI integration");
     }
     
+    /**
+     * Service that records answers write-behind through the shared progress recorder
+     */
+    public FlashcardService(Context context) {
+        this();
+        this.context = context.getApplicationContext();
+        progressRecorder = FlashcardProgressRecorder.getInstance(context);
+        deckPacks = DeckPackManager.getInstance(context);
+    }
+    
     /**
      * Create a new flashcard deck
      */
@@ -144,6 +170,10 @@ public class FlashcardService {
                         FlashcardDeck deck = doc.toObject(FlashcardDeck.class);
                         if (deck != null) {
                             deck.setDeckId(doc.getId());
+                            if (deckPacks != null && !querySnapshot.getMetadata().isFromCache()) {
+                                // Keep the unit downloaded for studying offline
+                                deckPacks.refreshPack(career, course, unit);
+                            }
                             callback.onDeckLoaded(deck);
                         } else {
                             callback.onError("Failed to load deck");
@@ -182,7 +212,7 @@ public class FlashcardService {
                         if (deck != null && deck.getFlashcardIds() != null && !deck.getFlashcardIds().isEmpty()) {
                             Log.d(TAG, "Deck has " + deck.getFlashcardIds().size() + " existing flashcards");
                             // Get flashcards from the deck
-                            getFlashcardsByIds(deck.getFlashcardIds(), callback);
+                            getDueFlashcards(deckId, deck.getFlashcardIds(), SESSION_DUE_LIMIT, SESSION_NEW_LIMIT, callback);
                         } else {
                             Log.d(TAG, "Deck has no existing flashcards, fetching from quiz_questions");
                             // Fetch flashcards from existing quiz_questions collection
@@ -201,49 +231,195 @@ public class FlashcardService {
     }
     
     /**
-     * Get flashcards by IDs
+     * Get flashcards by ID in the requested order, however many there are. Cards that
+     * no longer exist are left out.
      */
     public void getFlashcardsByIds(List<String> flashcardIds, FlashcardCallback callback) {
         if (flashcardIds == null || flashcardIds.isEmpty()) {
             callback.onFlashcardsLoaded(new ArrayList<>());
             return;
         }
+        loadFlashcards(flashcardIds, new ChunkedMultiGet.Callback<Flashcard>() {
+            @Override
+            public void onLoaded(List<Flashcard> flashcards, List<String> missingIds) {
+                Log.d(TAG, "Loaded " + flashcards.size() + " of " + flashcardIds.size() + " flashcards");
+                callback.onFlashcardsLoaded(flashcards);
+            }
 
-        Log.d(TAG, "Getting flashcards by IDs: " + flashcardIds.size() + " IDs");
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error getting flashcards", e);
+                callback.onError("Failed to load flashcards: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Get up to dueLimit due cards of a deck, most overdue first, interleaved with up to
+     * newLimit new cards. The deck's due queue lives in memory for the app session; IDs
+     * it has not seen yet are seeded from their stored nextReview first, so after a cold
+     * start a reviewed card is not taken for a new one.
+     */
+    public void getDueFlashcards(String deckKey, List<String> flashcardIds, int dueLimit, int newLimit,
+                                 FlashcardCallback callback) {
+        if (flashcardIds == null || flashcardIds.isEmpty()) {
+            callback.onFlashcardsLoaded(new ArrayList<>());
+            return;
+        }
 
-        // Get up to 20 flashcards for daily study
-        List<String> dailyIds = flashcardIds.subList(0, Math.min(20, flashcardIds.size()));
-        Log.d(TAG, "Getting " + dailyIds.size() + " flashcards for daily study");
+        DueQueue queue = DueQueueIndex.getInstance().getQueue(deckKey);
+        List<String> unseenIds = new ArrayList<>();
+        for (String flashcardId : flashcardIds) {
+            if (!queue.contains(flashcardId)) {
+                unseenIds.add(flashcardId);
+            }
+        }
+        if (unseenIds.isEmpty()) {
+            loadDueFlashcards(deckKey, queue, dueLimit, newLimit, callback);
+            return;
+        }
 
-        db.collection("flashcards")
-                .whereIn("flashcardId", dailyIds)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<Flashcard> flashcards = new ArrayList<>();
-                    for (QueryDocumentSnapshot doc : querySnapshot) {
-                        Flashcard flashcard = doc.toObject(Flashcard.class);
-                        if (flashcard != null) {
-                            flashcard.setFlashcardId(doc.getId());
-                            Log.d(TAG, "Loaded flashcard with ID: " + doc.getId() + ", options: " + (flashcard.getOptions() != null ? flashcard.getOptions().size() : "null"));
-                            if (flashcard.getOptions() != null) {
-                                for (int i = 0; i < flashcard.getOptions().size(); i++) {
-                                    Log.d(TAG, "  Option " + i + ": " + flashcard.getOptions().get(i));
-                                }
-                            }
-                            flashcards.add(flashcard);
-                        }
+        loadFlashcards(unseenIds, new ChunkedMultiGet.Callback<Flashcard>() {
+            @Override
+            public void onLoaded(List<Flashcard> loaded, List<String> missingIds) {
+                for (Flashcard flashcard : loaded) {
+                    // A deck pack card's schedule is unknown; it is seeded once it loads from Firestore
+                    if (!flashcard.isFromDeckPack()) {
+                        queue.putIfAbsent(flashcard.getFlashcardId(), flashcard.getSchedule().getDueMillis());
                     }
+                }
+                Log.d(TAG, "Deck " + deckKey + ": seeded " + loaded.size() + " cards into the due queue");
+                loadDueFlashcards(deckKey, queue, dueLimit, newLimit, callback);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error seeding due queue", e);
+                callback.onError("Failed to load flashcards: " + e.getMessage());
+            }
+        });
+    }
 
-                    Log.d(TAG, "Successfully loaded " + flashcards.size() + " flashcards from Firestore");
+    /**
+     * Load the cards the queue selects; only due cards and at most newLimit new ones
+     */
+    private void loadDueFlashcards(String deckKey, DueQueue queue, int dueLimit, int newLimit,
+                                   FlashcardCallback callback) {
+        long now = System.currentTimeMillis();
+        List<String> selectedIds = queue.next(now, dueLimit, newLimit);
+        Log.d(TAG, "Deck " + deckKey + ": " + queue.dueCount(now) + " due, "
+                + queue.newCount() + " new; loading " + selectedIds.size() + " flashcards");
+        if (selectedIds.isEmpty()) {
+            callback.onFlashcardsLoaded(new ArrayList<>());
+            return;
+        }
 
-                    // Shuffle flashcards for variety
-                    Collections.shuffle(flashcards);
-                    callback.onFlashcardsLoaded(flashcards);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error getting flashcards", e);
-                    callback.onError("Failed to load flashcards: " + e.getMessage());
+        loadFlashcards(selectedIds, new ChunkedMultiGet.Callback<Flashcard>() {
+            @Override
+            public void onLoaded(List<Flashcard> loaded, List<String> missingIds) {
+                for (String flashcardId : missingIds) {
+                    queue.remove(flashcardId);
+                }
+
+                // Keep queue order; a card reviewed on another device since may no longer be due
+                List<Flashcard> flashcards = new ArrayList<>();
+                for (Flashcard flashcard : loaded) {
+                    if (flashcard.isFromDeckPack()) {
+                        // Selected by its queued due time; the pack copy has no schedule to requeue
+                        flashcards.add(flashcard);
+                        continue;
+                    }
+                    queue.put(flashcard.getFlashcardId(), flashcard.getSchedule().getDueMillis());
+                    if (flashcard.isDueForReview()) {
+                        flashcards.add(flashcard);
+                    }
+                }
+
+                Log.d(TAG, "Successfully loaded " + flashcards.size() + " flashcards from Firestore");
+                callback.onFlashcardsLoaded(flashcards);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error getting flashcards", e);
+                callback.onError("Failed to load flashcards: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Load flashcard documents in chunks, recently loaded ones from the local cache
+     */
+    private void loadFlashcards(List<String> flashcardIds, ChunkedMultiGet.Callback<Flashcard> callback) {
+        FirestoreMultiGet.get("flashcards", flashcardIds, new ChunkedMultiGet.Callback<DocumentSnapshot>() {
+            @Override
+            public void onLoaded(List<DocumentSnapshot> documents, List<String> missingIds) {
+                List<Flashcard> flashcards = new ArrayList<>();
+                for (DocumentSnapshot doc : documents) {
+                    Flashcard flashcard = doc.toObject(Flashcard.class);
+                    if (flashcard != null) {
+                        flashcard.setFlashcardId(doc.getId());
+                        if (progressRecorder != null) {
+                            progressRecorder.applyPending(flashcard);
+                        }
+                        flashcards.add(flashcard);
+                    } else {
+                        missingIds.add(doc.getId());
+                    }
+                }
+                if (!missingIds.isEmpty() && deckPacks != null && !NetworkUtils.isNetworkAvailable(context)) {
+                    // Offline the query answers from the local cache, which lacks cards never loaded here
+                    addFromDeckPacks(flashcardIds, flashcards, missingIds, callback);
+                } else {
+                    callback.onLoaded(flashcards, missingIds);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (deckPacks == null) {
+                    callback.onError(e);
+                    return;
+                }
+                // Serve the cards from downloaded deck packs if we have them
+                deckPacks.findFlashcards(flashcardIds, packed -> {
+                    if (packed.isEmpty()) {
+                        callback.onError(e);
+                        return;
+                    }
+                    Log.d(TAG, "Loaded " + packed.size() + " flashcards from offline deck packs");
+                    callback.onLoaded(packed, new ArrayList<>());
                 });
+            }
+        });
+    }
+
+    /**
+     * Complete cards loaded from the offline cache with the missing ones found in deck packs
+     */
+    private void addFromDeckPacks(List<String> flashcardIds, List<Flashcard> cached, List<String> missingIds,
+                                  ChunkedMultiGet.Callback<Flashcard> callback) {
+        deckPacks.findFlashcards(missingIds, packed -> {
+            Map<String, Flashcard> byId = new HashMap<>();
+            for (Flashcard flashcard : cached) {
+                byId.put(flashcard.getFlashcardId(), flashcard);
+            }
+            for (Flashcard flashcard : packed) {
+                byId.put(flashcard.getFlashcardId(), flashcard);
+            }
+            List<Flashcard> flashcards = new ArrayList<>();
+            List<String> stillMissing = new ArrayList<>();
+            for (String flashcardId : flashcardIds) {
+                Flashcard flashcard = byId.get(flashcardId);
+                if (flashcard != null) {
+                    flashcards.add(flashcard);
+                } else {
+                    stillMissing.add(flashcardId);
+                }
+            }
+            Log.d(TAG, "Added " + packed.size() + " flashcards from offline deck packs");
+            callback.onLoaded(flashcards, stillMissing);
+        });
     }
     
     /**
@@ -427,17 +603,80 @@ public class FlashcardService {
         }
     }
     
+    /**
+     * Record user's answer to a loaded flashcard (see recordReview)
+     */
+    public void recordAnswer(Flashcard flashcard, boolean isCorrect, ProgressCallback callback) {
+        recordReview(flashcard, ReviewScheduler.gradeFor(isCorrect), callback);
+    }
+    
+    /**
+     * Record a review of a loaded flashcard. The card is updated in place; with a
+     * progress recorder the write is deferred and batched, so this returns without
+     * a network round trip.
+     */
+    public void recordReview(Flashcard flashcard, int grade, ProgressCallback callback) {
+        String flashcardId = flashcard.getFlashcardId();
+        if (flashcardId == null || flashcardId.trim().isEmpty()) {
+            Log.e(TAG, "Invalid flashcard ID: '" + flashcardId + "'");
+            callback.onError("Invalid flashcard ID");
+            return;
+        }
+        
+        if (flashcardId.startsWith("gemini_") || flashcardId.startsWith("fallback_")) {
+            // AI-generated flashcards are not stored in Firestore
+            flashcard.recordReview(grade);
+            callback.onProgressUpdated(true);
+            return;
+        }
+        
+        if (flashcard.isFromDeckPack()) {
+            // Its schedule would start from nothing and overwrite the stored one; keep the
+            // review local and let the card be queued again from Firestore
+            flashcard.recordReview(grade);
+            DueQueueIndex.getInstance().remove(flashcardId);
+            callback.onProgressUpdated(true);
+            return;
+        }
+        
+        if (progressRecorder == null) {
+            flashcard.recordReview(grade);
+            recordReview(flashcardId, grade, callback);
+            return;
+        }
+        
+        progressRecorder.record(flashcard, grade);
+        callback.onProgressUpdated(true);
+    }
+    
+    /**
+     * Write any deferred progress now; call when a study session ends
+     */
+    public void flushProgress() {
+        if (progressRecorder != null) {
+            progressRecorder.flush();
+        }
+    }
+    
     /**
      * Record user's answer to a flashcard
      */
     public void recordAnswer(String flashcardId, boolean isCorrect, ProgressCallback callback) {
+        recordReview(flashcardId, ReviewScheduler.gradeFor(isCorrect), callback);
+    }
+    
+    /**
+     * Record a review graded AGAIN..EASY and reschedule the flashcard.
+     * Reads the card first; prefer recordReview(Flashcard, ...) when the card is loaded.
+     */
+    public void recordReview(String flashcardId, int grade, ProgressCallback callback) {
         String currentUserId = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
         if (currentUserId == null) {
             callback.onError("User not authenticated");
             return;
         }
         
-        Log.d(TAG, "Recording answer for flashcard ID: '" + flashcardId + "', isCorrect: " + isCorrect);
+        Log.d(TAG, "Recording answer for flashcard ID: '" + flashcardId + "', grade: " + grade);
         
         // Safety check: ensure flashcardId is not empty
         if (flashcardId == null || flashcardId.trim().isEmpty()) {
@@ -464,7 +703,7 @@ public class FlashcardService {
                     Flashcard flashcard = documentSnapshot.toObject(Flashcard.class);
                     if (flashcard != null) {
                         Log.d(TAG, "Found flashcard, updating progress");
-                        flashcard.recordAnswer(isCorrect);
+                        flashcard.recordReview(grade);
                         flashcard.setUpdatedAt(com.google.firebase.Timestamp.now());
                         
                         // Create a map with only the allowed progress fields
@@ -475,6 +714,12 @@ public class FlashcardService {
                         progressUpdates.put("confidenceScore", flashcard.getConfidenceScore());
                         progressUpdates.put("lastReviewed", flashcard.getLastReviewed());
                         progressUpdates.put("nextReview", flashcard.getNextReview());
+                        progressUpdates.put("easeFactor", flashcard.getEaseFactor());
+                        progressUpdates.put("stability", flashcard.getStability());
+                        progressUpdates.put("memoryDifficulty", flashcard.getMemoryDifficulty());
+                        progressUpdates.put("intervalDays", flashcard.getIntervalDays());
+                        progressUpdates.put("repetitions", flashcard.getRepetitions());
+                        progressUpdates.put("lapses", flashcard.getLapses());
                         progressUpdates.put("streakDays", flashcard.getStreakDays());
                         progressUpdates.put("lastStudied", flashcard.getLastStudied());
                         progressUpdates.put("updatedAt", flashcard.getUpdatedAt());
@@ -485,6 +730,9 @@ public class FlashcardService {
                                 .update(progressUpdates)
                                 .addOnSuccessListener(aVoid -> {
                                     Log.d(TAG, "Flashcard progress updated successfully");
+                                    FirestoreMultiGet.invalidate("flashcards", flashcardId);
+                                    DueQueueIndex.getInstance().reschedule(flashcardId,
+                                            flashcard.getSchedule().getDueMillis());
                                     callback.onProgressUpdated(true);
                                 })
                                 .addOnFailureListener(e -> {
@@ -799,9 +1047,9 @@ public class FlashcardService {
     }
     
     /**
-     * Convert a quiz question document to a Flashcard object
+     * Convert a quiz question document to a Flashcard object (also used to build deck packs)
      */
-    private Flashcard convertQuizQuestionToFlashcard(QueryDocumentSnapshot doc) {
+    public static Flashcard convertQuizQuestionToFlashcard(DocumentSnapshot doc) {
         try {
             Flashcard flashcard = new Flashcard();
             
@@ -1018,6 +1266,7 @@ public class FlashcardService {
      * Cleanup resources
      */
     public void cleanup() {
+        flushProgress();
         if (geminiService != null) {
             geminiService.cleanup();
         }
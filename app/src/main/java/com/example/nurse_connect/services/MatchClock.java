@@ -0,0 +1,121 @@
+package com.example.nurse_connect.services;
+
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+
+import java.util.Collections;
+
+/**
+ * Server-synchronized clock for quiz battles.
+ * The offset to server time is sampled by stamping a document with the server
+ * timestamp and timing the write, so question deadlines stored as server times
+ * run out at the same moment on every device regardless of local clock skew.
+ */
+public class MatchClock {
+
+    private static final String TAG = "MatchClock";
+    private static final String COLLECTION = "clock_sync";
+    private static final int SAMPLES_PER_SYNC = 4;
+    private static final long RESYNC_INTERVAL = 10 * 60 * 1000; // 10 minutes
+
+    private static MatchClock instance;
+
+    private final FirebaseFirestore db;
+    private final ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+    private long lastSyncTime;
+    private boolean syncing;
+
+    private MatchClock() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized MatchClock getInstance() {
+        if (instance == null) {
+            instance = new MatchClock();
+        }
+        return instance;
+    }
+
+    /**
+     * Estimated current server time in milliseconds
+     */
+    public long now() {
+        return System.currentTimeMillis() + estimator.getOffset();
+    }
+
+    /**
+     * Convert a server time to the equivalent local System.currentTimeMillis() value
+     */
+    public long toLocalTime(long serverMillis) {
+        return serverMillis - estimator.getOffset();
+    }
+
+    public boolean isSynced() {
+        return estimator.hasEstimate();
+    }
+
+    public long getUncertaintyMs() {
+        return estimator.getUncertainty();
+    }
+
+    /**
+     * Re-sample the offset unless a recent sync is still good
+     */
+    public synchronized void syncIfStale() {
+        if (syncing || (estimator.hasEstimate() && System.currentTimeMillis() - lastSyncTime < RESYNC_INTERVAL)) {
+            return;
+        }
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            return;
+        }
+        syncing = true;
+        takeSample(db.collection(COLLECTION).document(user.getUid()), SAMPLES_PER_SYNC);
+    }
+
+    private void takeSample(DocumentReference ref, int remaining) {
+        if (remaining == 0) {
+            finishSync(true);
+            return;
+        }
+
+        long localSend = System.currentTimeMillis();
+        ref.set(Collections.singletonMap("serverTime", FieldValue.serverTimestamp()))
+                .addOnSuccessListener(aVoid -> {
+                    long localReceive = System.currentTimeMillis();
+                    // The write's response does not carry the stamp, so read it back
+                    ref.get(Source.SERVER)
+                            .addOnSuccessListener(doc -> {
+                                Timestamp serverTime = doc.getTimestamp("serverTime");
+                                if (serverTime != null) {
+                                    estimator.addSample(localSend, localReceive, serverTime.toDate().getTime());
+                                }
+                                takeSample(ref, remaining - 1);
+                            })
+                            .addOnFailureListener(e -> {
+                                Log.w(TAG, "Failed to read clock sample", e);
+                                finishSync(false);
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Failed to write clock sample", e);
+                    finishSync(false);
+                });
+    }
+
+    private synchronized void finishSync(boolean success) {
+        syncing = false;
+        if (success) {
+            lastSyncTime = System.currentTimeMillis();
+        }
+        Log.d(TAG, "Clock sync " + (success ? "done" : "incomplete") + ": offset=" + estimator.getOffset()
+                + "ms, uncertainty=" + estimator.getUncertainty() + "ms, samples=" + estimator.getSampleCount());
+    }
+}
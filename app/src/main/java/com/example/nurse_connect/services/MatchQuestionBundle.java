@@ -0,0 +1,165 @@
+package com.example.nurse_connect.services;
+
+import android.util.Log;
+
+import com.example.nurse_connect.models.QuizQuestion;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All questions of one quiz match, loaded once when the match starts.
+ * Questions are handed to the UI without their correct answer; only a per-match
+ * salted hash of it is kept, so answers can be checked on the device without
+ * another read while the plain answer index never sits in the match screen.
+ */
+public class MatchQuestionBundle {
+
+    private static final String TAG = "MatchQuestionBundle";
+    private static final String COLLECTION = "quiz_questions";
+    private static final int WHERE_IN_LIMIT = 10;
+
+    public interface BundleCallback {
+        void onBundleReady(MatchQuestionBundle bundle);
+        void onError(Exception e);
+    }
+
+    private final String matchId;
+    private final List<String> questionIds;
+    private final Map<String, QuizQuestion> questions = new HashMap<>();
+    private final Map<String, String> answerHashes = new HashMap<>();
+    private final List<BundleCallback> pendingCallbacks = new ArrayList<>();
+
+    private boolean loading;
+    private boolean loaded;
+
+    public MatchQuestionBundle(String matchId, List<String> questionIds) {
+        this.matchId = matchId;
+        this.questionIds = new ArrayList<>(questionIds);
+    }
+
+    public String getMatchId() {
+        return matchId;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Load every match question with chunked whereIn queries; callbacks queue until done
+     */
+    public synchronized void load(FirebaseFirestore db, BundleCallback callback) {
+        if (loaded) {
+            callback.onBundleReady(this);
+            return;
+        }
+        pendingCallbacks.add(callback);
+        if (loading) {
+            return;
+        }
+        loading = true;
+
+        List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+        for (int i = 0; i < questionIds.size(); i += WHERE_IN_LIMIT) {
+            List<String> chunk = questionIds.subList(i, Math.min(i + WHERE_IN_LIMIT, questionIds.size()));
+            chunks.add(db.collection(COLLECTION)
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get());
+        }
+
+        Tasks.whenAllSuccess(chunks).addOnCompleteListener(task -> {
+            List<BundleCallback> callbacks;
+            synchronized (this) {
+                loading = false;
+                callbacks = new ArrayList<>(pendingCallbacks);
+                pendingCallbacks.clear();
+                if (task.isSuccessful()) {
+                    for (Object result : task.getResult()) {
+                        for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                            addQuestion(doc);
+                        }
+                    }
+                    loaded = true;
+                }
+            }
+
+            if (task.isSuccessful()) {
+                Log.d(TAG, "Loaded " + questions.size() + "/" + questionIds.size()
+                        + " questions for match " + matchId + " in " + chunks.size() + " queries");
+                for (BundleCallback pending : callbacks) {
+                    pending.onBundleReady(this);
+                }
+            } else {
+                Exception e = task.getException() != null
+                        ? task.getException() : new Exception("Failed to load match questions");
+                Log.e(TAG, "Failed to load questions for match " + matchId, e);
+                for (BundleCallback pending : callbacks) {
+                    pending.onError(e);
+                }
+            }
+        });
+    }
+
+    private void addQuestion(DocumentSnapshot doc) {
+        QuizQuestion question = doc.toObject(QuizQuestion.class);
+        if (question == null) {
+            return;
+        }
+        question.setQuestionId(doc.getId());
+        answerHashes.put(doc.getId(), hashAnswer(matchId, doc.getId(), question.getCorrectAnswerIndex()));
+        // The UI only ever sees the stripped copy
+        question.setCorrectAnswerIndex(-1);
+        question.setExplanation(null);
+        questions.put(doc.getId(), question);
+    }
+
+    /**
+     * Get a loaded question (without its answer), or null if it is not part of the bundle
+     */
+    public synchronized QuizQuestion getQuestion(String questionId) {
+        return questions.get(questionId);
+    }
+
+    public synchronized boolean contains(String questionId) {
+        return answerHashes.containsKey(questionId);
+    }
+
+    /**
+     * Check an answer locally against the salted hash
+     */
+    public synchronized boolean isAnswerCorrect(String questionId, int selectedAnswer) {
+        String expected = answerHashes.get(questionId);
+        return expected != null && expected.equals(hashAnswer(matchId, questionId, selectedAnswer));
+    }
+
+    /**
+     * SHA-256 of matchId:questionId:answerIndex; the match id salts the hash so a
+     * table built for one match is useless for the next
+     */
+    static String hashAnswer(String matchId, String questionId, int answerIndex) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((matchId + ":" + questionId + ":" + answerIndex)
+                    .getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.nurse_connect.services;
 
 import android.content.Context;
 import android.util.Log;
+import com.example.nurse_connect.services.dedup.NearDuplicateIndex;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -204,6 +205,7 @@ public class PdfQuestionExtractor {
                 Log.d(TAG, "Extracted " + sectionQuestions.size() + " questions from " + unitName);
             }
             
+            questions = dropNearDuplicates(questions);
             Log.d(TAG, "Total questions extracted from PDF: " + questions.size());
             
         } catch (Exception e) {
@@ -214,6 +216,23 @@ public class PdfQuestionExtractor {
         return questions;
     }
     
+    /**
+     * Drop questions that nearly repeat an earlier one, e.g. a review page restating a section
+     */
+    private List<QuizQuestion> dropNearDuplicates(List<QuizQuestion> questions) {
+        NearDuplicateIndex seen = new NearDuplicateIndex(Math.max(1, questions.size()));
+        List<QuizQuestion> unique = new ArrayList<>();
+        for (QuizQuestion question : questions) {
+            if (seen.add(question.getQuestion())) {
+                unique.add(question);
+            }
+        }
+        if (unique.size() < questions.size()) {
+            Log.d(TAG, "Dropped " + (questions.size() - unique.size()) + " near-duplicate questions");
+        }
+        return unique;
+    }
+    
     /**
      * Auto-detect career level from PDF text
      */
@@ -0,0 +1,321 @@
+package com.example.nurse_connect.services;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Random question sampling for quiz matches.
+ * Every question carries a uniform randomKey, so a random sample is a range query
+ * starting at a random seed (wrapping around when it runs out) instead of "the first
+ * N documents". Questions created before randomKey are found by the plain query until
+ * their pool has been backfilled.
+ * Sampled ids are cached per (course, unit, career) pool and reused until the pool
+ * goes stale, and questions from the player's recent matches are not repeated while
+ * the pool has enough other questions.
+ */
+public class QuestionPoolManager {
+
+    private static final String TAG = "QuestionPoolManager";
+    private static final String PREFS_NAME = "question_pools";
+    private static final String KEY_POOL = "pool_";
+    private static final String KEY_POOL_TIMESTAMP = "pool_timestamp_";
+    private static final String KEY_BACKFILLED = "backfilled_";
+    private static final String KEY_RECENT = "recent_question_ids";
+    private static final String COLLECTION = "quiz_questions";
+
+    private static final long POOL_TTL = 6 * 60 * 60 * 1000; // 6 hours
+    private static final int FETCH_PER_SEED = 30;
+    private static final int MAX_POOL_SIZE = 300;
+    private static final int MAX_RECENT = 50; // roughly the last five matches
+    private static final int MAX_BATCH_WRITES = 500;
+
+    private final FirebaseFirestore db;
+    private final SharedPreferences prefs;
+    private final Gson gson;
+    private final Random random;
+
+    public QuestionPoolManager(Context context) {
+        this.db = FirebaseFirestore.getInstance();
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.gson = new Gson();
+        this.random = new Random();
+    }
+
+    /**
+     * Sample question ids for a match, avoiding the player's recently played questions
+     */
+    public void sampleQuestions(String course, String unit, String career, int count,
+                                QuizMatchService.QuestionCallback callback) {
+        String poolKey = poolKey(course, unit, career);
+        List<String> pool = getCachedPool(poolKey);
+
+        if (isPoolFresh(poolKey) && countUnplayed(pool) >= count) {
+            Log.d(TAG, "Sampling " + count + " questions from cached pool of " + pool.size());
+            callback.onQuestionsRetrieved(pick(pool, count));
+            return;
+        }
+
+        Query unitQuery = db.collection(COLLECTION)
+                .whereEqualTo("course", course)
+                .whereEqualTo("unit", unit)
+                .whereEqualTo("career", career);
+
+        fetchRandomSample(unitQuery, count, poolKey).addOnCompleteListener(task -> {
+            List<String> fetched = task.isSuccessful() && task.getResult() != null
+                    ? task.getResult() : new ArrayList<>();
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Failed to refresh question pool " + poolKey, task.getException());
+            }
+
+            List<String> merged = mergeIntoPool(poolKey, pool, fetched);
+
+            if (merged.size() >= count) {
+                callback.onQuestionsRetrieved(pick(merged, count));
+                return;
+            }
+
+            // Not enough questions in this unit, top up from the same course
+            Log.d(TAG, "Pool " + poolKey + " has " + merged.size() + " questions, topping up from course");
+            Query courseQuery = db.collection(COLLECTION).whereEqualTo("course", course);
+            fetchRandomSample(courseQuery, count - merged.size(), null).addOnCompleteListener(courseTask -> {
+                List<String> combined = new ArrayList<>(merged);
+                if (courseTask.isSuccessful() && courseTask.getResult() != null) {
+                    for (String id : courseTask.getResult()) {
+                        if (!combined.contains(id)) {
+                            combined.add(id);
+                        }
+                    }
+                }
+                callback.onQuestionsRetrieved(pick(combined, Math.min(count, combined.size())));
+            });
+        });
+    }
+
+    /**
+     * Remember questions the player has been served so later matches avoid them
+     */
+    public synchronized void recordPlayedQuestions(List<String> questionIds) {
+        if (questionIds == null || questionIds.isEmpty()) {
+            return;
+        }
+        LinkedHashSet<String> recent = new LinkedHashSet<>(getRecent());
+        for (String id : questionIds) {
+            recent.remove(id);
+            recent.add(id);
+        }
+        List<String> trimmed = new ArrayList<>(recent);
+        if (trimmed.size() > MAX_RECENT) {
+            trimmed = trimmed.subList(trimmed.size() - MAX_RECENT, trimmed.size());
+        }
+        prefs.edit().putString(KEY_RECENT, gson.toJson(trimmed)).apply();
+    }
+
+    /**
+     * Pick count ids at random, preferring questions not in the recent history
+     */
+    private List<String> pick(List<String> pool, int count) {
+        Set<String> recent = new LinkedHashSet<>(getRecent());
+        List<String> unplayed = new ArrayList<>();
+        List<String> played = new ArrayList<>();
+        for (String id : pool) {
+            if (recent.contains(id)) {
+                played.add(id);
+            } else {
+                unplayed.add(id);
+            }
+        }
+        Collections.shuffle(unplayed, random);
+
+        List<String> picked = new ArrayList<>(unplayed.subList(0, Math.min(count, unplayed.size())));
+        if (picked.size() < count) {
+            // Pool exhausted: repeat the least recently played questions first
+            List<String> recentOrder = new ArrayList<>(recent);
+            played.sort((a, b) -> Integer.compare(recentOrder.indexOf(a), recentOrder.indexOf(b)));
+            for (String id : played) {
+                if (picked.size() >= count) {
+                    break;
+                }
+                picked.add(id);
+            }
+        }
+        return picked;
+    }
+
+    /**
+     * Up to FETCH_PER_SEED ids from a random seed upwards, wrapping around to the lowest
+     * keys only when the seed is too close to the top. Questions without a randomKey match
+     * neither query, so a sample still short of needed is topped up from the plain query;
+     * if that finds unkeyed questions, the pool (when given) is backfilled.
+     */
+    private Task<List<String>> fetchRandomSample(Query baseQuery, int needed, String backfillPoolKey) {
+        double seed = random.nextDouble();
+        List<String> ids = new ArrayList<>();
+        return baseQuery
+                .whereGreaterThanOrEqualTo("randomKey", seed)
+                .orderBy("randomKey")
+                .limit(FETCH_PER_SEED)
+                .get()
+                .continueWithTask(upper -> {
+                    addIds(ids, upper.getResult());
+                    if (ids.size() >= FETCH_PER_SEED) {
+                        return Tasks.<QuerySnapshot>forResult(null);
+                    }
+                    return baseQuery
+                            .whereLessThan("randomKey", seed)
+                            .orderBy("randomKey")
+                            .limit(FETCH_PER_SEED - ids.size())
+                            .get();
+                })
+                .continueWithTask(lower -> {
+                    addIds(ids, lower.getResult());
+                    if (ids.size() >= needed) {
+                        return Tasks.<QuerySnapshot>forResult(null);
+                    }
+                    return baseQuery.limit(Math.max(needed * 3, FETCH_PER_SEED)).get();
+                })
+                .continueWith(plain -> {
+                    QuerySnapshot snapshot = plain.getResult();
+                    if (snapshot != null) {
+                        addIds(ids, snapshot);
+                        if (backfillPoolKey != null && hasUnkeyed(snapshot)) {
+                            backfillRandomKeysOnce(backfillPoolKey, baseQuery);
+                        }
+                    }
+                    return ids;
+                });
+    }
+
+    private static void addIds(List<String> ids, QuerySnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            if (!ids.contains(doc.getId())) {
+                ids.add(doc.getId());
+            }
+        }
+    }
+
+    private static boolean hasUnkeyed(QuerySnapshot snapshot) {
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            if (doc.get("randomKey") == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized List<String> mergeIntoPool(String poolKey, List<String> pool, List<String> fetched) {
+        LinkedHashSet<String> merged = new LinkedHashSet<>(fetched);
+        merged.addAll(pool);
+        List<String> result = new ArrayList<>(merged);
+        if (result.size() > MAX_POOL_SIZE) {
+            // Keep the freshly sampled ids and a random subset of the older ones
+            List<String> older = result.subList(fetched.size(), result.size());
+            Collections.shuffle(older, random);
+            result = new ArrayList<>(result.subList(0, MAX_POOL_SIZE));
+        }
+        if (!fetched.isEmpty()) {
+            prefs.edit()
+                    .putString(KEY_POOL + poolKey, gson.toJson(result))
+                    .putLong(KEY_POOL_TIMESTAMP + poolKey, System.currentTimeMillis())
+                    .apply();
+        }
+        return result;
+    }
+
+    /**
+     * Give questions created before randomKey existed a key, once per pool. The pool
+     * counts as backfilled only after every batch committed.
+     */
+    private void backfillRandomKeysOnce(String poolKey, Query unitQuery) {
+        if (prefs.getBoolean(KEY_BACKFILLED + poolKey, false)) {
+            return;
+        }
+        unitQuery.get().addOnSuccessListener(snapshot -> {
+            List<Task<Void>> commits = new ArrayList<>();
+            WriteBatch batch = db.batch();
+            int inBatch = 0;
+            int updates = 0;
+            for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                if (doc.get("randomKey") != null) {
+                    continue;
+                }
+                batch.update(doc.getReference(), "randomKey", random.nextDouble());
+                updates++;
+                if (++inBatch == MAX_BATCH_WRITES) {
+                    commits.add(batch.commit());
+                    batch = db.batch();
+                    inBatch = 0;
+                }
+            }
+            if (inBatch > 0) {
+                commits.add(batch.commit());
+            }
+            final int updated = updates;
+            Tasks.whenAll(commits)
+                    .addOnSuccessListener(aVoid -> {
+                        Log.d(TAG, "Backfilled randomKey on " + updated + " questions in " + poolKey);
+                        prefs.edit().putBoolean(KEY_BACKFILLED + poolKey, true).apply();
+                    })
+                    .addOnFailureListener(e -> Log.w(TAG, "Failed to backfill randomKey for " + poolKey, e));
+        });
+    }
+
+    private int countUnplayed(List<String> pool) {
+        Set<String> recent = new LinkedHashSet<>(getRecent());
+        int count = 0;
+        for (String id : pool) {
+            if (!recent.contains(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private List<String> getCachedPool(String poolKey) {
+        return readIdList(KEY_POOL + poolKey);
+    }
+
+    private boolean isPoolFresh(String poolKey) {
+        long timestamp = prefs.getLong(KEY_POOL_TIMESTAMP + poolKey, 0);
+        return (System.currentTimeMillis() - timestamp) < POOL_TTL;
+    }
+
+    private List<String> getRecent() {
+        return readIdList(KEY_RECENT);
+    }
+
+    private List<String> readIdList(String key) {
+        String json = prefs.getString(key, null);
+        if (json == null) {
+            return new ArrayList<>();
+        }
+        Type listType = new TypeToken<List<String>>(){}.getType();
+        List<String> ids = gson.fromJson(json, listType);
+        return ids != null ? ids : new ArrayList<>();
+    }
+
+    private static String poolKey(String course, String unit, String career) {
+        return course + "|" + unit + "|" + career;
+    }
+}
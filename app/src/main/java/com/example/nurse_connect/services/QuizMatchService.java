@@ -1,31 +1,66 @@
 package com.example.nurse_connect.services;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.example.nurse_connect.models.MatchmakingQueue;
 import com.example.nurse_connect.models.PlayerStats;
 import com.example.nurse_connect.models.QuizMatch;
 import com.example.nurse_connect.models.QuizQuestion;
+import com.example.nurse_connect.services.matchmaking.FirestoreMatchmakingStore;
+import com.example.nurse_connect.services.battle.BattleStore;
+import com.example.nurse_connect.services.battle.FirestoreBattleStore;
+import com.example.nurse_connect.services.battle.QuizBattleEngine;
+import com.example.nurse_connect.services.matchlog.MatchEvent;
+import com.example.nurse_connect.services.matchlog.MatchEventLog;
+import com.example.nurse_connect.services.matchmaking.MatchmakingEngine;
+import com.example.nurse_connect.services.ranking.RankingService;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class QuizMatchService {
     private static final String TAG = "QuizMatchService";
-    private static final long MAX_WAIT_TIME = 60000; // 1 minute max wait
+    private static final long AUTO_ADVANCE_DELAY = 15000; // results pause before the next question
+    private static final long FALLBACK_ADVANCER_GRACE = 3000; // non-host waits this long before stepping in
+    // Matchmaking timeouts of every service instance share one thread for the life of the process
+    private static final ScheduledExecutorService MATCHMAKING_SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Matchmaking");
+                thread.setDaemon(true);
+                return thread;
+            });
     
     private FirebaseFirestore db;
     private FirebaseAuth auth;
     private ListenerRegistration matchListener;
-    private ListenerRegistration queueListener;
+    private MatchmakingEngine matchmakingEngine;
+    private RankingService rankingService;
+    private final QuestionPoolManager questionPool;
+    private String recordedQuestionsMatchId;
+    private MatchmakingEngine.Search activeSearch;
+    // Bumped by every cancel; an async step of an older join finds it changed and stops
+    private int matchmakingGeneration;
+    private MatchQuestionBundle questionBundle;
+    private QuizMatch latestMatch;
+    private String joinLoggedMatchId;
+    private final MatchEventLog eventLog = new MatchEventLog();
+    private final QuizBattleEngine battleEngine = new QuizBattleEngine(new FirestoreBattleStore());
+    private final MatchClock matchClock = MatchClock.getInstance();
+    private final Handler clockHandler = new Handler(Looper.getMainLooper());
     
     public interface MatchmakingCallback {
         void onMatchFound(QuizMatch match);
@@ -39,9 +74,10 @@ public class QuizMatchService {
         void onError(String error);
     }
     
-    public QuizMatchService() {
+    public QuizMatchService(Context context) {
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
+        questionPool = new QuestionPoolManager(context.getApplicationContext());
     }
     
     /**
@@ -275,15 +311,7 @@ public class QuizMatchService {
                             // Set the joining player as ready
                             match.setPlayerReady(currentUserId, true);
                             
-                            // Check if match is now full and should start
-                            if (match.isMatchFull()) {
-                                Log.d(TAG, "🎯 Match is now full! Setting status to active");
-                                match.setStatus("active");
-                                match.setStartTime(System.currentTimeMillis());
-                                match.setQuestionStartTime(System.currentTimeMillis());
-                            }
-                            
-                            // Update match in Firestore
+                            // Update match in Firestore; it stays waiting until the engine starts it
                             db.collection("quiz_matches")
                                     .document(matchId)
                                     .set(match)
@@ -291,7 +319,10 @@ public class QuizMatchService {
                                         Log.d(TAG, "🎯 Successfully joined match: " + matchId);
                                         Log.d(TAG, "🎯 Players: " + match.getPlayerIds().size() + "/" + match.getTargetPlayerCount());
                                         if (match.isMatchFull()) {
+                                            // Start through the same guarded transaction as the 1v1 flow, which
+                                            // resets the question state so question 1's clock starts now
                                             Log.d(TAG, "🎯 Match is full and ready to start!");
+                                            startMatchIfAllReady(matchId);
                                         }
                                         callback.onMatchFound(match);
                                     })
@@ -313,301 +344,103 @@ public class QuizMatchService {
     }
     
     /**
-     * Join matchmaking queue for a specific course/unit/career
+     * Join the 1v1 matchmaking queue for a specific course/unit/career.
+     * Pairing is done by {@link MatchmakingEngine} in a single transaction per attempt,
+     * widening the accepted rank distance the longer the player waits.
      */
     public void joinMatchmaking(String course, String unit, String career, 
                                MatchmakingCallback callback) {
         String currentUserId = auth.getCurrentUser().getUid();
         String playerName = auth.getCurrentUser().getDisplayName();
         
+        cancelMatchmaking();
+        int generation = matchmakingGeneration;
+        
         MatchmakingQueue queueEntry = new MatchmakingQueue(currentUserId, playerName, 
                                                           course, unit, career);
         
-        Log.d(TAG, "Looking for existing compatible players before joining queue...");
-        
-        // FIRST: Check if there's already a compatible player waiting
-        db.collection("matchmaking_queue")
-                .whereEqualTo("course", course)
-                .whereEqualTo("unit", unit)
-                .whereEqualTo("career", career)
-                .whereEqualTo("status", "waiting")
-                .limit(10)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<MatchmakingQueue> compatiblePlayers = new ArrayList<>();
-                    
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        MatchmakingQueue queue = doc.toObject(MatchmakingQueue.class);
-                        if (queue != null && !queue.getPlayerId().equals(currentUserId)) {
-                            compatiblePlayers.add(queue);
-                        }
-                    }
-                    
-                    if (!compatiblePlayers.isEmpty()) {
-                        // Found a match immediately! Don't add to queue, create match
-                        MatchmakingQueue opponent = compatiblePlayers.get(0);
-                        Log.d(TAG, "Found immediate match with player: " + opponent.getPlayerId());
-                        createQuizMatch(queueEntry, opponent, callback);
-                    } else {
-                        // No match found, add to queue and wait
-                        Log.d(TAG, "No immediate match found, adding to queue: " + queueEntry.getQueueId());
-                        db.collection("matchmaking_queue")
-                                .document(queueEntry.getQueueId())
-                                .set(queueEntry)
-                                .addOnSuccessListener(aVoid -> {
-                                    Log.d(TAG, "Added to matchmaking queue");
-                                    
-                                    // Wait a bit for other players to join, then look for matches
-                                    new android.os.Handler().postDelayed(() -> {
-                                        Log.d(TAG, "Starting match search after delay...");
-                                        findMatch(queueEntry, callback);
-                                    }, 2000); // Wait 2 seconds
-                                    
-                                    // Also set up a periodic check every 3 seconds to catch any missed matches
-                                    new android.os.Handler().postDelayed(() -> {
-                                        Log.d(TAG, "🔄 Periodic match check for player: " + queueEntry.getPlayerId());
-                                        periodicMatchCheck(queueEntry, callback);
-                                    }, 5000); // Check again after 5 seconds
-                                    
-                                    // Set timeout
-                                    startMatchmakingTimeout(queueEntry.getQueueId(), callback);
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "Failed to join matchmaking", e);
-                                    callback.onError("Failed to join matchmaking: " + e.getMessage());
-                                });
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error checking for existing players", e);
-                    // Fallback: add to queue anyway
-                    Log.d(TAG, "Fallback: adding to queue due to error");
-                    db.collection("matchmaking_queue")
-                            .document(queueEntry.getQueueId())
-                            .set(queueEntry)
-                            .addOnSuccessListener(aVoid -> {
-                                Log.d(TAG, "Added to matchmaking queue (fallback)");
-                                findMatch(queueEntry, callback);
-                                startMatchmakingTimeout(queueEntry.getQueueId(), callback);
-                            })
-                            .addOnFailureListener(fallbackError -> {
-                                Log.e(TAG, "Failed to join matchmaking queue (fallback)", fallbackError);
-                                callback.onError("Failed to join matchmaking: " + fallbackError.getMessage());
-                            });
-                });
-    }
-    
-    /**
-     * Find a match for the current player
-     */
-    private void findMatch(MatchmakingQueue playerQueue, MatchmakingCallback callback) {
-        Log.d(TAG, "🔍 Finding match for player: " + playerQueue.getPlayerId());
-        Log.d(TAG, "🔍 Looking for players with: course=" + playerQueue.getCourse() + 
-              ", unit=" + playerQueue.getUnit() + ", career=" + playerQueue.getCareer());
-        
-        // Look for compatible players in queue
-        db.collection("matchmaking_queue")
-                .whereEqualTo("course", playerQueue.getCourse())
-                .whereEqualTo("unit", playerQueue.getUnit())
-                .whereEqualTo("career", playerQueue.getCareer())
-                .whereEqualTo("status", "waiting")
-                .limit(10)
+        // Rank and questions are resolved once up front; if this player's attempt creates
+        // the match, its questions are written in the same transaction
+        db.collection("player_stats")
+                .document(currentUserId)
                 .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<MatchmakingQueue> compatiblePlayers = new ArrayList<>();
-                    
-                    Log.d(TAG, "🔍 Found " + querySnapshot.size() + " players in queue");
-                    
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        MatchmakingQueue queue = doc.toObject(MatchmakingQueue.class);
-                        if (queue != null && !queue.getPlayerId().equals(playerQueue.getPlayerId())) {
-                            compatiblePlayers.add(queue);
-                            Log.d(TAG, "🔍 Compatible player found: " + queue.getPlayerId());
+                .continueWith(task -> {
+                    String playerRank = "Bronze";
+                    if (task.isSuccessful() && task.getResult() != null && task.getResult().exists()) {
+                        PlayerStats playerStats = task.getResult().toObject(PlayerStats.class);
+                        if (playerStats != null && playerStats.getCurrentRank() != null) {
+                            playerRank = playerStats.getCurrentRank();
                         }
                     }
-                    
-                    Log.d(TAG, "🔍 Total compatible players: " + compatiblePlayers.size());
-                    
-                    if (!compatiblePlayers.isEmpty()) {
-                        // Found a match! Pick the first compatible player
-                        MatchmakingQueue opponent = compatiblePlayers.get(0);
-                        Log.d(TAG, "🎯 Creating match between " + playerQueue.getPlayerId() + " and " + opponent.getPlayerId());
-                        createQuizMatch(playerQueue, opponent, callback);
-                    } else {
-                        // No match found, wait for opponent to join
-                        Log.d(TAG, "⏳ No match found, waiting for opponent to join...");
-                        waitForOpponent(playerQueue, callback);
-                    }
+                    return playerRank;
                 })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error finding match", e);
-                    callback.onError("Error finding match: " + e.getMessage());
-                });
-    }
-    
-    /**
-     * Periodic check to ensure no matches are missed
-     */
-    private void periodicMatchCheck(MatchmakingQueue playerQueue, MatchmakingCallback callback) {
-        Log.d(TAG, "🔄 Periodic match check for player: " + playerQueue.getPlayerId());
-        
-        // Check if we're still in the queue
-        db.collection("matchmaking_queue")
-                .document(playerQueue.getQueueId())
-                .get()
-                .addOnSuccessListener(doc -> {
-                    if (doc.exists() && "waiting".equals(doc.get("status"))) {
-                        Log.d(TAG, "🔄 Player still in queue, checking for opponents...");
-                        
-                        // Look for compatible players
-                        db.collection("matchmaking_queue")
-                                .whereEqualTo("course", playerQueue.getCourse())
-                                .whereEqualTo("unit", playerQueue.getUnit())
-                                .whereEqualTo("career", playerQueue.getCareer())
-                                .whereEqualTo("status", "waiting")
-                                .limit(10)
-                                .get()
-                                .addOnSuccessListener(querySnapshot -> {
-                                    List<MatchmakingQueue> compatiblePlayers = new ArrayList<>();
-                                    
-                                    for (DocumentSnapshot queueDoc : querySnapshot.getDocuments()) {
-                                        MatchmakingQueue queue = queueDoc.toObject(MatchmakingQueue.class);
-                                        if (queue != null && !queue.getPlayerId().equals(playerQueue.getPlayerId())) {
-                                            compatiblePlayers.add(queue);
-                                        }
-                                    }
-                                    
-                                    if (!compatiblePlayers.isEmpty()) {
-                                        Log.d(TAG, "🎯 Periodic check found opponent! Creating match...");
-                                        MatchmakingQueue opponent = compatiblePlayers.get(0);
-                                        
-                                        // Clean up any existing listeners
-                                        if (queueListener != null) {
-                                            queueListener.remove();
-                                            queueListener = null;
-                                        }
-                                        
-                                        createQuizMatch(playerQueue, opponent, callback);
-                                    } else {
-                                        Log.d(TAG, "🔄 Periodic check: no opponents found yet");
-                                    }
-                                });
-                    } else {
-                        Log.d(TAG, "🔄 Player no longer in queue, skipping periodic check");
-                    }
-                });
-    }
-    
-    /**
-     * Wait for an opponent to join the queue
-     */
-    private void waitForOpponent(MatchmakingQueue playerQueue, MatchmakingCallback callback) {
-        Log.d(TAG, "⏳ Player " + playerQueue.getPlayerId() + " waiting for opponents...");
-        
-        queueListener = db.collection("matchmaking_queue")
-                .whereEqualTo("course", playerQueue.getCourse())
-                .whereEqualTo("unit", playerQueue.getUnit())
-                .whereEqualTo("career", playerQueue.getCareer())
-                .whereEqualTo("status", "waiting")
-                .addSnapshotListener((querySnapshot, e) -> {
-                    if (e != null) {
-                        Log.e(TAG, "Error listening for opponents", e);
+                .addOnSuccessListener(playerRank -> {
+                    if (generation != matchmakingGeneration) {
                         return;
                     }
-                    
-                    if (querySnapshot != null) {
-                        Log.d(TAG, "👥 Queue update detected. Total players: " + querySnapshot.size());
-                        
-                        List<MatchmakingQueue> compatiblePlayers = new ArrayList<>();
-                        
-                        for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                            MatchmakingQueue queue = doc.toObject(MatchmakingQueue.class);
-                            if (queue != null && !queue.getPlayerId().equals(playerQueue.getPlayerId())) {
-                                compatiblePlayers.add(queue);
-                                Log.d(TAG, "👥 Found compatible opponent: " + queue.getPlayerId());
-                            }
+                    queueEntry.setPlayerRank(playerRank);
+                    getRandomQuestions(course, unit, career, new QuizMatch().getTotalQuestions(), questionIds -> {
+                        if (generation != matchmakingGeneration) {
+                            Log.d(TAG, "Matchmaking was cancelled while questions loaded");
+                            return;
                         }
-                        
-                        Log.d(TAG, "👥 Total compatible opponents: " + compatiblePlayers.size());
-                        
-                        if (!compatiblePlayers.isEmpty()) {
-                            // Found an opponent! Pick the first one
-                            MatchmakingQueue opponent = compatiblePlayers.get(0);
-                            Log.d(TAG, "🎯 Creating match between " + playerQueue.getPlayerId() + " and " + opponent.getPlayerId());
+                        Log.d(TAG, "Joining matchmaking bucket with rank " + playerRank);
+                        activeSearch = getMatchmakingEngine().join(queueEntry, questionIds, new MatchmakingEngine.Listener() {
+                            @Override
+                            public void onMatched(String matchId) {
+                                activeSearch = null;
+                                deliverMatch(matchId, callback);
+                            }
                             
-                            // Clean up the listener before creating match
-                            if (queueListener != null) {
-                                queueListener.remove();
-                                queueListener = null;
+                            @Override
+                            public void onTimeout() {
+                                activeSearch = null;
+                                callback.onMatchmakingTimeout();
                             }
                             
-                            createQuizMatch(playerQueue, opponent, callback);
-                        } else {
-                            Log.d(TAG, "⏳ Still waiting for opponents...");
-                        }
-                    }
+                            @Override
+                            public void onError(Exception e) {
+                                activeSearch = null;
+                                callback.onError("Failed to join matchmaking: " + e.getMessage());
+                            }
+                        });
+                    });
                 });
     }
     
     /**
-     * Create a quiz match between players
+     * Leave the matchmaking queue if a search is in progress
      */
-    private void createQuizMatch(MatchmakingQueue player1, MatchmakingQueue player2, 
-                                MatchmakingCallback callback) {
-        createQuizMatchWithPlayerCount(player1, player2, 2, callback);
+    public void cancelMatchmaking() {
+        matchmakingGeneration++;
+        if (activeSearch != null) {
+            Log.d(TAG, "Leaving matchmaking queue");
+            activeSearch.cancel();
+            activeSearch = null;
+        }
     }
     
-    /**
-     * Create a quiz match with a specific target player count
-     */
-    private void createQuizMatchWithPlayerCount(MatchmakingQueue player1, MatchmakingQueue player2, 
-                                               int targetPlayerCount, MatchmakingCallback callback) {
-        String matchId = UUID.randomUUID().toString();
-        QuizMatch match = new QuizMatch(matchId, player1.getCourse(), 
-                                       player1.getUnit(), player1.getCareer());
-        
-        // Set target player count
-        match.setTargetPlayerCount(targetPlayerCount);
-        
-        // Add both players to the match
-        match.addPlayer(player1.getPlayerId(), player1.getPlayerName());
-        match.addPlayer(player2.getPlayerId(), player2.getPlayerName());
-        
-        // Set both players as ready
-        match.setPlayerReady(player1.getPlayerId(), true);
-        match.setPlayerReady(player2.getPlayerId(), true);
-        
-        // Get random questions for this match
-        getRandomQuestions(match.getCourse(), match.getUnit(), match.getCareer(), 
-                          match.getTotalQuestions(), questionIds -> {
-                              Log.d(TAG, "Questions retrieved for match: " + questionIds.size() + " questions");
-                              
-                              match.setQuestionIds(questionIds);
-                              if (!questionIds.isEmpty()) {
-                                  match.setCurrentQuestionId(questionIds.get(0));
-                                  Log.d(TAG, "First question ID set: " + questionIds.get(0));
-                              } else {
-                                  Log.w(TAG, "No questions found for match!");
-                              }
-                              
-                              // Save the match to Firestore
-                              db.collection("quiz_matches")
-                                      .document(matchId)
-                                      .set(match)
-                                      .addOnSuccessListener(aVoid -> {
-                                          // Update queue status for both players
-                                          updateQueueStatus(player1.getQueueId(), "matched");
-                                          updateQueueStatus(player2.getQueueId(), "matched");
-                                          
-                                          Log.d(TAG, "🎯 Quiz match created: " + matchId + " with " + questionIds.size() + " questions");
-                                          Log.d(TAG, "🎯 Target players: " + targetPlayerCount + ", Current players: " + match.getPlayerIds().size());
-                                          callback.onMatchFound(match);
-                                      })
-                                      .addOnFailureListener(e -> {
-                                          Log.e(TAG, "Failed to create match", e);
-                                          callback.onError("Failed to create match: " + e.getMessage());
-                                      });
-                          });
+    private void deliverMatch(String matchId, MatchmakingCallback callback) {
+        db.collection("quiz_matches")
+                .document(matchId)
+                .get()
+                .addOnSuccessListener(documentSnapshot -> {
+                    QuizMatch match = documentSnapshot.toObject(QuizMatch.class);
+                    if (match != null) {
+                        Log.d(TAG, "🎯 Matched into: " + matchId);
+                        callback.onMatchFound(match);
+                    } else {
+                        callback.onError("Match not found");
+                    }
+                })
+                .addOnFailureListener(e -> callback.onError("Failed to load match: " + e.getMessage()));
+    }
+    
+    private synchronized MatchmakingEngine getMatchmakingEngine() {
+        if (matchmakingEngine == null) {
+            matchmakingEngine = new MatchmakingEngine(new FirestoreMatchmakingStore(), MATCHMAKING_SCHEDULER);
+        }
+        return matchmakingEngine;
     }
     
     /**
@@ -645,124 +478,15 @@ public class QuizMatchService {
      */
     public void getRandomQuestions(String course, String unit, String career, 
                                    int count, QuestionCallback callback) {
-        Log.d(TAG, "🔍 Looking for questions: course=" + course + ", unit=" + unit + ", career=" + career);
-        Log.d(TAG, "🔍 Requesting " + count + " questions");
-        
-        // Determine the appropriate collection based on career
-        String collectionName = getCollectionNameForCareer(career);
-        Log.d(TAG, "🔍 Using collection: " + collectionName);
-        
-        // First try exact match
-        db.collection(collectionName)
-                .whereEqualTo("course", course)
-                .whereEqualTo("unit", unit)
-                .whereEqualTo("career", career)
-                .limit(count * 3)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<String> questionIds = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        questionIds.add(doc.getId());
-                    }
-                    
-                    Log.d(TAG, "🔍 Found " + questionIds.size() + " questions with exact match in " + collectionName);
-                    Log.d(TAG, "🔍 Question IDs: " + questionIds);
-                    
-                    // If we have enough questions, use them
-                    if (questionIds.size() >= count) {
-                        Collections.shuffle(questionIds);
-                        if (questionIds.size() > count) {
-                            questionIds = questionIds.subList(0, count);
-                        }
-                        Log.d(TAG, "✅ Returning " + questionIds.size() + " questions from exact match");
-                        callback.onQuestionsRetrieved(questionIds);
-                        return;
-                    }
-                    
-                    // If not enough questions, try to get questions from the same course only
-                    Log.d(TAG, "Not enough questions, trying course-only match in " + collectionName);
-                    
-                    // Create a final copy of questionIds for the lambda
-                    final List<String> finalQuestionIds = new ArrayList<>(questionIds);
-                    
-                    db.collection(collectionName)
-                            .whereEqualTo("course", course)
-                            .limit(count * 3)
-                            .get()
-                            .addOnSuccessListener(courseQuerySnapshot -> {
-                                List<String> courseQuestionIds = new ArrayList<>();
-                                for (DocumentSnapshot doc : courseQuerySnapshot.getDocuments()) {
-                                    if (!finalQuestionIds.contains(doc.getId())) {
-                                        courseQuestionIds.add(doc.getId());
-                                    }
-                                }
-                                
-                                // Create a new combined list
-                                List<String> combinedQuestionIds = new ArrayList<>(finalQuestionIds);
-                                combinedQuestionIds.addAll(courseQuestionIds);
-                                Log.d(TAG, "🔍 Total questions found in " + collectionName + ": " + combinedQuestionIds.size());
-                                Log.d(TAG, "🔍 Combined question IDs: " + combinedQuestionIds);
-                                
-                                if (combinedQuestionIds.size() > count) {
-                                    Collections.shuffle(combinedQuestionIds);
-                                    combinedQuestionIds = combinedQuestionIds.subList(0, count);
-                                }
-                                
-                                Log.d(TAG, "✅ Returning " + combinedQuestionIds.size() + " questions from combined match");
-                                callback.onQuestionsRetrieved(combinedQuestionIds);
-                            })
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "❌ Failed to get course questions from " + collectionName, e);
-                                Log.d(TAG, "⚠️ Returning " + finalQuestionIds.size() + " questions from exact match only");
-                                callback.onQuestionsRetrieved(finalQuestionIds); // Return what we have
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to get questions from " + collectionName, e);
-                    // If exact match fails, try course-only match immediately
-                    Log.d(TAG, "🔄 Exact match failed, trying course-only match in " + collectionName);
-                    db.collection(collectionName)
-                            .whereEqualTo("course", course)
-                            .limit(count * 3)
-                            .get()
-                            .addOnSuccessListener(courseQuerySnapshot -> {
-                                List<String> courseQuestionIds = new ArrayList<>();
-                                for (DocumentSnapshot doc : courseQuerySnapshot.getDocuments()) {
-                                    courseQuestionIds.add(doc.getId());
-                                }
-                                
-                                Log.d(TAG, "🔍 Found " + courseQuestionIds.size() + " questions with course-only match in " + collectionName);
-                                Log.d(TAG, "🔍 Course question IDs: " + courseQuestionIds);
-                                
-                                if (courseQuestionIds.size() > count) {
-                                    Collections.shuffle(courseQuestionIds);
-                                    courseQuestionIds = courseQuestionIds.subList(0, count);
-                                }
-                                
-                                Log.d(TAG, "✅ Returning " + courseQuestionIds.size() + " questions from course-only match");
-                                callback.onQuestionsRetrieved(courseQuestionIds);
-                            })
-                            .addOnFailureListener(courseError -> {
-                                Log.e(TAG, "❌ Failed to get course questions from " + collectionName, courseError);
-                                Log.w(TAG, "⚠️ No questions found, returning empty list");
-                                callback.onQuestionsRetrieved(new ArrayList<>());
-                            });
-                });
-    }
-    
-    /**
-     * Get the appropriate Firestore collection name for a career
-     */
-    private String getCollectionNameForCareer(String career) {
-        // For now, use the general quiz_questions collection
-        // This can be updated later if you want to separate questions by career level
-        return "quiz_questions";
+        Log.d(TAG, "🔍 Sampling " + count + " questions: course=" + course + ", unit=" + unit + ", career=" + career);
+        questionPool.sampleQuestions(course, unit, career, count, callback);
     }
     
     /**
      * Listen for match updates
      */
     public void listenToMatch(String matchId, QuizMatchCallback callback) {
+        matchClock.syncIfStale();
         matchListener = db.collection("quiz_matches")
                 .document(matchId)
                 .addSnapshotListener((documentSnapshot, e) -> {
@@ -775,6 +499,25 @@ public class QuizMatchService {
                     if (documentSnapshot != null && documentSnapshot.exists()) {
                         QuizMatch match = documentSnapshot.toObject(QuizMatch.class);
                         if (match != null) {
+                            latestMatch = match;
+                            if (match.getQuestionIds() != null && !match.getQuestionIds().isEmpty()) {
+                                // Preload all questions while players are still getting ready
+                                loadQuestionBundle(match, null);
+                            }
+                            if (!"waiting".equals(match.getStatus()) && !matchId.equals(recordedQuestionsMatchId)
+                                    && match.getQuestionIds() != null && !match.getQuestionIds().isEmpty()) {
+                                // Keep these questions out of this player's next few matches
+                                recordedQuestionsMatchId = matchId;
+                                questionPool.recordPlayedQuestions(match.getQuestionIds());
+                            }
+                            if (!matchId.equals(joinLoggedMatchId) && auth.getCurrentUser() != null) {
+                                joinLoggedMatchId = matchId;
+                                eventLog.append(matchId, MatchEvent.join(auth.getCurrentUser().getUid(), matchClock.now()));
+                            }
+                            if ("waiting".equals(match.getStatus()) && match.areAllPlayersReady()) {
+                                startMatchIfAllReady(matchId);
+                            }
+                            scheduleClockAction(match);
                             if ("completed".equals(match.getStatus())) {
                                 callback.onMatchCompleted(match);
                             } else {
@@ -786,70 +529,140 @@ public class QuizMatchService {
     }
     
     /**
-     * Submit an answer for the current question
+     * Load (once per match) the bundle holding every question of the match.
+     * A null callback just starts the preload.
+     */
+    public synchronized void loadQuestionBundle(QuizMatch match, MatchQuestionBundle.BundleCallback callback) {
+        if (questionBundle == null || !questionBundle.getMatchId().equals(match.getMatchId())) {
+            questionBundle = new MatchQuestionBundle(match.getMatchId(), match.getQuestionIds());
+        } else if (callback == null && questionBundle.isLoaded()) {
+            return;
+        }
+        questionBundle.load(db, callback != null ? callback : new MatchQuestionBundle.BundleCallback() {
+            @Override
+            public void onBundleReady(MatchQuestionBundle bundle) {
+                Log.d(TAG, "📦 Question bundle preloaded for match " + bundle.getMatchId());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Question bundle preload failed, will retry on first question", e);
+            }
+        });
+    }
+    
+    /**
+     * Submit an answer for the current question.
+     * The answer is checked against the preloaded question bundle and scored with a
+     * single atomic update, so the only round trip is the write itself.
      */
     public void submitAnswer(String matchId, int selectedAnswer, AnswerCallback callback) {
         String currentUserId = auth.getCurrentUser().getUid();
+        QuizMatch match = latestMatch;
+        if (match == null || !matchId.equals(match.getMatchId())) {
+            callback.onAnswerResult(false, "Match not loaded yet");
+            return;
+        }
+        if (!"active".equals(match.getStatus())) {
+            if (match.isCurrentQuestionCompleted()) {
+                callback.onAnswerResult(false, "Question already completed by opponent. Moving to next question...");
+            } else {
+                callback.onAnswerResult(false, "Match not active");
+            }
+            return;
+        }
         
-        db.collection("quiz_matches")
-                .document(matchId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    QuizMatch match = documentSnapshot.toObject(QuizMatch.class);
-                    if (match == null || !"active".equals(match.getStatus())) {
-                        callback.onAnswerResult(false, "Match not active");
-                        return;
+        String questionId = match.getCurrentQuestionId();
+        loadQuestionBundle(match, new MatchQuestionBundle.BundleCallback() {
+            @Override
+            public void onBundleReady(MatchQuestionBundle bundle) {
+                if (!bundle.contains(questionId)) {
+                    callback.onAnswerResult(false, "Question not found");
+                    return;
+                }
+                
+                boolean isCorrect = bundle.isAnswerCorrect(questionId, selectedAnswer);
+                recordAnswerLatency(match, currentUserId, isCorrect);
+                int questionIndex = match.getCurrentQuestionIndex();
+                
+                if (!isCorrect) {
+                    // A wrong answer changes nothing on the match, so its event is written alone
+                    eventLog.append(matchId, MatchEvent.answer(currentUserId, questionIndex,
+                            selectedAnswer, false, matchClock.now()));
+                    // Incorrect answer - allow retry unless question is already completed
+                    if (latestMatch != null && latestMatch.isCurrentQuestionCompleted()) {
+                        callback.onAnswerResult(false, "Question already completed by opponent. Moving to next question...");
+                        checkAndMoveToNextQuestion(matchId, latestMatch);
+                    } else {
+                        Log.d(TAG, "❌ Player " + currentUserId + " answered incorrectly. Can retry...");
+                        callback.onAnswerResult(false, "Incorrect answer. Try again or wait for opponent...");
+                    }
+                    return;
+                }
+                
+                if (match.getPlayersAnsweredCurrentQuestion().getOrDefault(currentUserId, false)) {
+                    callback.onAnswerResult(true, "Correct! Waiting for opponent...");
+                    return;
+                }
+                
+                // Reflect the point locally right away; the snapshot listener confirms it
+                match.markPlayerAnswered(currentUserId);
+                match.incrementPlayerScore(currentUserId);
+                match.setCurrentQuestionCompleted(true);
+                match.setCurrentQuestionAnsweredBy(currentUserId);
+                Log.d(TAG, "🎯 Player " + currentUserId + " answered correctly! Point awarded.");
+                
+                // Correct answer - one transaction awards the point if the question is still open and logs it
+                battleEngine.awardPoint(matchId, currentUserId, questionIndex, selectedAnswer, new BattleStore.Callback<Boolean>() {
+                    @Override
+                    public void onSuccess(Boolean awarded) {
+                        if (!awarded) {
+                            Log.d(TAG, "⏱️ Answer to question " + questionIndex + " arrived after it closed");
+                            callback.onAnswerResult(true, "Correct, but the question had already closed.");
+                            return;
+                        }
+                        callback.onAnswerResult(true, "Correct! Point awarded. Waiting for opponent...");
+                        checkAndMoveToNextQuestion(matchId, match);
                     }
                     
-                    // Get the current question
-                    db.collection("quiz_questions")
-                            .document(match.getCurrentQuestionId())
-                            .get()
-                            .addOnSuccessListener(questionDoc -> {
-                                QuizQuestion question = questionDoc.toObject(QuizQuestion.class);
-                                if (question == null) {
-                                    callback.onAnswerResult(false, "Question not found");
-                                    return;
-                                }
-                                
-                                boolean isCorrect = question.isAnswerCorrect(selectedAnswer);
-                                
-                                if (isCorrect) {
-                                    // Correct answer - mark player as answered and award point
-                                    if (!match.getPlayersAnsweredCurrentQuestion().getOrDefault(currentUserId, false)) {
-                                        match.markPlayerAnswered(currentUserId);
-                                        match.incrementPlayerScore(currentUserId);
-                                        Log.d(TAG, "🎯 Player " + currentUserId + " answered correctly! Point awarded.");
-                                    }
-                                    
-                                    // Mark question as completed
-                                    match.setCurrentQuestionCompleted(true);
-                                    match.setCurrentQuestionAnsweredBy(currentUserId);
-                                    
-                                    // Update match in Firestore
-                                    db.collection("quiz_matches")
-                                            .document(matchId)
-                                            .set(match)
-                                            .addOnSuccessListener(aVoid -> {
-                                                callback.onAnswerResult(true, "Correct! Point awarded. Waiting for opponent...");
-                                                
-                                                // Check if we should move to next question
-                                                checkAndMoveToNextQuestion(matchId, match);
-                                            });
-                                } else {
-                                    // Incorrect answer - allow retry unless question is already completed
-                                    if (match.isCurrentQuestionCompleted()) {
-                                        callback.onAnswerResult(false, "Question already completed by opponent. Moving to next question...");
-                                        // Move to next question since opponent already got it right
-                                        checkAndMoveToNextQuestion(matchId, match);
-                                    } else {
-                                        Log.d(TAG, "❌ Player " + currentUserId + " answered incorrectly. Can retry...");
-                                        
-                                        callback.onAnswerResult(false, "Incorrect answer. Try again or wait for opponent...");
-                                    }
-                                }
-                            });
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e(TAG, "❌ Failed to record answer", e);
+                        callback.onAnswerResult(false, "Failed to submit answer. Please try again.");
+                    }
                 });
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                callback.onAnswerResult(false, "Failed to load question");
+            }
+        });
+    }
+    
+    /**
+     * Store how long (in server time) the player took to answer, for timing analysis
+     */
+    private void recordAnswerLatency(QuizMatch match, String playerId, boolean correct) {
+        long deadline = match.getQuestionDeadlineMillis();
+        if (deadline == 0) {
+            return;
+        }
+        long startedAt = match.getQuestionStartedAt().toDate().getTime();
+        
+        Map<String, Object> metric = new HashMap<>();
+        metric.put("matchId", match.getMatchId());
+        metric.put("playerId", playerId);
+        metric.put("questionId", match.getCurrentQuestionId());
+        metric.put("questionIndex", match.getCurrentQuestionIndex());
+        metric.put("correct", correct);
+        metric.put("latencyMs", matchClock.now() - startedAt);
+        metric.put("clockUncertaintyMs", matchClock.getUncertaintyMs());
+        metric.put("recordedAt", FieldValue.serverTimestamp());
+        
+        db.collection("quiz_answer_metrics")
+                .add(metric)
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to record answer latency", e));
     }
     
     /**
@@ -860,251 +673,165 @@ public class QuizMatchService {
         if (match.haveAllPlayersAnswered() || match.isCurrentQuestionCompleted()) {
             Log.d(TAG, "🔄 Question completed. All players answered: " + match.haveAllPlayersAnswered() + 
                   ", Question completed: " + match.isCurrentQuestionCompleted());
-            
-            // Set match status to show next question button
-            match.setStatus("question_completed");
-            match.setNextQuestionReadyTime(System.currentTimeMillis());
-            
-            // Update match in Firestore
-            db.collection("quiz_matches")
-                    .document(matchId)
-                    .set(match)
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "✅ Question completed status set. Waiting for players to press Next...");
-                        
-                        // Start 15-second auto-advance timer
-                        startAutoAdvanceTimer(matchId, match);
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "❌ Failed to update match for question completion", e);
-                    });
+            completeQuestion(matchId, match.getCurrentQuestionIndex(), false);
         }
     }
     
     /**
-     * Start auto-advance timer for next question
+     * Arm a timer for the next clock-driven transition of this match: closing the
+     * question at its deadline, or moving on once the results pause is over.
+     * The host fires on time; the other player only steps in after a grace period
+     * (e.g. the host went offline). Either way the transition runs as a transaction
+     * guarded by the question index, so it is applied exactly once.
      */
-    private void startAutoAdvanceTimer(String matchId, QuizMatch match) {
-        new android.os.Handler().postDelayed(() -> {
-            // Check if match still exists and hasn't been manually advanced
-            db.collection("quiz_matches")
-                    .document(matchId)
-                    .get()
-                    .addOnSuccessListener(documentSnapshot -> {
-                        QuizMatch currentMatch = documentSnapshot.toObject(QuizMatch.class);
-                        if (currentMatch != null && "question_completed".equals(currentMatch.getStatus())) {
-                            Log.d(TAG, "⏰ Auto-advancing to next question after 15 seconds");
-                            advanceToNextQuestion(matchId, currentMatch);
-                        }
-                    });
-        }, 15000); // 15 seconds
+    private void scheduleClockAction(QuizMatch match) {
+        clockHandler.removeCallbacksAndMessages(null);
+        
+        String matchId = match.getMatchId();
+        int questionIndex = match.getCurrentQuestionIndex();
+        long dueServerTime;
+        Runnable action;
+        if ("active".equals(match.getStatus()) && match.getQuestionDeadlineMillis() > 0) {
+            dueServerTime = match.getQuestionDeadlineMillis();
+            action = () -> completeQuestion(matchId, questionIndex, true);
+        } else if ("question_completed".equals(match.getStatus()) && match.getQuestionCompletedAt() != null) {
+            dueServerTime = match.getQuestionCompletedAt().toDate().getTime() + AUTO_ADVANCE_DELAY;
+            action = () -> advanceIfCurrent(matchId, questionIndex, false);
+        } else {
+            return;
+        }
+        
+        String currentUserId = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
+        boolean isHost = currentUserId != null && currentUserId.equals(match.getHostId());
+        long dueLocalTime = matchClock.toLocalTime(dueServerTime) + (isHost ? 0 : FALLBACK_ADVANCER_GRACE);
+        long delay = Math.max(0, dueLocalTime - System.currentTimeMillis());
+        clockHandler.postDelayed(action, delay);
     }
     
     /**
-     * Manually advance to next question (called when player presses Next button)
+     * Close the question at the given index (status -> question_completed).
+     * No-op if the match already moved past it or, for a timeout, the deadline has not passed.
      */
-    public void advanceToNextQuestion(String matchId, MatchmakingCallback callback) {
-        String currentUserId = auth.getCurrentUser().getUid();
-        
-        db.collection("quiz_matches")
-                .document(matchId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    QuizMatch match = documentSnapshot.toObject(QuizMatch.class);
-                    if (match != null) {
-                        // Mark this player as having pressed next
-                        match.markPlayerPressedNext(currentUserId);
-                        
-                        // Check if both players have pressed next
-                        if (match.haveAllPlayersPressedNext()) {
-                            Log.d(TAG, "🎯 Both players pressed next, advancing to next question");
-                            advanceToNextQuestion(matchId, match);
-                        } else {
-                            Log.d(TAG, "⏳ Player " + currentUserId + " pressed next, waiting for opponent...");
-                            // Update match to show waiting status
-                            db.collection("quiz_matches")
-                                    .document(matchId)
-                                    .set(match);
-                        }
-                        
-                        callback.onMatchFound(match); // Notify UI to refresh
-                    }
-                });
+    private void completeQuestion(String matchId, int questionIndex, boolean onDeadline) {
+        battleEngine.completeQuestion(matchId, questionIndex, onDeadline, new BattleStore.Callback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean completed) {
+                if (completed) {
+                    Log.d(TAG, (onDeadline ? "⏰ Time's up" : "✅ Question answered") + " - question "
+                            + (questionIndex + 1) + " completed. Waiting for players to press Next...");
+                }
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "❌ Failed to complete question", e);
+            }
+        });
     }
     
     /**
-     * Advance to next question or end match
+     * Manually advance to next question (called when player presses Next button)
      */
-    private void advanceToNextQuestion(String matchId, QuizMatch match) {
-        if (match.getCurrentQuestionIndex() < match.getQuestionIds().size() - 1) {
-            // More questions available
-            match.nextQuestion();
-            match.setStatus("active");
-            
-            // Update match in Firestore
-            db.collection("quiz_matches")
-                    .document(matchId)
-                    .set(match)
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "✅ Advanced to question " + (match.getCurrentQuestionIndex() + 1) + 
-                              " of " + match.getQuestionIds().size());
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "❌ Failed to advance to next question", e);
-                    });
-        } else {
-            // No more questions - end match
-            Log.d(TAG, "🏁 All questions completed. Ending match...");
-            endMatch(matchId, match);
+    public void advanceToNextQuestion(String matchId, MatchmakingCallback callback) {
+        QuizMatch match = latestMatch;
+        if (match == null || !matchId.equals(match.getMatchId())) {
+            callback.onError("Match not loaded yet");
+            return;
         }
+        advanceIfCurrent(matchId, match.getCurrentQuestionIndex(), true);
+        callback.onMatchFound(match); // Notify UI to refresh
     }
     
     /**
-     * End the match and determine winner
+     * Advance past the question at the given index, in one transaction so only one
+     * client ever moves the match on. A Next press is recorded and only advances
+     * once every player pressed it; the auto-advance timer advances unconditionally.
      */
-    private void endMatch(String matchId, QuizMatch match) {
-        match.setStatus("completed");
-        match.setEndTime(System.currentTimeMillis());
-        
-        // Find winner based on scores
-        String winnerId = null;
-        int highestScore = -1;
-        for (Map.Entry<String, Integer> entry : match.getPlayerScores().entrySet()) {
-            if (entry.getValue() > highestScore) {
-                highestScore = entry.getValue();
-                winnerId = entry.getKey();
+    private void advanceIfCurrent(String matchId, int questionIndex, boolean pressedNext) {
+        String currentUserId = auth.getCurrentUser().getUid();
+        battleEngine.advance(matchId, currentUserId, questionIndex, pressedNext, new BattleStore.Callback<QuizMatch>() {
+            @Override
+            public void onSuccess(QuizMatch match) {
+                if (match == null) {
+                    return;
+                }
+                if (match.getCurrentQuestionIndex() == questionIndex && !"completed".equals(match.getStatus())) {
+                    Log.d(TAG, "⏳ Player " + currentUserId + " pressed next, waiting for opponent...");
+                    return;
+                }
+                if ("completed".equals(match.getStatus())) {
+                    Log.d(TAG, "🏆 Match completed! Winner: " + match.getWinnerId());
+                    getRankingService().applyMatchResult(matchId);
+                } else {
+                    Log.d(TAG, "✅ Advanced to question " + (match.getCurrentQuestionIndex() + 1) + 
+                          " of " + match.getQuestionIds().size());
+                }
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "❌ Failed to advance to next question", e);
             }
+        });
+    }
+    
+    private synchronized RankingService getRankingService() {
+        if (rankingService == null) {
+            rankingService = new RankingService();
         }
-        
-        // Create final variable for lambda expression
-        final String finalWinnerId = winnerId;
-        final int finalHighestScore = highestScore;
-        
-        match.setWinnerId(winnerId);
-        
-        // Update match in Firestore
-        db.collection("quiz_matches")
-                .document(matchId)
-                .set(match)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "🏆 Match completed! Winner: " + finalWinnerId + " with score: " + finalHighestScore);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to end match", e);
-                });
+        return rankingService;
     }
     
     /**
-     * Update player's ready status
+     * Update player's ready status.
+     * Only this player's flag is written; once the listener sees every player ready,
+     * startMatchIfAllReady flips the match to active in a guarded transaction.
      */
     public void setPlayerReady(String matchId, boolean ready) {
         String currentUserId = auth.getCurrentUser().getUid();
         
-        // Use a transaction to avoid race conditions
-        db.runTransaction(transaction -> {
-            DocumentSnapshot documentSnapshot = transaction.get(
-                db.collection("quiz_matches").document(matchId)
-            );
-            
-            if (!documentSnapshot.exists()) {
-                throw new RuntimeException("Match not found");
+        battleEngine.setPlayerReady(matchId, currentUserId, ready, new BattleStore.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                Log.d(TAG, "✅ Player " + currentUserId + " ready status set to: " + ready);
             }
             
-            QuizMatch match = documentSnapshot.toObject(QuizMatch.class);
-            if (match == null) {
-                throw new RuntimeException("Failed to parse match");
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Failed to update ready status", e);
             }
-            
-            Log.d(TAG, "=== BEFORE setting ready status ===");
-            Log.d(TAG, "Current player: " + currentUserId);
-            Log.d(TAG, "Current ready status: " + match.isPlayerReady(currentUserId));
-            Log.d(TAG, "All players ready: " + match.areAllPlayersReady());
-            Log.d(TAG, "Match status: " + match.getStatus());
-            Log.d(TAG, "Players ready map: " + match.getPlayersReady());
-            Log.d(TAG, "Total players: " + match.getPlayerIds().size());
-            Log.d(TAG, "Player IDs: " + match.getPlayerIds());
-            
-            // Set this player as ready
-            match.setPlayerReady(currentUserId, ready);
-            
-            Log.d(TAG, "=== AFTER setting ready status ===");
-            Log.d(TAG, "Player " + currentUserId + " ready status set to: " + ready);
-            Log.d(TAG, "New ready status: " + match.isPlayerReady(currentUserId));
-            Log.d(TAG, "All players ready: " + match.areAllPlayersReady());
-            Log.d(TAG, "Match status: " + match.getStatus());
-            Log.d(TAG, "Players ready map: " + match.getPlayersReady());
-            
-            // If all players are ready, start the match
-            if (match.areAllPlayersReady() && "waiting".equals(match.getStatus())) {
-                Log.d(TAG, "🎯 STARTING MATCH! Setting status to active");
-                Log.d(TAG, "🎯 Target players: " + match.getTargetPlayerCount() + ", Current players: " + match.getPlayerIds().size());
-                Log.d(TAG, "🎯 Questions loaded: " + match.getQuestionIds().size());
-                Log.d(TAG, "🎯 Current question ID: " + match.getCurrentQuestionId());
-                
+        });
+    }
+    
+    /**
+     * Start the match if every player is ready; a no-op when another client already did
+     */
+    private void startMatchIfAllReady(String matchId) {
+        battleEngine.startMatchIfAllReady(matchId, new BattleStore.Callback<QuizMatch>() {
+            @Override
+            public void onSuccess(QuizMatch match) {
+                if (match == null) {
+                    return;
+                }
                 if (match.getQuestionIds().isEmpty()) {
                     Log.e(TAG, "🚨 CRITICAL ERROR: Match is starting with NO QUESTIONS!");
-                    Log.e(TAG, "🚨 This will cause the quiz to fail!");
                 }
-                
-                match.setStatus("active");
-                match.setStartTime(System.currentTimeMillis());
-                match.setQuestionStartTime(System.currentTimeMillis());
-                
-                // Initialize question state for the first question
-                match.resetQuestionState();
-                Log.d(TAG, "🎯 Initialized question state for new match");
-            } else {
-                Log.d(TAG, "❌ Not starting match yet:");
-                Log.d(TAG, "  - All players ready: " + match.areAllPlayersReady());
-                Log.d(TAG, "  - Match status: " + match.getStatus());
-                Log.d(TAG, "  - Target players: " + match.getTargetPlayerCount() + ", Current players: " + match.getPlayerIds().size());
-                Log.d(TAG, "  - Questions loaded: " + match.getQuestionIds().size());
-                Log.d(TAG, "  - Current question ID: " + match.getCurrentQuestionId());
+                Log.d(TAG, "🎯 STARTING MATCH! " + match.getPlayerIds().size() + " players, "
+                        + match.getQuestionIds().size() + " questions");
             }
             
-            // Update the match in the transaction
-            transaction.set(db.collection("quiz_matches").document(matchId), match);
-            
-            return match;
-        })
-        .addOnSuccessListener(match -> {
-            Log.d(TAG, "✅ Match updated successfully via transaction");
-            Log.d(TAG, "✅ Final match state:");
-            Log.d(TAG, "✅ - Status: " + match.getStatus());
-            Log.d(TAG, "✅ - Questions loaded: " + match.getQuestionIds().size());
-            Log.d(TAG, "✅ - Current question ID: " + match.getCurrentQuestionId());
-            Log.d(TAG, "✅ - Players ready: " + match.getPlayersReady());
-        })
-        .addOnFailureListener(e -> {
-            Log.e(TAG, "Failed to update match via transaction", e);
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Failed to start match", e);
+            }
         });
     }
     
-    // Helper methods and interfaces
-    private void updateQueueStatus(String queueId, String status) {
-        db.collection("matchmaking_queue")
-                .document(queueId)
-                .update("status", status);
-    }
-    
-    private void startMatchmakingTimeout(String queueId, MatchmakingCallback callback) {
-        // Use a handler to timeout after MAX_WAIT_TIME
-        new android.os.Handler().postDelayed(() -> {
-            // Check if still in queue
-            db.collection("matchmaking_queue")
-                    .document(queueId)
-                    .get()
-                    .addOnSuccessListener(doc -> {
-                        if (doc.exists()) {
-                            MatchmakingQueue queue = doc.toObject(MatchmakingQueue.class);
-                            if (queue != null && "waiting".equals(queue.getStatus())) {
-                                // Remove from queue and notify timeout
-                                updateQueueStatus(queueId, "expired");
-                                callback.onMatchmakingTimeout();
-                            }
-                        }
-                    });
-        }, MAX_WAIT_TIME);
+    /**
+     * Re-run a match from its event log (timeline is written to logcat)
+     */
+    public void replayMatch(String matchId, MatchEventLog.ReplayCallback callback) {
+        eventLog.replay(matchId, callback);
     }
     
     public void cleanup() {
@@ -1116,11 +843,10 @@ public class QuizMatchService {
             matchListener = null;
         }
         
-        if (queueListener != null) {
-            Log.d(TAG, "🧹 Removing queue listener");
-            queueListener.remove();
-            queueListener = null;
-        }
+        cancelMatchmaking();
+        clockHandler.removeCallbacksAndMessages(null);
+        questionBundle = null;
+        latestMatch = null;
         
         Log.d(TAG, "🧹 Cleanup completed");
     }
@@ -1136,17 +862,6 @@ public class QuizMatchService {
         }
     }
     
-    /**
-     * Safely detach queue listener
-     */
-    public void detachQueueListener() {
-        if (queueListener != null) {
-            Log.d(TAG, "🧹 Detaching queue listener");
-            queueListener.remove();
-            queueListener = null;
-        }
-    }
-    
     /**
      * Refresh match status by re-fetching from database
      */
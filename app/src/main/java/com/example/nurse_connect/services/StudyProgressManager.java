@@ -4,13 +4,16 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 
-import com.google.firebase.Timestamp;
+import com.example.nurse_connect.services.progress.StudyProgressLog;
+import com.example.nurse_connect.services.progress.StudyProgressState;
+import com.example.nurse_connect.services.progress.StudyProgressStore;
+import com.example.nurse_connect.services.progress.StudyRecord;
+import com.example.nurse_connect.services.progress.StudyStatsSync;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
 
@@ -24,37 +27,33 @@ import java.util.Locale;
  * - Progress is based on unique questions, not total attempts
  * - Prevents double-counting of repeated questions
  * - Ensures accurate progress tracking
+ * 
+ * Progress lives in the study-progress log (StudyProgressStore): each session is
+ * one appended record, and the aggregates are kept in memory.
  */
 public class StudyProgressManager {
     private static final String TAG = "StudyProgressManager";
     private static final String PREFS_NAME = "StudyProgressPrefs";
     
     // Challenge constants
-    private static final int CHALLENGE_DAYS = 30;
-    private static final int TARGET_QUESTIONS = 400; // Total questions (40 sets * 10 questions)
+    private static final int CHALLENGE_DAYS = StudyProgressState.CHALLENGE_DAYS;
+    private static final int TARGET_QUESTIONS = StudyProgressState.TARGET_QUESTIONS;
     private static final int QUESTIONS_PER_SET = 10;
-    private static final long HOURS_BETWEEN_STREAKS = 8; // Count next streak every 8 hours
-    
-    // SharedPreferences keys
-    private static final String KEY_FIRST_STUDY_DATE = "first_study_date";
-    private static final String KEY_CURRENT_STREAK = "current_streak";
-    private static final String KEY_MAX_STREAK = "max_streak";
-    private static final String KEY_STREAK_START_DATE = "streak_start_date";
-    private static final String KEY_LAST_STUDY_DATE = "last_study_date";
-    private static final String KEY_COMPLETED_SETS = "completed_sets";
-    private static final String KEY_TOTAL_STUDY_SESSIONS = "total_study_sessions";
-    private static final String KEY_CURRENT_SESSION_QUESTIONS = "current_session_questions";
-    private static final String KEY_TOTAL_QUESTIONS_STUDIED = "total_questions_studied";
-    private static final String KEY_COMPLETED_FLASHCARD_IDS = "completed_flashcard_ids";
     
     private final Context context;
     private final SharedPreferences prefs;
+    private final StudyProgressStore store;
+    private final StudyProgressLog progressLog;
+    private final StudyStatsSync statsSync;
     private final FirebaseFirestore db;
     private final FirebaseAuth auth;
     
     public StudyProgressManager(Context context) {
         this.context = context;
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.store = StudyProgressStore.getInstance(context);
+        this.progressLog = store.getLog();
+        this.statsSync = StudyStatsSync.getInstance(context);
         this.db = FirebaseFirestore.getInstance();
         this.auth = FirebaseAuth.getInstance();
     }
@@ -64,7 +63,7 @@ public class StudyProgressManager {
      */
     public void startNewStudySession() {
         // Reset current session questions counter
-        prefs.edit().putInt(KEY_CURRENT_SESSION_QUESTIONS, 0).apply();
+        store.commit(StudyRecord.SESSION_START, 0);
         Log.d(TAG, "New study session started - counter reset");
     }
     
@@ -76,54 +75,17 @@ public class StudyProgressManager {
         String userId = getCurrentUserId();
         if (userId == null) return;
         
-        long currentTime = System.currentTimeMillis();
-        Date currentDate = new Date(currentTime);
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(currentDate);
-        
-        // Get or set first study date
-        long firstStudyTime = prefs.getLong(KEY_FIRST_STUDY_DATE, currentTime);
-        if (firstStudyTime == currentTime) {
-            // First time studying
-            prefs.edit().putLong(KEY_FIRST_STUDY_DATE, currentTime).apply();
-            Log.d(TAG, "First study session recorded");
-        }
-        
-        // Update last study date
-        prefs.edit().putLong(KEY_LAST_STUDY_DATE, currentTime).apply();
-        
-        // Track current session questions (resets each session)
-        prefs.edit().putInt(KEY_CURRENT_SESSION_QUESTIONS, questionsCompleted).apply();
-        
-        // Track total questions studied across all sessions
-        int totalQuestions = prefs.getInt(KEY_TOTAL_QUESTIONS_STUDIED, 0);
-        prefs.edit().putInt(KEY_TOTAL_QUESTIONS_STUDIED, totalQuestions + questionsCompleted).apply();
-        
-        // Only count NEW questions from this session for progress tracking
-        // This ensures we don't double-count or include old questions
-        int currentCompletedQuestions = prefs.getInt(KEY_COMPLETED_SETS, 0);
-        int newTotal = currentCompletedQuestions + questionsCompleted; // Add only new questions
-        
-        // Ensure we don't exceed the target
-        if (newTotal > TARGET_QUESTIONS) {
-            newTotal = TARGET_QUESTIONS;
+        // One log record carries the whole session: totals, streak and completed flashcards.
+        // Only NEW questions are added, capped at the target.
+        store.commit(StudyRecord.SESSION, questionsCompleted);
+        synchronized (progressLog) {
+            StudyProgressState state = progressLog.getState();
+            Log.d(TAG, "Completed " + questionsCompleted + " NEW questions this session. Total questions: "
+                    + state.getCompletedQuestions() + "/" + TARGET_QUESTIONS + ", streak: " + state.getCurrentStreak());
         }
         
-        prefs.edit().putInt(KEY_COMPLETED_SETS, newTotal).apply();
-        Log.d(TAG, "Completed " + questionsCompleted + " NEW questions this session. Total questions: " + newTotal + "/" + TARGET_QUESTIONS);
-        
-        // Update total study sessions
-        int currentSessions = prefs.getInt(KEY_TOTAL_STUDY_SESSIONS, 0);
-        prefs.edit().putInt(KEY_TOTAL_STUDY_SESSIONS, currentSessions + 1).apply();
-        
-        // Update streak
-        updateStreak(currentTime);
-        
-        // Ensure required documents exist
-        ensureRequiredDocumentsExist(userId);
-        
-        // Save to Firestore
-        saveProgressToFirestore(userId);
+        // Synced to Firestore once studying goes idle, not per session
+        statsSync.recordSession(questionsCompleted);
     }
     
     /**
@@ -136,92 +98,22 @@ public class StudyProgressManager {
             return;
         }
         
-        // Get the set of completed flashcard IDs
-        java.util.Set<String> completedIds = prefs.getStringSet(KEY_COMPLETED_FLASHCARD_IDS, new java.util.HashSet<>());
-        
-        // Check if this flashcard was already completed
-        if (completedIds.contains(flashcardId)) {
+        // Kept in memory and written with the session record
+        if (!store.recordFlashcard(flashcardId)) {
             Log.d(TAG, "Flashcard " + flashcardId + " already completed, skipping");
             return;
         }
+        statsSync.recordCompleted(flashcardId);
         
-        // Add this flashcard ID to completed set
-        java.util.Set<String> newCompletedIds = new java.util.HashSet<>(completedIds);
-        newCompletedIds.add(flashcardId);
-        prefs.edit().putStringSet(KEY_COMPLETED_FLASHCARD_IDS, newCompletedIds).apply();
-        
-        Log.d(TAG, "New flashcard completed: " + flashcardId + ". Total unique flashcards: " + newCompletedIds.size());
+        Log.d(TAG, "New flashcard completed: " + flashcardId + ". Total unique flashcards: " + getUniqueFlashcardsCompleted());
     }
     
     /**
      * Get count of unique flashcards completed
      */
     public int getUniqueFlashcardsCompleted() {
-        java.util.Set<String> completedIds = prefs.getStringSet(KEY_COMPLETED_FLASHCARD_IDS, new java.util.HashSet<>());
-        return completedIds.size();
-    }
-    
-    /**
-     * Update the current streak based on study activity
-     * Counts every 8 hours since day 1, resets to 1 after day 30
-     */
-    private void updateStreak(long currentTime) {
-        long firstStudyTime = prefs.getLong(KEY_FIRST_STUDY_DATE, 0);
-        long lastStudyTime = prefs.getLong(KEY_LAST_STUDY_DATE, 0);
-        long streakStartTime = prefs.getLong(KEY_STREAK_START_DATE, 0);
-        
-        if (firstStudyTime == 0) {
-            // First study session
-            prefs.edit()
-                .putLong(KEY_STREAK_START_DATE, currentTime)
-                .putInt(KEY_CURRENT_STREAK, 1)
-                .putInt(KEY_MAX_STREAK, 1)
-                .apply();
-            return;
-        }
-        
-        // Calculate days since first study
-        long daysSinceFirst = (currentTime - firstStudyTime) / (1000 * 60 * 60 * 24);
-        
-        // Reset streak to 1 after day 30
-        if (daysSinceFirst >= CHALLENGE_DAYS) {
-            prefs.edit()
-                .putLong(KEY_STREAK_START_DATE, currentTime)
-                .putInt(KEY_CURRENT_STREAK, 1)
-                .apply();
-            Log.d(TAG, "30-day challenge completed, streak reset to 1");
-            return;
-        }
-        
-        if (lastStudyTime == 0) {
-            // First study session in this streak
-            prefs.edit()
-                .putLong(KEY_STREAK_START_DATE, currentTime)
-                .putInt(KEY_CURRENT_STREAK, 1)
-                .apply();
-            return;
-        }
-        
-        // Calculate hours between last study and current study
-        long hoursDiff = (currentTime - lastStudyTime) / (1000 * 60 * 60);
-        
-        if (hoursDiff >= HOURS_BETWEEN_STREAKS) {
-            // 8+ hours have passed - increment streak
-            int currentStreak = prefs.getInt(KEY_CURRENT_STREAK, 0);
-            int newStreak = currentStreak + 1;
-            prefs.edit().putInt(KEY_CURRENT_STREAK, newStreak).apply();
-            
-            // Update max streak if needed
-            int maxStreak = prefs.getInt(KEY_MAX_STREAK, 0);
-            if (newStreak > maxStreak) {
-                prefs.edit().putInt(KEY_MAX_STREAK, newStreak).apply();
-                Log.d(TAG, "New max streak: " + newStreak + " (every 8 hours)!");
-            }
-            
-            Log.d(TAG, "8+ hours passed - streak: " + newStreak + " (every 8 hours)");
-        } else {
-            // Less than 8 hours - streak continues
-            Log.d(TAG, "Less than 8 hours - streak continues");
+        synchronized (progressLog) {
+            return progressLog.getState().getUniqueFlashcardsCompleted();
         }
     }
     
@@ -229,29 +121,36 @@ public class StudyProgressManager {
      * Get current session progress (questions completed in this session)
      */
     public int getCurrentSessionProgress() {
-        return prefs.getInt(KEY_CURRENT_SESSION_QUESTIONS, 0);
+        synchronized (progressLog) {
+            return progressLog.getState().getCurrentSessionQuestions();
+        }
     }
     
     /**
      * Get total questions studied across all sessions
      */
     public int getTotalQuestionsStudied() {
-        return prefs.getInt(KEY_TOTAL_QUESTIONS_STUDIED, 0);
+        synchronized (progressLog) {
+            return progressLog.getState().getTotalQuestionsStudied();
+        }
     }
     
     /**
      * Get current study progress information
      */
     public StudyProgress getStudyProgress() {
-        long firstStudyTime = prefs.getLong(KEY_FIRST_STUDY_DATE, 0);
-        long currentTime = System.currentTimeMillis();
-        
-        int currentStreak = prefs.getInt(KEY_CURRENT_STREAK, 0);
-        int maxStreak = prefs.getInt(KEY_MAX_STREAK, 0);
-        
+        synchronized (progressLog) {
+            return toStudyProgress(progressLog.getState(), System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * Challenge progress as of currentTime, derived from the logged aggregates
+     */
+    public static StudyProgress toStudyProgress(StudyProgressState state, long currentTime) {
+        long firstStudyTime = state.getFirstStudyTime();
         // Use unique flashcard count instead of potentially inflated count
-        int uniqueFlashcardsCompleted = getUniqueFlashcardsCompleted();
-        int totalSessions = prefs.getInt(KEY_TOTAL_STUDY_SESSIONS, 0);
+        int uniqueFlashcardsCompleted = state.getUniqueFlashcardsCompleted();
         
         // Calculate days since first study
         int daysSinceFirst = 0;
@@ -267,30 +166,26 @@ public class StudyProgressManager {
         // Check if on track
         boolean isOnTrack = isOnTrackForChallenge(daysSinceFirst, uniqueFlashcardsCompleted);
         
-        // Get current session and total questions
-        int currentSessionQuestions = prefs.getInt(KEY_CURRENT_SESSION_QUESTIONS, 0);
-        int totalQuestionsStudied = prefs.getInt(KEY_TOTAL_QUESTIONS_STUDIED, 0);
-        
         return new StudyProgress(
-            currentStreak,
-            maxStreak,
+            state.getCurrentStreak(),
+            state.getMaxStreak(),
             uniqueFlashcardsCompleted, // Use unique count
             TARGET_QUESTIONS,
-            totalSessions,
+            state.getTotalSessions(),
             daysSinceFirst,
             daysRemaining,
             progressPercentage,
             isOnTrack,
             firstStudyTime > 0,
-            currentSessionQuestions,
-            totalQuestionsStudied
+            state.getCurrentSessionQuestions(),
+            state.getTotalQuestionsStudied()
         );
     }
     
     /**
      * Check if user is on track for the 30-day challenge
      */
-    private boolean isOnTrackForChallenge(int daysElapsed, int completedSets) {
+    private static boolean isOnTrackForChallenge(int daysElapsed, int completedSets) {
         if (daysElapsed == 0) return true;
         
         // Calculate expected progress: should complete (400 questions / 30 days) * days elapsed
@@ -298,35 +193,6 @@ public class StudyProgressManager {
         return completedSets >= expectedProgress;
     }
     
-    /**
-     * Save progress to Firestore
-     */
-    private void saveProgressToFirestore(String userId) {
-        StudyProgress progress = getStudyProgress();
-        
-        // Create progress document
-        ProgressDocument progressDoc = new ProgressDocument(
-            userId,
-            progress.getCurrentStreak(),
-            progress.getMaxStreak(),
-            progress.getCompletedSets(),
-            progress.getTargetSets(),
-            progress.getTotalSessions(),
-            progress.getDaysSinceFirst(),
-            progress.getDaysRemaining(),
-            progress.getProgressPercentage(),
-            progress.isOnTrack(),
-            Timestamp.now()
-        );
-        
-        db.collection("users").document(userId)
-            .collection("study_progress")
-            .document("current_progress")
-            .set(progressDoc)
-            .addOnSuccessListener(aVoid -> Log.d(TAG, "Progress saved to Firestore"))
-            .addOnFailureListener(e -> Log.e(TAG, "Failed to save progress to Firestore", e));
-    }
-    
     /**
      * Get current user ID
      */
@@ -337,40 +203,6 @@ public class StudyProgressManager {
         return null;
     }
     
-    /**
-     * Ensure required Firestore documents exist
-     */
-    private void ensureRequiredDocumentsExist(String userId) {
-        // Create study_stats document if it doesn't exist
-        db.collection("users").document(userId)
-            .collection("study_stats")
-            .document("flashcards")
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (!documentSnapshot.exists()) {
-                    // Create the document with initial values
-                    java.util.Map<String, Object> initialStats = new java.util.HashMap<>();
-                    initialStats.put("totalCardsStudied", 0);
-                    initialStats.put("totalScore", 0);
-                    initialStats.put("lastStudied", com.google.firebase.Timestamp.now());
-                    initialStats.put("createdAt", com.google.firebase.Timestamp.now());
-                    initialStats.put("updatedAt", com.google.firebase.Timestamp.now());
-                    
-                    db.collection("users").document(userId)
-                        .collection("study_stats")
-                        .document("flashcards")
-                        .set(initialStats)
-                        .addOnSuccessListener(aVoid -> Log.d(TAG, "Study stats document created"))
-                        .addOnFailureListener(e -> Log.e(TAG, "Failed to create study stats document", e));
-                }
-            })
-            .addOnFailureListener(e -> Log.e(TAG, "Failed to check study stats document", e));
-            
-        // Create flashcard_memory collection structure if needed
-        // This will be created automatically when first flashcard is saved
-        Log.d(TAG, "Ensuring flashcard_memory collection structure exists");
-    }
-    
     /**
      * Reset all study progress and start fresh
      */
@@ -379,16 +211,8 @@ public class StudyProgressManager {
         if (userId == null) return;
         
         // Clear all local data
-        prefs.edit()
-            .remove(KEY_FIRST_STUDY_DATE)
-            .remove(KEY_CURRENT_STREAK)
-            .remove(KEY_MAX_STREAK)
-            .remove(KEY_STREAK_START_DATE)
-            .remove(KEY_LAST_STUDY_DATE)
-            .remove(KEY_COMPLETED_SETS)
-            .remove(KEY_TOTAL_STUDY_SESSIONS)
-            .remove(KEY_COMPLETED_FLASHCARD_IDS)
-            .apply();
+        store.commit(StudyRecord.RESET, 0);
+        statsSync.clear();
         
         // Clear other potential flashcard-related SharedPreferences
         clearAllFlashcardPreferences();
@@ -493,20 +317,9 @@ public class StudyProgressManager {
      * Force reset the first study date to start counting from today
      */
     public void resetFirstStudyDate() {
-        // Set first study date to current time (today)
-        long currentTime = System.currentTimeMillis();
-        prefs.edit().putLong(KEY_FIRST_STUDY_DATE, currentTime).apply();
-        
-        // Reset streak to 1 (since we're starting today)
-        prefs.edit()
-            .putInt(KEY_CURRENT_STREAK, 1)
-            .putInt(KEY_MAX_STREAK, 1)
-            .putLong(KEY_STREAK_START_DATE, currentTime)
-            .putLong(KEY_LAST_STUDY_DATE, currentTime)
-            .putInt(KEY_COMPLETED_SETS, 0)
-            .putInt(KEY_TOTAL_STUDY_SESSIONS, 0)
-            .putStringSet(KEY_COMPLETED_FLASHCARD_IDS, new java.util.HashSet<>())
-            .apply();
+        // First study date becomes today and the streak restarts at 1
+        store.commit(StudyRecord.RESTART, 0);
+        statsSync.markCompletedIdsReset();
         
         Log.d(TAG, "First study date reset to today - streak will start from day 1");
     }
@@ -617,39 +430,4 @@ public class StudyProgressManager {
             }
         }
     }
-    
-    /**
-     * Firestore Document Class
-     */
-    private static class ProgressDocument {
-        public String userId;
-        public int currentStreak;
-        public int maxStreak;
-        public int completedSets;
-        public int targetSets;
-        public int totalSessions;
-        public int daysSinceFirst;
-        public int daysRemaining;
-        public double progressPercentage;
-        public boolean isOnTrack;
-        public Timestamp lastUpdated;
-        
-        public ProgressDocument() {} // Required for Firestore
-        
-        public ProgressDocument(String userId, int currentStreak, int maxStreak, int completedSets,
-                              int targetSets, int totalSessions, int daysSinceFirst, int daysRemaining,
-                              double progressPercentage, boolean isOnTrack, Timestamp lastUpdated) {
-            this.userId = userId;
-            this.currentStreak = currentStreak;
-            this.maxStreak = maxStreak;
-            this.completedSets = completedSets;
-            this.targetSets = targetSets;
-            this.totalSessions = totalSessions;
-            this.daysSinceFirst = daysSinceFirst;
-            this.daysRemaining = daysRemaining;
-            this.progressPercentage = progressPercentage;
-            this.isOnTrack = isOnTrack;
-            this.lastUpdated = lastUpdated;
-        }
-    }
 }
@@ -0,0 +1,57 @@
+package com.example.nurse_connect.services.battle;
+
+import com.example.nurse_connect.models.QuizMatch;
+import com.example.nurse_connect.services.matchlog.MatchEvent;
+
+/**
+ * Storage used by {@link QuizBattleEngine}. Implementations must run transaction
+ * bodies atomically (retrying on conflict); bodies may be re-run and must perform
+ * all reads before any writes. A match written with a null questionStartedAt gets
+ * it stamped with the store's server time. Match events passed in are written to the
+ * match's event log in the same commit as the change they describe.
+ */
+public interface BattleStore {
+
+    interface Transaction {
+        QuizMatch readMatch(String matchId) throws Exception;
+        void writeMatch(QuizMatch match);
+        /** Set status question_completed and stamp questionCompletedAt with server time */
+        void markQuestionCompleted(String matchId, long readyTime);
+        void markPressedNext(String matchId, String playerId);
+        /** Add a point for the player and mark the current question answered by them */
+        void awardPoint(String matchId, String playerId);
+        /** Log an event, committed together with the transaction's writes */
+        void appendEvent(String matchId, MatchEvent event);
+    }
+
+    interface TransactionBody<T> {
+        T apply(Transaction transaction) throws Exception;
+    }
+
+    interface Callback<T> {
+        void onSuccess(T result);
+        void onFailure(Exception e);
+    }
+
+    interface MatchListener {
+        void onMatchChanged(QuizMatch match);
+    }
+
+    interface Registration {
+        void remove();
+    }
+
+    <T> void runTransaction(TransactionBody<T> body, Callback<T> callback);
+
+    /**
+     * Set one player's ready flag without touching the rest of the match, logging event with it
+     */
+    void setPlayerReady(String matchId, String playerId, boolean ready, MatchEvent event, Callback<Void> callback);
+
+    Registration listenToMatch(String matchId, MatchListener listener);
+
+    /**
+     * Current server time in milliseconds, as best known to this client
+     */
+    long serverTime();
+}
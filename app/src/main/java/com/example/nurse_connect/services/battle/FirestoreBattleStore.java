@@ -0,0 +1,118 @@
+package com.example.nurse_connect.services.battle;
+
+import android.util.Log;
+
+import com.example.nurse_connect.models.QuizMatch;
+import com.example.nurse_connect.services.MatchClock;
+import com.example.nurse_connect.services.matchlog.MatchEvent;
+import com.example.nurse_connect.services.matchlog.MatchEventLog;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.WriteBatch;
+
+/**
+ * Firestore-backed battle storage over quiz_matches/{matchId}.
+ * Server time comes from the synchronized {@link MatchClock}.
+ */
+public class FirestoreBattleStore implements BattleStore {
+
+    private static final String TAG = "FirestoreBattleStore";
+    private static final String MATCHES = "quiz_matches";
+
+    private final FirebaseFirestore db;
+    private final MatchClock clock;
+
+    public FirestoreBattleStore() {
+        db = FirebaseFirestore.getInstance();
+        clock = MatchClock.getInstance();
+    }
+
+    private DocumentReference matchRef(String matchId) {
+        return db.collection(MATCHES).document(matchId);
+    }
+
+    @Override
+    public <T> void runTransaction(TransactionBody<T> body, Callback<T> callback) {
+        db.runTransaction(transaction -> {
+            Transaction tx = new Transaction() {
+                private int events;
+
+                @Override
+                public QuizMatch readMatch(String matchId) throws Exception {
+                    return transaction.get(matchRef(matchId)).toObject(QuizMatch.class);
+                }
+
+                @Override
+                public void writeMatch(QuizMatch match) {
+                    transaction.set(matchRef(match.getMatchId()), match);
+                }
+
+                @Override
+                public void markQuestionCompleted(String matchId, long readyTime) {
+                    transaction.update(matchRef(matchId),
+                            "status", "question_completed",
+                            "nextQuestionReadyTime", readyTime,
+                            "questionCompletedAt", FieldValue.serverTimestamp());
+                }
+
+                @Override
+                public void markPressedNext(String matchId, String playerId) {
+                    transaction.update(matchRef(matchId), "playersPressedNext." + playerId, true);
+                }
+
+                @Override
+                public void awardPoint(String matchId, String playerId) {
+                    transaction.update(matchRef(matchId),
+                            "playerScores." + playerId, FieldValue.increment(1),
+                            "playersAnsweredCurrentQuestion." + playerId, true,
+                            "currentQuestionCompleted", true,
+                            "currentQuestionAnsweredBy", playerId);
+                }
+
+                @Override
+                public void appendEvent(String matchId, MatchEvent event) {
+                    transaction.set(MatchEventLog.events(db, matchId).document(),
+                            MatchEventLog.toDocument(event, events++));
+                }
+            };
+            return body.apply(tx);
+        })
+        .addOnSuccessListener(callback::onSuccess)
+        .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void setPlayerReady(String matchId, String playerId, boolean ready, MatchEvent event, Callback<Void> callback) {
+        WriteBatch batch = db.batch();
+        batch.update(matchRef(matchId), "playersReady." + playerId, ready);
+        batch.set(MatchEventLog.events(db, matchId).document(), MatchEventLog.toDocument(event, 0));
+        batch.commit()
+                .addOnSuccessListener(callback::onSuccess)
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public Registration listenToMatch(String matchId, MatchListener listener) {
+        ListenerRegistration registration = matchRef(matchId)
+                .addSnapshotListener((snapshot, e) -> {
+                    if (e != null) {
+                        Log.e(TAG, "Error listening to match " + matchId, e);
+                        return;
+                    }
+                    if (snapshot != null && snapshot.exists()) {
+                        QuizMatch match = snapshot.toObject(QuizMatch.class);
+                        if (match != null) {
+                            listener.onMatchChanged(match);
+                        }
+                    }
+                });
+        return registration::remove;
+    }
+
+    @Override
+    public long serverTime() {
+        return clock.now();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.nurse_connect.services.battle;
+
+import com.example.nurse_connect.models.QuizMatch;
+import com.example.nurse_connect.services.matchlog.MatchEvent;
+
+/**
+ * State transitions of a running quiz battle: starting the match, scoring a
+ * correct answer, closing a question and advancing to the next one.
+ * Every transition that more than one client may attempt runs as a store
+ * transaction guarded by the match status and question index, so it is applied
+ * exactly once no matter how many clients race for it. Each transition logs its
+ * match event in the same commit, so the event log replays what was stored.
+ */
+public class QuizBattleEngine {
+
+    private final BattleStore store;
+
+    public QuizBattleEngine(BattleStore store) {
+        this.store = store;
+    }
+
+    public BattleStore getStore() {
+        return store;
+    }
+
+    public void setPlayerReady(String matchId, String playerId, boolean ready, BattleStore.Callback<Void> callback) {
+        store.setPlayerReady(matchId, playerId, ready,
+                MatchEvent.ready(playerId, ready, store.serverTime()), callback);
+    }
+
+    /**
+     * Start the match if every player is ready. Result is the started match, or null
+     * when it was not startable (another client already started it).
+     */
+    public void startMatchIfAllReady(String matchId, BattleStore.Callback<QuizMatch> callback) {
+        store.runTransaction(transaction -> {
+            QuizMatch match = transaction.readMatch(matchId);
+            if (match == null || !"waiting".equals(match.getStatus()) || !match.areAllPlayersReady()) {
+                return null;
+            }
+            long now = store.serverTime();
+            match.setStatus("active");
+            match.setStartTime(now);
+            match.setQuestionStartTime(now);
+            // Initialize question state for the first question (also re-stamps questionStartedAt)
+            match.resetQuestionState();
+            transaction.writeMatch(match);
+            transaction.appendEvent(matchId, MatchEvent.start(now));
+            return match;
+        }, callback);
+    }
+
+    /**
+     * Score a correct answer to the question at the given index. Result is false if the
+     * match is no longer active on that question or the player already scored it, so a
+     * late answer neither scores nor marks the next question answered.
+     */
+    public void awardPoint(String matchId, String playerId, int questionIndex, int selected,
+                           BattleStore.Callback<Boolean> callback) {
+        store.runTransaction(transaction -> {
+            QuizMatch match = transaction.readMatch(matchId);
+            if (match == null || !"active".equals(match.getStatus())
+                    || match.getCurrentQuestionIndex() != questionIndex
+                    || match.getPlayersAnsweredCurrentQuestion().getOrDefault(playerId, false)) {
+                return false;
+            }
+            transaction.awardPoint(matchId, playerId);
+            transaction.appendEvent(matchId,
+                    MatchEvent.answer(playerId, questionIndex, selected, true, store.serverTime()));
+            return true;
+        }, callback);
+    }
+
+    /**
+     * Close the question at the given index (status -> question_completed). Result is
+     * false if the match already moved past it or, for a timeout, the deadline has not passed.
+     */
+    public void completeQuestion(String matchId, int questionIndex, boolean onDeadline,
+                                 BattleStore.Callback<Boolean> callback) {
+        store.runTransaction(transaction -> {
+            QuizMatch match = transaction.readMatch(matchId);
+            if (match == null || !"active".equals(match.getStatus())
+                    || match.getCurrentQuestionIndex() != questionIndex) {
+                return false;
+            }
+            if (onDeadline && store.serverTime() < match.getQuestionDeadlineMillis()) {
+                return false;
+            }
+            long now = store.serverTime();
+            transaction.markQuestionCompleted(matchId, now);
+            transaction.appendEvent(matchId, MatchEvent.complete(questionIndex, now));
+            return true;
+        }, callback);
+    }
+
+    /**
+     * Advance past the question at the given index. A Next press is recorded and only
+     * advances once every player pressed it; an auto-advance (pressedNext false)
+     * advances unconditionally. Result is the match after the transaction, or null if
+     * the question was no longer current.
+     */
+    public void advance(String matchId, String playerId, int questionIndex, boolean pressedNext,
+                        BattleStore.Callback<QuizMatch> callback) {
+        store.runTransaction(transaction -> {
+            QuizMatch match = transaction.readMatch(matchId);
+            if (match == null || !"question_completed".equals(match.getStatus())
+                    || match.getCurrentQuestionIndex() != questionIndex) {
+                return null;
+            }
+
+            long now = store.serverTime();
+            if (pressedNext) {
+                match.markPlayerPressedNext(playerId);
+                transaction.appendEvent(matchId, MatchEvent.next(playerId, questionIndex, now));
+                if (!match.haveAllPlayersPressedNext()) {
+                    transaction.markPressedNext(matchId, playerId);
+                    return match;
+                }
+            }
+
+            if (match.getCurrentQuestionIndex() < match.getQuestionIds().size() - 1) {
+                match.nextQuestion();
+                match.setStatus("active");
+                transaction.appendEvent(matchId, MatchEvent.advance(questionIndex, now));
+            } else {
+                match.finishMatch(now);
+                transaction.appendEvent(matchId, MatchEvent.end(now));
+            }
+            transaction.writeMatch(match);
+            return match;
+        }, callback);
+    }
+}
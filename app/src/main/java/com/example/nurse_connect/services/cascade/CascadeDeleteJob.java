@@ -0,0 +1,185 @@
+package com.example.nurse_connect.services.cascade;
+
+import java.util.List;
+
+/**
+ * Deletes a study material's dependents one after another. Each dependent is paged
+ * through in ID order, and every page goes out as one batch delete while the next page
+ * is read, with at most maxInFlight batches outstanding.
+ *
+ * Progress reports the next dependent to finish and the documents deleted so far; a job
+ * started again from that point completes the work, because the dependents before it
+ * are done and the documents it already deleted no longer come up in its pages. A
+ * failed batch or page stops the job, except that a dependent the store is denied
+ * (see CascadeStore.isDenied) is reported and skipped so the others still go.
+ */
+public class CascadeDeleteJob {
+
+    /** Firestore's limit on writes in one batch */
+    public static final int MAX_BATCH_SIZE = 500;
+
+    public interface Listener {
+        void onProgress(int nextDependent, int deleted);
+        void onDependentSkipped(Dependent dependent, Exception e);
+        void onComplete(int deleted);
+        void onFailure(Exception e);
+    }
+
+    private final CascadeStore store;
+    private final String materialId;
+    private final List<Dependent> dependents;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final Listener listener;
+
+    private int dependentIndex;
+    private int deleted;
+    private String cursor;
+    private boolean lastPage;
+    private boolean skipping;
+    private boolean pageLoading;
+    private int inFlight;
+    private boolean finished;
+
+    public CascadeDeleteJob(CascadeStore store, String materialId, List<Dependent> dependents,
+                            int startDependent, int deletedSoFar,
+                            int batchSize, int maxInFlight, Listener listener) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("batchSize must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        this.store = store;
+        this.materialId = materialId;
+        this.dependents = dependents;
+        this.dependentIndex = startDependent;
+        this.deleted = deletedSoFar;
+        this.batchSize = batchSize;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        pump();
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    private void pump() {
+        if (finished) {
+            return;
+        }
+        if (dependentIndex >= dependents.size()) {
+            finished = true;
+            listener.onComplete(deleted);
+            return;
+        }
+        if (lastPage) {
+            if (inFlight == 0) {
+                // Every batch of this dependent is committed; the next one starts from its beginning
+                dependentIndex++;
+                cursor = null;
+                lastPage = false;
+                skipping = false;
+                listener.onProgress(dependentIndex, deleted);
+                pump();
+            }
+            return;
+        }
+        if (pageLoading || inFlight >= maxInFlight) {
+            return;
+        }
+
+        pageLoading = true;
+        Dependent dependent = dependents.get(dependentIndex);
+        store.page(dependent, materialId, cursor, batchSize, new CascadeStore.Callback<List<String>>() {
+            @Override
+            public void onSuccess(List<String> ids) {
+                onPage(dependent, ids);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                onPageFailed(dependent, e);
+            }
+        });
+    }
+
+    private synchronized void onPage(Dependent dependent, List<String> ids) {
+        pageLoading = false;
+        if (finished) {
+            return;
+        }
+        if (skipping) {
+            pump();
+            return;
+        }
+        if (ids.size() < batchSize) {
+            lastPage = true;
+        }
+        if (!ids.isEmpty()) {
+            cursor = ids.get(ids.size() - 1);
+            inFlight++;
+            store.deleteBatch(dependent, materialId, ids, new CascadeStore.Callback<Void>() {
+                @Override
+                public void onSuccess(Void result) {
+                    onBatchDeleted(ids.size());
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    onBatchFailed(dependent, e);
+                }
+            });
+        }
+        pump();
+    }
+
+    private synchronized void onPageFailed(Dependent dependent, Exception e) {
+        pageLoading = false;
+        if (store.isDenied(e)) {
+            skip(dependent, e);
+        } else {
+            fail(e);
+        }
+    }
+
+    private synchronized void onBatchFailed(Dependent dependent, Exception e) {
+        inFlight--;
+        if (store.isDenied(e)) {
+            skip(dependent, e);
+        } else {
+            fail(e);
+        }
+    }
+
+    // Stop paging the current dependent; it is left once its outstanding batches are back
+    private void skip(Dependent dependent, Exception e) {
+        if (finished) {
+            return;
+        }
+        if (!skipping) {
+            skipping = true;
+            lastPage = true;
+            listener.onDependentSkipped(dependent, e);
+        }
+        pump();
+    }
+
+    private synchronized void onBatchDeleted(int count) {
+        inFlight--;
+        deleted += count;
+        if (finished) {
+            return;
+        }
+        listener.onProgress(dependentIndex, deleted);
+        pump();
+    }
+
+    private synchronized void fail(Exception e) {
+        if (!finished) {
+            finished = true;
+            listener.onFailure(e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.nurse_connect.services.cascade;
+
+import java.util.List;
+
+/**
+ * Storage used by {@link CascadeDeleteJob}: pages of a dependent's document IDs in ID
+ * order, and batched deletes of them.
+ */
+public interface CascadeStore {
+
+    interface Callback<T> {
+        void onSuccess(T result);
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Up to limit IDs of the material's documents in the dependent, after afterId
+     * (from the start when null)
+     */
+    void page(Dependent dependent, String materialId, String afterId, int limit, Callback<List<String>> callback);
+
+    /**
+     * Delete the given documents of the dependent in one atomic batch
+     */
+    void deleteBatch(Dependent dependent, String materialId, List<String> ids, Callback<Void> callback);
+
+    /**
+     * Whether a failure means the dependent may not be read or deleted at all, so trying
+     * it again cannot succeed
+     */
+    boolean isDenied(Exception e);
+}
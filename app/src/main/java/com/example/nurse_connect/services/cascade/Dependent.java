@@ -0,0 +1,46 @@
+package com.example.nurse_connect.services.cascade;
+
+/**
+ * Documents that belong to a study material and go when it is deleted: a subcollection
+ * under the material, the documents of a collection whose field holds the material's ID,
+ * or the one document of a collection keyed by the material's ID.
+ */
+public final class Dependent {
+
+    public enum Kind { SUBCOLLECTION, FIELD, DOCUMENT }
+
+    private final Kind kind;
+    private final String collection;
+    private final String field;
+
+    private Dependent(Kind kind, String collection, String field) {
+        this.kind = kind;
+        this.collection = collection;
+        this.field = field;
+    }
+
+    public static Dependent subcollection(String name) {
+        return new Dependent(Kind.SUBCOLLECTION, name, null);
+    }
+
+    public static Dependent field(String collection, String field) {
+        return new Dependent(Kind.FIELD, collection, field);
+    }
+
+    public static Dependent document(String collection) {
+        return new Dependent(Kind.DOCUMENT, collection, null);
+    }
+
+    public Kind getKind() { return kind; }
+    public String getCollection() { return collection; }
+    public String getField() { return field; }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case SUBCOLLECTION: return "study_materials/*/" + collection;
+            case FIELD: return collection + "[" + field + "]";
+            default: return collection + "/*";
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.nurse_connect.services.cascade;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Firestore-backed cascade deletes. Pages are ordered by document ID so a page can
+ * start after the last ID of the one before.
+ */
+public class FirestoreCascadeStore implements CascadeStore {
+
+    private static final String MATERIALS = "study_materials";
+
+    private final FirebaseFirestore db;
+
+    public FirestoreCascadeStore() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    @Override
+    public void page(Dependent dependent, String materialId, String afterId, int limit, Callback<List<String>> callback) {
+        if (dependent.getKind() == Dependent.Kind.DOCUMENT) {
+            if (afterId != null) {
+                callback.onSuccess(Collections.emptyList());
+                return;
+            }
+            db.collection(dependent.getCollection())
+                    .document(materialId)
+                    .get()
+                    .addOnSuccessListener(document -> callback.onSuccess(document.exists()
+                            ? Collections.singletonList(materialId) : Collections.emptyList()))
+                    .addOnFailureListener(callback::onFailure);
+            return;
+        }
+
+        Query query = dependent.getKind() == Dependent.Kind.FIELD
+                ? db.collection(dependent.getCollection()).whereEqualTo(dependent.getField(), materialId)
+                : collectionOf(dependent, materialId);
+        query = query.orderBy(FieldPath.documentId());
+        if (afterId != null) {
+            query = query.startAfter(afterId);
+        }
+        query.limit(limit)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<String> ids = new ArrayList<>();
+                    for (DocumentSnapshot document : querySnapshot) {
+                        ids.add(document.getId());
+                    }
+                    callback.onSuccess(ids);
+                })
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void deleteBatch(Dependent dependent, String materialId, List<String> ids, Callback<Void> callback) {
+        CollectionReference collection = collectionOf(dependent, materialId);
+        WriteBatch batch = db.batch();
+        for (String id : ids) {
+            batch.delete(collection.document(id));
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> callback.onSuccess(null))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public boolean isDenied(Exception e) {
+        return e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.PERMISSION_DENIED;
+    }
+
+    private CollectionReference collectionOf(Dependent dependent, String materialId) {
+        if (dependent.getKind() == Dependent.Kind.SUBCOLLECTION) {
+            return db.collection(MATERIALS).document(materialId).collection(dependent.getCollection());
+        }
+        return db.collection(dependent.getCollection());
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.nurse_connect.services.cascade;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes everything that belongs to a deleted study material (see CascadeDeleteJob).
+ * Each job's checkpoint is kept in SharedPreferences until it completes, so a job cut
+ * short by a failure or by the process dying resumes on the next start once a user is
+ * signed in. A job that keeps failing is dropped after MAX_ATTEMPTS starts.
+ *
+ * The material's tombstone (see TOMBSTONES) is the last dependent: the rules let the
+ * author delete other users' likes only while it exists.
+ */
+public class MaterialCascadeDelete {
+
+    /** Deleted materials' authors, written with the material's delete */
+    public static final String TOMBSTONES = "deleted_materials";
+
+    private static final String TAG = "MaterialCascadeDelete";
+    private static final String PREFS_NAME = "material_cascade_delete";
+    private static final String KEY_JOBS = "jobs";
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final int MAX_ATTEMPTS = 5;
+
+    // Checkpoints hold indexes into this list; only append to it
+    private static final List<Dependent> DEPENDENTS = Arrays.asList(
+            Dependent.field("comments", "materialId"),
+            Dependent.field("document_ratings", "documentId"),
+            Dependent.field("user_favorites", "materialId"),
+            Dependent.field("view_download_tracking", "materialId"),
+            Dependent.subcollection("likes"),
+            Dependent.subcollection("counter_shards"),
+            Dependent.document("rating_aggregates"),
+            Dependent.document(TOMBSTONES));
+
+    public interface ProgressCallback {
+        void onProgress(int deleted);
+        void onComplete(int deleted);
+        void onFailure(Exception e);
+    }
+
+    private static class Checkpoint {
+        int nextDependent;
+        int deleted;
+        int attempts;
+    }
+
+    private static MaterialCascadeDelete instance;
+
+    private final CascadeStore store;
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+    private final Map<String, Checkpoint> checkpoints;
+    private final Set<String> running = new HashSet<>();
+
+    private MaterialCascadeDelete(Context context) {
+        store = new FirestoreCascadeStore();
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        checkpoints = loadCheckpoints();
+        FirebaseAuth.getInstance().addAuthStateListener(auth -> {
+            if (auth.getCurrentUser() != null) {
+                resumePending();
+            }
+        });
+    }
+
+    /**
+     * Load unfinished jobs and resume them once signed in; called once from the Application
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new MaterialCascadeDelete(context.getApplicationContext());
+        }
+    }
+
+    public static synchronized MaterialCascadeDelete getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("MaterialCascadeDelete.init() was not called");
+        }
+        return instance;
+    }
+
+    /**
+     * Delete the dependents of a material whose document is already gone. The job is
+     * checkpointed before this returns.
+     */
+    public synchronized void delete(String materialId, ProgressCallback callback) {
+        if (!checkpoints.containsKey(materialId)) {
+            checkpoints.put(materialId, new Checkpoint());
+            saveCheckpoints();
+        }
+        start(materialId, callback);
+    }
+
+    private synchronized void resumePending() {
+        for (String materialId : new ArrayList<>(checkpoints.keySet())) {
+            if (!running.contains(materialId)) {
+                Log.d(TAG, "Resuming cascade delete for material: " + materialId);
+                start(materialId, null);
+            }
+        }
+    }
+
+    private synchronized void start(String materialId, ProgressCallback callback) {
+        if (!running.add(materialId)) {
+            Log.d(TAG, "Cascade delete already running for material: " + materialId);
+            return;
+        }
+        Checkpoint checkpoint = checkpoints.get(materialId);
+        checkpoint.attempts++;
+        saveCheckpoints();
+
+        new CascadeDeleteJob(store, materialId, DEPENDENTS, checkpoint.nextDependent, checkpoint.deleted,
+                CascadeDeleteJob.MAX_BATCH_SIZE, MAX_IN_FLIGHT, new CascadeDeleteJob.Listener() {
+            @Override
+            public void onProgress(int nextDependent, int deleted) {
+                synchronized (MaterialCascadeDelete.this) {
+                    checkpoint.nextDependent = nextDependent;
+                    checkpoint.deleted = deleted;
+                    saveCheckpoints();
+                }
+                if (callback != null) {
+                    callback.onProgress(deleted);
+                }
+            }
+
+            @Override
+            public void onDependentSkipped(Dependent dependent, Exception e) {
+                Log.e(TAG, "Skipping " + dependent + " of deleted material " + materialId
+                        + ": access denied", e);
+            }
+
+            @Override
+            public void onComplete(int deleted) {
+                synchronized (MaterialCascadeDelete.this) {
+                    running.remove(materialId);
+                    checkpoints.remove(materialId);
+                    saveCheckpoints();
+                }
+                Log.d(TAG, "Cascade delete of material " + materialId + " removed " + deleted + " documents");
+                if (callback != null) {
+                    callback.onComplete(deleted);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                synchronized (MaterialCascadeDelete.this) {
+                    running.remove(materialId);
+                    if (checkpoint.attempts >= MAX_ATTEMPTS) {
+                        Log.e(TAG, "Giving up cascade delete of material " + materialId, e);
+                        checkpoints.remove(materialId);
+                    }
+                    saveCheckpoints();
+                }
+                Log.w(TAG, "Cascade delete of material " + materialId + " stopped at dependent "
+                        + checkpoint.nextDependent, e);
+                if (callback != null) {
+                    callback.onFailure(e);
+                }
+            }
+        }).start();
+    }
+
+    private Map<String, Checkpoint> loadCheckpoints() {
+        String json = prefs.getString(KEY_JOBS, null);
+        if (json == null) {
+            return new HashMap<>();
+        }
+        try {
+            Type type = new TypeToken<Map<String, Checkpoint>>() {}.getType();
+            Map<String, Checkpoint> loaded = gson.fromJson(json, type);
+            return loaded != null ? new HashMap<>(loaded) : new HashMap<>();
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable cascade delete checkpoints", e);
+            return new HashMap<>();
+        }
+    }
+
+    private void saveCheckpoints() {
+        prefs.edit().putString(KEY_JOBS, gson.toJson(checkpoints)).apply();
+    }
+}
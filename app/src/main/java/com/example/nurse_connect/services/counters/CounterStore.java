@@ -0,0 +1,39 @@
+package com.example.nurse_connect.services.counters;
+
+import java.util.Map;
+
+/**
+ * Storage used by {@link ShardedCounter}. A material's counts live in its own document
+ * (the rolled-up totals shown in lists) plus a set of shard documents that take the
+ * increments, so no single document has to absorb every write.
+ */
+public interface CounterStore {
+
+    interface Callback<T> {
+        void onSuccess(T result);
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Add deltas (field -> amount) to one shard of a material's counters
+     */
+    void addToShard(String materialId, int shard, Map<String, Long> deltas, Callback<Void> callback);
+
+    /**
+     * Create (liked) or delete the user's like of a material and add 1 or -1 likes to one
+     * shard, atomically and only if the like changes. Returns whether it changed.
+     */
+    void setLiked(String materialId, String userId, boolean liked, int shard, Callback<Boolean> callback);
+
+    /**
+     * Atomically move the counts held by shards 0..numShards-1 into the material's totals
+     * and zero those shards. Skipped (a null result) when the material was rolled up
+     * less than minIntervalMs ago; otherwise returns the amounts moved per field.
+     */
+    void rollUp(String materialId, int numShards, long minIntervalMs, Callback<Map<String, Long>> callback);
+
+    /**
+     * The material's rolled-up totals plus whatever its shards still hold
+     */
+    void readTotals(String materialId, Callback<Map<String, Long>> callback);
+}
@@ -0,0 +1,162 @@
+package com.example.nurse_connect.services.counters;
+
+import com.example.nurse_connect.data.AchievementsAggregate;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Firestore-backed counters. study_materials/{materialId} keeps the rolled-up views,
+ * downloads and likes that lists display, and study_materials/{materialId}/counter_shards/{n}
+ * take the increments. countersRolledUpAt on the material records the last roll-up.
+ * A roll-up that moves downloads or likes also stamps the material's statsUpdatedAt, so
+ * the author's achievements pick them up (see AchievementsAggregate).
+ *
+ * The rules check the shape of every write: shards only grow in views and downloads,
+ * their likes change with the writer's like document, and a roll-up adds exactly what
+ * the shards held to the totals while zeroing the shards, stamped with the server time.
+ */
+public class FirestoreCounterStore implements CounterStore {
+
+    private static final String MATERIALS = "study_materials";
+    private static final String SHARDS = "counter_shards";
+    private static final String LIKES = "likes";
+    private static final String ROLLED_UP_AT = "countersRolledUpAt";
+    private static final String[] FIELDS = {ShardedCounter.VIEWS, ShardedCounter.DOWNLOADS, ShardedCounter.LIKES};
+
+    private final FirebaseFirestore db;
+
+    public FirestoreCounterStore() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    @Override
+    public void addToShard(String materialId, int shard, Map<String, Long> deltas, Callback<Void> callback) {
+        Map<String, Object> increments = new HashMap<>();
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            increments.put(delta.getKey(), FieldValue.increment(delta.getValue()));
+        }
+        shardRef(materialId, shard)
+                .set(increments, SetOptions.merge())
+                .addOnSuccessListener(aVoid -> callback.onSuccess(null))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void setLiked(String materialId, String userId, boolean liked, int shard, Callback<Boolean> callback) {
+        DocumentReference likeRef = db.collection(MATERIALS).document(materialId).collection(LIKES).document(userId);
+        db.runTransaction(transaction -> {
+            if (transaction.get(likeRef).exists() == liked) {
+                return false;
+            }
+            if (liked) {
+                Map<String, Object> like = new HashMap<>();
+                like.put("userId", userId);
+                like.put("likedAt", System.currentTimeMillis());
+                transaction.set(likeRef, like);
+            } else {
+                transaction.delete(likeRef);
+            }
+            Map<String, Object> increment = new HashMap<>();
+            increment.put(ShardedCounter.LIKES, FieldValue.increment(liked ? 1 : -1));
+            transaction.set(shardRef(materialId, shard), increment, SetOptions.merge());
+            return true;
+        }).addOnSuccessListener(callback::onSuccess).addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void rollUp(String materialId, int numShards, long minIntervalMs, Callback<Map<String, Long>> callback) {
+        DocumentReference materialRef = db.collection(MATERIALS).document(materialId);
+        db.runTransaction(transaction -> {
+            Map<String, Long> moved = new HashMap<>();
+            DocumentSnapshot material = transaction.get(materialRef);
+            if (!material.exists()) {
+                // The material is gone, so its counts no longer matter
+                return moved;
+            }
+            Timestamp rolledUpAt = material.getTimestamp(ROLLED_UP_AT);
+            if (rolledUpAt != null
+                    && System.currentTimeMillis() - rolledUpAt.toDate().getTime() < minIntervalMs) {
+                return null;
+            }
+
+            // All reads come before the writes
+            List<DocumentSnapshot> shards = new ArrayList<>();
+            for (int i = 0; i < numShards; i++) {
+                shards.add(transaction.get(shardRef(materialId, i)));
+            }
+            for (DocumentSnapshot shard : shards) {
+                for (String field : FIELDS) {
+                    Long value = shard.getLong(field);
+                    if (value != null && value != 0) {
+                        moved.merge(field, value, Long::sum);
+                    }
+                }
+            }
+
+            Map<String, Object> totals = new HashMap<>();
+            for (Map.Entry<String, Long> entry : moved.entrySet()) {
+                Long stored = material.getLong(entry.getKey());
+                long current = stored != null ? stored : 0;
+                totals.put(entry.getKey(), current + entry.getValue());
+            }
+            totals.put(ROLLED_UP_AT, FieldValue.serverTimestamp());
+            if (moved.containsKey(ShardedCounter.DOWNLOADS) || moved.containsKey(ShardedCounter.LIKES)) {
+                totals.put(AchievementsAggregate.STATS_UPDATED_AT, FieldValue.serverTimestamp());
+            }
+            transaction.update(materialRef, totals);
+            for (DocumentSnapshot shard : shards) {
+                if (shard.exists()) {
+                    Map<String, Object> zeroed = new HashMap<>();
+                    for (String field : FIELDS) {
+                        zeroed.put(field, 0);
+                    }
+                    transaction.set(shard.getReference(), zeroed, SetOptions.merge());
+                }
+            }
+            return moved;
+        }).addOnSuccessListener(callback::onSuccess).addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void readTotals(String materialId, Callback<Map<String, Long>> callback) {
+        DocumentReference materialRef = db.collection(MATERIALS).document(materialId);
+        Task<DocumentSnapshot> materialTask = materialRef.get();
+        Task<QuerySnapshot> shardsTask = materialRef.collection(SHARDS).get();
+        Tasks.whenAllComplete(materialTask, shardsTask).addOnCompleteListener(done -> {
+            if (!materialTask.isSuccessful() || !shardsTask.isSuccessful()) {
+                Exception e = materialTask.getException() != null
+                        ? materialTask.getException() : shardsTask.getException();
+                callback.onFailure(e != null ? e : new Exception("Failed to read counters"));
+                return;
+            }
+            Map<String, Long> totals = new HashMap<>();
+            List<DocumentSnapshot> documents = new ArrayList<>(shardsTask.getResult().getDocuments());
+            documents.add(materialTask.getResult());
+            for (DocumentSnapshot document : documents) {
+                for (String field : FIELDS) {
+                    Long value = document.getLong(field);
+                    if (value != null) {
+                        totals.merge(field, value, Long::sum);
+                    }
+                }
+            }
+            callback.onSuccess(totals);
+        });
+    }
+
+    private DocumentReference shardRef(String materialId, int shard) {
+        return db.collection(MATERIALS).document(materialId).collection(SHARDS).document(String.valueOf(shard));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.nurse_connect.services.counters;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The app's view, download and like counters for study materials (see ShardedCounter).
+ * Increments made within COALESCE_WINDOW of each other go out as one shard write per
+ * material, and materials written to are rolled up into their documents every
+ * ROLLUP_INTERVAL, which is also the least time between two roll-ups of a material
+ * by any client. Reading a material's counts also rolls it up, so its document catches
+ * up even when no writer stays around for the interval. Increments still in the window
+ * are lost if the process dies.
+ */
+public class MaterialCounters {
+
+    private static final String TAG = "MaterialCounters";
+    // firestore.rules reads every shard to check a roll-up; keep its count in step
+    private static final int NUM_SHARDS = 5;
+    private static final long COALESCE_WINDOW = 3 * 1000; // 3 seconds
+    private static final long ROLLUP_INTERVAL = 60 * 1000; // 1 minute
+
+    private static MaterialCounters instance;
+
+    private final ShardedCounter counter;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    private final Runnable rollUpRunnable = this::rollUp;
+    private boolean flushScheduled;
+    private boolean rollUpScheduled;
+
+    private MaterialCounters() {
+        counter = new ShardedCounter(new FirestoreCounterStore(), NUM_SHARDS, new Random());
+    }
+
+    public static synchronized MaterialCounters getInstance() {
+        if (instance == null) {
+            instance = new MaterialCounters();
+        }
+        return instance;
+    }
+
+    public void increment(String materialId, String field, long delta) {
+        counter.increment(materialId, field, delta);
+        scheduleFlush();
+    }
+
+    /**
+     * Like or unlike a material for the user (see ShardedCounter.setLiked)
+     */
+    public void setLiked(String materialId, String userId, boolean liked, CounterStore.Callback<Boolean> callback) {
+        counter.setLiked(materialId, userId, liked, new CounterStore.Callback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean changed) {
+                handler.post(MaterialCounters.this::scheduleRollUp);
+                callback.onSuccess(changed);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    /**
+     * Current counts of a material: its rolled-up totals, the shards and local increments
+     */
+    public void readTotals(String materialId, CounterStore.Callback<Map<String, Long>> callback) {
+        counter.readTotals(materialId, callback);
+        counter.rollUp(materialId, ROLLUP_INTERVAL, new CounterStore.Callback<Map<String, Long>>() {
+            @Override
+            public void onSuccess(Map<String, Long> moved) {
+                if (moved != null && !moved.isEmpty()) {
+                    Log.d(TAG, "Rolled up counters of " + materialId + " on read: " + moved);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.w(TAG, "Failed to roll up counters of " + materialId + " on read", e);
+            }
+        });
+    }
+
+    private synchronized void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, COALESCE_WINDOW);
+        }
+    }
+
+    private void flush() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        int writes = counter.flush(() -> handler.post(() -> {
+            if (counter.hasPending()) {
+                // Failed writes were merged back; retry with the next window
+                scheduleFlush();
+            }
+            scheduleRollUp();
+        }));
+        Log.d(TAG, "Flushed counters in " + writes + " shard writes");
+    }
+
+    private synchronized void scheduleRollUp() {
+        if (!rollUpScheduled && counter.hasUnrolled()) {
+            rollUpScheduled = true;
+            handler.postDelayed(rollUpRunnable, ROLLUP_INTERVAL);
+        }
+    }
+
+    private void rollUp() {
+        synchronized (this) {
+            rollUpScheduled = false;
+        }
+        counter.rollUp(ROLLUP_INTERVAL, () -> handler.post(this::scheduleRollUp));
+    }
+}
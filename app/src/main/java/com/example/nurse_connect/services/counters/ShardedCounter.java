@@ -0,0 +1,235 @@
+package com.example.nurse_connect.services.counters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client side of the sharded material counters. Increments are coalesced per
+ * material until flush(), which writes each material's summed deltas to one
+ * randomly chosen shard, so concurrent clients spread their writes over numShards
+ * documents. Failed writes are merged back and go out with the next flush.
+ *
+ * Materials this client has written shards for are rolled up into the material
+ * document by rollUp(), which the caller runs periodically; a material stays due
+ * until a roll-up that started after its last write has run.
+ */
+public class ShardedCounter {
+
+    public static final String VIEWS = "views";
+    public static final String DOWNLOADS = "downloads";
+    public static final String LIKES = "likes";
+
+    private final CounterStore store;
+    private final int numShards;
+    private final Random random;
+
+    private Map<String, Map<String, Long>> pending = new LinkedHashMap<>();
+    private final Set<String> unrolled = new LinkedHashSet<>();
+
+    public ShardedCounter(CounterStore store, int numShards, Random random) {
+        this.store = store;
+        this.numShards = Math.max(1, numShards);
+        this.random = random;
+    }
+
+    public int getNumShards() {
+        return numShards;
+    }
+
+    public synchronized void increment(String materialId, String field, long delta) {
+        if (materialId == null || delta == 0) {
+            return;
+        }
+        add(pending, materialId, field, delta);
+    }
+
+    /**
+     * Like or unlike a material; the like count changes with the like document, so
+     * repeated taps count once
+     */
+    public void setLiked(String materialId, String userId, boolean liked, CounterStore.Callback<Boolean> callback) {
+        store.setLiked(materialId, userId, liked, random.nextInt(numShards), new CounterStore.Callback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean changed) {
+                if (changed) {
+                    synchronized (ShardedCounter.this) {
+                        unrolled.add(materialId);
+                    }
+                }
+                callback.onSuccess(changed);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    public synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Write every material's coalesced deltas to a random shard; onDone runs once all
+     * writes have completed. Returns the number of shard writes issued.
+     */
+    public int flush(Runnable onDone) {
+        Map<String, Map<String, Long>> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        if (batch.isEmpty()) {
+            if (onDone != null) {
+                onDone.run();
+            }
+            return 0;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(batch.size());
+        for (Map.Entry<String, Map<String, Long>> entry : batch.entrySet()) {
+            String materialId = entry.getKey();
+            Map<String, Long> deltas = entry.getValue();
+            int shard = random.nextInt(numShards);
+            store.addToShard(materialId, shard, deltas, new CounterStore.Callback<Void>() {
+                @Override
+                public void onSuccess(Void result) {
+                    settle(materialId, deltas, true);
+                    if (remaining.decrementAndGet() == 0 && onDone != null) {
+                        onDone.run();
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    settle(materialId, deltas, false);
+                    if (remaining.decrementAndGet() == 0 && onDone != null) {
+                        onDone.run();
+                    }
+                }
+            });
+        }
+        return batch.size();
+    }
+
+    /**
+     * Roll up every material this client has written shards for, unless another client
+     * did so within minIntervalMs. onDone runs once every roll-up has completed.
+     */
+    public void rollUp(long minIntervalMs, Runnable onDone) {
+        List<String> materialIds;
+        synchronized (this) {
+            materialIds = new ArrayList<>(unrolled);
+            unrolled.clear();
+        }
+        if (materialIds.isEmpty()) {
+            if (onDone != null) {
+                onDone.run();
+            }
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(materialIds.size());
+        for (String materialId : materialIds) {
+            store.rollUp(materialId, numShards, minIntervalMs, new CounterStore.Callback<Map<String, Long>>() {
+                @Override
+                public void onSuccess(Map<String, Long> moved) {
+                    if (moved == null) {
+                        // Rolled up recently by another client; ours may have come after that
+                        synchronized (ShardedCounter.this) {
+                            unrolled.add(materialId);
+                        }
+                    }
+                    if (remaining.decrementAndGet() == 0 && onDone != null) {
+                        onDone.run();
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    // The shards keep their counts; try again next period
+                    synchronized (ShardedCounter.this) {
+                        unrolled.add(materialId);
+                    }
+                    if (remaining.decrementAndGet() == 0 && onDone != null) {
+                        onDone.run();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Roll up one material whoever wrote its shards, unless it was rolled up within
+     * minIntervalMs (e.g. when it is read)
+     */
+    public void rollUp(String materialId, long minIntervalMs, CounterStore.Callback<Map<String, Long>> callback) {
+        store.rollUp(materialId, numShards, minIntervalMs, callback);
+    }
+
+    public synchronized boolean hasUnrolled() {
+        return !unrolled.isEmpty();
+    }
+
+    /**
+     * Stored totals plus this client's changes not yet handed to the store. Writes in
+     * flight are left to the store, which like Firestore shows its own pending writes.
+     */
+    public void readTotals(String materialId, CounterStore.Callback<Map<String, Long>> callback) {
+        store.readTotals(materialId, new CounterStore.Callback<Map<String, Long>>() {
+            @Override
+            public void onSuccess(Map<String, Long> totals) {
+                Map<String, Long> withLocal = new HashMap<>(totals);
+                synchronized (ShardedCounter.this) {
+                    Map<String, Long> deltas = pending.get(materialId);
+                    if (deltas != null) {
+                        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+                            withLocal.merge(delta.getKey(), delta.getValue(), Long::sum);
+                        }
+                    }
+                }
+                callback.onSuccess(withLocal);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    private synchronized void settle(String materialId, Map<String, Long> deltas, boolean written) {
+        if (written) {
+            unrolled.add(materialId);
+            return;
+        }
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            add(pending, materialId, delta.getKey(), delta.getValue());
+        }
+    }
+
+    private static void add(Map<String, Map<String, Long>> counts, String materialId, String field, long delta) {
+        Map<String, Long> fields = counts.get(materialId);
+        if (fields == null) {
+            fields = new LinkedHashMap<>();
+            counts.put(materialId, fields);
+        }
+        long value = fields.getOrDefault(field, 0L) + delta;
+        if (value == 0) {
+            fields.remove(field);
+            if (fields.isEmpty()) {
+                counts.remove(materialId);
+            }
+        } else {
+            fields.put(field, value);
+        }
+    }
+}
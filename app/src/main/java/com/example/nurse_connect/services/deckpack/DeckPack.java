@@ -0,0 +1,183 @@
+package com.example.nurse_connect.services.deckpack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of a deck pack (see DeckPackFormat). Opening a pack maps the file
+ * and checks its header; card fields are decoded only when asked for, so opening
+ * does not depend on the number of cards.
+ */
+public class DeckPack {
+
+    private final ByteBuffer buffer;
+    private final int cardCount;
+    private final int stringCount;
+    private final int optionRefCount;
+    private final int stringTableOffset;
+    private final int cardIndexOffset;
+    private final int optionRefsOffset;
+    private final int textOffset;
+    private Map<String, Integer> idIndex;
+
+    private DeckPack(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int limit = buffer.limit();
+        if (limit < DeckPackFormat.HEADER_SIZE || buffer.getInt(DeckPackFormat.OFFSET_MAGIC) != DeckPackFormat.MAGIC) {
+            throw new IOException("Not a deck pack");
+        }
+        short version = buffer.getShort(DeckPackFormat.OFFSET_VERSION);
+        if (version != DeckPackFormat.VERSION) {
+            throw new IOException("Unsupported deck pack version " + version);
+        }
+        cardCount = buffer.getInt(DeckPackFormat.OFFSET_CARD_COUNT);
+        stringCount = buffer.getInt(DeckPackFormat.OFFSET_STRING_COUNT);
+        optionRefCount = buffer.getInt(DeckPackFormat.OFFSET_OPTION_REF_COUNT);
+        stringTableOffset = buffer.getInt(DeckPackFormat.OFFSET_STRING_TABLE);
+        cardIndexOffset = buffer.getInt(DeckPackFormat.OFFSET_CARD_INDEX);
+        optionRefsOffset = buffer.getInt(DeckPackFormat.OFFSET_OPTION_REFS);
+        textOffset = buffer.getInt(DeckPackFormat.OFFSET_TEXT);
+        long textEnd = (long) textOffset + buffer.getInt(DeckPackFormat.OFFSET_TEXT_LENGTH);
+
+        if (cardCount < 0 || stringCount < 0 || optionRefCount < 0
+                || stringTableOffset < DeckPackFormat.HEADER_SIZE
+                || (long) stringTableOffset + (long) stringCount * DeckPackFormat.STRING_ENTRY_SIZE > cardIndexOffset
+                || (long) cardIndexOffset + (long) cardCount * DeckPackFormat.CARD_RECORD_SIZE > optionRefsOffset
+                || (long) optionRefsOffset + optionRefCount * 4L > textOffset
+                || textEnd > limit) {
+            throw new IOException("Truncated or corrupt deck pack");
+        }
+    }
+
+    /**
+     * Map a pack file read-only
+     */
+    public static DeckPack open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return new DeckPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static DeckPack wrap(byte[] bytes) throws IOException {
+        return new DeckPack(ByteBuffer.wrap(bytes));
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    public String getCareer() {
+        return string(buffer.getInt(DeckPackFormat.OFFSET_CAREER));
+    }
+
+    public String getCourse() {
+        return string(buffer.getInt(DeckPackFormat.OFFSET_COURSE));
+    }
+
+    public String getUnit() {
+        return string(buffer.getInt(DeckPackFormat.OFFSET_UNIT));
+    }
+
+    public long getBuiltAtMillis() {
+        return buffer.getLong(DeckPackFormat.OFFSET_BUILT_AT);
+    }
+
+    public String getCardId(int card) {
+        return field(card, DeckPackFormat.CARD_ID);
+    }
+
+    public String getQuestion(int card) {
+        return field(card, DeckPackFormat.CARD_QUESTION);
+    }
+
+    public String getAnswer(int card) {
+        return field(card, DeckPackFormat.CARD_ANSWER);
+    }
+
+    public String getRationale(int card) {
+        return field(card, DeckPackFormat.CARD_RATIONALE);
+    }
+
+    public String getDifficulty(int card) {
+        return field(card, DeckPackFormat.CARD_DIFFICULTY);
+    }
+
+    public String getSource(int card) {
+        return field(card, DeckPackFormat.CARD_SOURCE);
+    }
+
+    /**
+     * Returns null for a card without options
+     */
+    public List<String> getOptions(int card) {
+        int record = record(card);
+        int start = buffer.getInt(record + DeckPackFormat.CARD_OPTIONS_START);
+        int count = buffer.getShort(record + DeckPackFormat.CARD_OPTION_COUNT);
+        if (count <= 0) {
+            return null;
+        }
+        if (start < 0 || start + count > optionRefCount) {
+            throw new IllegalStateException("Corrupt option list for card " + card);
+        }
+        List<String> options = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            options.add(string(buffer.getInt(optionRefsOffset + (start + i) * 4)));
+        }
+        return options;
+    }
+
+    /**
+     * Position of a card by ID, or -1. The ID map is built on first use.
+     */
+    public synchronized int indexOf(String cardId) {
+        if (idIndex == null) {
+            Map<String, Integer> index = new HashMap<>(cardCount * 2);
+            for (int i = 0; i < cardCount; i++) {
+                index.put(getCardId(i), i);
+            }
+            idIndex = Collections.unmodifiableMap(index);
+        }
+        Integer position = idIndex.get(cardId);
+        return position != null ? position : -1;
+    }
+
+    private int record(int card) {
+        if (card < 0 || card >= cardCount) {
+            throw new IndexOutOfBoundsException("Card " + card + " of " + cardCount);
+        }
+        return cardIndexOffset + card * DeckPackFormat.CARD_RECORD_SIZE;
+    }
+
+    private String field(int card, int fieldOffset) {
+        return string(buffer.getInt(record(card) + fieldOffset));
+    }
+
+    private String string(int index) {
+        if (index == DeckPackFormat.NO_STRING) {
+            return null;
+        }
+        if (index < 0 || index >= stringCount) {
+            throw new IllegalStateException("Corrupt string reference " + index);
+        }
+        int entry = stringTableOffset + index * DeckPackFormat.STRING_ENTRY_SIZE;
+        int offset = buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        byte[] bytes = new byte[length];
+        // Absolute reads through a duplicate keep the shared buffer's position untouched
+        ByteBuffer view = buffer.duplicate();
+        view.position(textOffset + offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
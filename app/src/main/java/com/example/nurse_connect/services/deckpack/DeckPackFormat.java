@@ -0,0 +1,52 @@
+package com.example.nurse_connect.services.deckpack;
+
+/**
+ * Layout of a deck pack file (all integers big-endian):
+ *
+ * <pre>
+ * header        HEADER_SIZE bytes, see the OFFSET_ constants
+ * string table  stringCount x (textOffset int, byteLength int)
+ * card index    cardCount x CARD_RECORD_SIZE bytes, fields are string indices
+ * option refs   optionRefCount x string index int
+ * text          UTF-8 bytes of every distinct string
+ * </pre>
+ *
+ * Strings are deduplicated, so career/course/unit, difficulties and shared options
+ * are stored once. A string index of NO_STRING means null.
+ */
+final class DeckPackFormat {
+
+    static final int MAGIC = 0x4E434450; // "NCDP"
+    static final short VERSION = 1;
+    static final int NO_STRING = -1;
+
+    static final int HEADER_SIZE = 64;
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_CARD_COUNT = 8;
+    static final int OFFSET_STRING_COUNT = 12;
+    static final int OFFSET_OPTION_REF_COUNT = 16;
+    static final int OFFSET_CAREER = 20;
+    static final int OFFSET_COURSE = 24;
+    static final int OFFSET_UNIT = 28;
+    static final int OFFSET_BUILT_AT = 32;
+    static final int OFFSET_STRING_TABLE = 40;
+    static final int OFFSET_CARD_INDEX = 44;
+    static final int OFFSET_OPTION_REFS = 48;
+    static final int OFFSET_TEXT = 52;
+    static final int OFFSET_TEXT_LENGTH = 56;
+
+    static final int STRING_ENTRY_SIZE = 8;
+
+    static final int CARD_RECORD_SIZE = 32;
+    static final int CARD_ID = 0;
+    static final int CARD_QUESTION = 4;
+    static final int CARD_ANSWER = 8;
+    static final int CARD_RATIONALE = 12;
+    static final int CARD_DIFFICULTY = 16;
+    static final int CARD_SOURCE = 20;
+    static final int CARD_OPTIONS_START = 24;
+    static final int CARD_OPTION_COUNT = 28; // short, followed by 2 reserved bytes
+
+    private DeckPackFormat() {}
+}
@@ -0,0 +1,271 @@
+package com.example.nurse_connect.services.deckpack;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.nurse_connect.models.Flashcard;
+import com.example.nurse_connect.services.FlashcardService;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Downloadable offline deck packs, one file per career/course/unit under
+ * files/deck_packs. A pack is built from the quiz_questions and flashcards
+ * collections when a unit's deck is opened online (see refreshPack) and opened
+ * memory-mapped, so even large decks open instantly offline. Pack files are read on
+ * a background thread.
+ */
+public class DeckPackManager {
+
+    private static final String TAG = "DeckPackManager";
+    private static final String PACK_DIR = "deck_packs";
+    private static final String PACK_EXTENSION = ".ncdp";
+    private static final int PAGE_SIZE = 500;
+    private static final long PACK_MAX_AGE = 7 * 24 * 60 * 60 * 1000L; // 7 days
+
+    private static DeckPackManager instance;
+
+    private final File packDir;
+    private final FirebaseFirestore db;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, DeckPack> openPacks = new HashMap<>();
+    private final Set<String> building = new HashSet<>();
+
+    public interface PackCallback {
+        void onPackReady(DeckPack pack);
+        void onError(String error);
+    }
+
+    public interface CardsCallback {
+        void onCardsFound(List<Flashcard> flashcards);
+    }
+
+    private DeckPackManager(Context context) {
+        packDir = new File(context.getFilesDir(), PACK_DIR);
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized DeckPackManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new DeckPackManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public boolean hasPack(String career, String course, String unit) {
+        return packFile(career, course, unit).exists();
+    }
+
+    /**
+     * Open a downloaded pack, or null when there is none (or it is unreadable)
+     */
+    public synchronized DeckPack openPack(String career, String course, String unit) {
+        File file = packFile(career, course, unit);
+        DeckPack pack = openPacks.get(file.getName());
+        if (pack != null || !file.exists()) {
+            return pack;
+        }
+        try {
+            long start = System.nanoTime();
+            pack = DeckPack.open(file);
+            openPacks.put(file.getName(), pack);
+            Log.d(TAG, "Opened " + file.getName() + " with " + pack.getCardCount() + " cards in "
+                    + (System.nanoTime() - start) / 1000 + "us");
+        } catch (IOException e) {
+            Log.e(TAG, "Discarding unreadable deck pack " + file.getName(), e);
+            file.delete();
+        }
+        return pack;
+    }
+
+    /**
+     * Look the given cards up in every downloaded pack on the background thread. The
+     * callback runs on the main thread with the cards found, in the requested order.
+     */
+    public void findFlashcards(List<String> flashcardIds, CardsCallback callback) {
+        List<String> ids = new ArrayList<>(flashcardIds);
+        executor.execute(() -> {
+            List<Flashcard> flashcards = lookUp(ids);
+            mainHandler.post(() -> callback.onCardsFound(flashcards));
+        });
+    }
+
+    /**
+     * Download a unit's pack when there is none yet or it is older than PACK_MAX_AGE
+     */
+    public void refreshPack(String career, String course, String unit) {
+        File file = packFile(career, course, unit);
+        synchronized (this) {
+            if (file.exists() && System.currentTimeMillis() - file.lastModified() < PACK_MAX_AGE) {
+                return;
+            }
+            if (!building.add(file.getName())) {
+                return;
+            }
+        }
+        buildPack(career, course, unit, new PackCallback() {
+            @Override
+            public void onPackReady(DeckPack pack) {
+                synchronized (DeckPackManager.this) {
+                    building.remove(file.getName());
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                synchronized (DeckPackManager.this) {
+                    building.remove(file.getName());
+                }
+                Log.w(TAG, "Could not refresh deck pack " + file.getName() + ": " + error);
+            }
+        });
+    }
+
+    private synchronized List<Flashcard> lookUp(List<String> flashcardIds) {
+        List<DeckPack> packs = new ArrayList<>();
+        File[] files = packDir.listFiles((dir, name) -> name.endsWith(PACK_EXTENSION));
+        if (files != null) {
+            for (File file : files) {
+                DeckPack pack = openPacks.get(file.getName());
+                if (pack == null) {
+                    try {
+                        pack = DeckPack.open(file);
+                        openPacks.put(file.getName(), pack);
+                    } catch (IOException e) {
+                        Log.e(TAG, "Skipping unreadable deck pack " + file.getName(), e);
+                        continue;
+                    }
+                }
+                packs.add(pack);
+            }
+        }
+
+        List<Flashcard> flashcards = new ArrayList<>();
+        for (String flashcardId : flashcardIds) {
+            for (DeckPack pack : packs) {
+                int index = pack.indexOf(flashcardId);
+                if (index >= 0) {
+                    flashcards.add(toFlashcard(pack, index));
+                    break;
+                }
+            }
+        }
+        return flashcards;
+    }
+
+    /**
+     * Download every question of a unit and (re)build its pack
+     */
+    public void buildPack(String career, String course, String unit, PackCallback callback) {
+        Log.d(TAG, "Building deck pack for " + career + " - " + course + " - " + unit);
+        DeckPackWriter writer = new DeckPackWriter(career, course, unit);
+        Query quizQuestions = db.collection("quiz_questions")
+                .whereEqualTo("career", career)
+                .whereEqualTo("course", course)
+                .whereEqualTo("unit", unit);
+        Query flashcards = db.collection("flashcards")
+                .whereEqualTo("career", career)
+                .whereEqualTo("course", course)
+                .whereEqualTo("unit", unit);
+
+        loadPages(quizQuestions, null, writer, true, () ->
+                loadPages(flashcards, null, writer, false, () ->
+                        executor.execute(() -> writePack(writer, career, course, unit, callback)), callback), callback);
+    }
+
+    public synchronized void deletePack(String career, String course, String unit) {
+        File file = packFile(career, course, unit);
+        openPacks.remove(file.getName());
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete deck pack " + file.getName());
+        }
+    }
+
+    private void loadPages(Query query, DocumentSnapshot after, DeckPackWriter writer, boolean quizQuestions,
+                           Runnable onDone, PackCallback callback) {
+        Query page = after != null ? query.startAfter(after).limit(PAGE_SIZE) : query.limit(PAGE_SIZE);
+        page.get()
+                .addOnSuccessListener(querySnapshot -> {
+                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        Flashcard flashcard = quizQuestions
+                                ? FlashcardService.convertQuizQuestionToFlashcard(doc)
+                                : doc.toObject(Flashcard.class);
+                        if (flashcard != null) {
+                            writer.addCard(doc.getId(), flashcard.getQuestion(), flashcard.getAnswer(),
+                                    flashcard.getRationale(), flashcard.getOptions(), flashcard.getDifficulty(),
+                                    flashcard.getSource());
+                        }
+                    }
+                    List<DocumentSnapshot> documents = querySnapshot.getDocuments();
+                    if (documents.size() == PAGE_SIZE) {
+                        loadPages(query, documents.get(documents.size() - 1), writer, quizQuestions, onDone, callback);
+                    } else {
+                        onDone.run();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error downloading deck pack questions", e);
+                    callback.onError("Failed to download deck: " + e.getMessage());
+                });
+    }
+
+    private void writePack(DeckPackWriter writer, String career, String course, String unit, PackCallback callback) {
+        if (writer.getCardCount() == 0) {
+            mainHandler.post(() -> callback.onError("No questions available for " + career + " - " + course + " - " + unit));
+            return;
+        }
+        File file = packFile(career, course, unit);
+        try {
+            writer.writeTo(file, System.currentTimeMillis());
+            DeckPack pack = DeckPack.open(file);
+            synchronized (this) {
+                openPacks.put(file.getName(), pack);
+            }
+            Log.d(TAG, "Wrote " + file.getName() + ": " + pack.getCardCount() + " cards, " + file.length() + " bytes");
+            mainHandler.post(() -> callback.onPackReady(pack));
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing deck pack", e);
+            mainHandler.post(() -> callback.onError("Failed to save deck: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * A card with content only, marked fromDeckPack: its schedule stays in Firestore, so
+     * it is neither queued by due time nor has its reviews written over the stored one
+     */
+    public static Flashcard toFlashcard(DeckPack pack, int index) {
+        Flashcard flashcard = new Flashcard();
+        flashcard.setFlashcardId(pack.getCardId(index));
+        flashcard.setQuestion(pack.getQuestion(index));
+        flashcard.setAnswer(pack.getAnswer(index));
+        flashcard.setRationale(pack.getRationale(index));
+        flashcard.setOptions(pack.getOptions(index));
+        flashcard.setDifficulty(pack.getDifficulty(index) != null ? pack.getDifficulty(index) : "medium");
+        flashcard.setSource(pack.getSource(index));
+        flashcard.setCareer(pack.getCareer());
+        flashcard.setCourse(pack.getCourse());
+        flashcard.setUnit(pack.getUnit());
+        flashcard.setFromDeckPack(true);
+        return flashcard;
+    }
+
+    private File packFile(String career, String course, String unit) {
+        String name = (career + "_" + course + "_" + unit).replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(packDir, name + PACK_EXTENSION);
+    }
+}
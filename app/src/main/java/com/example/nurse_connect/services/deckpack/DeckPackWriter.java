@@ -0,0 +1,139 @@
+package com.example.nurse_connect.services.deckpack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a deck pack (see DeckPackFormat) for one career/course/unit. Cards are kept
+ * in the order they were added; a card whose ID was already added is skipped.
+ */
+public class DeckPackWriter {
+
+    private final ByteArrayOutputStream text = new ByteArrayOutputStream();
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<int[]> stringEntries = new ArrayList<>();
+    private final List<int[]> cards = new ArrayList<>();
+    private final List<Integer> optionRefs = new ArrayList<>();
+    private final Set<String> cardIds = new HashSet<>();
+    private final int career;
+    private final int course;
+    private final int unit;
+
+    public DeckPackWriter(String career, String course, String unit) {
+        this.career = intern(career);
+        this.course = intern(course);
+        this.unit = intern(unit);
+    }
+
+    /**
+     * Returns false when a card with this ID is already in the pack
+     */
+    public boolean addCard(String cardId, String question, String answer, String rationale,
+                           List<String> options, String difficulty, String source) {
+        if (cardId == null || !cardIds.add(cardId)) {
+            return false;
+        }
+        int optionsStart = optionRefs.size();
+        int optionCount = 0;
+        if (options != null) {
+            for (String option : options) {
+                optionRefs.add(intern(option));
+                optionCount++;
+            }
+        }
+        cards.add(new int[]{intern(cardId), intern(question), intern(answer), intern(rationale),
+                intern(difficulty), intern(source), optionsStart, optionCount});
+        return true;
+    }
+
+    public int getCardCount() {
+        return cards.size();
+    }
+
+    public byte[] toByteArray(long builtAtMillis) {
+        int stringTableOffset = DeckPackFormat.HEADER_SIZE;
+        int cardIndexOffset = stringTableOffset + stringEntries.size() * DeckPackFormat.STRING_ENTRY_SIZE;
+        int optionRefsOffset = cardIndexOffset + cards.size() * DeckPackFormat.CARD_RECORD_SIZE;
+        int textOffset = optionRefsOffset + optionRefs.size() * 4;
+        byte[] textBytes = text.toByteArray();
+
+        ByteBuffer out = ByteBuffer.allocate(textOffset + textBytes.length);
+        out.putInt(DeckPackFormat.OFFSET_MAGIC, DeckPackFormat.MAGIC);
+        out.putShort(DeckPackFormat.OFFSET_VERSION, DeckPackFormat.VERSION);
+        out.putInt(DeckPackFormat.OFFSET_CARD_COUNT, cards.size());
+        out.putInt(DeckPackFormat.OFFSET_STRING_COUNT, stringEntries.size());
+        out.putInt(DeckPackFormat.OFFSET_OPTION_REF_COUNT, optionRefs.size());
+        out.putInt(DeckPackFormat.OFFSET_CAREER, career);
+        out.putInt(DeckPackFormat.OFFSET_COURSE, course);
+        out.putInt(DeckPackFormat.OFFSET_UNIT, unit);
+        out.putLong(DeckPackFormat.OFFSET_BUILT_AT, builtAtMillis);
+        out.putInt(DeckPackFormat.OFFSET_STRING_TABLE, stringTableOffset);
+        out.putInt(DeckPackFormat.OFFSET_CARD_INDEX, cardIndexOffset);
+        out.putInt(DeckPackFormat.OFFSET_OPTION_REFS, optionRefsOffset);
+        out.putInt(DeckPackFormat.OFFSET_TEXT, textOffset);
+        out.putInt(DeckPackFormat.OFFSET_TEXT_LENGTH, textBytes.length);
+
+        out.position(stringTableOffset);
+        for (int[] entry : stringEntries) {
+            out.putInt(entry[0]);
+            out.putInt(entry[1]);
+        }
+        for (int[] card : cards) {
+            for (int i = 0; i < 7; i++) {
+                out.putInt(card[i]);
+            }
+            out.putShort((short) card[7]);
+            out.putShort((short) 0);
+        }
+        for (int ref : optionRefs) {
+            out.putInt(ref);
+        }
+        out.put(textBytes);
+        return out.array();
+    }
+
+    /**
+     * Write the pack through a temporary file so readers never see half a pack
+     */
+    public void writeTo(File file, long builtAtMillis) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(toByteArray(builtAtMillis));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot move deck pack into place: " + file);
+        }
+    }
+
+    private int intern(String value) {
+        if (value == null) {
+            return DeckPackFormat.NO_STRING;
+        }
+        Integer existing = stringIndex.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int index = stringEntries.size();
+        stringEntries.add(new int[]{text.size(), bytes.length});
+        text.write(bytes, 0, bytes.length);
+        stringIndex.put(value, index);
+        return index;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.nurse_connect.services.dedup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * MinHash signatures of question text. Questions are reduced to their content words
+ * (lower case, stop words dropped, simple plurals folded) and shingled into word
+ * pairs; two signatures agree in a share of positions that estimates the Jaccard
+ * similarity of the two shingle sets.
+ */
+public final class MinHash {
+
+    public static final int NUM_HASHES = 32;
+
+    private static final int[] SEEDS = new int[NUM_HASHES];
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from", "has",
+            "have", "how", "if", "in", "into", "is", "it", "its", "most", "of", "on", "or", "should",
+            "that", "the", "their", "this", "to", "was", "what", "when", "which", "who", "why", "will",
+            "with", "would", "you", "your", "following", "best", "first", "nurse", "nursing", "patient",
+            "client"));
+
+    static {
+        int seed = 0x9E3779B9;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed = seed * 1664525 + 1013904223;
+            SEEDS[i] = seed;
+        }
+    }
+
+    private MinHash() {
+    }
+
+    /**
+     * Distinct content words of the text, in order of first appearance
+     */
+    public static List<String> contentWords(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text != null) {
+            for (String token : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+                if (token.length() < 2 || STOP_WORDS.contains(token)) {
+                    continue;
+                }
+                if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+                    token = token.substring(0, token.length() - 1);
+                }
+                words.add(token);
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Signature of the text, or null when it has no content words
+     */
+    public static int[] signature(String text) {
+        List<String> words = contentWords(text);
+        if (words.isEmpty()) {
+            return null;
+        }
+        List<String> shingles = new ArrayList<>();
+        if (words.size() == 1) {
+            shingles.add(words.get(0));
+        } else {
+            for (int i = 0; i + 1 < words.size(); i++) {
+                shingles.add(words.get(i) + ' ' + words.get(i + 1));
+            }
+        }
+
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String shingle : shingles) {
+            int hash = shingle.hashCode();
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int value = mix(hash ^ SEEDS[i]);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Estimated Jaccard similarity of the texts behind two signatures
+     */
+    public static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / NUM_HASHES;
+    }
+
+    // MurmurHash3 finalizer
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
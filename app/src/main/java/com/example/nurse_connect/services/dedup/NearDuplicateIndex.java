@@ -0,0 +1,179 @@
+package com.example.nurse_connect.services.dedup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Questions a user has already seen, as MinHash signatures in an LSH index: the
+ * signature is cut into bands and only questions sharing a band with the new one
+ * are compared, so a lookup does not scan the whole history. Holds at most
+ * maxEntries questions, dropping the oldest first.
+ *
+ * The content words of the indexed questions double as a compact topic summary
+ * for prompts, in place of the raw question list.
+ */
+public class NearDuplicateIndex {
+
+    /** Estimated similarity from which two questions count as the same */
+    public static final double DEFAULT_THRESHOLD = 0.5;
+
+    private static final int BANDS = 16;
+    private static final int ROWS = MinHash.NUM_HASHES / BANDS;
+
+    private static class Entry {
+        int[] signature;
+        List<String> terms;
+    }
+
+    private final int maxEntries;
+    private final double threshold;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private transient Map<Long, List<Entry>> buckets;
+    private transient Map<String, Integer> termCounts;
+
+    public NearDuplicateIndex(int maxEntries) {
+        this(maxEntries, DEFAULT_THRESHOLD);
+    }
+
+    public NearDuplicateIndex(int maxEntries, double threshold) {
+        this.maxEntries = maxEntries;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Index the question unless it (nearly) repeats one already indexed; returns false
+     * for a near-duplicate. A question without content words is let through unindexed.
+     */
+    public synchronized boolean add(String question) {
+        int[] signature = MinHash.signature(question);
+        if (signature == null) {
+            return true;
+        }
+        if (findSimilar(signature)) {
+            return false;
+        }
+        Entry entry = new Entry();
+        entry.signature = signature;
+        entry.terms = MinHash.contentWords(question);
+        entries.addLast(entry);
+        index(entry);
+        while (entries.size() > maxEntries) {
+            unindex(entries.pollFirst());
+        }
+        return true;
+    }
+
+    public synchronized boolean isNearDuplicate(String question) {
+        int[] signature = MinHash.signature(question);
+        return signature != null && findSimilar(signature);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized NearDuplicateIndex copy() {
+        // Entries are never modified, so the copy can share them
+        NearDuplicateIndex copy = new NearDuplicateIndex(maxEntries, threshold);
+        copy.entries.addAll(entries);
+        return copy;
+    }
+
+    /**
+     * The most frequent content words of the indexed questions, most frequent first
+     */
+    public synchronized List<String> topTerms(int maxTerms) {
+        ensureIndexed();
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>(termCounts.entrySet());
+        counts.sort((a, b) -> {
+            int byCount = Integer.compare(b.getValue(), a.getValue());
+            return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+        });
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < counts.size() && i < maxTerms; i++) {
+            terms.add(counts.get(i).getKey());
+        }
+        return terms;
+    }
+
+    /**
+     * One line describing what has been covered, or null when nothing has
+     */
+    public synchronized String topicSummary(int maxTerms) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        return entries.size() + " questions already studied; most frequent topics: "
+                + String.join(", ", topTerms(maxTerms));
+    }
+
+    private boolean findSimilar(int[] signature) {
+        ensureIndexed();
+        for (int band = 0; band < BANDS; band++) {
+            List<Entry> bucket = buckets.get(bandKey(signature, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (Entry candidate : bucket) {
+                if (MinHash.similarity(signature, candidate.signature) >= threshold) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Entries restored by Gson come without the transient lookup structures
+    private void ensureIndexed() {
+        if (buckets == null) {
+            buckets = new HashMap<>();
+            termCounts = new HashMap<>();
+            for (Entry entry : entries) {
+                index(entry);
+            }
+        }
+    }
+
+    private void index(Entry entry) {
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(entry.signature, band);
+            List<Entry> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<>(1);
+                buckets.put(key, bucket);
+            }
+            bucket.add(entry);
+        }
+        for (String term : entry.terms) {
+            termCounts.merge(term, 1, Integer::sum);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(entry.signature, band);
+            List<Entry> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+        for (String term : entry.terms) {
+            termCounts.computeIfPresent(term, (t, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long hash = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            hash = hash * 31 + signature[row];
+        }
+        return hash;
+    }
+}
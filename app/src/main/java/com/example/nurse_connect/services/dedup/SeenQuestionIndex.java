@@ -0,0 +1,89 @@
+package com.example.nurse_connect.services.dedup;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per user and unit NearDuplicateIndex of the questions shown in flashcard sessions,
+ * kept in SharedPreferences so generated rounds can be checked against everything
+ * the user has studied, not just the current session.
+ */
+public class SeenQuestionIndex {
+
+    private static final String TAG = "SeenQuestionIndex";
+    private static final String PREFS_NAME = "SeenQuestionPrefs";
+    private static final int MAX_QUESTIONS_PER_UNIT = 200;
+
+    private static SeenQuestionIndex instance;
+
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+    private final Map<String, NearDuplicateIndex> loaded = new HashMap<>();
+
+    private SeenQuestionIndex(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized SeenQuestionIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new SeenQuestionIndex(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * A copy of the user's index for the unit, free to extend without affecting the stored one
+     */
+    public synchronized NearDuplicateIndex snapshot(String userId, String career, String course, String unit) {
+        return index(key(userId, career, course, unit)).copy();
+    }
+
+    /**
+     * Remember questions the user has been shown; near-duplicates of known ones are skipped
+     */
+    public synchronized void record(String userId, String career, String course, String unit, List<String> questions) {
+        String key = key(userId, career, course, unit);
+        NearDuplicateIndex index = index(key);
+        int added = 0;
+        for (String question : questions) {
+            if (index.add(question)) {
+                added++;
+            }
+        }
+        if (added > 0) {
+            prefs.edit().putString(key, gson.toJson(index)).apply();
+            Log.d(TAG, "Recorded " + added + " new questions for " + key + " (" + index.size() + " total)");
+        }
+    }
+
+    private NearDuplicateIndex index(String key) {
+        NearDuplicateIndex index = loaded.get(key);
+        if (index != null) {
+            return index;
+        }
+        String json = prefs.getString(key, null);
+        if (json != null) {
+            try {
+                index = gson.fromJson(json, NearDuplicateIndex.class);
+            } catch (Exception e) {
+                Log.w(TAG, "Discarding unreadable question index " + key, e);
+            }
+        }
+        if (index == null) {
+            index = new NearDuplicateIndex(MAX_QUESTIONS_PER_UNIT);
+        }
+        loaded.put(key, index);
+        return index;
+    }
+
+    private static String key(String userId, String career, String course, String unit) {
+        return userId + "|" + career + "|" + course + "|" + unit;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.nurse_connect.services.fallback;
+
+import com.example.nurse_connect.services.deckpack.DeckPack;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Canned flashcards served when the AI service is unavailable. The bank is packaged
+ * as Java resources under /fallback: a small tab-separated index of
+ * (career, course, unit keywords) entries, each naming a deck pack with that unit's
+ * cards. Only the index and the pack of a requested unit are ever read, on first use.
+ *
+ * Card text may contain {career} and {topic} (the lower-cased topic), filled in per
+ * request. The packs are generated from src/main/fallback/fallback_flashcards.json
+ * by FallbackBankGenerator in the unit tests.
+ */
+public class FallbackFlashcardBank {
+
+    static final String RESOURCE_DIR = "/fallback/";
+    static final String INDEX_NAME = "index.tsv";
+    static final String ANY = "*";
+    static final String NO_TOPIC = "-";
+
+    public static class Card {
+        public final String question;
+        public final String answer;
+        public final String rationale;
+        public final List<String> options;
+
+        Card(String question, String answer, String rationale, List<String> options) {
+            this.question = question;
+            this.answer = answer;
+            this.rationale = rationale;
+            this.options = options;
+        }
+    }
+
+    private static class IndexEntry {
+        final String career;
+        final String course;
+        final List<String> unitKeywords;
+        final String topic;
+        final String packName;
+
+        IndexEntry(String career, String course, List<String> unitKeywords, String topic, String packName) {
+            this.career = career;
+            this.course = course;
+            this.unitKeywords = unitKeywords;
+            this.topic = topic;
+            this.packName = packName;
+        }
+
+        boolean matches(String career, String course, String unit) {
+            if (!ANY.equals(this.career) && !this.career.equalsIgnoreCase(career)) {
+                return false;
+            }
+            if (!ANY.equals(this.course) && !this.course.equalsIgnoreCase(course)) {
+                return false;
+            }
+            if (unitKeywords.isEmpty()) {
+                return true;
+            }
+            String lowerUnit = unit.toLowerCase(Locale.ROOT);
+            for (String keyword : unitKeywords) {
+                if (lowerUnit.contains(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static FallbackFlashcardBank instance;
+
+    private final String resourceDir;
+    private List<IndexEntry> index;
+    private final Map<String, DeckPack> packs = new HashMap<>();
+    private long resourceBytesRead;
+
+    FallbackFlashcardBank(String resourceDir) {
+        this.resourceDir = resourceDir;
+    }
+
+    public static synchronized FallbackFlashcardBank getInstance() {
+        if (instance == null) {
+            instance = new FallbackFlashcardBank(RESOURCE_DIR);
+        }
+        return instance;
+    }
+
+    /**
+     * Title of the topic the unit falls under, or null when only the generic cards apply
+     */
+    public synchronized String topicFor(String career, String course, String unit) throws IOException {
+        IndexEntry entry = find(career, course, unit);
+        return entry != null && !NO_TOPIC.equals(entry.topic) ? entry.topic : null;
+    }
+
+    /**
+     * Up to maxCards cards of the first index entry matching the unit, in bank order
+     */
+    public synchronized List<Card> cards(String career, String course, String unit, String topic, int maxCards)
+            throws IOException {
+        IndexEntry entry = find(career, course, unit);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        DeckPack pack = pack(entry.packName);
+        String lowerTopic = topic != null ? topic.toLowerCase(Locale.ROOT) : "";
+        int count = Math.min(maxCards, pack.getCardCount());
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> options = pack.getOptions(i);
+            List<String> filledOptions = new ArrayList<>();
+            if (options != null) {
+                for (String option : options) {
+                    filledOptions.add(fill(option, career, lowerTopic));
+                }
+            }
+            cards.add(new Card(fill(pack.getQuestion(i), career, lowerTopic), fill(pack.getAnswer(i), career, lowerTopic),
+                    fill(pack.getRationale(i), career, lowerTopic), filledOptions));
+        }
+        return cards;
+    }
+
+    /**
+     * Bytes read from resources so far, for checking that only the needed pack is loaded
+     */
+    synchronized long getResourceBytesRead() {
+        return resourceBytesRead;
+    }
+
+    private IndexEntry find(String career, String course, String unit) throws IOException {
+        if (index == null) {
+            index = readIndex();
+        }
+        for (IndexEntry entry : index) {
+            if (entry.matches(career != null ? career : "", course != null ? course : "", unit != null ? unit : "")) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private List<IndexEntry> readIndex() throws IOException {
+        List<IndexEntry> entries = new ArrayList<>();
+        byte[] bytes = readResource(INDEX_NAME);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 5) {
+                    throw new IOException("Malformed fallback index line: " + line);
+                }
+                List<String> keywords = fields[2].isEmpty()
+                        ? Collections.emptyList()
+                        : Arrays.asList(fields[2].split(","));
+                entries.add(new IndexEntry(fields[0], fields[1], keywords, fields[3], fields[4]));
+            }
+        }
+        return entries;
+    }
+
+    private DeckPack pack(String packName) throws IOException {
+        DeckPack pack = packs.get(packName);
+        if (pack == null) {
+            pack = DeckPack.wrap(readResource(packName));
+            packs.put(packName, pack);
+        }
+        return pack;
+    }
+
+    private byte[] readResource(String name) throws IOException {
+        try (InputStream in = FallbackFlashcardBank.class.getResourceAsStream(resourceDir + name)) {
+            if (in == null) {
+                throw new IOException("Missing fallback resource " + resourceDir + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            resourceBytesRead += out.size();
+            return out.toByteArray();
+        }
+    }
+
+    private static String fill(String text, String career, String lowerTopic) {
+        if (text == null || text.indexOf('{') < 0) {
+            return text;
+        }
+        return text.replace("{career}", career != null ? career : "").replace("{topic}", lowerTopic);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.nurse_connect.services.generation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generated batches waiting to be served, keyed by normalized request parameters
+ * (see GenerationKey). Each batch is handed out once, so consecutive rounds never
+ * repeat cards; batches expire after ttlMillis and at most maxKeys keys (least
+ * recently used first out) with maxBatchesPerKey batches each are kept.
+ *
+ * A key can also have one generation in flight: a caller that finds it running can
+ * wait for its batch instead of starting a second request.
+ */
+public class GenerationCache<T> {
+
+    public interface Waiter<T> {
+        void onBatch(T batch);
+        void onFailed(String error);
+    }
+
+    private static class Batch<T> {
+        final T value;
+        final long storedAt;
+
+        Batch(T value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private final int maxKeys;
+    private final int maxBatchesPerKey;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Deque<Batch<T>>> ready;
+    private final Map<String, List<Waiter<T>>> inFlight = new LinkedHashMap<>();
+
+    public GenerationCache(int maxKeys, int maxBatchesPerKey, long ttlMillis) {
+        this.maxKeys = maxKeys;
+        this.maxBatchesPerKey = maxBatchesPerKey;
+        this.ttlMillis = ttlMillis;
+        this.ready = new LinkedHashMap<String, Deque<Batch<T>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Deque<Batch<T>>> eldest) {
+                return size() > GenerationCache.this.maxKeys;
+            }
+        };
+    }
+
+    /**
+     * Remove and return the oldest unexpired batch for the key, or null
+     */
+    public synchronized T take(String key, long nowMillis) {
+        Deque<Batch<T>> batches = ready.get(key);
+        if (batches == null) {
+            return null;
+        }
+        dropExpired(batches, nowMillis);
+        Batch<T> batch = batches.pollFirst();
+        if (batches.isEmpty()) {
+            ready.remove(key);
+        }
+        return batch != null ? batch.value : null;
+    }
+
+    public synchronized void put(String key, T batch, long nowMillis) {
+        Deque<Batch<T>> batches = ready.get(key);
+        if (batches == null) {
+            batches = new ArrayDeque<>();
+            ready.put(key, batches);
+        }
+        batches.addLast(new Batch<>(batch, nowMillis));
+        while (batches.size() > maxBatchesPerKey) {
+            batches.pollFirst();
+        }
+    }
+
+    public synchronized int readyCount(String key, long nowMillis) {
+        Deque<Batch<T>> batches = ready.get(key);
+        if (batches == null) {
+            return 0;
+        }
+        dropExpired(batches, nowMillis);
+        return batches.size();
+    }
+
+    /**
+     * Claim the key for a background generation. Returns false when one is already
+     * running or enough batches are ready.
+     */
+    public synchronized boolean startGeneration(String key, long nowMillis) {
+        if (inFlight.containsKey(key) || readyCount(key, nowMillis) >= maxBatchesPerKey) {
+            return false;
+        }
+        inFlight.put(key, new ArrayList<>());
+        return true;
+    }
+
+    public synchronized boolean isGenerating(String key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * Wait for the key's running generation. Returns false when none is running.
+     */
+    public synchronized boolean await(String key, Waiter<T> waiter) {
+        List<Waiter<T>> waiters = inFlight.get(key);
+        if (waiters == null) {
+            return false;
+        }
+        waiters.add(waiter);
+        return true;
+    }
+
+    /**
+     * The first waiter gets the batch directly; with nobody waiting it is cached.
+     * Further waiters are told to generate their own.
+     */
+    public void generationSucceeded(String key, T batch, long nowMillis) {
+        List<Waiter<T>> waiters;
+        synchronized (this) {
+            waiters = inFlight.remove(key);
+            if (waiters == null || waiters.isEmpty()) {
+                put(key, batch, nowMillis);
+                return;
+            }
+        }
+        waiters.get(0).onBatch(batch);
+        for (int i = 1; i < waiters.size(); i++) {
+            waiters.get(i).onFailed("Batch already taken");
+        }
+    }
+
+    public void generationFailed(String key, String error) {
+        List<Waiter<T>> waiters;
+        synchronized (this) {
+            waiters = inFlight.remove(key);
+        }
+        if (waiters != null) {
+            for (Waiter<T> waiter : waiters) {
+                waiter.onFailed(error);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        ready.clear();
+    }
+
+    private void dropExpired(Deque<Batch<T>> batches, long nowMillis) {
+        Iterator<Batch<T>> iterator = batches.iterator();
+        while (iterator.hasNext()) {
+            if (nowMillis - iterator.next().storedAt > ttlMillis) {
+                iterator.remove();
+            }
+        }
+    }
+}
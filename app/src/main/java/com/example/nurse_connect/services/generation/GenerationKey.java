@@ -0,0 +1,27 @@
+package com.example.nurse_connect.services.generation;
+
+import java.util.Locale;
+
+/**
+ * Cache key for a flashcard generation request. Parameters are trimmed, lower-cased
+ * and whitespace-collapsed so that "Unit 1: Vital Signs" and "unit 1:  vital signs"
+ * share a key. Study history is deliberately not part of the key: it only steers the
+ * prompt away from repeats.
+ */
+public final class GenerationKey {
+
+    private GenerationKey() {}
+
+    public static String of(String career, String course, String unit, int count,
+                            String gameMode, String difficulty, String timeLimit) {
+        return normalize(career) + "|" + normalize(course) + "|" + normalize(unit) + "|" + count
+                + "|" + normalize(gameMode) + "|" + normalize(difficulty) + "|" + normalize(timeLimit);
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
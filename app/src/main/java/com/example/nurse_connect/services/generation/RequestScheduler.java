@@ -0,0 +1,365 @@
+package com.example.nurse_connect.services.generation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues generation requests and starts them as the TokenBucket admits them:
+ * interactive requests ahead of background prefetches, first come first served
+ * within a priority. Requests submitted under the same key while one is pending
+ * share its result instead of costing another call. A failed attempt asks for a
+ * retry, which is queued again after a jittered exponential backoff (or the
+ * server's Retry-After, whichever is longer) until maxAttempts is reached.
+ */
+public class RequestScheduler<T> {
+
+    public enum Priority {
+        INTERACTIVE,
+        PREFETCH
+    }
+
+    /**
+     * Starts one attempt and reports its outcome through the attempt, possibly later
+     * from another thread
+     */
+    public interface Request<T> {
+        void start(Attempt<T> attempt);
+    }
+
+    public interface Listener<T> {
+        void onResult(T result);
+        /** Every attempt asked for a retry; lastError is the final reason */
+        void onRetriesExhausted(String lastError);
+        void onError(String error);
+    }
+
+    public static class Stats {
+        public final int queueDepth;
+        public final int waitingForRetry;
+        public final long admitted;
+        public final long averageWaitMillis;
+        public final long maxWaitMillis;
+        public final long coalesced;
+        public final long retries;
+        public final long completed;
+        public final long exhausted;
+
+        Stats(int queueDepth, int waitingForRetry, long admitted, long totalWaitMillis, long maxWaitMillis,
+              long coalesced, long retries, long completed, long exhausted) {
+            this.queueDepth = queueDepth;
+            this.waitingForRetry = waitingForRetry;
+            this.admitted = admitted;
+            this.averageWaitMillis = admitted > 0 ? totalWaitMillis / admitted : 0;
+            this.maxWaitMillis = maxWaitMillis;
+            this.coalesced = coalesced;
+            this.retries = retries;
+            this.completed = completed;
+            this.exhausted = exhausted;
+        }
+
+        /**
+         * Share of finished requests that ran out of retries (and so fell back)
+         */
+        public double getFallbackRate() {
+            return completed > 0 ? (double) exhausted / completed : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "queue=" + queueDepth + " retrying=" + waitingForRetry + " admitted=" + admitted
+                    + " avgWait=" + averageWaitMillis + "ms maxWait=" + maxWaitMillis + "ms coalesced=" + coalesced
+                    + " retries=" + retries + " fallbackRate=" + String.format("%.2f", getFallbackRate());
+        }
+    }
+
+    /**
+     * One try of a request. Exactly one of succeed, retry or fail counts; later calls are ignored.
+     */
+    public static class Attempt<T> {
+        private final RequestScheduler<T> scheduler;
+        private final Job<T> job;
+        private final int number;
+        private boolean done;
+
+        Attempt(RequestScheduler<T> scheduler, Job<T> job, int number) {
+            this.scheduler = scheduler;
+            this.job = job;
+            this.number = number;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public void succeed(T result) {
+            if (finish()) {
+                scheduler.complete(job, result, null, false);
+            }
+        }
+
+        /**
+         * Try again later. A positive retryAfterMillis (from the server) also holds back
+         * every other request for that long.
+         */
+        public void retry(String reason, long retryAfterMillis) {
+            if (finish()) {
+                scheduler.retry(job, number, reason, retryAfterMillis);
+            }
+        }
+
+        public void fail(String error) {
+            if (finish()) {
+                scheduler.complete(job, null, error, false);
+            }
+        }
+
+        /**
+         * Remaining quota reported by the server, see TokenBucket.limitTo
+         */
+        public void reportQuota(int remaining, long resetAtMillis) {
+            scheduler.bucket.limitTo(remaining, resetAtMillis, scheduler.now());
+        }
+
+        private synchronized boolean finish() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+    }
+
+    private static class Job<T> {
+        final String key;
+        final Request<T> request;
+        final List<Listener<T>> listeners = new ArrayList<>();
+        Priority priority;
+        long sequence;
+        long queuedAt;
+        int attempts;
+
+        Job(String key, Priority priority, Request<T> request) {
+            this.key = key;
+            this.priority = priority;
+            this.request = request;
+        }
+    }
+
+    private final TokenBucket bucket;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService executor;
+    private final Random random;
+    private final PriorityQueue<Job<T>> queue = new PriorityQueue<>((a, b) -> {
+        int byPriority = a.priority.compareTo(b.priority);
+        return byPriority != 0 ? byPriority : Long.compare(a.sequence, b.sequence);
+    });
+    private final Map<String, Job<T>> pending = new HashMap<>();
+    private ScheduledFuture<?> dispatchTask;
+    private long dispatchAt;
+    private long nextSequence;
+    private int waitingForRetry;
+
+    private long admitted;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+    private long coalesced;
+    private long retries;
+    private long completed;
+    private long exhausted;
+
+    public RequestScheduler(TokenBucket bucket, int maxAttempts, long baseBackoffMillis, long maxBackoffMillis) {
+        this(bucket, maxAttempts, baseBackoffMillis, maxBackoffMillis, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RequestScheduler");
+            thread.setDaemon(true);
+            return thread;
+        }), new Random());
+    }
+
+    RequestScheduler(TokenBucket bucket, int maxAttempts, long baseBackoffMillis, long maxBackoffMillis,
+                     ScheduledExecutorService executor, Random random) {
+        this.bucket = bucket;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.executor = executor;
+        this.random = random;
+    }
+
+    /**
+     * Queue a request. With a non-null key, a request already pending under that key
+     * is joined instead (and moved up if this one is interactive); returns true then.
+     */
+    public boolean submit(String key, Priority priority, Request<T> request, Listener<T> listener) {
+        synchronized (this) {
+            Job<T> existing = key != null ? pending.get(key) : null;
+            if (existing != null) {
+                existing.listeners.add(listener);
+                coalesced++;
+                raisePriority(existing, priority);
+                return true;
+            }
+            Job<T> job = new Job<>(key, priority, request);
+            job.listeners.add(listener);
+            if (key != null) {
+                pending.put(key, job);
+            }
+            enqueue(job);
+        }
+        return false;
+    }
+
+    /**
+     * Move a request still waiting in the queue up to the given priority, e.g. when
+     * the user starts waiting for a prefetch
+     */
+    public synchronized void prioritize(String key, Priority priority) {
+        Job<T> job = pending.get(key);
+        if (job != null) {
+            raisePriority(job, priority);
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(queue.size(), waitingForRetry, admitted, totalWaitMillis, maxWaitMillis,
+                coalesced, retries, completed, exhausted);
+    }
+
+    /**
+     * Rough time until a newly submitted interactive request would start
+     */
+    public synchronized long estimatedWaitMillis() {
+        return bucket.waitMillis(now());
+    }
+
+    /**
+     * Equal-jitter exponential backoff: half the capped delay plus a random share of
+     * the other half, so clients that failed together do not retry together
+     */
+    long backoffMillis(int attempt) {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        long half = cap / 2;
+        synchronized (random) {
+            return half + (long) (random.nextDouble() * (cap - half));
+        }
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    private void raisePriority(Job<T> job, Priority priority) {
+        if (priority.compareTo(job.priority) >= 0) {
+            return;
+        }
+        // A job that is running or waiting to retry is re-queued with its new priority
+        boolean queued = queue.remove(job);
+        job.priority = priority;
+        if (queued) {
+            queue.add(job);
+        }
+    }
+
+    private void enqueue(Job<T> job) {
+        job.sequence = nextSequence++;
+        job.queuedAt = now();
+        queue.add(job);
+        scheduleDispatch(0);
+    }
+
+    private void scheduleDispatch(long delayMillis) {
+        long at = now() + delayMillis;
+        if (dispatchTask != null && !dispatchTask.isDone()) {
+            if (dispatchAt <= at) {
+                return;
+            }
+            dispatchTask.cancel(false);
+        }
+        dispatchAt = at;
+        dispatchTask = executor.schedule(this::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void dispatch() {
+        while (true) {
+            Job<T> job;
+            int number;
+            synchronized (this) {
+                dispatchTask = null;
+                if (queue.isEmpty()) {
+                    return;
+                }
+                long now = now();
+                long wait = bucket.tryAcquire(now);
+                if (wait > 0) {
+                    scheduleDispatch(wait);
+                    return;
+                }
+                job = queue.poll();
+                number = ++job.attempts;
+                long waited = now - job.queuedAt;
+                admitted++;
+                totalWaitMillis += waited;
+                maxWaitMillis = Math.max(maxWaitMillis, waited);
+            }
+            Attempt<T> attempt = new Attempt<>(this, job, number);
+            try {
+                job.request.start(attempt);
+            } catch (RuntimeException e) {
+                attempt.fail("Internal error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void retry(Job<T> job, int attempt, String reason, long retryAfterMillis) {
+        if (attempt >= maxAttempts) {
+            complete(job, null, reason, true);
+            return;
+        }
+        if (retryAfterMillis > 0) {
+            bucket.pauseUntil(now() + retryAfterMillis);
+        }
+        long delay = Math.max(backoffMillis(attempt), retryAfterMillis);
+        synchronized (this) {
+            retries++;
+            waitingForRetry++;
+        }
+        executor.schedule(() -> {
+            synchronized (this) {
+                waitingForRetry--;
+                enqueue(job);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void complete(Job<T> job, T result, String error, boolean retriesExhausted) {
+        List<Listener<T>> listeners;
+        synchronized (this) {
+            if (job.key != null && pending.get(job.key) == job) {
+                pending.remove(job.key);
+            }
+            listeners = new ArrayList<>(job.listeners);
+            completed++;
+            if (retriesExhausted) {
+                exhausted++;
+            }
+        }
+        for (Listener<T> listener : listeners) {
+            if (error == null) {
+                listener.onResult(result);
+            } else if (retriesExhausted) {
+                listener.onRetriesExhausted(error);
+            } else {
+                listener.onError(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.nurse_connect.services.generation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental JSON tokenizer for generated flashcards. Text is fed in arbitrary
+ * chunks as it streams in; every object that is an element of an array (a card in
+ * "[{...}, {...}]" or in "{"flashcards": [...]}") is returned as soon as its closing
+ * brace arrives. Strings and escapes are tracked so braces inside questions do not
+ * count, and anything outside the JSON (prose, markdown fences) is ignored.
+ */
+public class StreamingCardSplitter {
+
+    private final StringBuilder nesting = new StringBuilder();
+    private final StringBuilder current = new StringBuilder();
+    private boolean inString;
+    private boolean escaped;
+    private int captureDepth = -1;
+    private int emitted;
+
+    /**
+     * Feed the next chunk; returns the card objects it completed (possibly none)
+     */
+    public List<String> feed(CharSequence chunk) {
+        List<String> completed = new ArrayList<>();
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            boolean capturing = captureDepth >= 0;
+            if (capturing) {
+                current.append(c);
+            }
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"':
+                    // Quotes in prose around the JSON are not strings
+                    inString = nesting.length() > 0;
+                    break;
+                case '{':
+                    if (!capturing && nesting.length() > 0 && nesting.charAt(nesting.length() - 1) == '[') {
+                        current.setLength(0);
+                        current.append(c);
+                        captureDepth = nesting.length();
+                    }
+                    nesting.append(c);
+                    break;
+                case '[':
+                    nesting.append(c);
+                    break;
+                case '}':
+                case ']':
+                    if (nesting.length() > 0) {
+                        nesting.setLength(nesting.length() - 1);
+                    }
+                    if (capturing && c == '}' && nesting.length() == captureDepth) {
+                        completed.add(current.toString());
+                        current.setLength(0);
+                        captureDepth = -1;
+                        emitted++;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Number of card objects completed so far
+     */
+    public int getEmittedCount() {
+        return emitted;
+    }
+}
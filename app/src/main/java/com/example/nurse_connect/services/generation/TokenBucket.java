@@ -0,0 +1,79 @@
+package com.example.nurse_connect.services.generation;
+
+/**
+ * Client-side request budget: up to capacity requests in a burst, refilled at one
+ * token per refillIntervalMillis. The server can tighten it further, either by
+ * reporting its remaining quota or by asking us to back off (429 Retry-After).
+ */
+public class TokenBucket {
+
+    private final int capacity;
+    private final long refillIntervalMillis;
+    private double tokens;
+    private long lastRefillAt = -1;
+    private long pausedUntil;
+
+    public TokenBucket(int capacity, long refillIntervalMillis) {
+        if (capacity < 1 || refillIntervalMillis < 1) {
+            throw new IllegalArgumentException("capacity and refill interval must be positive");
+        }
+        this.capacity = capacity;
+        this.refillIntervalMillis = refillIntervalMillis;
+        this.tokens = capacity;
+    }
+
+    /**
+     * Take a token. Returns 0 when one was taken, otherwise how long to wait before trying again.
+     */
+    public synchronized long tryAcquire(long nowMillis) {
+        long wait = waitMillis(nowMillis);
+        if (wait == 0) {
+            tokens -= 1;
+        }
+        return wait;
+    }
+
+    /**
+     * How long until a token is available, without taking it
+     */
+    public synchronized long waitMillis(long nowMillis) {
+        refill(nowMillis);
+        if (nowMillis < pausedUntil) {
+            return pausedUntil - nowMillis;
+        }
+        if (tokens >= 1) {
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) * refillIntervalMillis));
+    }
+
+    /**
+     * Admit nothing before untilMillis, e.g. when the server answered 429 with Retry-After
+     */
+    public synchronized void pauseUntil(long untilMillis) {
+        pausedUntil = Math.max(pausedUntil, untilMillis);
+    }
+
+    /**
+     * The server's view of the remaining quota: never spend more than it allows, and
+     * with none left wait until it resets.
+     */
+    public synchronized void limitTo(int remaining, long resetAtMillis, long nowMillis) {
+        refill(nowMillis);
+        tokens = Math.min(tokens, Math.max(0, remaining));
+        if (remaining <= 0 && resetAtMillis > nowMillis) {
+            pauseUntil(resetAtMillis);
+        }
+    }
+
+    private void refill(long nowMillis) {
+        if (lastRefillAt < 0) {
+            lastRefillAt = nowMillis;
+            return;
+        }
+        if (nowMillis > lastRefillAt) {
+            tokens = Math.min(capacity, tokens + (double) (nowMillis - lastRefillAt) / refillIntervalMillis);
+            lastRefillAt = nowMillis;
+        }
+    }
+}
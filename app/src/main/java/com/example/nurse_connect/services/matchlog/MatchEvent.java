@@ -0,0 +1,108 @@
+package com.example.nurse_connect.services.matchlog;
+
+/**
+ * One entry of a match's append-only event log.
+ * Events are stored as a single compact string, e.g. "A|uid|3|2|1|lmbd3k0a":
+ * type, player, question index, value, flag (0/1) and the event's server time,
+ * with numbers in base 36.
+ */
+public class MatchEvent {
+
+    public static final char JOIN = 'J';
+    public static final char READY = 'R';
+    public static final char START = 'S';      // match went active (every player ready)
+    public static final char ANSWER = 'A';     // value = selected option, flag = correct
+    public static final char COMPLETE = 'C';   // question closed (answered or timed out)
+    public static final char NEXT = 'N';       // player pressed Next
+    public static final char ADVANCE = 'V';    // match moved to the next question
+    public static final char END = 'E';
+
+    private static final String SEPARATOR = "|";
+
+    private final char type;
+    private final String playerId;
+    private final int questionIndex;
+    private final int value;
+    private final boolean flag;
+    private final long at;
+
+    public MatchEvent(char type, String playerId, int questionIndex, int value, boolean flag, long at) {
+        this.type = type;
+        this.playerId = playerId != null ? playerId : "";
+        this.questionIndex = questionIndex;
+        this.value = value;
+        this.flag = flag;
+        this.at = at;
+    }
+
+    public static MatchEvent join(String playerId, long at) {
+        return new MatchEvent(JOIN, playerId, -1, 0, false, at);
+    }
+
+    public static MatchEvent ready(String playerId, boolean ready, long at) {
+        return new MatchEvent(READY, playerId, -1, 0, ready, at);
+    }
+
+    public static MatchEvent start(long at) {
+        return new MatchEvent(START, null, -1, 0, false, at);
+    }
+
+    public static MatchEvent answer(String playerId, int questionIndex, int selected, boolean correct, long at) {
+        return new MatchEvent(ANSWER, playerId, questionIndex, selected, correct, at);
+    }
+
+    public static MatchEvent complete(int questionIndex, long at) {
+        return new MatchEvent(COMPLETE, null, questionIndex, 0, false, at);
+    }
+
+    public static MatchEvent next(String playerId, int questionIndex, long at) {
+        return new MatchEvent(NEXT, playerId, questionIndex, 0, false, at);
+    }
+
+    public static MatchEvent advance(int fromQuestionIndex, long at) {
+        return new MatchEvent(ADVANCE, null, fromQuestionIndex, 0, false, at);
+    }
+
+    public static MatchEvent end(long at) {
+        return new MatchEvent(END, null, -1, 0, false, at);
+    }
+
+    public char getType() { return type; }
+    public String getPlayerId() { return playerId; }
+    public int getQuestionIndex() { return questionIndex; }
+    public int getValue() { return value; }
+    public boolean getFlag() { return flag; }
+    public long getAt() { return at; }
+
+    public String encode() {
+        return type + SEPARATOR + playerId
+                + SEPARATOR + Integer.toString(questionIndex, 36)
+                + SEPARATOR + Integer.toString(value, 36)
+                + SEPARATOR + (flag ? "1" : "0")
+                + SEPARATOR + Long.toString(at, 36);
+    }
+
+    /**
+     * Parse an encoded event; throws IllegalArgumentException for malformed input
+     */
+    public static MatchEvent decode(String encoded) {
+        String[] parts = encoded != null ? encoded.split("\\|", -1) : new String[0];
+        if (parts.length != 6 || parts[0].length() != 1) {
+            throw new IllegalArgumentException("Malformed match event: " + encoded);
+        }
+        try {
+            return new MatchEvent(parts[0].charAt(0), parts[1],
+                    Integer.parseInt(parts[2], 36),
+                    Integer.parseInt(parts[3], 36),
+                    "1".equals(parts[4]),
+                    Long.parseLong(parts[5], 36));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed match event: " + encoded, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.nurse_connect.services.matchlog;
+
+import android.util.Log;
+
+import com.example.nurse_connect.models.QuizMatch;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only event log of a quiz match, stored as quiz_matches/{matchId}/events.
+ * Every event is its own small document. Events of a match transition are written
+ * by the battle store in the same commit as the match change (see FirestoreBattleStore),
+ * so they add no separate write; only events that change nothing on the match, such
+ * as joins and wrong answers, are appended on their own. Events are replayed in
+ * server-timestamp order, and by their position within a commit ("n") when one
+ * commit wrote several.
+ */
+public class MatchEventLog {
+
+    private static final String TAG = "MatchEventLog";
+    private static final String MATCHES = "quiz_matches";
+    private static final String EVENTS = "events";
+
+    public interface EventsCallback {
+        void onEvents(List<MatchEvent> events);
+        void onError(Exception e);
+    }
+
+    public interface ReplayCallback {
+        void onReplay(MatchReplay replay, QuizMatch stored);
+        void onError(Exception e);
+    }
+
+    private final FirebaseFirestore db;
+
+    public MatchEventLog() {
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    /**
+     * The events collection of a match, for stores writing events inside their own commits
+     */
+    public static CollectionReference events(FirebaseFirestore db, String matchId) {
+        return db.collection(MATCHES).document(matchId).collection(EVENTS);
+    }
+
+    /**
+     * Document for an event; position orders events written by the same commit
+     */
+    public static Map<String, Object> toDocument(MatchEvent event, int position) {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("e", event.encode());
+        doc.put("n", position);
+        doc.put("ts", FieldValue.serverTimestamp());
+        return doc;
+    }
+
+    /**
+     * Append an event that is not part of a match change (fire and forget)
+     */
+    public void append(String matchId, MatchEvent event) {
+        events(db, matchId)
+                .add(toDocument(event, 0))
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to log event " + event + " for match " + matchId, e));
+    }
+
+    /**
+     * Load a match's events in commit order
+     */
+    public void load(String matchId, EventsCallback callback) {
+        events(db, matchId)
+                .orderBy("ts", Query.Direction.ASCENDING)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    List<DocumentSnapshot> docs = new ArrayList<>(snapshot.getDocuments());
+                    // Stable sort: events of one commit share a timestamp
+                    Collections.sort(docs, (a, b) -> {
+                        Timestamp ta = a.getTimestamp("ts");
+                        Timestamp tb = b.getTimestamp("ts");
+                        int byTime = ta == null || tb == null ? 0 : ta.compareTo(tb);
+                        return byTime != 0 ? byTime : Long.compare(positionOf(a), positionOf(b));
+                    });
+                    List<MatchEvent> events = new ArrayList<>();
+                    for (DocumentSnapshot doc : docs) {
+                        try {
+                            events.add(MatchEvent.decode(doc.getString("e")));
+                        } catch (IllegalArgumentException e) {
+                            Log.w(TAG, "Skipping unreadable event " + doc.getId(), e);
+                        }
+                    }
+                    callback.onEvents(events);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    private static long positionOf(DocumentSnapshot doc) {
+        Long position = doc.getLong("n");
+        return position != null ? position : 0;
+    }
+
+    /**
+     * Re-run a match from its log and log the timeline plus any mismatch with the stored match
+     */
+    public void replay(String matchId, ReplayCallback callback) {
+        db.collection(MATCHES).document(matchId)
+                .get()
+                .addOnSuccessListener(matchDoc -> {
+                    QuizMatch stored = matchDoc.toObject(QuizMatch.class);
+                    if (stored == null) {
+                        callback.onError(new IllegalStateException("Match not found: " + matchId));
+                        return;
+                    }
+                    load(matchId, new EventsCallback() {
+                        @Override
+                        public void onEvents(List<MatchEvent> events) {
+                            MatchReplay replay = MatchReplay.run(stored, events);
+                            Log.d(TAG, replay.report());
+                            List<String> differences = replay.diff(stored);
+                            if (!differences.isEmpty()) {
+                                Log.w(TAG, "Replay of " + matchId + " differs from stored match: " + differences);
+                            }
+                            callback.onReplay(replay, stored);
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            callback.onError(e);
+                        }
+                    });
+                })
+                .addOnFailureListener(callback::onError);
+    }
+}
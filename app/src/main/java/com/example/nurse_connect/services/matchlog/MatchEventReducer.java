@@ -0,0 +1,131 @@
+package com.example.nurse_connect.services.matchlog;
+
+import com.example.nurse_connect.models.QuizMatch;
+
+import java.util.List;
+
+/**
+ * Derives QuizMatch state from a match's event log.
+ * The base match carries what the log does not: players' names, the question ids
+ * and the time limit. READY only records a player's flag; the match goes active on
+ * START, logged by the transaction that started it, whichever way the players got
+ * ready (the Ready button, matchmaking or joining a group match). Events that no
+ * longer apply (a late answer to an earlier question, a second advance of the same
+ * question) are ignored, as the engine's transactions refuse them in the first place.
+ */
+public final class MatchEventReducer {
+
+    private MatchEventReducer() {}
+
+    /**
+     * Build a fresh waiting-state copy of the base match and apply all events to it
+     */
+    public static QuizMatch reduce(QuizMatch base, List<MatchEvent> events) {
+        QuizMatch state = initialState(base);
+        for (MatchEvent event : events) {
+            apply(state, event);
+        }
+        return state;
+    }
+
+    public static QuizMatch initialState(QuizMatch base) {
+        QuizMatch state = new QuizMatch(base.getMatchId(), base.getCourse(), base.getUnit(), base.getCareer());
+        state.setTargetPlayerCount(base.getTargetPlayerCount());
+        state.setQuestionTimeLimit(base.getQuestionTimeLimit());
+        state.getQuestionIds().addAll(base.getQuestionIds());
+        state.setTotalQuestions(base.getTotalQuestions());
+        if (!state.getQuestionIds().isEmpty()) {
+            state.setCurrentQuestionId(state.getQuestionIds().get(0));
+        }
+        for (String playerId : base.getPlayerIds()) {
+            state.addPlayer(playerId, base.getPlayerNames().get(playerId));
+        }
+        return state;
+    }
+
+    /**
+     * Apply one event; returns false if it had no effect
+     */
+    public static boolean apply(QuizMatch state, MatchEvent event) {
+        String playerId = event.getPlayerId();
+        switch (event.getType()) {
+            case MatchEvent.JOIN:
+                if (state.getPlayerIds().contains(playerId)) {
+                    return false;
+                }
+                state.addPlayer(playerId, playerId);
+                return true;
+
+            case MatchEvent.READY:
+                if (!"waiting".equals(state.getStatus())) {
+                    return false;
+                }
+                state.setPlayerReady(playerId, event.getFlag());
+                return true;
+
+            case MatchEvent.START:
+                if (!"waiting".equals(state.getStatus())) {
+                    return false;
+                }
+                state.setStatus("active");
+                state.setStartTime(event.getAt());
+                state.setQuestionStartTime(event.getAt());
+                state.resetQuestionState();
+                return true;
+
+            case MatchEvent.ANSWER:
+                if (!"active".equals(state.getStatus()) || !isCurrent(state, event) || !event.getFlag()
+                        || state.getPlayersAnsweredCurrentQuestion().getOrDefault(playerId, false)) {
+                    // Wrong answers do not change state; they only matter for forensics
+                    return false;
+                }
+                state.markPlayerAnswered(playerId);
+                state.incrementPlayerScore(playerId);
+                state.setCurrentQuestionCompleted(true);
+                state.setCurrentQuestionAnsweredBy(playerId);
+                return true;
+
+            case MatchEvent.COMPLETE:
+                if (!"active".equals(state.getStatus()) || !isCurrent(state, event)) {
+                    return false;
+                }
+                state.setStatus("question_completed");
+                state.setNextQuestionReadyTime(event.getAt());
+                return true;
+
+            case MatchEvent.NEXT:
+                if (!"question_completed".equals(state.getStatus()) || !isCurrent(state, event)) {
+                    return false;
+                }
+                state.markPlayerPressedNext(playerId);
+                return true;
+
+            case MatchEvent.ADVANCE:
+                if (!"question_completed".equals(state.getStatus()) || !isCurrent(state, event)) {
+                    return false;
+                }
+                if (state.getCurrentQuestionIndex() < state.getQuestionIds().size() - 1) {
+                    state.nextQuestion();
+                    state.setQuestionStartTime(event.getAt());
+                    state.setStatus("active");
+                } else {
+                    state.finishMatch(event.getAt());
+                }
+                return true;
+
+            case MatchEvent.END:
+                if ("completed".equals(state.getStatus())) {
+                    return false;
+                }
+                state.finishMatch(event.getAt());
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isCurrent(QuizMatch state, MatchEvent event) {
+        return event.getQuestionIndex() == state.getCurrentQuestionIndex();
+    }
+}
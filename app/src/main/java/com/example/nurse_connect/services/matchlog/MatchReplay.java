@@ -0,0 +1,158 @@
+package com.example.nurse_connect.services.matchlog;
+
+import com.example.nurse_connect.models.QuizMatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Re-runs a match from its event log for lag investigations.
+ * Produces a per-event timeline (time since the previous event and since the
+ * question went live), flags events the live match would have rejected, and can
+ * compare the replayed result with the stored match document.
+ */
+public class MatchReplay {
+
+    /**
+     * One replayed event and the state right after it
+     */
+    public static class Frame {
+        public final MatchEvent event;
+        public final boolean applied;
+        public final long sincePreviousMs;
+        public final long sinceQuestionStartMs;
+        public final String status;
+        public final int questionIndex;
+        public final Map<String, Integer> scores;
+
+        Frame(MatchEvent event, boolean applied, long sincePreviousMs, long sinceQuestionStartMs, QuizMatch state) {
+            this.event = event;
+            this.applied = applied;
+            this.sincePreviousMs = sincePreviousMs;
+            this.sinceQuestionStartMs = sinceQuestionStartMs;
+            this.status = state.getStatus();
+            this.questionIndex = state.getCurrentQuestionIndex();
+            this.scores = new HashMap<>(state.getPlayerScores());
+        }
+    }
+
+    private final QuizMatch finalState;
+    private final List<Frame> frames;
+
+    private MatchReplay(QuizMatch finalState, List<Frame> frames) {
+        this.finalState = finalState;
+        this.frames = frames;
+    }
+
+    public static MatchReplay run(QuizMatch base, List<MatchEvent> events) {
+        QuizMatch state = MatchEventReducer.initialState(base);
+        List<Frame> frames = new ArrayList<>();
+        long previousAt = -1;
+        long questionStartAt = -1;
+
+        for (MatchEvent event : events) {
+            int indexBefore = state.getCurrentQuestionIndex();
+            String statusBefore = state.getStatus();
+            boolean applied = MatchEventReducer.apply(state, event);
+
+            long sincePrevious = previousAt < 0 ? 0 : event.getAt() - previousAt;
+            long sinceQuestionStart = questionStartAt < 0 ? 0 : event.getAt() - questionStartAt;
+            frames.add(new Frame(event, applied, sincePrevious, sinceQuestionStart, state));
+
+            boolean questionWentLive = "active".equals(state.getStatus())
+                    && ("waiting".equals(statusBefore) || state.getCurrentQuestionIndex() != indexBefore);
+            if (questionWentLive) {
+                questionStartAt = event.getAt();
+            }
+            previousAt = event.getAt();
+        }
+        return new MatchReplay(state, frames);
+    }
+
+    public QuizMatch getFinalState() {
+        return finalState;
+    }
+
+    public List<Frame> getFrames() {
+        return frames;
+    }
+
+    public int getRejectedCount() {
+        int rejected = 0;
+        for (Frame frame : frames) {
+            if (!frame.applied) {
+                rejected++;
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Differences between the replayed result and a stored match (empty if consistent)
+     */
+    public List<String> diff(QuizMatch stored) {
+        List<String> differences = new ArrayList<>();
+        if (!equal(finalState.getStatus(), stored.getStatus())) {
+            differences.add("status: replay=" + finalState.getStatus() + " stored=" + stored.getStatus());
+        }
+        if (finalState.getCurrentQuestionIndex() != stored.getCurrentQuestionIndex()) {
+            differences.add("questionIndex: replay=" + finalState.getCurrentQuestionIndex()
+                    + " stored=" + stored.getCurrentQuestionIndex());
+        }
+        for (String playerId : finalState.getPlayerIds()) {
+            int replayed = finalState.getPlayerScores().getOrDefault(playerId, 0);
+            int actual = stored.getPlayerScores() != null ? stored.getPlayerScores().getOrDefault(playerId, 0) : 0;
+            if (replayed != actual) {
+                differences.add("score[" + playerId + "]: replay=" + replayed + " stored=" + actual);
+            }
+        }
+        if ("completed".equals(stored.getStatus()) && !equal(finalState.getWinnerId(), stored.getWinnerId())) {
+            differences.add("winner: replay=" + finalState.getWinnerId() + " stored=" + stored.getWinnerId());
+        }
+        return differences;
+    }
+
+    /**
+     * Human-readable timeline, one line per event
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "Match %s: %d events, %d rejected, final status %s, scores %s%n",
+                finalState.getMatchId(), frames.size(), getRejectedCount(),
+                finalState.getStatus(), finalState.getPlayerScores()));
+        for (Frame frame : frames) {
+            report.append(String.format(Locale.US, "%s %-10s q%-2d +%6dms  (t=%6dms in question)  %s%s%n",
+                    frame.applied ? " " : "x",
+                    describe(frame.event),
+                    frame.event.getQuestionIndex() + 1,
+                    frame.sincePreviousMs,
+                    frame.sinceQuestionStartMs,
+                    frame.event.getPlayerId(),
+                    frame.event.getType() == MatchEvent.ANSWER
+                            ? (frame.event.getFlag() ? " correct" : " wrong") + " option " + frame.event.getValue()
+                            : ""));
+        }
+        return report.toString();
+    }
+
+    private static String describe(MatchEvent event) {
+        switch (event.getType()) {
+            case MatchEvent.JOIN: return "join";
+            case MatchEvent.READY: return event.getFlag() ? "ready" : "unready";
+            case MatchEvent.START: return "start";
+            case MatchEvent.ANSWER: return "answer";
+            case MatchEvent.COMPLETE: return "complete";
+            case MatchEvent.NEXT: return "next";
+            case MatchEvent.ADVANCE: return "advance";
+            case MatchEvent.END: return "end";
+            default: return String.valueOf(event.getType());
+        }
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.nurse_connect.services.matchmaking;
+
+import android.util.Log;
+
+import com.example.nurse_connect.models.MatchmakingQueue;
+import com.example.nurse_connect.models.QuizMatch;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Firestore-backed matchmaking storage.
+ * matchmaking_buckets/{bucketKey} holds the waiting tickets of a bucket and
+ * matchmaking_queue/{playerId} holds each player's current ticket.
+ */
+public class FirestoreMatchmakingStore implements MatchmakingStore {
+
+    private static final String TAG = "FirestoreMatchmaking";
+    private static final String BUCKETS = "matchmaking_buckets";
+    private static final String TICKETS = "matchmaking_queue";
+    private static final String MATCHES = "quiz_matches";
+
+    private final FirebaseFirestore db;
+
+    public FirestoreMatchmakingStore() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    @Override
+    public <T> void runTransaction(TransactionBody<T> body, Callback<T> callback) {
+        db.runTransaction(transaction -> {
+            Transaction tx = new Transaction() {
+                @Override
+                public List<MatchmakingQueue> readBucket(String bucketKey) throws Exception {
+                    DocumentSnapshot doc = transaction.get(db.collection(BUCKETS).document(bucketKey));
+                    MatchmakingBucket bucket = doc.exists() ? doc.toObject(MatchmakingBucket.class) : null;
+                    return bucket != null && bucket.getWaiting() != null ? bucket.getWaiting() : new ArrayList<>();
+                }
+
+                @Override
+                public MatchmakingQueue readTicket(String playerId) throws Exception {
+                    DocumentSnapshot doc = transaction.get(db.collection(TICKETS).document(playerId));
+                    return doc.exists() ? doc.toObject(MatchmakingQueue.class) : null;
+                }
+
+                @Override
+                public void writeBucket(String bucketKey, List<MatchmakingQueue> waiting) {
+                    transaction.set(db.collection(BUCKETS).document(bucketKey), new MatchmakingBucket(waiting));
+                }
+
+                @Override
+                public void writeTicket(MatchmakingQueue ticket) {
+                    transaction.set(db.collection(TICKETS).document(ticket.getPlayerId()), ticket);
+                }
+
+                @Override
+                public void createMatch(MatchPairing pairing) {
+                    DocumentReference matchRef = db.collection(MATCHES).document(pairing.getMatchId());
+                    transaction.set(matchRef, buildMatch(pairing));
+                }
+            };
+            return body.apply(tx);
+        })
+        .addOnSuccessListener(callback::onSuccess)
+        .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public Registration listenToTicket(String playerId, TicketListener listener) {
+        ListenerRegistration registration = db.collection(TICKETS)
+                .document(playerId)
+                .addSnapshotListener((snapshot, e) -> {
+                    if (e != null) {
+                        Log.e(TAG, "Error listening to matchmaking ticket", e);
+                        return;
+                    }
+                    if (snapshot != null && snapshot.exists()) {
+                        listener.onTicketChanged(snapshot.toObject(MatchmakingQueue.class));
+                    }
+                });
+        return registration::remove;
+    }
+
+    private static QuizMatch buildMatch(MatchPairing pairing) {
+        MatchmakingQueue host = pairing.getHost();
+        MatchmakingQueue opponent = pairing.getOpponent();
+
+        QuizMatch match = new QuizMatch(pairing.getMatchId(), host.getCourse(), host.getUnit(), host.getCareer());
+        match.setTargetPlayerCount(2);
+        match.addPlayer(host.getPlayerId(), host.getPlayerName());
+        match.addPlayer(opponent.getPlayerId(), opponent.getPlayerName());
+        match.setPlayerReady(host.getPlayerId(), true);
+        match.setPlayerReady(opponent.getPlayerId(), true);
+
+        List<String> questionIds = pairing.getQuestionIds() != null ? pairing.getQuestionIds() : new ArrayList<>();
+        match.setQuestionIds(new ArrayList<>(questionIds));
+        if (!questionIds.isEmpty()) {
+            match.setCurrentQuestionId(questionIds.get(0));
+        }
+        return match;
+    }
+}
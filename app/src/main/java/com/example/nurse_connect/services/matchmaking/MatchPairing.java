@@ -0,0 +1,28 @@
+package com.example.nurse_connect.services.matchmaking;
+
+import com.example.nurse_connect.models.MatchmakingQueue;
+
+import java.util.List;
+
+/**
+ * Result of pairing two tickets: the match to create and who is in it.
+ */
+public class MatchPairing {
+    private final String matchId;
+    private final MatchmakingQueue host;
+    private final MatchmakingQueue opponent;
+    private final List<String> questionIds;
+
+    public MatchPairing(String matchId, MatchmakingQueue host, MatchmakingQueue opponent,
+                        List<String> questionIds) {
+        this.matchId = matchId;
+        this.host = host;
+        this.opponent = opponent;
+        this.questionIds = questionIds;
+    }
+
+    public String getMatchId() { return matchId; }
+    public MatchmakingQueue getHost() { return host; }
+    public MatchmakingQueue getOpponent() { return opponent; }
+    public List<String> getQuestionIds() { return questionIds; }
+}
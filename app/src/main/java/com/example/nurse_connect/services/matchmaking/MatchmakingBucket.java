@@ -0,0 +1,25 @@
+package com.example.nurse_connect.services.matchmaking;
+
+import com.example.nurse_connect.models.MatchmakingQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Waiting tickets for one (course, unit, career, rank band) bucket.
+ * Stored as a single document so pairing can read and update it in one transaction.
+ */
+public class MatchmakingBucket {
+    private List<MatchmakingQueue> waiting;
+
+    public MatchmakingBucket() {
+        this.waiting = new ArrayList<>();
+    }
+
+    public MatchmakingBucket(List<MatchmakingQueue> waiting) {
+        this.waiting = waiting;
+    }
+
+    public List<MatchmakingQueue> getWaiting() { return waiting; }
+    public void setWaiting(List<MatchmakingQueue> waiting) { this.waiting = waiting; }
+}
@@ -0,0 +1,356 @@
+package com.example.nurse_connect.services.matchmaking;
+
+import android.util.Log;
+
+import com.example.nurse_connect.models.MatchmakingQueue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bucketed matchmaking for 1v1 quiz battles.
+ * Players are enqueued into (course, unit, career, rank band) buckets. Each attempt
+ * either pairs the player with the oldest compatible waiting ticket or enqueues it,
+ * inside a single store transaction, so a ticket can never be paired twice. The
+ * accepted rank distance widens over time and both players learn about the match
+ * through the listener on their own ticket.
+ */
+public class MatchmakingEngine {
+
+    private static final String TAG = "MatchmakingEngine";
+
+    public static final long[] DEFAULT_WIDEN_AFTER_MS = {5000, 15000, 30000};
+    public static final long DEFAULT_MAX_WAIT_MS = 60000; // 1 minute max wait
+
+    public interface Listener {
+        void onMatched(String matchId);
+        void onTimeout();
+        void onError(Exception e);
+    }
+
+    private enum Outcome { PAIRED, WAITING, ALREADY_MATCHED, EXPIRED, CANCELLED }
+
+    private static class AttemptResult {
+        final Outcome outcome;
+        final String matchId;
+
+        AttemptResult(Outcome outcome, String matchId) {
+            this.outcome = outcome;
+            this.matchId = matchId;
+        }
+    }
+
+    /**
+     * An in-progress search for one player
+     */
+    public class Search {
+        private final MatchmakingQueue ticket;
+        private final List<String> questionIds;
+        private final Listener listener;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private final List<ScheduledFuture<?>> scheduled = new ArrayList<>();
+        private MatchmakingStore.Registration registration;
+        private volatile boolean enqueued;
+
+        Search(MatchmakingQueue ticket, List<String> questionIds, Listener listener) {
+            this.ticket = ticket;
+            this.questionIds = questionIds;
+            this.listener = listener;
+        }
+
+        public MatchmakingQueue getTicket() {
+            return ticket;
+        }
+
+        public boolean isFinished() {
+            return finished.get();
+        }
+
+        /**
+         * Leave the queue; no callback is delivered afterwards
+         */
+        public void cancel() {
+            if (!finish()) {
+                return;
+            }
+            removeFromQueue(this, "cancelled");
+        }
+
+        private boolean finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            synchronized (scheduled) {
+                for (ScheduledFuture<?> future : scheduled) {
+                    future.cancel(false);
+                }
+                scheduled.clear();
+            }
+            if (registration != null) {
+                registration.remove();
+            }
+            return true;
+        }
+
+        void onMatched(String matchId) {
+            if (finish()) {
+                Log.d(TAG, "Player " + ticket.getPlayerId() + " matched into " + matchId);
+                listener.onMatched(matchId);
+            }
+        }
+    }
+
+    private final MatchmakingStore store;
+    private final ScheduledExecutorService scheduler;
+    private final long[] widenAfterMs;
+    private final long maxWaitMs;
+
+    public MatchmakingEngine(MatchmakingStore store, ScheduledExecutorService scheduler) {
+        this(store, scheduler, DEFAULT_WIDEN_AFTER_MS, DEFAULT_MAX_WAIT_MS);
+    }
+
+    public MatchmakingEngine(MatchmakingStore store, ScheduledExecutorService scheduler,
+                             long[] widenAfterMs, long maxWaitMs) {
+        this.store = store;
+        this.scheduler = scheduler;
+        this.widenAfterMs = widenAfterMs;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * Start searching for an opponent. questionIds are used for the match if this
+     * player's attempt is the one that creates it.
+     */
+    public Search join(MatchmakingQueue ticket, List<String> questionIds, Listener listener) {
+        ticket.setRankBand(RankBands.bandForRank(ticket.getPlayerRank()));
+        ticket.setStatus("waiting");
+        Search search = new Search(ticket, questionIds, listener);
+
+        search.registration = store.listenToTicket(ticket.getPlayerId(), updated -> {
+            if (updated != null && ticket.getQueueId().equals(updated.getQueueId())
+                    && "matched".equals(updated.getStatus()) && updated.getMatchId() != null) {
+                search.onMatched(updated.getMatchId());
+            }
+        });
+
+        attempt(search, 0);
+        synchronized (search.scheduled) {
+            for (int i = 0; i < widenAfterMs.length; i++) {
+                int tolerance = RankBands.toleranceForWait(widenAfterMs[i], widenAfterMs);
+                search.scheduled.add(scheduler.schedule(() -> attempt(search, tolerance),
+                        widenAfterMs[i], TimeUnit.MILLISECONDS));
+            }
+            search.scheduled.add(scheduler.schedule(() -> expire(search),
+                    maxWaitMs, TimeUnit.MILLISECONDS));
+        }
+        return search;
+    }
+
+    private void attempt(Search search, int tolerance) {
+        if (search.isFinished()) {
+            return;
+        }
+
+        store.runTransaction(tx -> pairOrEnqueue(search, tolerance, tx), new MatchmakingStore.Callback<AttemptResult>() {
+            @Override
+            public void onSuccess(AttemptResult result) {
+                switch (result.outcome) {
+                    case PAIRED:
+                        search.onMatched(result.matchId);
+                        break;
+                    case WAITING:
+                        search.enqueued = true;
+                        Log.d(TAG, "Player " + search.ticket.getPlayerId() + " waiting (tolerance " + tolerance + ")");
+                        break;
+                    case ALREADY_MATCHED:
+                        // Delivered through the ticket listener, but don't rely on its timing
+                        search.onMatched(result.matchId);
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Matchmaking attempt failed for " + search.ticket.getPlayerId(), e);
+                if (!search.enqueued && search.finish()) {
+                    search.listener.onError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Transaction body: all reads happen before any write so it can be re-run on conflict.
+     */
+    private AttemptResult pairOrEnqueue(Search search, int tolerance, MatchmakingStore.Transaction tx) throws Exception {
+        MatchmakingQueue ticket = search.ticket;
+        int ownBand = ticket.getRankBand();
+        long now = System.currentTimeMillis();
+
+        MatchmakingQueue stored = tx.readTicket(ticket.getPlayerId());
+        Map<String, List<MatchmakingQueue>> buckets = new HashMap<>();
+        Map<String, Integer> bandDistance = new HashMap<>();
+        for (int band = Math.max(0, ownBand - tolerance); band <= Math.min(RankBands.MAX_BAND, ownBand + tolerance); band++) {
+            String key = bucketKey(ticket, band);
+            buckets.put(key, new ArrayList<>(tx.readBucket(key)));
+            bandDistance.put(key, Math.abs(band - ownBand));
+        }
+
+        if (stored != null && ticket.getQueueId().equals(stored.getQueueId())
+                && "matched".equals(stored.getStatus())) {
+            return new AttemptResult(Outcome.ALREADY_MATCHED, stored.getMatchId());
+        }
+
+        String ownKey = bucketKey(ticket, ownBand);
+        List<MatchmakingQueue> ownBucket = buckets.get(ownKey);
+        boolean selfQueued = removeTicket(ownBucket, ticket.getPlayerId());
+        if (search.enqueued && !selfQueued) {
+            // Paired by someone else, or expired; the ticket listener reports the outcome
+            return new AttemptResult(Outcome.CANCELLED, null);
+        }
+
+        MatchmakingQueue opponent = null;
+        String opponentKey = null;
+        List<String> dirtyKeys = new ArrayList<>();
+        for (Map.Entry<String, List<MatchmakingQueue>> entry : buckets.entrySet()) {
+            List<MatchmakingQueue> waiting = entry.getValue();
+            // Drop abandoned tickets so nobody is paired with a player who already left
+            if (waiting.removeIf(t -> now - t.getJoinTime() > maxWaitMs)) {
+                dirtyKeys.add(entry.getKey());
+            }
+            for (MatchmakingQueue candidate : waiting) {
+                if (candidate.getPlayerId().equals(ticket.getPlayerId())) {
+                    continue;
+                }
+                if (opponent == null || candidate.getJoinTime() < opponent.getJoinTime()
+                        || (candidate.getJoinTime() == opponent.getJoinTime()
+                            && bandDistance.get(entry.getKey()) < bandDistance.get(opponentKey))) {
+                    opponent = candidate;
+                    opponentKey = entry.getKey();
+                }
+            }
+        }
+
+        if (opponent != null) {
+            buckets.get(opponentKey).remove(opponent);
+            if (!dirtyKeys.contains(opponentKey)) {
+                dirtyKeys.add(opponentKey);
+            }
+            if (selfQueued && !dirtyKeys.contains(ownKey)) {
+                dirtyKeys.add(ownKey);
+            }
+            for (String key : dirtyKeys) {
+                tx.writeBucket(key, buckets.get(key));
+            }
+
+            String matchId = UUID.randomUUID().toString();
+            MatchmakingQueue hostTicket = copyWithStatus(ticket, "matched", matchId);
+            MatchmakingQueue opponentTicket = copyWithStatus(opponent, "matched", matchId);
+            tx.writeTicket(hostTicket);
+            tx.writeTicket(opponentTicket);
+            tx.createMatch(new MatchPairing(matchId, hostTicket, opponentTicket, search.questionIds));
+            return new AttemptResult(Outcome.PAIRED, matchId);
+        }
+
+        ownBucket.add(copyWithStatus(ticket, "waiting", null));
+        if (!dirtyKeys.contains(ownKey)) {
+            dirtyKeys.add(ownKey);
+        }
+        for (String key : dirtyKeys) {
+            tx.writeBucket(key, buckets.get(key));
+        }
+        if (!selfQueued) {
+            tx.writeTicket(copyWithStatus(ticket, "waiting", null));
+        }
+        return new AttemptResult(Outcome.WAITING, null);
+    }
+
+    private void expire(Search search) {
+        if (search.isFinished()) {
+            return;
+        }
+        store.runTransaction(tx -> leaveQueue(search, "expired", tx), new MatchmakingStore.Callback<AttemptResult>() {
+            @Override
+            public void onSuccess(AttemptResult result) {
+                if (result.outcome == Outcome.ALREADY_MATCHED) {
+                    search.onMatched(result.matchId);
+                } else if (search.finish()) {
+                    Log.d(TAG, "Matchmaking timed out for " + search.ticket.getPlayerId());
+                    search.listener.onTimeout();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                if (search.finish()) {
+                    search.listener.onError(e);
+                }
+            }
+        });
+    }
+
+    private void removeFromQueue(Search search, String status) {
+        store.runTransaction(tx -> leaveQueue(search, status, tx), new MatchmakingStore.Callback<AttemptResult>() {
+            @Override
+            public void onSuccess(AttemptResult result) {
+                Log.d(TAG, "Player " + search.ticket.getPlayerId() + " left the queue: " + result.outcome);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.w(TAG, "Failed to leave matchmaking queue", e);
+            }
+        });
+    }
+
+    private AttemptResult leaveQueue(Search search, String status, MatchmakingStore.Transaction tx) throws Exception {
+        MatchmakingQueue ticket = search.ticket;
+        String ownKey = bucketKey(ticket, ticket.getRankBand());
+        MatchmakingQueue stored = tx.readTicket(ticket.getPlayerId());
+        List<MatchmakingQueue> ownBucket = new ArrayList<>(tx.readBucket(ownKey));
+
+        if (stored != null && ticket.getQueueId().equals(stored.getQueueId())
+                && "matched".equals(stored.getStatus())) {
+            return new AttemptResult(Outcome.ALREADY_MATCHED, stored.getMatchId());
+        }
+        if (removeTicket(ownBucket, ticket.getPlayerId())) {
+            tx.writeBucket(ownKey, ownBucket);
+        }
+        tx.writeTicket(copyWithStatus(ticket, status, null));
+        return new AttemptResult("expired".equals(status) ? Outcome.EXPIRED : Outcome.CANCELLED, null);
+    }
+
+    private static boolean removeTicket(List<MatchmakingQueue> waiting, String playerId) {
+        return waiting.removeIf(t -> playerId.equals(t.getPlayerId()));
+    }
+
+    private static String bucketKey(MatchmakingQueue ticket, int band) {
+        return RankBands.bucketKey(ticket.getCourse(), ticket.getUnit(), ticket.getCareer(), band);
+    }
+
+    private static MatchmakingQueue copyWithStatus(MatchmakingQueue source, String status, String matchId) {
+        MatchmakingQueue copy = new MatchmakingQueue();
+        copy.setQueueId(source.getQueueId());
+        copy.setPlayerId(source.getPlayerId());
+        copy.setPlayerName(source.getPlayerName());
+        copy.setCourse(source.getCourse());
+        copy.setUnit(source.getUnit());
+        copy.setCareer(source.getCareer());
+        copy.setJoinTime(source.getJoinTime());
+        copy.setPreferredDifficulty(source.getPreferredDifficulty());
+        copy.setPlayerRank(source.getPlayerRank());
+        copy.setRankBand(source.getRankBand());
+        copy.setStatus(status);
+        copy.setMatchId(matchId);
+        return copy;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.nurse_connect.services.matchmaking;
+
+import com.example.nurse_connect.models.MatchmakingQueue;
+
+import java.util.List;
+
+/**
+ * Storage used by {@link MatchmakingEngine}. Implementations must run transaction
+ * bodies atomically (retrying on conflict), so a ticket can only ever be paired once.
+ * Bodies may be re-run and must perform all reads before any writes.
+ */
+public interface MatchmakingStore {
+
+    interface Transaction {
+        List<MatchmakingQueue> readBucket(String bucketKey) throws Exception;
+        MatchmakingQueue readTicket(String playerId) throws Exception;
+        void writeBucket(String bucketKey, List<MatchmakingQueue> waiting);
+        void writeTicket(MatchmakingQueue ticket);
+        void createMatch(MatchPairing pairing);
+    }
+
+    interface TransactionBody<T> {
+        T apply(Transaction transaction) throws Exception;
+    }
+
+    interface Callback<T> {
+        void onSuccess(T result);
+        void onFailure(Exception e);
+    }
+
+    interface TicketListener {
+        void onTicketChanged(MatchmakingQueue ticket);
+    }
+
+    interface Registration {
+        void remove();
+    }
+
+    <T> void runTransaction(TransactionBody<T> body, Callback<T> callback);
+
+    /**
+     * Listen to the ticket of a player; fires when the ticket is written by anyone
+     */
+    Registration listenToTicket(String playerId, TicketListener listener);
+}
@@ -0,0 +1,56 @@
+package com.example.nurse_connect.services.matchmaking;
+
+/**
+ * Maps player ranks to matchmaking bands and defines how far the acceptable
+ * band distance widens the longer a player waits.
+ */
+public final class RankBands {
+
+    public static final String[] RANKS = {"Bronze", "Silver", "Gold", "Platinum", "Diamond"};
+    public static final int MAX_BAND = RANKS.length - 1;
+
+    private RankBands() {}
+
+    /**
+     * Get the band index for a rank name (unknown ranks fall into the lowest band)
+     */
+    public static int bandForRank(String rank) {
+        if (rank != null) {
+            for (int i = 0; i < RANKS.length; i++) {
+                if (RANKS[i].equalsIgnoreCase(rank)) {
+                    return i;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the allowed band distance after waiting for the given time.
+     * widenAfterMs[i] is the wait after which the tolerance grows to i + 1.
+     */
+    public static int toleranceForWait(long waitedMs, long[] widenAfterMs) {
+        int tolerance = 0;
+        for (long threshold : widenAfterMs) {
+            if (waitedMs >= threshold) {
+                tolerance++;
+            }
+        }
+        return Math.min(tolerance, MAX_BAND);
+    }
+
+    /**
+     * Build the bucket key for a (course, unit, career, band) combination
+     */
+    public static String bucketKey(String course, String unit, String career, int band) {
+        return sanitize(course) + "__" + sanitize(unit) + "__" + sanitize(career) + "__" + band;
+    }
+
+    private static String sanitize(String value) {
+        if (value == null) {
+            return "none";
+        }
+        // Firestore document ids cannot contain '/'
+        return value.trim().toLowerCase().replaceAll("[^a-z0-9]+", "_");
+    }
+}
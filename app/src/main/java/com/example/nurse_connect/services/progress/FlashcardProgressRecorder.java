@@ -0,0 +1,296 @@
+package com.example.nurse_connect.services.progress;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.nurse_connect.models.Flashcard;
+import com.example.nurse_connect.services.srs.CardSchedule;
+import com.example.nurse_connect.services.srs.DueQueueIndex;
+import com.example.nurse_connect.services.srs.ReviewScheduler;
+import com.example.nurse_connect.utils.ChunkedMultiGet;
+import com.example.nurse_connect.utils.FirestoreMultiGet;
+import com.google.firebase.Timestamp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Write-behind recording of flashcard answers. An answer updates the card in memory
+ * and a persisted per-card delta buffer right away; deltas are written in one batch
+ * (counts as FieldValue.increment) every FLUSH_INTERVAL, once MAX_PENDING_CARDS
+ * cards are waiting, or when a session ends. Each batch also overwrites this
+ * device's marker document with its flush ID, so a flush interrupted by a crash is
+ * resent only if it never landed.
+ *
+ * Only existing flashcard documents are updated. Cards converted from quiz_questions
+ * have no flashcard document: a batch rejected for a missing document is sent again
+ * without the cards that are missing, and those are not recorded any more.
+ */
+public class FlashcardProgressRecorder {
+
+    private static final String TAG = "FlashcardProgress";
+    private static final String PREFS_NAME = "flashcard_progress";
+    private static final String KEY_BUFFER = "buffer";
+    private static final String KEY_DEVICE_ID = "device_id";
+    private static final String FLASHCARDS = "flashcards";
+    private static final String FLUSH_MARKERS = "flashcard_progress_flushes";
+
+    private static final long FLUSH_INTERVAL = 30 * 1000; // 30 seconds
+    private static final long RETRY_INTERVAL = 2 * 60 * 1000; // 2 minutes
+    private static final int MAX_PENDING_CARDS = 25;
+    private static final int MAX_CARDS_PER_FLUSH = 400; // batches hold 500 writes
+
+    private static FlashcardProgressRecorder instance;
+
+    private final FirebaseFirestore db;
+    private final SharedPreferences prefs;
+    private final Gson gson;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    private final ProgressDeltaBuffer buffer;
+    private final String deviceId;
+    private boolean flushScheduled;
+
+    private FlashcardProgressRecorder(Context context) {
+        db = FirebaseFirestore.getInstance();
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        gson = new Gson();
+        buffer = restoreBuffer();
+        deviceId = loadDeviceId();
+        recoverInterruptedFlush();
+    }
+
+    public static synchronized FlashcardProgressRecorder getInstance(Context context) {
+        if (instance == null) {
+            instance = new FlashcardProgressRecorder(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Apply a review to the card and queue it for writing; no network round trip
+     */
+    public synchronized void record(Flashcard flashcard, int grade) {
+        flashcard.recordReview(grade);
+        CardSchedule schedule = flashcard.getSchedule();
+        buffer.record(flashcard.getFlashcardId(), grade != ReviewScheduler.AGAIN,
+                flashcard.getConfidenceScore(), schedule, System.currentTimeMillis());
+        persist();
+        FirestoreMultiGet.invalidate(FLASHCARDS, flashcard.getFlashcardId());
+        DueQueueIndex.getInstance().reschedule(flashcard.getFlashcardId(), schedule.getDueMillis());
+
+        if (buffer.pendingCount() >= MAX_PENDING_CARDS) {
+            flush();
+        } else {
+            scheduleFlush(FLUSH_INTERVAL);
+        }
+    }
+
+    /**
+     * Write pending progress now (e.g. at the end of a session)
+     */
+    public synchronized void flush() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+
+        String flushId = UUID.randomUUID().toString();
+        Map<String, PendingProgress> entries = buffer.beginFlush(flushId, MAX_CARDS_PER_FLUSH);
+        if (entries == null) {
+            return;
+        }
+        persist();
+
+        WriteBatch batch = db.batch();
+        for (Map.Entry<String, PendingProgress> entry : entries.entrySet()) {
+            batch.update(db.collection(FLASHCARDS).document(entry.getKey()), toUpdates(entry.getValue()));
+        }
+        Map<String, Object> marker = new HashMap<>();
+        marker.put("userId", FirebaseAuth.getInstance().getUid());
+        marker.put("lastFlushId", flushId);
+        marker.put("cards", entries.size());
+        marker.put("flushedAt", FieldValue.serverTimestamp());
+        batch.set(db.collection(FLUSH_MARKERS).document(deviceId), marker);
+
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Flushed progress for " + entries.size() + " flashcards");
+                    synchronized (this) {
+                        buffer.flushSucceeded(flushId);
+                        // A load during the flush may have cached the old server copy
+                        for (String flashcardId : entries.keySet()) {
+                            FirestoreMultiGet.invalidate(FLASHCARDS, flashcardId);
+                        }
+                        persist();
+                        if (buffer.pendingCount() > 0) {
+                            scheduleFlush(FLUSH_INTERVAL);
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    if (e instanceof FirebaseFirestoreException
+                            && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.NOT_FOUND) {
+                        dropMissingCards(flushId, new ArrayList<>(entries.keySet()));
+                        return;
+                    }
+                    Log.e(TAG, "Failed to flush flashcard progress, will retry", e);
+                    synchronized (this) {
+                        buffer.flushFailed(flushId);
+                        persist();
+                        scheduleFlush(RETRY_INTERVAL);
+                    }
+                });
+    }
+
+    /**
+     * A batch update hit a card without a flashcard document; find which and send the rest again
+     */
+    private void dropMissingCards(String flushId, List<String> flashcardIds) {
+        FirestoreMultiGet.get(FLASHCARDS, flashcardIds, new ChunkedMultiGet.Callback<DocumentSnapshot>() {
+            @Override
+            public void onLoaded(List<DocumentSnapshot> results, List<String> missingIds) {
+                Log.d(TAG, "Dropping progress for " + missingIds.size() + " cards without a flashcard document");
+                synchronized (FlashcardProgressRecorder.this) {
+                    buffer.flushRejected(flushId, missingIds);
+                    persist();
+                    if (buffer.pendingCount() > 0) {
+                        scheduleFlush(0);
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Failed to check flashcards of a rejected flush, will retry", e);
+                synchronized (FlashcardProgressRecorder.this) {
+                    buffer.flushFailed(flushId);
+                    persist();
+                    scheduleFlush(RETRY_INTERVAL);
+                }
+            }
+        });
+    }
+
+    /**
+     * Overlay answers not written yet on a card just loaded, so a server copy older
+     * than the last flush does not bring back an earlier due time
+     */
+    public synchronized void applyPending(Flashcard flashcard) {
+        CardSchedule schedule = buffer.latestSchedule(flashcard.getFlashcardId());
+        if (schedule != null) {
+            flashcard.applySchedule(schedule);
+        }
+    }
+
+    public synchronized boolean hasPendingProgress() {
+        return !buffer.isEmpty();
+    }
+
+    private Map<String, Object> toUpdates(PendingProgress progress) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("timesReviewed", FieldValue.increment(progress.getReviewed()));
+        updates.put("timesCorrect", FieldValue.increment(progress.getCorrect()));
+        updates.put("timesIncorrect", FieldValue.increment(progress.getIncorrect()));
+        updates.put("confidenceScore", progress.getConfidenceScore());
+
+        CardSchedule schedule = progress.getSchedule();
+        updates.put("easeFactor", schedule.getEase());
+        updates.put("stability", schedule.getStability());
+        updates.put("memoryDifficulty", schedule.getDifficulty());
+        updates.put("intervalDays", schedule.getIntervalDays());
+        updates.put("repetitions", schedule.getRepetitions());
+        updates.put("lapses", schedule.getLapses());
+        updates.put("lastReviewed", new Timestamp(new Date(schedule.getLastReviewMillis())));
+        updates.put("nextReview", new Timestamp(new Date(schedule.getDueMillis())));
+        updates.put("lastStudied", new Timestamp(new Date(progress.getLastAnsweredMillis())));
+        updates.put("updatedAt", FieldValue.serverTimestamp());
+        return updates;
+    }
+
+    private void scheduleFlush(long delay) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        handler.postDelayed(flushRunnable, delay);
+    }
+
+    /**
+     * A flush was in flight when the process died: its marker tells whether it landed
+     */
+    private synchronized void recoverInterruptedFlush() {
+        String flushId = buffer.getInFlightId();
+        if (flushId == null) {
+            if (!buffer.isEmpty()) {
+                scheduleFlush(0);
+            }
+            return;
+        }
+        // Ask the server: a cache miss while offline would look like a flush that never landed
+        db.collection(FLUSH_MARKERS).document(deviceId).get(Source.SERVER)
+                .addOnSuccessListener(marker -> {
+                    synchronized (this) {
+                        boolean landed = flushId.equals(marker.getString("lastFlushId"));
+                        if (landed) {
+                            buffer.flushSucceeded(flushId);
+                        } else {
+                            buffer.flushFailed(flushId);
+                        }
+                        persist();
+                        Log.d(TAG, "Recovered interrupted flush " + flushId + " (landed: " + landed + ")");
+                        scheduleFlush(0);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Could not check interrupted flush " + flushId + ", will retry", e);
+                    handler.postDelayed(this::recoverInterruptedFlush, RETRY_INTERVAL);
+                });
+    }
+
+    private String loadDeviceId() {
+        String id = prefs.getString(KEY_DEVICE_ID, null);
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+            prefs.edit().putString(KEY_DEVICE_ID, id).apply();
+        }
+        return id;
+    }
+
+    private ProgressDeltaBuffer restoreBuffer() {
+        String json = prefs.getString(KEY_BUFFER, null);
+        if (json != null) {
+            try {
+                ProgressDeltaBuffer restored = gson.fromJson(json, ProgressDeltaBuffer.class);
+                if (restored != null) {
+                    Log.d(TAG, "Restored " + restored.pendingCount() + " unflushed flashcards");
+                    return restored;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Discarding unreadable progress buffer", e);
+            }
+        }
+        return new ProgressDeltaBuffer();
+    }
+
+    private void persist() {
+        String json;
+        synchronized (buffer) {
+            json = gson.toJson(buffer);
+        }
+        prefs.edit().putString(KEY_BUFFER, json).apply();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.nurse_connect.services.progress;
+
+import com.example.nurse_connect.services.srs.CardSchedule;
+
+/**
+ * Unflushed progress of one flashcard: answer counts since the last flush (written
+ * as increments) and the latest absolute state (written as plain values).
+ */
+public class PendingProgress {
+
+    private int reviewed;
+    private int correct;
+    private int incorrect;
+    private double confidenceScore;
+    private CardSchedule schedule;
+    private long lastAnsweredMillis;
+
+    public PendingProgress() {}
+
+    void addAnswer(boolean isCorrect, double confidenceScore, CardSchedule schedule, long answeredMillis) {
+        reviewed++;
+        if (isCorrect) {
+            correct++;
+        } else {
+            incorrect++;
+        }
+        this.confidenceScore = confidenceScore;
+        this.schedule = schedule.copy();
+        this.lastAnsweredMillis = answeredMillis;
+    }
+
+    /**
+     * Fold in progress recorded after this one: counts add up, the later state wins
+     */
+    void mergeLater(PendingProgress later) {
+        reviewed += later.reviewed;
+        correct += later.correct;
+        incorrect += later.incorrect;
+        confidenceScore = later.confidenceScore;
+        schedule = later.schedule;
+        lastAnsweredMillis = later.lastAnsweredMillis;
+    }
+
+    public int getReviewed() { return reviewed; }
+    public int getCorrect() { return correct; }
+    public int getIncorrect() { return incorrect; }
+    public double getConfidenceScore() { return confidenceScore; }
+    public CardSchedule getSchedule() { return schedule; }
+    public long getLastAnsweredMillis() { return lastAnsweredMillis; }
+}
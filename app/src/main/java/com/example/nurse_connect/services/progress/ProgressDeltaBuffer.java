@@ -0,0 +1,124 @@
+package com.example.nurse_connect.services.progress;
+
+import com.example.nurse_connect.services.srs.CardSchedule;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-card progress waiting to be written. At most one flush is in flight; its
+ * entries are kept apart from answers recorded meanwhile so that a failed flush can
+ * be folded back in front of them. Cards found to have no flashcard document are
+ * remembered and not recorded again. The whole buffer is plain data so it can be
+ * persisted and restored after a crash.
+ */
+public class ProgressDeltaBuffer {
+
+    private final Map<String, PendingProgress> pending = new LinkedHashMap<>();
+    private final Set<String> missing = new HashSet<>();
+    private Map<String, PendingProgress> inFlight;
+    private String inFlightId;
+
+    public synchronized void record(String flashcardId, boolean isCorrect, double confidenceScore,
+                                    CardSchedule schedule, long answeredMillis) {
+        if (missing.contains(flashcardId)) {
+            return;
+        }
+        PendingProgress progress = pending.get(flashcardId);
+        if (progress == null) {
+            progress = new PendingProgress();
+            pending.put(flashcardId, progress);
+        }
+        progress.addAnswer(isCorrect, confidenceScore, schedule, answeredMillis);
+    }
+
+    /**
+     * Move up to maxCards pending cards into a new flush. Returns null when there is
+     * nothing to flush or another flush is still in flight.
+     */
+    public synchronized Map<String, PendingProgress> beginFlush(String flushId, int maxCards) {
+        if (inFlightId != null || pending.isEmpty()) {
+            return null;
+        }
+        inFlight = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, PendingProgress>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext() && inFlight.size() < maxCards) {
+            Map.Entry<String, PendingProgress> entry = iterator.next();
+            inFlight.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+        }
+        inFlightId = flushId;
+        return new LinkedHashMap<>(inFlight);
+    }
+
+    public synchronized void flushSucceeded(String flushId) {
+        if (flushId.equals(inFlightId)) {
+            inFlight = null;
+            inFlightId = null;
+        }
+    }
+
+    /**
+     * Put a failed flush back; answers recorded since it started stay newer
+     */
+    public synchronized void flushFailed(String flushId) {
+        if (!flushId.equals(inFlightId)) {
+            return;
+        }
+        Map<String, PendingProgress> merged = new LinkedHashMap<>(inFlight);
+        for (Map.Entry<String, PendingProgress> entry : pending.entrySet()) {
+            PendingProgress earlier = merged.get(entry.getKey());
+            if (earlier != null) {
+                earlier.mergeLater(entry.getValue());
+            } else {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        pending.clear();
+        pending.putAll(merged);
+        inFlight = null;
+        inFlightId = null;
+    }
+
+    /**
+     * Put a flush back without the cards that turned out not to exist
+     */
+    public synchronized void flushRejected(String flushId, Collection<String> missingIds) {
+        if (!flushId.equals(inFlightId)) {
+            return;
+        }
+        missing.addAll(missingIds);
+        for (String id : missingIds) {
+            inFlight.remove(id);
+            pending.remove(id);
+        }
+        flushFailed(flushId);
+    }
+
+    /**
+     * Latest unwritten schedule of a card, or null if nothing is pending for it
+     */
+    public synchronized CardSchedule latestSchedule(String flashcardId) {
+        PendingProgress progress = pending.get(flashcardId);
+        if (progress == null && inFlight != null) {
+            progress = inFlight.get(flashcardId);
+        }
+        return progress != null ? progress.getSchedule().copy() : null;
+    }
+
+    public synchronized String getInFlightId() {
+        return inFlightId;
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return pending.isEmpty() && inFlightId == null;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.nurse_connect.services.progress;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Append-only log of study progress with its aggregates held in memory. Changes are
+ * applied to the in-memory StudyProgressState right away and staged as log lines;
+ * sync() writes everything staged in one append and one fsync, so a study session
+ * costs a single disk commit however many values it changes.
+ *
+ * Startup reads the latest snapshot and replays only the log records after it. Once
+ * the log holds COMPACT_AFTER_RECORDS records, the state is written as a new snapshot
+ * (through a temporary file) and the log is truncated. A line torn by a crash fails
+ * its checksum and ends the replay; the next snapshot drops it.
+ *
+ * The state is guarded by this log: read it inside synchronized (log) { ... }.
+ */
+public class StudyProgressLog {
+
+    static final String SNAPSHOT_NAME = "progress.snapshot";
+    static final String LOG_NAME = "progress.log";
+    static final int COMPACT_AFTER_RECORDS = 64;
+
+    private final File snapshotFile;
+    private final File logFile;
+    private final TimeZone zone;
+    private final Gson gson = new Gson();
+    private final Object ioLock = new Object();
+
+    private StudyProgressState state = new StudyProgressState();
+    private final List<String> pendingFlashcardIds = new ArrayList<>();
+    private final List<String> unwritten = new ArrayList<>();
+    private int recordsInLog;
+    private boolean isNew;
+
+    private StudyProgressLog(File dir, TimeZone zone) {
+        this.snapshotFile = new File(dir, SNAPSHOT_NAME);
+        this.logFile = new File(dir, LOG_NAME);
+        this.zone = zone;
+    }
+
+    /**
+     * Load the snapshot in dir and replay the log tail after it
+     */
+    public static StudyProgressLog open(File dir, TimeZone zone) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        StudyProgressLog log = new StudyProgressLog(dir, zone);
+        log.load();
+        return log;
+    }
+
+    private void load() throws IOException {
+        isNew = !snapshotFile.exists() && !logFile.exists();
+        if (snapshotFile.exists()) {
+            try {
+                StudyProgressState restored = gson.fromJson(
+                        new String(readFully(snapshotFile), StandardCharsets.UTF_8), StudyProgressState.class);
+                if (restored != null) {
+                    state = restored;
+                }
+            } catch (JsonParseException e) {
+                throw new IOException("Unreadable progress snapshot " + snapshotFile, e);
+            }
+        }
+        boolean torn = false;
+        if (logFile.exists()) {
+            String text = new String(readFully(logFile), StandardCharsets.UTF_8);
+            int start = 0;
+            while (start < text.length()) {
+                int end = text.indexOf('\n', start);
+                if (end < 0) {
+                    // Last line never got its newline: the append was cut short
+                    torn = true;
+                    break;
+                }
+                try {
+                    state.apply(StudyRecord.decode(text.substring(start, end)), zone);
+                    recordsInLog++;
+                } catch (IllegalArgumentException e) {
+                    torn = true;
+                    break;
+                }
+                start = end + 1;
+            }
+        }
+        if (torn) {
+            compact();
+        }
+    }
+
+    /**
+     * True when neither a snapshot nor a log existed when the log was opened
+     */
+    public synchronized boolean isNew() {
+        return isNew;
+    }
+
+    public StudyProgressState getState() {
+        return state;
+    }
+
+    /**
+     * Apply a new record to the state and stage it for the next sync(). A session
+     * record carries the flashcards completed since the previous one.
+     */
+    public synchronized StudyRecord append(char type, long at, int questions) {
+        List<String> flashcardIds = null;
+        if (type == StudyRecord.SESSION) {
+            flashcardIds = new ArrayList<>(pendingFlashcardIds);
+        }
+        if (type != StudyRecord.SESSION_START) {
+            pendingFlashcardIds.clear();
+        }
+        StudyRecord record = new StudyRecord(state.getLastSeq() + 1, type, at, questions, flashcardIds);
+        state.apply(record, zone);
+        unwritten.add(record.encode());
+        return record;
+    }
+
+    /**
+     * Mark a flashcard completed; it is written with the next session record.
+     * Returns false when it was already completed.
+     */
+    public synchronized boolean recordFlashcard(String flashcardId) {
+        if (!state.markCompleted(flashcardId)) {
+            return false;
+        }
+        pendingFlashcardIds.add(flashcardId);
+        return true;
+    }
+
+    /**
+     * Replace the state wholesale (migration from older storage) and snapshot it
+     */
+    public void importState(StudyProgressState imported) throws IOException {
+        synchronized (this) {
+            state = imported;
+            pendingFlashcardIds.clear();
+            unwritten.clear();
+            isNew = false;
+        }
+        synchronized (ioLock) {
+            compact();
+        }
+    }
+
+    /**
+     * Merge another device's synced aggregates into the state (see StudyProgressState.merge).
+     * Staged records stay staged; call snapshot() to persist the merged state.
+     */
+    public synchronized boolean mergeState(StudyProgressState remote) {
+        return state.merge(remote);
+    }
+
+    /**
+     * Write the state as a new snapshot and truncate the log
+     */
+    public void snapshot() throws IOException {
+        synchronized (ioLock) {
+            compact();
+        }
+    }
+
+    /**
+     * Write the staged records in one append and fsync; compacts the log when it has grown
+     */
+    public void sync() throws IOException {
+        synchronized (ioLock) {
+            StringBuilder lines = new StringBuilder();
+            int count;
+            synchronized (this) {
+                count = unwritten.size();
+                for (String line : unwritten) {
+                    lines.append(line).append('\n');
+                }
+                unwritten.clear();
+            }
+            if (count == 0) {
+                return;
+            }
+            try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+                out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+            recordsInLog += count;
+            if (recordsInLog >= COMPACT_AFTER_RECORDS) {
+                compact();
+            }
+        }
+    }
+
+    public int getRecordsInLog() {
+        synchronized (ioLock) {
+            return recordsInLog;
+        }
+    }
+
+    // Records staged after the snapshot is taken are also written to the truncated
+    // log; their sequence numbers make replay skip them over the snapshot
+    private void compact() throws IOException {
+        String json;
+        synchronized (this) {
+            json = gson.toJson(state);
+        }
+        File temp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(snapshotFile)) {
+            temp.delete();
+            throw new IOException("Cannot move progress snapshot into place: " + snapshotFile);
+        }
+        try (FileOutputStream out = new FileOutputStream(logFile, false)) {
+            out.getFD().sync();
+        }
+        recordsInLog = 0;
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.nurse_connect.services.progress;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Study-challenge aggregates derived from the progress log: streak, totals,
+ * questions per local day and the set of completed flashcard IDs. Plain data, so a
+ * snapshot is just this object as JSON plus the sequence number of the last record
+ * folded into it.
+ */
+public class StudyProgressState {
+
+    public static final int CHALLENGE_DAYS = 30;
+    public static final int TARGET_QUESTIONS = 400; // Total questions (40 sets * 10 questions)
+    public static final long HOURS_BETWEEN_STREAKS = 8; // Count next streak every 8 hours
+
+    static final long HOUR_MILLIS = 60 * 60 * 1000;
+    static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    private long lastSeq;
+    private long restartedAt;
+    private long firstStudyTime;
+    private long lastStudyTime;
+    private long streakStartTime;
+    private int currentStreak;
+    private int maxStreak;
+    private int completedQuestions;
+    private int totalSessions;
+    private int currentSessionQuestions;
+    private int totalQuestionsStudied;
+    private Set<String> completedFlashcardIds = new HashSet<>();
+    private Map<Long, Integer> questionsPerDay = new LinkedHashMap<>();
+
+    /**
+     * Fold a record into the aggregates; records at or before lastSeq were already applied
+     * and are ignored, so replaying a log over a newer snapshot is harmless.
+     */
+    public boolean apply(StudyRecord record, TimeZone zone) {
+        if (record.getSeq() <= lastSeq) {
+            return false;
+        }
+        lastSeq = record.getSeq();
+        long at = record.getAt();
+        switch (record.getType()) {
+            case StudyRecord.SESSION_START:
+                currentSessionQuestions = 0;
+                return true;
+
+            case StudyRecord.SESSION:
+                int questions = record.getQuestions();
+                updateStreak(at);
+                if (firstStudyTime == 0) {
+                    firstStudyTime = at;
+                }
+                lastStudyTime = at;
+                currentSessionQuestions = questions;
+                totalQuestionsStudied += questions;
+                completedQuestions = Math.min(TARGET_QUESTIONS, completedQuestions + questions);
+                totalSessions++;
+                questionsPerDay.merge(localDay(at, zone), questions, Integer::sum);
+                completedFlashcardIds.addAll(record.getFlashcardIds());
+                return true;
+
+            case StudyRecord.RESET:
+                restartedAt = at;
+                firstStudyTime = 0;
+                lastStudyTime = 0;
+                streakStartTime = 0;
+                currentStreak = 0;
+                maxStreak = 0;
+                completedQuestions = 0;
+                totalSessions = 0;
+                currentSessionQuestions = 0;
+                totalQuestionsStudied = 0;
+                completedFlashcardIds.clear();
+                questionsPerDay.clear();
+                return true;
+
+            case StudyRecord.RESTART:
+                restartedAt = at;
+                firstStudyTime = at;
+                lastStudyTime = at;
+                streakStartTime = at;
+                currentStreak = 1;
+                maxStreak = 1;
+                completedQuestions = 0;
+                totalSessions = 0;
+                completedFlashcardIds.clear();
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Counts every 8 hours since day 1, resets to 1 after day 30
+     */
+    private void updateStreak(long at) {
+        if (firstStudyTime == 0) {
+            streakStartTime = at;
+            currentStreak = 1;
+            maxStreak = Math.max(maxStreak, 1);
+            return;
+        }
+        if ((at - firstStudyTime) / DAY_MILLIS >= CHALLENGE_DAYS) {
+            streakStartTime = at;
+            currentStreak = 1;
+            return;
+        }
+        if (lastStudyTime == 0) {
+            streakStartTime = at;
+            currentStreak = 1;
+            return;
+        }
+        if ((at - lastStudyTime) / HOUR_MILLIS >= HOURS_BETWEEN_STREAKS) {
+            currentStreak++;
+            maxStreak = Math.max(maxStreak, currentStreak);
+        }
+    }
+
+    /**
+     * Record a completed flashcard ahead of its session record; returns false if it was already completed
+     */
+    boolean markCompleted(String flashcardId) {
+        return completedFlashcardIds.add(flashcardId);
+    }
+
+    /**
+     * Fold in the aggregates another device synced. Within one challenge every count takes
+     * the larger value and completed flashcards the union, so sessions recorded here while
+     * offline are kept and merging the same copy again changes nothing. A challenge
+     * restarted (or reset) later than this one replaces it. Returns true in that case.
+     */
+    boolean merge(StudyProgressState remote) {
+        if (remote.restartedAt < restartedAt) {
+            return false;
+        }
+        if (remote.restartedAt > restartedAt) {
+            restartedAt = remote.restartedAt;
+            firstStudyTime = remote.firstStudyTime;
+            lastStudyTime = remote.lastStudyTime;
+            streakStartTime = remote.streakStartTime;
+            currentStreak = remote.currentStreak;
+            maxStreak = remote.maxStreak;
+            completedQuestions = remote.completedQuestions;
+            totalSessions = remote.totalSessions;
+            totalQuestionsStudied = remote.totalQuestionsStudied;
+            completedFlashcardIds = new HashSet<>(remote.completedFlashcardIds);
+            return true;
+        }
+        if (remote.firstStudyTime > 0 && (firstStudyTime == 0 || remote.firstStudyTime < firstStudyTime)) {
+            firstStudyTime = remote.firstStudyTime;
+        }
+        if (remote.lastStudyTime > lastStudyTime) {
+            // The streak runs from whichever device studied last
+            lastStudyTime = remote.lastStudyTime;
+            streakStartTime = remote.streakStartTime;
+            currentStreak = remote.currentStreak;
+        }
+        maxStreak = Math.max(maxStreak, Math.max(remote.maxStreak, currentStreak));
+        completedQuestions = Math.max(completedQuestions, remote.completedQuestions);
+        totalSessions = Math.max(totalSessions, remote.totalSessions);
+        totalQuestionsStudied = Math.max(totalQuestionsStudied, remote.totalQuestionsStudied);
+        completedFlashcardIds.addAll(remote.completedFlashcardIds);
+        return false;
+    }
+
+    /**
+     * Independent copy, e.g. to merge a remote copy into without touching this state
+     */
+    StudyProgressState copy() {
+        StudyProgressState copy = fromRemote(restartedAt, firstStudyTime, lastStudyTime, streakStartTime,
+                currentStreak, maxStreak, completedQuestions, totalSessions, totalQuestionsStudied,
+                completedFlashcardIds);
+        copy.lastSeq = lastSeq;
+        copy.currentSessionQuestions = currentSessionQuestions;
+        copy.questionsPerDay = new LinkedHashMap<>(questionsPerDay);
+        return copy;
+    }
+
+    /**
+     * Seed the aggregates from the values kept before the log existed
+     */
+    public static StudyProgressState fromLegacy(long firstStudyTime, long lastStudyTime, long streakStartTime,
+                                                int currentStreak, int maxStreak, int completedQuestions,
+                                                int totalSessions, int currentSessionQuestions,
+                                                int totalQuestionsStudied, Set<String> completedFlashcardIds) {
+        StudyProgressState state = new StudyProgressState();
+        state.firstStudyTime = firstStudyTime;
+        state.lastStudyTime = lastStudyTime;
+        state.streakStartTime = streakStartTime;
+        state.currentStreak = currentStreak;
+        state.maxStreak = maxStreak;
+        state.completedQuestions = completedQuestions;
+        state.totalSessions = totalSessions;
+        state.currentSessionQuestions = currentSessionQuestions;
+        state.totalQuestionsStudied = totalQuestionsStudied;
+        if (completedFlashcardIds != null) {
+            state.completedFlashcardIds.addAll(completedFlashcardIds);
+        }
+        return state;
+    }
+
+    /**
+     * Aggregates as last synced by any device; restartedAt dates the challenge they belong to
+     */
+    public static StudyProgressState fromRemote(long restartedAt, long firstStudyTime, long lastStudyTime,
+                                                long streakStartTime, int currentStreak, int maxStreak,
+                                                int completedQuestions, int totalSessions, int totalQuestionsStudied,
+                                                Set<String> completedFlashcardIds) {
+        StudyProgressState state = fromLegacy(firstStudyTime, lastStudyTime, streakStartTime, currentStreak,
+                maxStreak, completedQuestions, totalSessions, 0, totalQuestionsStudied, completedFlashcardIds);
+        state.restartedAt = restartedAt;
+        return state;
+    }
+
+    public static long localDay(long millis, TimeZone zone) {
+        return Math.floorDiv(millis + zone.getOffset(millis), DAY_MILLIS);
+    }
+
+    public long getLastSeq() { return lastSeq; }
+    public long getRestartedAt() { return restartedAt; }
+    public long getFirstStudyTime() { return firstStudyTime; }
+    public long getLastStudyTime() { return lastStudyTime; }
+    public long getStreakStartTime() { return streakStartTime; }
+    public int getCurrentStreak() { return currentStreak; }
+    public int getMaxStreak() { return maxStreak; }
+    public int getCompletedQuestions() { return completedQuestions; }
+    public int getTotalSessions() { return totalSessions; }
+    public int getCurrentSessionQuestions() { return currentSessionQuestions; }
+    public int getTotalQuestionsStudied() { return totalQuestionsStudied; }
+    public int getUniqueFlashcardsCompleted() { return completedFlashcardIds.size(); }
+
+    public boolean isCompleted(String flashcardId) {
+        return completedFlashcardIds.contains(flashcardId);
+    }
+
+    public List<String> getCompletedFlashcardIds() {
+        return new ArrayList<>(completedFlashcardIds);
+    }
+
+    /**
+     * Questions completed on a local day (see localDay)
+     */
+    public int getQuestionsOnDay(long day) {
+        Integer questions = questionsPerDay.get(day);
+        return questions != null ? questions : 0;
+    }
+}
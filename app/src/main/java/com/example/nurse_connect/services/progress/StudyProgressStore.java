@@ -0,0 +1,166 @@
+package com.example.nurse_connect.services.progress;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The app's study-progress log (see StudyProgressLog), kept under files/study_progress
+ * and shared by every StudyProgressManager. Records take effect in memory at once and
+ * are written in order on a background thread, one append per record.
+ *
+ * On first use the values StudyProgressManager used to keep in SharedPreferences are
+ * imported into the first snapshot and removed from the preferences.
+ */
+public class StudyProgressStore {
+
+    private static final String TAG = "StudyProgressStore";
+    private static final String DIR_NAME = "study_progress";
+    private static final String LEGACY_PREFS_NAME = "StudyProgressPrefs";
+
+    private static final String KEY_FIRST_STUDY_DATE = "first_study_date";
+    private static final String KEY_CURRENT_STREAK = "current_streak";
+    private static final String KEY_MAX_STREAK = "max_streak";
+    private static final String KEY_STREAK_START_DATE = "streak_start_date";
+    private static final String KEY_LAST_STUDY_DATE = "last_study_date";
+    private static final String KEY_COMPLETED_SETS = "completed_sets";
+    private static final String KEY_TOTAL_STUDY_SESSIONS = "total_study_sessions";
+    private static final String KEY_CURRENT_SESSION_QUESTIONS = "current_session_questions";
+    private static final String KEY_TOTAL_QUESTIONS_STUDIED = "total_questions_studied";
+    private static final String KEY_COMPLETED_FLASHCARD_IDS = "completed_flashcard_ids";
+
+    private static StudyProgressStore instance;
+
+    private final StudyProgressLog log;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Runnable syncRunnable = this::sync;
+    private final Runnable snapshotRunnable = this::snapshot;
+
+    private StudyProgressStore(Context context) {
+        File dir = new File(context.getFilesDir(), DIR_NAME);
+        log = openLog(dir);
+        if (log.isNew()) {
+            importLegacyPrefs(context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE));
+        }
+    }
+
+    public static synchronized StudyProgressStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new StudyProgressStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * The log whose state holds the current aggregates; read it inside synchronized (log)
+     */
+    public StudyProgressLog getLog() {
+        return log;
+    }
+
+    /**
+     * Apply a record now and write it in the background
+     */
+    public StudyRecord commit(char type, int questions) {
+        StudyRecord record = log.append(type, System.currentTimeMillis(), questions);
+        executor.execute(syncRunnable);
+        return record;
+    }
+
+    /**
+     * Returns false when the flashcard was already completed
+     */
+    public boolean recordFlashcard(String flashcardId) {
+        return log.recordFlashcard(flashcardId);
+    }
+
+    /**
+     * Merge progress synced by another device into local progress and snapshot it in the
+     * background; returns true when a challenge restarted there replaced the local one
+     */
+    public boolean merge(StudyProgressState remote) {
+        boolean replaced = log.mergeState(remote);
+        executor.execute(snapshotRunnable);
+        return replaced;
+    }
+
+    private void sync() {
+        try {
+            log.sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write study progress", e);
+        }
+    }
+
+    private void snapshot() {
+        try {
+            log.snapshot();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save merged study progress", e);
+        }
+    }
+
+    private static StudyProgressLog openLog(File dir) {
+        try {
+            return StudyProgressLog.open(dir, TimeZone.getDefault());
+        } catch (IOException e) {
+            // An unreadable snapshot would otherwise fail every start; keep it aside and begin anew
+            Log.e(TAG, "Unreadable study progress, starting a new log", e);
+            File aside = new File(dir.getPath() + ".unreadable-" + System.currentTimeMillis());
+            if (!dir.renameTo(aside)) {
+                Log.w(TAG, "Could not move " + dir + " aside");
+            }
+            try {
+                return StudyProgressLog.open(dir, TimeZone.getDefault());
+            } catch (IOException retryError) {
+                throw new IllegalStateException("Cannot open study progress log in " + dir, retryError);
+            }
+        }
+    }
+
+    private void importLegacyPrefs(SharedPreferences prefs) {
+        if (!prefs.contains(KEY_FIRST_STUDY_DATE) && !prefs.contains(KEY_COMPLETED_FLASHCARD_IDS)
+                && !prefs.contains(KEY_TOTAL_STUDY_SESSIONS)) {
+            return;
+        }
+        StudyProgressState state = StudyProgressState.fromLegacy(
+                prefs.getLong(KEY_FIRST_STUDY_DATE, 0),
+                prefs.getLong(KEY_LAST_STUDY_DATE, 0),
+                prefs.getLong(KEY_STREAK_START_DATE, 0),
+                prefs.getInt(KEY_CURRENT_STREAK, 0),
+                prefs.getInt(KEY_MAX_STREAK, 0),
+                prefs.getInt(KEY_COMPLETED_SETS, 0),
+                prefs.getInt(KEY_TOTAL_STUDY_SESSIONS, 0),
+                prefs.getInt(KEY_CURRENT_SESSION_QUESTIONS, 0),
+                prefs.getInt(KEY_TOTAL_QUESTIONS_STUDIED, 0),
+                new HashSet<>(prefs.getStringSet(KEY_COMPLETED_FLASHCARD_IDS, new HashSet<>())));
+        try {
+            log.importState(state);
+        } catch (IOException e) {
+            // Keep the preferences so the import is tried again next start
+            Log.e(TAG, "Failed to import study progress from preferences", e);
+            return;
+        }
+        prefs.edit()
+                .remove(KEY_FIRST_STUDY_DATE)
+                .remove(KEY_CURRENT_STREAK)
+                .remove(KEY_MAX_STREAK)
+                .remove(KEY_STREAK_START_DATE)
+                .remove(KEY_LAST_STUDY_DATE)
+                .remove(KEY_COMPLETED_SETS)
+                .remove(KEY_TOTAL_STUDY_SESSIONS)
+                .remove(KEY_CURRENT_SESSION_QUESTIONS)
+                .remove(KEY_TOTAL_QUESTIONS_STUDIED)
+                .remove(KEY_COMPLETED_FLASHCARD_IDS)
+                .apply();
+        Log.d(TAG, "Imported study progress from preferences: " + state.getUniqueFlashcardsCompleted()
+                + " completed flashcards, " + state.getTotalSessions() + " sessions");
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.nurse_connect.services.progress;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * One entry of the study-progress log. Records are stored one per line, e.g.
+ * "2a|S|lmbd3k0a|a|card1,card2|1x9k2c": sequence number, type, time, questions
+ * completed, newly completed flashcard IDs and a CRC32 of the rest of the line,
+ * with numbers in base 36. The checksum lets replay stop at a line torn by a crash.
+ */
+public class StudyRecord {
+
+    public static final char SESSION_START = 'B';
+    public static final char SESSION = 'S';       // questions = questions completed in the session
+    public static final char RESET = 'R';         // all progress cleared
+    public static final char RESTART = 'D';       // challenge restarted from the record's day
+
+    private static final String SEPARATOR = "|";
+
+    private final long seq;
+    private final char type;
+    private final long at;
+    private final int questions;
+    private final List<String> flashcardIds;
+
+    public StudyRecord(long seq, char type, long at, int questions, Collection<String> flashcardIds) {
+        this.seq = seq;
+        this.type = type;
+        this.at = at;
+        this.questions = questions;
+        this.flashcardIds = flashcardIds != null && !flashcardIds.isEmpty()
+                ? Collections.unmodifiableList(new ArrayList<>(flashcardIds))
+                : Collections.emptyList();
+    }
+
+    public long getSeq() { return seq; }
+    public char getType() { return type; }
+    public long getAt() { return at; }
+    public int getQuestions() { return questions; }
+    public List<String> getFlashcardIds() { return flashcardIds; }
+
+    public String encode() {
+        StringBuilder ids = new StringBuilder();
+        for (String id : flashcardIds) {
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(escape(id));
+        }
+        String body = Long.toString(seq, 36)
+                + SEPARATOR + type
+                + SEPARATOR + Long.toString(at, 36)
+                + SEPARATOR + Integer.toString(questions, 36)
+                + SEPARATOR + ids;
+        return body + SEPARATOR + Long.toString(checksum(body), 36);
+    }
+
+    /**
+     * Parse an encoded record; throws IllegalArgumentException for malformed or torn lines
+     */
+    public static StudyRecord decode(String encoded) {
+        int crcStart = encoded != null ? encoded.lastIndexOf('|') : -1;
+        if (crcStart < 0) {
+            throw new IllegalArgumentException("Malformed study record: " + encoded);
+        }
+        String body = encoded.substring(0, crcStart);
+        String[] parts = body.split("\\|", -1);
+        if (parts.length != 5 || parts[1].length() != 1) {
+            throw new IllegalArgumentException("Malformed study record: " + encoded);
+        }
+        try {
+            if (Long.parseLong(encoded.substring(crcStart + 1), 36) != checksum(body)) {
+                throw new IllegalArgumentException("Checksum mismatch in study record: " + encoded);
+            }
+            List<String> ids = new ArrayList<>();
+            if (!parts[4].isEmpty()) {
+                for (String id : parts[4].split(",", -1)) {
+                    ids.add(unescape(id));
+                }
+            }
+            return new StudyRecord(Long.parseLong(parts[0], 36), parts[1].charAt(0),
+                    Long.parseLong(parts[2], 36), Integer.parseInt(parts[3], 36), ids);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed study record: " + encoded, e);
+        }
+    }
+
+    private static long checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    // Flashcard IDs are free text, so the characters the line format uses are %-escaped
+    private static String escape(String id) {
+        StringBuilder out = new StringBuilder(id.length());
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c == '%' || c == '|' || c == ',' || c == '\n' || c == '\r') {
+                out.append('%').append(String.format("%02X", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String unescape(String id) {
+        if (id.indexOf('%') < 0) {
+            return id;
+        }
+        StringBuilder out = new StringBuilder(id.length());
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c == '%' && i + 2 < id.length()) {
+                out.append((char) Integer.parseInt(id.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.nurse_connect.services.progress;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Study stats changed since the last sync, merged into one delta: answer, session
+ * and question counts (written as increments), newly completed flashcard IDs
+ * (written as an array union) and whether the challenge progress itself changed. Like
+ * ProgressDeltaBuffer, at most one flush is in flight and a failed one is folded
+ * back in front of the changes made meanwhile. Plain data, so it can be persisted.
+ */
+public class StudyStatsBuffer {
+
+    public static class Delta {
+        private int cardsStudied;
+        private int correctAnswers;
+        private long lastStudiedMillis;
+        private int sessions;
+        private int questionsStudied;
+        private Set<String> completedFlashcardIds = new LinkedHashSet<>();
+        private boolean completedIdsReset;
+        private boolean progressChanged;
+
+        /**
+         * Fold in changes made after this one: counts add up, the later state wins
+         */
+        void mergeLater(Delta later) {
+            cardsStudied += later.cardsStudied;
+            correctAnswers += later.correctAnswers;
+            lastStudiedMillis = Math.max(lastStudiedMillis, later.lastStudiedMillis);
+            sessions += later.sessions;
+            questionsStudied += later.questionsStudied;
+            if (later.completedIdsReset) {
+                completedFlashcardIds.clear();
+                completedIdsReset = true;
+            }
+            completedFlashcardIds.addAll(later.completedFlashcardIds);
+            progressChanged |= later.progressChanged;
+        }
+
+        boolean isEmpty() {
+            return cardsStudied == 0 && completedFlashcardIds.isEmpty() && !completedIdsReset && !progressChanged;
+        }
+
+        public int getCardsStudied() { return cardsStudied; }
+        public int getCorrectAnswers() { return correctAnswers; }
+        public long getLastStudiedMillis() { return lastStudiedMillis; }
+        public int getSessions() { return sessions; }
+        public int getQuestionsStudied() { return questionsStudied; }
+        public Set<String> getCompletedFlashcardIds() { return completedFlashcardIds; }
+        /** The stored ID list must be replaced rather than extended (the challenge was restarted) */
+        public boolean isCompletedIdsReset() { return completedIdsReset; }
+        public boolean isProgressChanged() { return progressChanged; }
+    }
+
+    private String userId;
+    private Delta pending = new Delta();
+    private Delta inFlight;
+    private String inFlightId;
+
+    /**
+     * Changes belong to one user; switching users drops the other user's unsynced changes
+     */
+    public synchronized void setUser(String userId) {
+        if (userId != null && !userId.equals(this.userId)) {
+            clear();
+            this.userId = userId;
+        }
+    }
+
+    public synchronized String getUserId() {
+        return userId;
+    }
+
+    public synchronized void recordAnswer(boolean isCorrect, long answeredMillis) {
+        pending.cardsStudied++;
+        if (isCorrect) {
+            pending.correctAnswers++;
+        }
+        pending.lastStudiedMillis = Math.max(pending.lastStudiedMillis, answeredMillis);
+    }
+
+    public synchronized void recordCompleted(String flashcardId) {
+        pending.completedFlashcardIds.add(flashcardId);
+    }
+
+    public synchronized void recordSession(int questions) {
+        pending.sessions++;
+        pending.questionsStudied += questions;
+        pending.progressChanged = true;
+    }
+
+    public synchronized void markProgressChanged() {
+        pending.progressChanged = true;
+    }
+
+    public synchronized void markCompletedIdsReset() {
+        pending.completedFlashcardIds.clear();
+        pending.completedIdsReset = true;
+        pending.progressChanged = true;
+    }
+
+    /**
+     * Move everything pending into a new flush. Returns null when there is nothing to
+     * flush or another flush is still in flight.
+     */
+    public synchronized Delta beginFlush(String flushId) {
+        if (inFlightId != null || pending.isEmpty()) {
+            return null;
+        }
+        inFlight = pending;
+        inFlightId = flushId;
+        pending = new Delta();
+        return inFlight;
+    }
+
+    public synchronized void flushSucceeded(String flushId) {
+        if (flushId.equals(inFlightId)) {
+            inFlight = null;
+            inFlightId = null;
+        }
+    }
+
+    /**
+     * Put a failed flush back; changes made since it started stay newer
+     */
+    public synchronized void flushFailed(String flushId) {
+        if (!flushId.equals(inFlightId)) {
+            return;
+        }
+        inFlight.mergeLater(pending);
+        pending = inFlight;
+        inFlight = null;
+        inFlightId = null;
+    }
+
+    public synchronized String getInFlightId() {
+        return inFlightId;
+    }
+
+    public synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    public synchronized boolean isEmpty() {
+        return pending.isEmpty() && inFlightId == null;
+    }
+
+    public synchronized void clear() {
+        pending = new Delta();
+        inFlight = null;
+        inFlightId = null;
+    }
+}
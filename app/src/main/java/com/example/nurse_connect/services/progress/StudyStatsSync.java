@@ -0,0 +1,430 @@
+package com.example.nurse_connect.services.progress;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.nurse_connect.services.StudyProgressManager;
+import com.example.nurse_connect.services.StudyProgressManager.StudyProgress;
+import com.example.nurse_connect.utils.NetworkUtils;
+import com.google.firebase.Timestamp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.gson.Gson;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Debounced sync of study progress and study stats to Firestore. Sessions, answers
+ * and completed flashcards only mark the buffered delta dirty; once study has been
+ * idle for DEBOUNCE (or MAX_DELAY after the first unsynced change) the delta is
+ * written in one transaction: study_progress/current_progress with merge semantics
+ * and, if answers were recorded, increments on study_stats/flashcards. Nothing is
+ * read per session, and while offline the delta waits for the network.
+ *
+ * The transaction reads the progress document and merges it with local progress
+ * (see StudyProgressState.merge), so the streak and completed flashcards another
+ * install synced are not overwritten. Session and question totals are written as
+ * increments, so sessions recorded on two devices at once both count; only a
+ * restarted challenge writes its totals outright. After a crash the document's
+ * lastFlushId tells whether the interrupted flush landed.
+ */
+public class StudyStatsSync {
+
+    private static final String TAG = "StudyStatsSync";
+    private static final String PREFS_NAME = "study_stats_sync";
+    private static final String KEY_BUFFER = "buffer";
+
+    private static final long DEBOUNCE = 15 * 1000; // 15 seconds
+    private static final long MAX_DELAY = 2 * 60 * 1000; // 2 minutes
+    private static final long RETRY_INTERVAL = 2 * 60 * 1000; // 2 minutes
+
+    private static StudyStatsSync instance;
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final SharedPreferences prefs;
+    private final Gson gson;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    private final StudyProgressStore store;
+    private final StudyStatsBuffer buffer;
+    private long firstUnsyncedAt;
+    private boolean reconciling;
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    private StudyStatsSync(Context context) {
+        this.context = context;
+        db = FirebaseFirestore.getInstance();
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        gson = new Gson();
+        store = StudyProgressStore.getInstance(context);
+        buffer = restoreBuffer();
+        if (!buffer.isEmpty()) {
+            scheduleFlush();
+        }
+    }
+
+    public static synchronized StudyStatsSync getInstance(Context context) {
+        if (instance == null) {
+            instance = new StudyStatsSync(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * A study session with the given number of new questions was recorded
+     */
+    public synchronized void recordSession(int questions) {
+        if (forCurrentUser()) {
+            buffer.recordSession(questions);
+            changed();
+        }
+    }
+
+    /**
+     * The completed-flashcard list was cleared locally and must be replaced, not extended
+     */
+    public synchronized void markCompletedIdsReset() {
+        if (forCurrentUser()) {
+            buffer.markCompletedIdsReset();
+            changed();
+        }
+    }
+
+    public synchronized void recordAnswer(boolean isCorrect) {
+        if (forCurrentUser()) {
+            buffer.recordAnswer(isCorrect, System.currentTimeMillis());
+            changed();
+        }
+    }
+
+    public synchronized void recordCompleted(String flashcardId) {
+        if (forCurrentUser()) {
+            buffer.recordCompleted(flashcardId);
+            changed();
+        }
+    }
+
+    /**
+     * Drop unsynced changes, e.g. when the progress documents are being deleted
+     */
+    public synchronized void clear() {
+        buffer.clear();
+        firstUnsyncedAt = 0;
+        handler.removeCallbacks(flushRunnable);
+        persist();
+    }
+
+    /**
+     * Write pending changes now instead of waiting for the debounce
+     */
+    public synchronized void flush() {
+        handler.removeCallbacks(flushRunnable);
+        String userId = buffer.getUserId();
+        if (buffer.isEmpty() || userId == null || !userId.equals(FirebaseAuth.getInstance().getUid())) {
+            return;
+        }
+        if (!NetworkUtils.isNetworkAvailable(context)) {
+            waitForNetwork();
+            return;
+        }
+        if (buffer.getInFlightId() != null) {
+            reconcile(userId);
+            return;
+        }
+
+        String flushId = UUID.randomUUID().toString();
+        StudyStatsBuffer.Delta delta = buffer.beginFlush(flushId);
+        if (delta == null) {
+            return;
+        }
+        firstUnsyncedAt = 0;
+        persist();
+
+        db.runTransaction(transaction -> {
+                    DocumentSnapshot document = transaction.get(progressDocument(userId));
+                    StudyProgressState local = localState();
+                    long localRestartedAt = local.getRestartedAt();
+                    StudyProgressState written = mergeRemote(document, delta, local);
+                    transaction.set(progressDocument(userId),
+                            toProgressUpdates(userId, delta, flushId, document, localRestartedAt, written),
+                            SetOptions.merge());
+                    if (delta.getCardsStudied() > 0) {
+                        transaction.set(statsDocument(userId), toStatsUpdates(delta), SetOptions.merge());
+                    }
+                    return written;
+                })
+                .addOnSuccessListener(written -> {
+                    Log.d(TAG, "Synced study stats: " + delta.getCardsStudied() + " answers, "
+                            + delta.getSessions() + " sessions, "
+                            + delta.getCompletedFlashcardIds().size() + " completed flashcards");
+                    synchronized (this) {
+                        buffer.flushSucceeded(flushId);
+                        if (store.merge(written)) {
+                            Log.d(TAG, "Took over the challenge restarted on another device");
+                        }
+                        persist();
+                        if (buffer.hasPending()) {
+                            scheduleFlush();
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to sync study stats, will retry", e);
+                    synchronized (this) {
+                        buffer.flushFailed(flushId);
+                        persist();
+                        handler.postDelayed(flushRunnable, RETRY_INTERVAL);
+                    }
+                });
+    }
+
+    private boolean forCurrentUser() {
+        String userId = FirebaseAuth.getInstance().getUid();
+        if (userId == null) {
+            return false;
+        }
+        buffer.setUser(userId);
+        return true;
+    }
+
+    private void changed() {
+        persist();
+        scheduleFlush();
+    }
+
+    // Each change pushes the flush back by DEBOUNCE, but never past MAX_DELAY after the first one
+    private void scheduleFlush() {
+        long now = System.currentTimeMillis();
+        if (firstUnsyncedAt == 0) {
+            firstUnsyncedAt = now;
+        }
+        long delay = Math.max(0, Math.min(DEBOUNCE, firstUnsyncedAt + MAX_DELAY - now));
+        handler.removeCallbacks(flushRunnable);
+        handler.postDelayed(flushRunnable, delay);
+    }
+
+    private void waitForNetwork() {
+        if (networkCallback != null) {
+            return;
+        }
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            handler.postDelayed(flushRunnable, RETRY_INTERVAL);
+            return;
+        }
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                synchronized (StudyStatsSync.this) {
+                    if (networkCallback != null) {
+                        connectivityManager.unregisterNetworkCallback(networkCallback);
+                        networkCallback = null;
+                    }
+                }
+                handler.post(flushRunnable);
+            }
+        };
+        connectivityManager.registerDefaultNetworkCallback(networkCallback);
+        Log.d(TAG, "Offline, study stats will sync when the network returns");
+    }
+
+    /**
+     * A flush was in flight when the process died: read its marker before sending anything else
+     */
+    private void reconcile(String userId) {
+        if (reconciling) {
+            return;
+        }
+        reconciling = true;
+        // Ask the server: a cached copy could hide another device's progress or a landed flush
+        progressDocument(userId).get(Source.SERVER)
+                .addOnSuccessListener(document -> {
+                    synchronized (this) {
+                        reconciling = false;
+                        if (!userId.equals(buffer.getUserId())) {
+                            return;
+                        }
+                        settleInterruptedFlush(document);
+                        persist();
+                        handler.post(flushRunnable);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Could not read study progress for reconciliation, will retry", e);
+                    synchronized (this) {
+                        reconciling = false;
+                        handler.postDelayed(flushRunnable, RETRY_INTERVAL);
+                    }
+                });
+    }
+
+    private void settleInterruptedFlush(DocumentSnapshot document) {
+        String flushId = buffer.getInFlightId();
+        if (flushId == null) {
+            return;
+        }
+        boolean landed = flushId.equals(document.getString("lastFlushId"));
+        if (landed) {
+            buffer.flushSucceeded(flushId);
+        } else {
+            buffer.flushFailed(flushId);
+        }
+        Log.d(TAG, "Recovered interrupted flush " + flushId + " (landed: " + landed + ")");
+    }
+
+    private StudyProgressState localState() {
+        StudyProgressLog log = store.getLog();
+        synchronized (log) {
+            return log.getState().copy();
+        }
+    }
+
+    /**
+     * What the progress document holds once this flush lands: local progress merged with
+     * the stored copy, whose totals grow by the flushed sessions. A challenge restarted
+     * later on another device is returned as stored.
+     */
+    private StudyProgressState mergeRemote(DocumentSnapshot document, StudyStatsBuffer.Delta delta,
+                                           StudyProgressState merged) {
+        if (!document.exists()) {
+            return merged;
+        }
+        Set<String> completedIds = new HashSet<>();
+        Object storedIds = document.get("completedFlashcardIds");
+        if (storedIds instanceof List) {
+            for (Object id : (List<?>) storedIds) {
+                if (id instanceof String) {
+                    completedIds.add((String) id);
+                }
+            }
+        }
+        long restartedAt = longField(document, "restartedAt");
+        boolean sameChallenge = restartedAt == merged.getRestartedAt() && !delta.isCompletedIdsReset();
+        StudyProgressState remote = StudyProgressState.fromRemote(
+                restartedAt,
+                longField(document, "firstStudyTime"),
+                longField(document, "lastStudyTime"),
+                longField(document, "streakStartTime"),
+                (int) longField(document, "currentStreak"),
+                (int) longField(document, "maxStreak"),
+                (int) longField(document, "completedSets"),
+                (int) longField(document, "totalSessions") + (sameChallenge ? delta.getSessions() : 0),
+                (int) longField(document, "totalQuestionsStudied") + (sameChallenge ? delta.getQuestionsStudied() : 0),
+                completedIds);
+        return merged.merge(remote) ? remote : merged;
+    }
+
+    /**
+     * Totals are increments within the stored challenge and absolute for a restarted one;
+     * nothing but the flush ID is written over a challenge restarted later elsewhere
+     */
+    private Map<String, Object> toProgressUpdates(String userId, StudyStatsBuffer.Delta delta, String flushId,
+                                                  DocumentSnapshot document, long localRestartedAt,
+                                                  StudyProgressState state) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("lastFlushId", flushId);
+        long storedRestartedAt = longField(document, "restartedAt");
+        if (document.exists() && storedRestartedAt > localRestartedAt) {
+            return updates;
+        }
+        boolean absolute = !document.exists() || storedRestartedAt < localRestartedAt
+                || delta.isCompletedIdsReset();
+        if (delta.isProgressChanged() || absolute) {
+            StudyProgress progress = StudyProgressManager.toStudyProgress(state, System.currentTimeMillis());
+            updates.put("userId", userId);
+            updates.put("currentStreak", progress.getCurrentStreak());
+            updates.put("maxStreak", progress.getMaxStreak());
+            updates.put("completedSets", progress.getCompletedSets());
+            updates.put("targetSets", progress.getTargetSets());
+            updates.put("daysSinceFirst", progress.getDaysSinceFirst());
+            updates.put("daysRemaining", progress.getDaysRemaining());
+            updates.put("progressPercentage", progress.getProgressPercentage());
+            updates.put("isOnTrack", progress.isOnTrack());
+            updates.put("firstStudyTime", state.getFirstStudyTime());
+            updates.put("lastStudyTime", state.getLastStudyTime());
+            updates.put("streakStartTime", state.getStreakStartTime());
+            updates.put("restartedAt", state.getRestartedAt());
+            updates.put("lastUpdated", FieldValue.serverTimestamp());
+        }
+        if (absolute) {
+            updates.put("totalSessions", state.getTotalSessions());
+            updates.put("totalQuestionsStudied", state.getTotalQuestionsStudied());
+            updates.put("completedFlashcardIds", state.getCompletedFlashcardIds());
+            return updates;
+        }
+        if (delta.getSessions() > 0) {
+            updates.put("totalSessions", FieldValue.increment(delta.getSessions()));
+            updates.put("totalQuestionsStudied", FieldValue.increment(delta.getQuestionsStudied()));
+        }
+        if (!delta.getCompletedFlashcardIds().isEmpty()) {
+            updates.put("completedFlashcardIds", FieldValue.arrayUnion(delta.getCompletedFlashcardIds().toArray()));
+        }
+        return updates;
+    }
+
+    private Map<String, Object> toStatsUpdates(StudyStatsBuffer.Delta delta) {
+        // Increments create the document on first write, so it is never read first
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("totalCardsStudied", FieldValue.increment(delta.getCardsStudied()));
+        updates.put("totalScore", FieldValue.increment(delta.getCorrectAnswers()));
+        updates.put("lastStudied", new Timestamp(new Date(delta.getLastStudiedMillis())));
+        updates.put("updatedAt", FieldValue.serverTimestamp());
+        return updates;
+    }
+
+    private DocumentReference progressDocument(String userId) {
+        return db.collection("users").document(userId)
+                .collection("study_progress").document("current_progress");
+    }
+
+    private DocumentReference statsDocument(String userId) {
+        return db.collection("users").document(userId)
+                .collection("study_stats").document("flashcards");
+    }
+
+    private static long longField(DocumentSnapshot document, String field) {
+        Long value = document.getLong(field);
+        return value != null ? value : 0;
+    }
+
+    private StudyStatsBuffer restoreBuffer() {
+        String json = prefs.getString(KEY_BUFFER, null);
+        if (json != null) {
+            try {
+                StudyStatsBuffer restored = gson.fromJson(json, StudyStatsBuffer.class);
+                if (restored != null) {
+                    return restored;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Discarding unreadable study stats buffer", e);
+            }
+        }
+        return new StudyStatsBuffer();
+    }
+
+    private void persist() {
+        String json;
+        synchronized (buffer) {
+            json = gson.toJson(buffer);
+        }
+        prefs.edit().putString(KEY_BUFFER, json).apply();
+    }
+}
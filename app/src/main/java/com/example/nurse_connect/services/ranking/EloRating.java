@@ -0,0 +1,57 @@
+package com.example.nurse_connect.services.ranking;
+
+import com.example.nurse_connect.models.PlayerStats;
+
+/**
+ * Elo rating update for 1v1 quiz battles.
+ * New players use a larger K factor (like Glicko's high initial deviation) so their
+ * rating converges in a handful of matches, then settle to a smaller K.
+ */
+public final class EloRating {
+
+    public static final double INITIAL_RATING = PlayerStats.INITIAL_RATING;
+
+    private static final int PROVISIONAL_MATCHES = 10;
+    private static final int ESTABLISHED_MATCHES = 30;
+
+    private EloRating() {}
+
+    /**
+     * Probability that a player rated ratingA beats one rated ratingB
+     */
+    public static double expectedScore(double ratingA, double ratingB) {
+        return 1.0 / (1.0 + Math.pow(10, (ratingB - ratingA) / 400.0));
+    }
+
+    /**
+     * K factor for a player who has finished the given number of rated matches
+     */
+    public static double kFactor(int matchesPlayed) {
+        if (matchesPlayed < PROVISIONAL_MATCHES) {
+            return 40;
+        } else if (matchesPlayed < ESTABLISHED_MATCHES) {
+            return 24;
+        }
+        return 16;
+    }
+
+    /**
+     * New rating after one match; score is 1 for a win, 0.5 for a draw and 0 for a loss
+     */
+    public static double updatedRating(double rating, double opponentRating, double score, int matchesPlayed) {
+        double updated = rating + kFactor(matchesPlayed) * (score - expectedScore(rating, opponentRating));
+        return Math.max(0, updated);
+    }
+
+    /**
+     * Match score from final quiz points (1 / 0.5 / 0)
+     */
+    public static double scoreFor(int points, int opponentPoints) {
+        if (points > opponentPoints) {
+            return 1;
+        } else if (points == opponentPoints) {
+            return 0.5;
+        }
+        return 0;
+    }
+}
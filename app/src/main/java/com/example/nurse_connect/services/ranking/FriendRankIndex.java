@@ -0,0 +1,81 @@
+package com.example.nurse_connect.services.ranking;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * On-device order-statistic index of friends' ratings.
+ * A Fenwick tree over whole rating points answers "how many friends rank above me"
+ * in O(log R), and rating changes are an O(log R) remove + add instead of a re-sort.
+ */
+public class FriendRankIndex {
+
+    private static final int MAX_RATING = 4000;
+
+    private final int[] tree = new int[MAX_RATING + 2];
+    private final Map<String, Integer> ratings = new HashMap<>();
+
+    /**
+     * Add a player or move them to a new rating
+     */
+    public synchronized void put(String playerId, double rating) {
+        remove(playerId);
+        int bucket = bucket(rating);
+        ratings.put(playerId, bucket);
+        add(bucket, 1);
+    }
+
+    public synchronized void remove(String playerId) {
+        Integer bucket = ratings.remove(playerId);
+        if (bucket != null) {
+            add(bucket, -1);
+        }
+    }
+
+    /**
+     * 1-based position of a player (ties share a position), or -1 if not indexed
+     */
+    public synchronized int positionOf(String playerId) {
+        Integer bucket = ratings.get(playerId);
+        if (bucket == null) {
+            return -1;
+        }
+        return countAbove(bucket) + 1;
+    }
+
+    /**
+     * Number of indexed players with a strictly higher rating
+     */
+    public synchronized int countAbove(double rating) {
+        return countAbove(bucket(rating));
+    }
+
+    public synchronized int size() {
+        return ratings.size();
+    }
+
+    private int countAbove(int bucket) {
+        return ratings.size() - prefixSum(bucket);
+    }
+
+    private void add(int bucket, int delta) {
+        for (int i = bucket + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Count of players with bucket <= the given one
+     */
+    private int prefixSum(int bucket) {
+        int sum = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private static int bucket(double rating) {
+        return (int) Math.max(0, Math.min(MAX_RATING, Math.round(rating)));
+    }
+}
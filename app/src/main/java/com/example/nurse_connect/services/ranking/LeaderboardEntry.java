@@ -0,0 +1,27 @@
+package com.example.nurse_connect.services.ranking;
+
+/**
+ * One player's row on a course leaderboard.
+ */
+public class LeaderboardEntry {
+    private String playerId;
+    private String playerName;
+    private double rating;
+
+    public LeaderboardEntry() {}
+
+    public LeaderboardEntry(String playerId, String playerName, double rating) {
+        this.playerId = playerId;
+        this.playerName = playerName;
+        this.rating = rating;
+    }
+
+    public String getPlayerId() { return playerId; }
+    public void setPlayerId(String playerId) { this.playerId = playerId; }
+
+    public String getPlayerName() { return playerName; }
+    public void setPlayerName(String playerName) { this.playerName = playerName; }
+
+    public double getRating() { return rating; }
+    public void setRating(double rating) { this.rating = rating; }
+}
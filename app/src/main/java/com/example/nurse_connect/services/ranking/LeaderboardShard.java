@@ -0,0 +1,92 @@
+package com.example.nurse_connect.services.ranking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Top-N players of one shard of a course leaderboard, kept sorted by rating.
+ * Players are hashed to a fixed shard so concurrent match results rarely write the
+ * same document; the course top N is the merge of every shard's top N.
+ */
+public class LeaderboardShard {
+
+    public static final int SHARD_COUNT = 4;
+    public static final int MAX_ENTRIES = 50;
+
+    private static final Comparator<LeaderboardEntry> BY_RATING =
+            (a, b) -> Double.compare(b.getRating(), a.getRating());
+
+    private String course;
+    private int shard;
+    private List<LeaderboardEntry> entries;
+
+    public LeaderboardShard() {
+        this.entries = new ArrayList<>();
+    }
+
+    public LeaderboardShard(String course, int shard) {
+        this();
+        this.course = course;
+        this.shard = shard;
+    }
+
+    public String getCourse() { return course; }
+    public void setCourse(String course) { this.course = course; }
+
+    public int getShard() { return shard; }
+    public void setShard(int shard) { this.shard = shard; }
+
+    public List<LeaderboardEntry> getEntries() { return entries; }
+    public void setEntries(List<LeaderboardEntry> entries) { this.entries = entries; }
+
+    /**
+     * Insert or move a player's entry, keeping the list sorted and capped at MAX_ENTRIES.
+     * Returns false if the rating is too low to make this shard's top list.
+     */
+    public boolean upsert(LeaderboardEntry entry) {
+        entries.removeIf(existing -> existing.getPlayerId().equals(entry.getPlayerId()));
+
+        int index = 0;
+        while (index < entries.size() && entries.get(index).getRating() >= entry.getRating()) {
+            index++;
+        }
+        if (index >= MAX_ENTRIES) {
+            return false;
+        }
+        entries.add(index, entry);
+        while (entries.size() > MAX_ENTRIES) {
+            entries.remove(entries.size() - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Shard a player always lands in
+     */
+    public static int shardFor(String playerId) {
+        return Math.floorMod(playerId.hashCode(), SHARD_COUNT);
+    }
+
+    /**
+     * Document id for a course shard
+     */
+    public static String documentId(String course, int shard) {
+        String key = course == null ? "none" : course.trim().toLowerCase().replaceAll("[^a-z0-9]+", "_");
+        return key + "__" + shard;
+    }
+
+    /**
+     * Merge shard lists into the course top N
+     */
+    public static List<LeaderboardEntry> merge(List<LeaderboardShard> shards, int limit) {
+        List<LeaderboardEntry> merged = new ArrayList<>();
+        for (LeaderboardShard shard : shards) {
+            if (shard.getEntries() != null) {
+                merged.addAll(shard.getEntries());
+            }
+        }
+        merged.sort(BY_RATING);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.nurse_connect.services.ranking;
+
+import android.util.Log;
+
+import com.example.nurse_connect.models.PlayerStats;
+import com.example.nurse_connect.models.QuizMatch;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ratings and leaderboards for quiz battles.
+ * A finished 1v1 match updates both players' Elo ratings, their stats and their
+ * course leaderboard shards in one transaction, so a course leaderboard is a single
+ * query over its shard documents instead of a scan of player_stats.
+ */
+public class RankingService {
+
+    private static final String TAG = "RankingService";
+    private static final String MATCHES = "quiz_matches";
+    private static final String PLAYER_STATS = "player_stats";
+    private static final String LEADERBOARD_SHARDS = "leaderboard_shards";
+    private static final int WHERE_IN_LIMIT = 10;
+
+    public interface LeaderboardCallback {
+        void onLeaderboard(List<LeaderboardEntry> entries);
+        void onError(Exception e);
+    }
+
+    public interface FriendRankCallback {
+        void onFriendRank(int position, int friendCount, FriendRankIndex index);
+        void onError(Exception e);
+    }
+
+    private final FirebaseFirestore db;
+
+    public RankingService() {
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    /**
+     * Apply a completed match to both players' ratings, stats and leaderboard shards.
+     * Safe to call more than once: the match's rated flag is checked in the same transaction.
+     */
+    public Task<Boolean> applyMatchResult(String matchId) {
+        DocumentReference matchRef = db.collection(MATCHES).document(matchId);
+        return db.runTransaction(transaction -> {
+            // Reads first: match, both players' stats and their shards
+            QuizMatch match = transaction.get(matchRef).toObject(QuizMatch.class);
+            if (match == null || !"completed".equals(match.getStatus()) || match.isRated()
+                    || match.getPlayerIds().size() != 2) {
+                return false;
+            }
+
+            List<String> players = match.getPlayerIds();
+            Map<String, PlayerStats> stats = new HashMap<>();
+            for (String playerId : players) {
+                PlayerStats playerStats = transaction.get(db.collection(PLAYER_STATS).document(playerId))
+                        .toObject(PlayerStats.class);
+                if (playerStats == null) {
+                    playerStats = new PlayerStats(playerId, match.getPlayerNames().get(playerId));
+                }
+                stats.put(playerId, playerStats);
+            }
+
+            Map<String, LeaderboardShard> shards = new LinkedHashMap<>();
+            for (String playerId : players) {
+                String shardId = LeaderboardShard.documentId(match.getCourse(), LeaderboardShard.shardFor(playerId));
+                if (!shards.containsKey(shardId)) {
+                    LeaderboardShard shard = transaction.get(db.collection(LEADERBOARD_SHARDS).document(shardId))
+                            .toObject(LeaderboardShard.class);
+                    if (shard == null) {
+                        shard = new LeaderboardShard(match.getCourse(), LeaderboardShard.shardFor(playerId));
+                    }
+                    shards.put(shardId, shard);
+                }
+            }
+
+            // Both new ratings are computed from the pre-match ratings
+            Map<String, Double> newRatings = new HashMap<>();
+            for (int i = 0; i < 2; i++) {
+                String playerId = players.get(i);
+                String opponentId = players.get(1 - i);
+                PlayerStats own = stats.get(playerId);
+                double score = EloRating.scoreFor(match.getPlayerScores().getOrDefault(playerId, 0),
+                        match.getPlayerScores().getOrDefault(opponentId, 0));
+                newRatings.put(playerId, EloRating.updatedRating(own.getRating(),
+                        stats.get(opponentId).getRating(), score, own.getTotalMatches()));
+            }
+
+            for (String playerId : players) {
+                PlayerStats playerStats = stats.get(playerId);
+                if (playerStats.getPlayerName() == null) {
+                    playerStats.setPlayerName(match.getPlayerNames().get(playerId));
+                }
+                playerStats.updateAfterMatch(playerId.equals(match.getWinnerId()),
+                        match.getQuestionIds().size(),
+                        match.getPlayerScores().getOrDefault(playerId, 0),
+                        match.getCourse(),
+                        newRatings.get(playerId));
+                transaction.set(db.collection(PLAYER_STATS).document(playerId), playerStats);
+
+                String shardId = LeaderboardShard.documentId(match.getCourse(), LeaderboardShard.shardFor(playerId));
+                shards.get(shardId).upsert(new LeaderboardEntry(playerId, playerStats.getPlayerName(),
+                        playerStats.getRating()));
+            }
+            for (Map.Entry<String, LeaderboardShard> shard : shards.entrySet()) {
+                transaction.set(db.collection(LEADERBOARD_SHARDS).document(shard.getKey()), shard.getValue());
+            }
+            transaction.update(matchRef, "rated", true);
+            return true;
+        }).addOnSuccessListener(applied -> {
+            if (applied) {
+                Log.d(TAG, "Ratings updated for match " + matchId);
+            }
+        }).addOnFailureListener(e -> Log.e(TAG, "Failed to apply match result " + matchId, e));
+    }
+
+    /**
+     * Top players of a course, read with one query over its shards
+     */
+    public void getLeaderboard(String course, int limit, LeaderboardCallback callback) {
+        db.collection(LEADERBOARD_SHARDS)
+                .whereEqualTo("course", course)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    List<LeaderboardShard> shards = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        LeaderboardShard shard = doc.toObject(LeaderboardShard.class);
+                        if (shard != null) {
+                            shards.add(shard);
+                        }
+                    }
+                    callback.onLeaderboard(LeaderboardShard.merge(shards, limit));
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Position of a player among the players they follow (plus themselves).
+     * The returned index can be kept and updated as friends' ratings change.
+     */
+    public void getFriendRank(String userId, FriendRankCallback callback) {
+        db.collection("user_follows")
+                .whereEqualTo("followerId", userId)
+                .get()
+                .addOnSuccessListener(follows -> {
+                    List<String> ids = new ArrayList<>();
+                    ids.add(userId);
+                    for (DocumentSnapshot doc : follows.getDocuments()) {
+                        String followingId = doc.getString("followingId");
+                        if (followingId != null && !ids.contains(followingId)) {
+                            ids.add(followingId);
+                        }
+                    }
+
+                    List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+                    for (int i = 0; i < ids.size(); i += WHERE_IN_LIMIT) {
+                        chunks.add(db.collection(PLAYER_STATS)
+                                .whereIn(FieldPath.documentId(),
+                                        new ArrayList<>(ids.subList(i, Math.min(i + WHERE_IN_LIMIT, ids.size()))))
+                                .get());
+                    }
+
+                    Tasks.whenAllSuccess(chunks)
+                            .addOnSuccessListener(results -> {
+                                FriendRankIndex index = new FriendRankIndex();
+                                for (String id : ids) {
+                                    // Players without stats yet sit at the starting rating
+                                    index.put(id, PlayerStats.INITIAL_RATING);
+                                }
+                                for (Object result : results) {
+                                    for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                                        Double rating = doc.getDouble("rating");
+                                        Long rankPoints = doc.getLong("rankPoints");
+                                        if (rating != null && rating > 0) {
+                                            index.put(doc.getId(), rating);
+                                        } else if (rankPoints != null) {
+                                            index.put(doc.getId(), PlayerStats.ratingFromRankPoints(rankPoints.intValue()));
+                                        }
+                                    }
+                                }
+                                callback.onFriendRank(index.positionOf(userId), index.size(), index);
+                            })
+                            .addOnFailureListener(callback::onError);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+}
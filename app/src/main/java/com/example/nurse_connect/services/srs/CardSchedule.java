@@ -0,0 +1,73 @@
+package com.example.nurse_connect.services.srs;
+
+/**
+ * Per-card review state shared by all schedulers. Each scheduler uses the fields
+ * it needs (SM-2: ease and repetitions, FSRS: stability and difficulty) and leaves
+ * the others as they are, so a card can switch scheduler without losing history.
+ */
+public class CardSchedule {
+
+    public static final double INITIAL_EASE = 2.5;
+
+    private double ease = INITIAL_EASE;
+    private double stability;  // days until recall probability drops to 90% (FSRS)
+    private double difficulty; // 1..10 (FSRS), 0 while unset
+    private double intervalDays;
+    private int repetitions;   // consecutive successful reviews
+    private int lapses;
+    private long lastReviewMillis;
+    private long dueMillis;    // 0 for a card that was never reviewed
+
+    public CardSchedule() {}
+
+    public CardSchedule copy() {
+        CardSchedule copy = new CardSchedule();
+        copy.ease = ease;
+        copy.stability = stability;
+        copy.difficulty = difficulty;
+        copy.intervalDays = intervalDays;
+        copy.repetitions = repetitions;
+        copy.lapses = lapses;
+        copy.lastReviewMillis = lastReviewMillis;
+        copy.dueMillis = dueMillis;
+        return copy;
+    }
+
+    public boolean isNew() {
+        return lastReviewMillis == 0;
+    }
+
+    /**
+     * Days since the last review at the given time (0 for a new card)
+     */
+    public double elapsedDays(long now) {
+        if (lastReviewMillis == 0) {
+            return 0;
+        }
+        return Math.max(0, (now - lastReviewMillis) / (double) ReviewScheduler.DAY_MILLIS);
+    }
+
+    public double getEase() { return ease; }
+    public void setEase(double ease) { this.ease = ease; }
+
+    public double getStability() { return stability; }
+    public void setStability(double stability) { this.stability = stability; }
+
+    public double getDifficulty() { return difficulty; }
+    public void setDifficulty(double difficulty) { this.difficulty = difficulty; }
+
+    public double getIntervalDays() { return intervalDays; }
+    public void setIntervalDays(double intervalDays) { this.intervalDays = intervalDays; }
+
+    public int getRepetitions() { return repetitions; }
+    public void setRepetitions(int repetitions) { this.repetitions = repetitions; }
+
+    public int getLapses() { return lapses; }
+    public void setLapses(int lapses) { this.lapses = lapses; }
+
+    public long getLastReviewMillis() { return lastReviewMillis; }
+    public void setLastReviewMillis(long lastReviewMillis) { this.lastReviewMillis = lastReviewMillis; }
+
+    public long getDueMillis() { return dueMillis; }
+    public void setDueMillis(long dueMillis) { this.dueMillis = dueMillis; }
+}
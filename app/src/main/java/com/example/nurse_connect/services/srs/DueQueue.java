@@ -0,0 +1,163 @@
+package com.example.nurse_connect.services.srs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Review queue of one deck: reviewed cards in a min-heap keyed by due time,
+ * never-reviewed cards in insertion order. Rescheduling a card pushes a new heap
+ * entry and leaves the old one to be skipped when it surfaces, so updates are
+ * O(log n) without searching the heap. Only the entry a card currently maps to is
+ * live, so an old entry with the same due time never surfaces a second time.
+ */
+public class DueQueue {
+
+    private static class Entry {
+        final String cardId;
+        final long dueMillis;
+
+        Entry(String cardId, long dueMillis) {
+            this.cardId = cardId;
+            this.dueMillis = dueMillis;
+        }
+    }
+
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>((a, b) -> {
+        int byDue = Long.compare(a.dueMillis, b.dueMillis);
+        return byDue != 0 ? byDue : a.cardId.compareTo(b.cardId);
+    });
+    private final Map<String, Entry> dueByCard = new HashMap<>();
+    private final LinkedHashSet<String> newCards = new LinkedHashSet<>();
+
+    /**
+     * Add or reschedule a card; dueMillis of 0 or less marks it as new
+     */
+    public synchronized void put(String cardId, long dueMillis) {
+        if (dueMillis <= 0) {
+            dueByCard.remove(cardId);
+            newCards.add(cardId);
+            return;
+        }
+        newCards.remove(cardId);
+        Entry previous = dueByCard.get(cardId);
+        if (previous == null || previous.dueMillis != dueMillis) {
+            Entry entry = new Entry(cardId, dueMillis);
+            dueByCard.put(cardId, entry);
+            heap.add(entry);
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Add a card only if the queue does not know it yet
+     */
+    public synchronized void putIfAbsent(String cardId, long dueMillis) {
+        if (!contains(cardId)) {
+            put(cardId, dueMillis);
+        }
+    }
+
+    public synchronized void remove(String cardId) {
+        dueByCard.remove(cardId);
+        newCards.remove(cardId);
+    }
+
+    public synchronized boolean contains(String cardId) {
+        return dueByCard.containsKey(cardId) || newCards.contains(cardId);
+    }
+
+    public synchronized int size() {
+        return dueByCard.size() + newCards.size();
+    }
+
+    public synchronized int newCount() {
+        return newCards.size();
+    }
+
+    /**
+     * Number of reviewed cards due at the given time
+     */
+    public synchronized int dueCount(long now) {
+        int count = 0;
+        for (Entry entry : dueByCard.values()) {
+            if (entry.dueMillis <= now) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Earliest due time of a reviewed card, or -1 if there is none
+     */
+    public synchronized long nextDueMillis() {
+        Entry head = peekLive();
+        return head != null ? head.dueMillis : -1;
+    }
+
+    /**
+     * Up to dueLimit due cards, most overdue first, with up to newLimit new cards
+     * spread evenly between them. Does not remove anything; a card leaves the due
+     * part once it is rescheduled after its review.
+     */
+    public synchronized List<String> next(long now, int dueLimit, int newLimit) {
+        List<Entry> taken = new ArrayList<>();
+        while (taken.size() < dueLimit) {
+            Entry head = peekLive();
+            if (head == null || head.dueMillis > now) {
+                break;
+            }
+            taken.add(heap.poll());
+        }
+        heap.addAll(taken);
+
+        List<String> fresh = new ArrayList<>();
+        Iterator<String> newIterator = newCards.iterator();
+        while (fresh.size() < newLimit && newIterator.hasNext()) {
+            fresh.add(newIterator.next());
+        }
+
+        List<String> result = new ArrayList<>(taken.size() + fresh.size());
+        int spacing = fresh.isEmpty() ? 0 : Math.max(1, taken.size() / (fresh.size() + 1));
+        int nextNew = 0;
+        for (int i = 0; i < taken.size(); i++) {
+            result.add(taken.get(i).cardId);
+            if (nextNew < fresh.size() && (i + 1) % spacing == 0) {
+                result.add(fresh.get(nextNew++));
+            }
+        }
+        while (nextNew < fresh.size()) {
+            result.add(fresh.get(nextNew++));
+        }
+        return result;
+    }
+
+    /**
+     * Head of the heap after discarding entries superseded by a later put or remove
+     */
+    private Entry peekLive() {
+        Entry head = heap.peek();
+        while (head != null && !isLive(head)) {
+            heap.poll();
+            head = heap.peek();
+        }
+        return head;
+    }
+
+    private boolean isLive(Entry entry) {
+        return dueByCard.get(entry.cardId) == entry;
+    }
+
+    private void compactIfNeeded() {
+        if (heap.size() <= 2 * dueByCard.size() + 16) {
+            return;
+        }
+        heap.clear();
+        heap.addAll(dueByCard.values());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.nurse_connect.services.srs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide due queues, one per deck, kept in memory for the app session.
+ * A card may belong to several decks; a review reschedules it in all of them.
+ */
+public class DueQueueIndex {
+
+    private static DueQueueIndex instance;
+
+    private final Map<String, DueQueue> queues = new HashMap<>();
+
+    public static synchronized DueQueueIndex getInstance() {
+        if (instance == null) {
+            instance = new DueQueueIndex();
+        }
+        return instance;
+    }
+
+    public synchronized DueQueue getQueue(String deckKey) {
+        DueQueue queue = queues.get(deckKey);
+        if (queue == null) {
+            queue = new DueQueue();
+            queues.put(deckKey, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Update a card's due time in every deck queue that contains it
+     */
+    public void reschedule(String cardId, long dueMillis) {
+        List<DueQueue> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(queues.values());
+        }
+        for (DueQueue queue : snapshot) {
+            if (queue.contains(cardId)) {
+                queue.put(cardId, dueMillis);
+            }
+        }
+    }
+
+    /**
+     * Drop a card from every deck queue; it is seeded again from its stored schedule
+     */
+    public void remove(String cardId) {
+        List<DueQueue> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(queues.values());
+        }
+        for (DueQueue queue : snapshot) {
+            queue.remove(cardId);
+        }
+    }
+
+    public synchronized void clear() {
+        queues.clear();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.nurse_connect.services.srs;
+
+/**
+ * FSRS (Free Spaced Repetition Scheduler, v4.5 default weights). Each card has a
+ * memory stability S (days until recall drops to 90%) and a difficulty D (1..10);
+ * recall probability decays as a power law of elapsed time over S. A review
+ * updates D and S, and the next interval is the time at which predicted recall
+ * falls to the desired retention.
+ */
+public class FsrsScheduler implements ReviewScheduler {
+
+    private static final double[] W = {
+            0.4872, 1.4003, 3.7145, 13.8206, 5.1618, 1.2298, 0.8975, 0.031, 1.6474,
+            0.1367, 1.0461, 2.1072, 0.0793, 0.3246, 1.587, 0.2272, 2.8755};
+    private static final double DECAY = -0.5;
+    private static final double FACTOR = 19.0 / 81.0; // makes R(S, S) = 0.9
+    private static final double MAX_INTERVAL_DAYS = 365;
+
+    private final double desiredRetention;
+
+    public FsrsScheduler() {
+        this(0.9);
+    }
+
+    public FsrsScheduler(double desiredRetention) {
+        if (desiredRetention <= 0 || desiredRetention >= 1) {
+            throw new IllegalArgumentException("desiredRetention must be in (0, 1)");
+        }
+        this.desiredRetention = desiredRetention;
+    }
+
+    @Override
+    public String getName() {
+        return "fsrs";
+    }
+
+    @Override
+    public CardSchedule review(CardSchedule card, int grade, long now) {
+        CardSchedule next = card.copy();
+        double stability;
+        double difficulty;
+
+        if (card.isNew() || card.getStability() <= 0) {
+            stability = W[grade - 1];
+            difficulty = initialDifficulty(grade);
+        } else {
+            double retrievability = retrievability(card, now);
+            difficulty = nextDifficulty(card.getDifficulty(), grade);
+            if (grade == AGAIN) {
+                stability = forgetStability(card.getDifficulty(), card.getStability(), retrievability);
+                next.setLapses(card.getLapses() + 1);
+            } else {
+                stability = recallStability(card.getDifficulty(), card.getStability(), retrievability, grade);
+            }
+        }
+
+        double interval = Math.min(MAX_INTERVAL_DAYS, Math.max(1, Math.round(intervalFor(stability))));
+        next.setStability(stability);
+        next.setDifficulty(difficulty);
+        next.setRepetitions(grade == AGAIN ? 0 : card.getRepetitions() + 1);
+        next.setIntervalDays(interval);
+        next.setLastReviewMillis(now);
+        next.setDueMillis(now + Math.round(interval * DAY_MILLIS));
+        return next;
+    }
+
+    @Override
+    public double retrievability(CardSchedule card, long now) {
+        if (card.isNew() || card.getStability() <= 0) {
+            return 0;
+        }
+        return Math.pow(1 + FACTOR * card.elapsedDays(now) / card.getStability(), DECAY);
+    }
+
+    private double intervalFor(double stability) {
+        return stability / FACTOR * (Math.pow(desiredRetention, 1 / DECAY) - 1);
+    }
+
+    private static double initialDifficulty(int grade) {
+        return clampDifficulty(W[4] - (grade - 3) * W[5]);
+    }
+
+    private static double nextDifficulty(double difficulty, int grade) {
+        double next = difficulty - W[6] * (grade - 3);
+        // Mean reversion towards the default difficulty of a Good first review
+        return clampDifficulty(W[7] * initialDifficulty(GOOD) + (1 - W[7]) * next);
+    }
+
+    private static double recallStability(double difficulty, double stability, double retrievability, int grade) {
+        double hardPenalty = grade == HARD ? W[15] : 1;
+        double easyBonus = grade == EASY ? W[16] : 1;
+        return stability * (1 + Math.exp(W[8]) * (11 - difficulty) * Math.pow(stability, -W[9])
+                * (Math.exp((1 - retrievability) * W[10]) - 1) * hardPenalty * easyBonus);
+    }
+
+    private static double forgetStability(double difficulty, double stability, double retrievability) {
+        double next = W[11] * Math.pow(difficulty, -W[12]) * (Math.pow(stability + 1, W[13]) - 1)
+                * Math.exp((1 - retrievability) * W[14]);
+        return Math.min(next, stability);
+    }
+
+    private static double clampDifficulty(double difficulty) {
+        return Math.max(1, Math.min(10, difficulty));
+    }
+}
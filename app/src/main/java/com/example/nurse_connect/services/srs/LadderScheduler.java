@@ -0,0 +1,42 @@
+package com.example.nurse_connect.services.srs;
+
+/**
+ * The original fixed ladder: 1, 3, 7, 14 and then 30 days by number of correct
+ * answers, 1 day after a wrong one. Kept as a baseline for comparison.
+ */
+public class LadderScheduler implements ReviewScheduler {
+
+    private static final int[] LADDER_DAYS = {1, 3, 7, 14, 30};
+
+    @Override
+    public String getName() {
+        return "ladder";
+    }
+
+    @Override
+    public CardSchedule review(CardSchedule card, int grade, long now) {
+        CardSchedule next = card.copy();
+        if (grade == AGAIN) {
+            next.setIntervalDays(1);
+            if (!card.isNew()) {
+                next.setLapses(card.getLapses() + 1);
+            }
+        } else {
+            // repetitions counts every correct answer here, not only consecutive ones
+            int correct = card.getRepetitions() + 1;
+            next.setRepetitions(correct);
+            next.setIntervalDays(LADDER_DAYS[Math.min(correct, LADDER_DAYS.length) - 1]);
+        }
+        next.setLastReviewMillis(now);
+        next.setDueMillis(now + Math.round(next.getIntervalDays() * DAY_MILLIS));
+        return next;
+    }
+
+    @Override
+    public double retrievability(CardSchedule card, long now) {
+        if (card.isNew() || card.getIntervalDays() <= 0) {
+            return 0;
+        }
+        return Math.pow(0.9, card.elapsedDays(now) / card.getIntervalDays());
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.nurse_connect.services.srs;
+
+/**
+ * Spaced-repetition algorithm: given a card's state and the grade of a review,
+ * computes the card's next state and due time.
+ */
+public interface ReviewScheduler {
+
+    long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    int AGAIN = 1;
+    int HARD = 2;
+    int GOOD = 3;
+    int EASY = 4;
+
+    String getName();
+
+    /**
+     * State after reviewing the card at time now with the given grade (AGAIN..EASY).
+     * The input state is not modified.
+     */
+    CardSchedule review(CardSchedule card, int grade, long now);
+
+    /**
+     * Estimated probability that the card is recalled at time now
+     */
+    double retrievability(CardSchedule card, long now);
+
+    /**
+     * Grade for a plain right/wrong answer
+     */
+    static int gradeFor(boolean correct) {
+        return correct ? GOOD : AGAIN;
+    }
+}
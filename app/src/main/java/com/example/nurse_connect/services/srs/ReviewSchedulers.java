@@ -0,0 +1,34 @@
+package com.example.nurse_connect.services.srs;
+
+/**
+ * Holds the scheduler used for flashcard reviews (FSRS unless replaced).
+ */
+public final class ReviewSchedulers {
+
+    private static volatile ReviewScheduler current = new FsrsScheduler();
+
+    private ReviewSchedulers() {}
+
+    public static ReviewScheduler get() {
+        return current;
+    }
+
+    public static void set(ReviewScheduler scheduler) {
+        if (scheduler == null) {
+            throw new IllegalArgumentException("scheduler must not be null");
+        }
+        current = scheduler;
+    }
+
+    /**
+     * Scheduler by name ("fsrs", "sm2" or "ladder"); unknown names give FSRS
+     */
+    public static ReviewScheduler forName(String name) {
+        if ("sm2".equals(name)) {
+            return new Sm2Scheduler();
+        } else if ("ladder".equals(name)) {
+            return new LadderScheduler();
+        }
+        return new FsrsScheduler();
+    }
+}
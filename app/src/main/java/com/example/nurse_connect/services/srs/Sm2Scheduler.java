@@ -0,0 +1,69 @@
+package com.example.nurse_connect.services.srs;
+
+/**
+ * SuperMemo-2: intervals of 1 and 6 days, then the previous interval times the
+ * card's ease factor. The ease moves with each grade and never drops below 1.3;
+ * a failed review restarts the interval sequence.
+ */
+public class Sm2Scheduler implements ReviewScheduler {
+
+    private static final double MIN_EASE = 1.3;
+
+    @Override
+    public String getName() {
+        return "sm2";
+    }
+
+    @Override
+    public CardSchedule review(CardSchedule card, int grade, long now) {
+        CardSchedule next = card.copy();
+        int quality = quality(grade);
+
+        if (quality < 3) {
+            next.setRepetitions(0);
+            next.setIntervalDays(1);
+            if (!card.isNew()) {
+                next.setLapses(card.getLapses() + 1);
+            }
+        } else {
+            int repetitions = card.getRepetitions();
+            double interval;
+            if (repetitions == 0) {
+                interval = 1;
+            } else if (repetitions == 1) {
+                interval = 6;
+            } else {
+                interval = Math.round(card.getIntervalDays() * card.getEase());
+            }
+            next.setRepetitions(repetitions + 1);
+            next.setIntervalDays(interval);
+        }
+
+        double ease = card.getEase() + 0.1 - (5 - quality) * (0.08 + (5 - quality) * 0.02);
+        next.setEase(Math.max(MIN_EASE, ease));
+        next.setLastReviewMillis(now);
+        next.setDueMillis(now + Math.round(next.getIntervalDays() * DAY_MILLIS));
+        return next;
+    }
+
+    @Override
+    public double retrievability(CardSchedule card, long now) {
+        if (card.isNew() || card.getIntervalDays() <= 0) {
+            return 0;
+        }
+        // SM-2 has no memory model; assume 90% recall at the scheduled interval
+        return Math.pow(0.9, card.elapsedDays(now) / card.getIntervalDays());
+    }
+
+    /**
+     * SM-2 quality 0..5 for a four-button grade
+     */
+    private static int quality(int grade) {
+        switch (grade) {
+            case AGAIN: return 1;
+            case HARD: return 3;
+            case EASY: return 5;
+            default: return 4;
+        }
+    }
+}
@@ -16,12 +16,10 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.nurse_connect.R;
 import com.example.nurse_connect.adapters.CallHistoryAdapter;
+import com.example.nurse_connect.data.CallHistoryRepository;
 import com.example.nurse_connect.models.CallLog;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -31,6 +29,8 @@ import java.util.Locale;
 
 public class CallHistoryActivity extends AppCompatActivity {
 
+    private static final int LOAD_MORE_THRESHOLD = 5;
+
     private RecyclerView recyclerView;
     private CallHistoryAdapter adapter;
     private List<CallLog> callLogs;
@@ -39,7 +39,7 @@ public class CallHistoryActivity extends AppCompatActivity {
     private TextView emptyStateText;
     private TextView totalCallsText;
 
-    private FirebaseFirestore db;
+    private CallHistoryRepository historyRepository;
     private FirebaseUser currentUser;
     private String currentFilter = "all"; // all, video, audio
 
@@ -54,6 +54,7 @@ public class CallHistoryActivity extends AppCompatActivity {
         setupRecyclerView();
         setupFilterSpinner();
         setupSwipeRefresh();
+        setupPagination();
         loadCallHistory();
     }
 
@@ -66,7 +67,7 @@ public class CallHistoryActivity extends AppCompatActivity {
     }
 
     private void initializeFirebase() {
-        db = FirebaseFirestore.getInstance();
+        historyRepository = new CallHistoryRepository(this);
         currentUser = FirebaseAuth.getInstance().getCurrentUser();
     }
 
@@ -121,119 +122,67 @@ public class CallHistoryActivity extends AppCompatActivity {
         swipeRefreshLayout.setOnRefreshListener(this::loadCallHistory);
     }
 
+    private void setupPagination() {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || historyRepository.isLoading() || !historyRepository.hasMore()) {
+                    return;
+                }
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null
+                        && layoutManager.findLastVisibleItemPosition() >= callLogs.size() - LOAD_MORE_THRESHOLD) {
+                    loadMoreCallHistory();
+                }
+            }
+        });
+    }
+
     private void loadCallHistory() {
         if (currentUser == null) {
             Toast.makeText(this, "Please log in to view call history", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        swipeRefreshLayout.setRefreshing(true);
+        // Show the cached history instantly while the first page refreshes
         callLogs.clear();
+        callLogs.addAll(historyRepository.getCachedHistory(currentUser.getUid(), currentFilter));
+        updateUI();
 
-        Query query = db.collection("calls")
-                .whereEqualTo("callerId", currentUser.getUid())
-                .orderBy("startTime", Query.Direction.DESCENDING);
-
-        // Add filter for video calls only if selected
-        if ("video".equals(currentFilter)) {
-            query = query.whereEqualTo("callType", "video");
-        } else if ("audio".equals(currentFilter)) {
-            query = query.whereEqualTo("callType", "audio");
-        }
-
-        query.get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        CallLog callLog = createCallLogFromDocument(document, true);
-                        if (callLog != null) {
-                            callLogs.add(callLog);
-                        }
-                    }
-
-                    // Also get calls where user was the receiver
-                    Query receiverQuery = db.collection("calls")
-                            .whereEqualTo("receiverId", currentUser.getUid())
-                            .orderBy("startTime", Query.Direction.DESCENDING);
-
-                    if ("video".equals(currentFilter)) {
-                        receiverQuery = receiverQuery.whereEqualTo("callType", "video");
-                    } else if ("audio".equals(currentFilter)) {
-                        receiverQuery = receiverQuery.whereEqualTo("callType", "audio");
-                    }
-
-                    receiverQuery.get()
-                            .addOnSuccessListener(receiverSnapshots -> {
-                                for (QueryDocumentSnapshot document : receiverSnapshots) {
-                                    CallLog callLog = createCallLogFromDocument(document, false);
-                                    if (callLog != null) {
-                                        callLogs.add(callLog);
-                                    }
-                                }
-
-                                // Sort by start time (most recent first)
-                                callLogs.sort((c1, c2) -> Long.compare(c2.getStartTime(), c1.getStartTime()));
+        swipeRefreshLayout.setRefreshing(true);
+        historyRepository.loadFirstPage(currentUser.getUid(), currentFilter, new CallHistoryRepository.PageCallback() {
+            @Override
+            public void onPage(List<CallLog> page, boolean hasMore) {
+                callLogs.clear();
+                callLogs.addAll(page);
+                updateUI();
+                swipeRefreshLayout.setRefreshing(false);
+            }
 
-                                updateUI();
-                                swipeRefreshLayout.setRefreshing(false);
-                            })
-                            .addOnFailureListener(e -> {
-                                Toast.makeText(this, "Failed to load call history", Toast.LENGTH_SHORT).show();
-                                swipeRefreshLayout.setRefreshing(false);
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Failed to load call history", Toast.LENGTH_SHORT).show();
-                    swipeRefreshLayout.setRefreshing(false);
-                });
+            @Override
+            public void onFailure(Exception e) {
+                Toast.makeText(CallHistoryActivity.this, "Failed to load call history", Toast.LENGTH_SHORT).show();
+                swipeRefreshLayout.setRefreshing(false);
+            }
+        });
     }
 
-    private CallLog createCallLogFromDocument(QueryDocumentSnapshot document, boolean isOutgoing) {
-        try {
-            String callId = document.getId();
-            String callerId = document.getString("callerId");
-            String receiverId = document.getString("receiverId");
-            String callerName = document.getString("callerName");
-            String receiverName = document.getString("receiverName");
-            String callType = document.getString("callType");
-            String status = document.getString("status");
-            Long startTime = document.getLong("startTime");
-            Long endTime = document.getLong("endTime");
-            Long duration = document.getLong("duration");
-            String callerPhotoUrl = document.getString("callerPhotoUrl");
-            String receiverPhotoUrl = document.getString("receiverPhotoUrl");
-
-            if (startTime == null) {
-                startTime = System.currentTimeMillis();
+    private void loadMoreCallHistory() {
+        historyRepository.loadNextPage(new CallHistoryRepository.PageCallback() {
+            @Override
+            public void onPage(List<CallLog> page, boolean hasMore) {
+                if (page.isEmpty()) {
+                    return;
+                }
+                callLogs.addAll(page);
+                updateUI();
             }
 
-            // Determine the other user's info
-            String otherUserId, otherUserName, otherPhotoUrl;
-            if (isOutgoing) {
-                otherUserId = receiverId;
-                otherUserName = receiverName;
-                otherPhotoUrl = receiverPhotoUrl;
-            } else {
-                otherUserId = callerId;
-                otherUserName = callerName;
-                otherPhotoUrl = callerPhotoUrl;
+            @Override
+            public void onFailure(Exception e) {
+                Toast.makeText(CallHistoryActivity.this, "Failed to load more calls", Toast.LENGTH_SHORT).show();
             }
-
-            return new CallLog(
-                    callId,
-                    otherUserId,
-                    otherUserName,
-                    otherPhotoUrl,
-                    callType,
-                    status,
-                    startTime,
-                    endTime,
-                    duration,
-                    isOutgoing
-            );
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+        });
     }
 
     private void updateUI() {
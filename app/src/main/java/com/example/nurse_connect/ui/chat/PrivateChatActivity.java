@@ -26,6 +26,7 @@ import com.example.nurse_connect.ui.profile.UserProfileActivity;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
@@ -908,6 +909,7 @@ public class PrivateChatActivity extends AppCompatActivity {
         callData.put("callType", callType);
         callData.put("status", "calling");
         callData.put("startTime", System.currentTimeMillis());
+        callData.put("createdAt", FieldValue.serverTimestamp());
         callData.put("callerName", currentUser.getDisplayName() != null ? currentUser.getDisplayName() : "Unknown");
         callData.put("receiverName", otherUserName);
         callData.put("callerPhotoUrl", currentUser.getPhotoUrl() != null ? currentUser.getPhotoUrl().toString() : "");
@@ -937,6 +939,7 @@ public class PrivateChatActivity extends AppCompatActivity {
         callData.put("callType", callType);
         callData.put("status", "calling");
         callData.put("startTime", System.currentTimeMillis());
+        callData.put("createdAt", FieldValue.serverTimestamp());
         callData.put("callerName", currentUser.getDisplayName() != null ? currentUser.getDisplayName() : "Unknown");
         callData.put("receiverName", otherUserName);
         callData.put("callerPhotoUrl", currentUser.getPhotoUrl() != null ? currentUser.getPhotoUrl().toString() : "");
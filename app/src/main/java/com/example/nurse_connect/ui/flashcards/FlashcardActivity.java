@@ -20,8 +20,11 @@ import com.example.nurse_connect.models.Flashcard;
 import com.example.nurse_connect.models.FlashcardDeck;
 import com.example.nurse_connect.models.FlashcardGameMode;
 import com.example.nurse_connect.services.FlashcardService;
+import com.example.nurse_connect.services.GeminiFlashcardService;
 import com.example.nurse_connect.services.StudyProgressManager;
 import com.example.nurse_connect.services.StudyProgressManager.StudyProgress;
+import com.example.nurse_connect.services.dedup.SeenQuestionIndex;
+import com.example.nurse_connect.services.progress.StudyStatsSync;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -51,6 +54,11 @@ public class FlashcardActivity extends AppCompatActivity {
     // Study Progress Manager
     private StudyProgressManager studyProgressManager;
     
+    // AI generation: cards still streaming in, and the next round's prefetch
+    private GeminiFlashcardService geminiService;
+    private boolean streamingCards = false;
+    private int expectedCardCount = 0;
+    
     // Sound effects
     private MediaPlayer correctSoundPlayer;
     private MediaPlayer incorrectSoundPlayer;
@@ -72,7 +80,7 @@ public class FlashcardActivity extends AppCompatActivity {
         // Initialize Study Progress Manager
         studyProgressManager = new StudyProgressManager(this);
         
-        flashcardService = new FlashcardService();
+        flashcardService = new FlashcardService(this);
         db = FirebaseFirestore.getInstance();
         
         // Get deck info from intent
@@ -85,6 +93,12 @@ public class FlashcardActivity extends AppCompatActivity {
         isStudyMode = getIntent().getBooleanExtra("is_study_mode", false);
         FlashcardGameMode gameMode = (FlashcardGameMode) getIntent().getSerializableExtra("selected_game_mode");
 
+        // AI session whose cards are generated while the first ones are studied
+        if (getIntent().getBooleanExtra("stream_generation", false)) {
+            startStreamingSession(gameMode);
+            return;
+        }
+
         // If flashcards were passed directly (AI-generated path), use them immediately
         java.util.ArrayList<Flashcard> passedFlashcards = getIntent().getParcelableArrayListExtra("flashcards");
         if (passedFlashcards != null && !passedFlashcards.isEmpty()) {
@@ -120,6 +134,7 @@ public class FlashcardActivity extends AppCompatActivity {
             initializeSounds();
             showCurrentCard();
             updateProgress();
+            prefetchNextRound(passedFlashcards, gameMode);
             return;
         }
 
@@ -153,6 +168,126 @@ public class FlashcardActivity extends AppCompatActivity {
         initializeSounds();
     }
 
+    /**
+     * Show generated cards as they stream in; the session grows until generation completes
+     */
+    private void startStreamingSession(FlashcardGameMode gameMode) {
+        FlashcardDeck selectedDeck = getIntent().getParcelableExtra("selected_deck");
+        if (selectedDeck == null) {
+            Toast.makeText(this, "Invalid parameters", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        currentDeck = selectedDeck;
+        currentFlashcards = new ArrayList<>();
+        expectedCardCount = getIntent().getIntExtra("generation_count", 10);
+        streamingCards = true;
+
+        setupUI();
+        initializeSounds();
+        binding.textQuestion.setText("Generating your questions...");
+        binding.layoutOptions.setVisibility(View.GONE);
+        updateProgress();
+
+        List<String> history = getIntent().getStringArrayListExtra("generation_history");
+        getGeminiService().streamFlashcardsWithAI(currentDeck.getCareer(), currentDeck.getCourse(), currentDeck.getUnit(),
+                expectedCardCount, gameMode != null ? gameMode : FlashcardGameMode.STUDY_MODE,
+                getIntent().getStringExtra("selected_difficulty"), getIntent().getStringExtra("selected_time_limit"),
+                history != null ? history : new ArrayList<>(),
+                new GeminiFlashcardService.StreamingFlashcardCallback() {
+                    @Override
+                    public void onFlashcard(Flashcard flashcard) {
+                        runOnUiThread(() -> {
+                            if (binding == null) {
+                                return;
+                            }
+                            currentFlashcards.add(flashcard);
+                            if (currentFlashcards.size() == 1) {
+                                showCurrentCard();
+                            }
+                            updateProgress();
+                        });
+                    }
+
+                    @Override
+                    public void onComplete(List<Flashcard> flashcards) {
+                        runOnUiThread(() -> {
+                            if (binding == null) {
+                                return;
+                            }
+                            streamingCards = false;
+                            Log.d("FlashcardActivity", "Generation complete with " + currentFlashcards.size() + " cards");
+                            updateProgress();
+                            if (isLastCard() && isAnswerRevealed) {
+                                binding.btnSeeResults.setVisibility(View.VISIBLE);
+                            }
+                            prefetchNextRound(currentFlashcards, gameMode);
+                        });
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        runOnUiThread(() -> {
+                            streamingCards = false;
+                            Log.e("FlashcardActivity", "AI flashcard generation failed: " + error);
+                            if (currentFlashcards.isEmpty()) {
+                                Toast.makeText(FlashcardActivity.this,
+                                        "Failed to generate flashcards: " + error, Toast.LENGTH_LONG).show();
+                                finish();
+                            } else {
+                                updateProgress();
+                            }
+                        });
+                    }
+                });
+    }
+
+    /**
+     * The current card is the last of the session (never while more are still streaming in)
+     */
+    private boolean isLastCard() {
+        return !streamingCards && currentFlashcards != null && currentCardIndex == currentFlashcards.size() - 1;
+    }
+
+    private GeminiFlashcardService getGeminiService() {
+        if (geminiService == null) {
+            geminiService = new GeminiFlashcardService();
+            geminiService.setSeenQuestionIndex(SeenQuestionIndex.getInstance(this));
+        }
+        return geminiService;
+    }
+
+    /**
+     * Generate the next AI batch in the background while this one is studied, so the
+     * next round (same career/course/unit and settings) starts without waiting
+     */
+    private void prefetchNextRound(List<Flashcard> flashcards, FlashcardGameMode gameMode) {
+        FlashcardDeck selectedDeck = getIntent().getParcelableExtra("selected_deck");
+        String career = selectedDeck != null ? selectedDeck.getCareer() : getIntent().getStringExtra("career");
+        String course = selectedDeck != null ? selectedDeck.getCourse() : getIntent().getStringExtra("course");
+        String unit = selectedDeck != null ? selectedDeck.getUnit() : getIntent().getStringExtra("unit");
+        if (career == null || course == null || unit == null) {
+            return;
+        }
+
+        List<String> currentQuestions = new ArrayList<>();
+        for (Flashcard flashcard : flashcards) {
+            currentQuestions.add(flashcard.getQuestion());
+        }
+        // Later rounds (and sessions) check their cards against this one
+        if (FirebaseAuth.getInstance().getCurrentUser() != null) {
+            SeenQuestionIndex.getInstance(this).record(FirebaseAuth.getInstance().getCurrentUser().getUid(),
+                    career, course, unit, currentQuestions);
+        }
+        // Ask for the round size requested, even if this round came up short
+        int count = expectedCardCount > 0 ? expectedCardCount : flashcards.size();
+        getGeminiService().prefetchFlashcards(career, course, unit, count,
+                gameMode != null ? gameMode : FlashcardGameMode.STUDY_MODE,
+                getIntent().getStringExtra("selected_difficulty"),
+                getIntent().getStringExtra("selected_time_limit"),
+                currentQuestions);
+    }
+
     /**
      * Initialize sound effects
      */
@@ -547,7 +682,7 @@ public class FlashcardActivity extends AppCompatActivity {
             updateSwipeHint();
             
             // Special handling for the last card - ensure See Results button is visible if answer was revealed
-            if (currentCardIndex == currentFlashcards.size() - 1 && isAnswerRevealed) {
+            if (isLastCard() && isAnswerRevealed) {
                 Log.d("FlashcardActivity", "Last card with revealed answer - ensuring See Results button is visible");
                 binding.btnSeeResults.setVisibility(View.VISIBLE);
             }
@@ -874,7 +1009,7 @@ public class FlashcardActivity extends AppCompatActivity {
             logCardInteraction(currentCard.getFlashcardId(), "answer_revealed");
             
             // If this is the last card and answer is revealed, show "See Results" button
-            if (currentCardIndex == currentFlashcards.size() - 1) {
+            if (isLastCard()) {
                 Log.d("FlashcardActivity", "Last card answered, showing See Results button");
                 binding.btnSeeResults.setVisibility(View.VISIBLE);
                 
@@ -998,7 +1133,7 @@ public class FlashcardActivity extends AppCompatActivity {
             }
             
             // Record answer in service
-            flashcardService.recordAnswer(currentCard.getFlashcardId(), isCorrect, new FlashcardService.ProgressCallback() {
+            flashcardService.recordAnswer(currentCard, isCorrect, new FlashcardService.ProgressCallback() {
                 @Override
                 public void onProgressUpdated(boolean success) {
                     if (success) {
@@ -1022,7 +1157,7 @@ public class FlashcardActivity extends AppCompatActivity {
                         logCardInteraction(currentCard.getFlashcardId(), isCorrect ? "correct_answer" : "incorrect_answer");
                         
                         // Check if this was the last card and show "See Results" button
-                        if (currentCardIndex == currentFlashcards.size() - 1) {
+                        if (isLastCard()) {
                             Log.d("FlashcardActivity", "Last card answered! Current index: " + currentCardIndex + ", Total cards: " + currentFlashcards.size());
                             // This was the last card, show "See Results" button instead of next button
                             // But only show it after the answer is revealed
@@ -1085,6 +1220,8 @@ public class FlashcardActivity extends AppCompatActivity {
         if (currentFlashcards != null && currentCardIndex < currentFlashcards.size() - 1) {
             currentCardIndex++;
             showCurrentCard();
+        } else if (streamingCards) {
+            Toast.makeText(this, "The next question is still being generated", Toast.LENGTH_SHORT).show();
         } else {
             Log.d("FlashcardActivity", "At last card, cannot go next...");
             // Don't auto-complete, let user answer the last question
@@ -1131,7 +1268,7 @@ public class FlashcardActivity extends AppCompatActivity {
         }
         
         try {
-            boolean isLastCard = currentFlashcards != null && currentCardIndex == currentFlashcards.size() - 1;
+            boolean isLastCard = isLastCard();
             
             Log.d("FlashcardActivity", "updateNavigationButtons() - Is Last Card: " + isLastCard + " (Index: " + currentCardIndex + ", Total: " + (currentFlashcards != null ? currentFlashcards.size() : "null") + ")");
             
@@ -1155,8 +1292,10 @@ public class FlashcardActivity extends AppCompatActivity {
         
         try {
             if (currentFlashcards != null) {
-                binding.textProgress.setText(String.format("Card %d of %d", currentCardIndex + 1, currentFlashcards.size()));
-                binding.progressBar.setMax(currentFlashcards.size());
+                // While cards stream in, count the ones still to come
+                int total = streamingCards ? Math.max(expectedCardCount, currentFlashcards.size()) : currentFlashcards.size();
+                binding.textProgress.setText(String.format("Card %d of %d", currentCardIndex + 1, total));
+                binding.progressBar.setMax(total);
                 binding.progressBar.setProgress(currentCardIndex + 1);
             }
             
@@ -1226,6 +1365,15 @@ public class FlashcardActivity extends AppCompatActivity {
         finish();
     }
     
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Write answers recorded this session
+        if (flashcardService != null) {
+            flashcardService.flushProgress();
+        }
+    }
+    
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -1251,55 +1399,7 @@ public class FlashcardActivity extends AppCompatActivity {
     private void trackStudyModeProgress(boolean isCorrect) {
         if (!isStudyMode) return;
         
-        try {
-            // Update study statistics in Firestore
-            String currentUserId = FirebaseAuth.getInstance().getCurrentUser() != null ? 
-                FirebaseAuth.getInstance().getCurrentUser().getUid() : null;
-                
-            if (currentUserId != null) {
-                // Update study stats for AI recommendations
-                com.google.firebase.firestore.FirebaseFirestore.getInstance()
-                    .collection("users")
-                    .document(currentUserId)
-                    .collection("study_stats")
-                    .document("flashcards")
-                    .get()
-                    .addOnSuccessListener(documentSnapshot -> {
-                        if (documentSnapshot.exists()) {
-                            // Document exists, update it
-                            documentSnapshot.getReference().update(
-                                "totalCardsStudied", com.google.firebase.firestore.FieldValue.increment(1),
-                                "totalScore", com.google.firebase.firestore.FieldValue.increment(isCorrect ? 1 : 0),
-                                "lastStudied", com.google.firebase.Timestamp.now(),
-                                "updatedAt", com.google.firebase.Timestamp.now()
-                            ).addOnSuccessListener(aVoid -> {
-                                Log.d("FlashcardActivity", "Study mode progress updated successfully");
-                            }).addOnFailureListener(e -> {
-                                Log.e("FlashcardActivity", "Failed to update study mode progress", e);
-                            });
-                        } else {
-                            // Document doesn't exist, create it
-                            java.util.Map<String, Object> initialStats = new java.util.HashMap<>();
-                            initialStats.put("totalCardsStudied", 1);
-                            initialStats.put("totalScore", isCorrect ? 1 : 0);
-                            initialStats.put("lastStudied", com.google.firebase.Timestamp.now());
-                            initialStats.put("createdAt", com.google.firebase.Timestamp.now());
-                            initialStats.put("updatedAt", com.google.firebase.Timestamp.now());
-                            
-                            documentSnapshot.getReference().set(initialStats)
-                                .addOnSuccessListener(aVoid -> {
-                                    Log.d("FlashcardActivity", "Study stats document created and updated");
-                                }).addOnFailureListener(e -> {
-                                    Log.e("FlashcardActivity", "Failed to create study stats document", e);
-                                });
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e("FlashcardActivity", "Failed to check study stats document", e);
-                    });
-            }
-        } catch (Exception e) {
-            Log.e("FlashcardActivity", "Error in trackStudyModeProgress", e);
-        }
+        // Counted locally and synced to study_stats in one debounced write
+        StudyStatsSync.getInstance(this).recordAnswer(isCorrect);
     }
 }
@@ -1,21 +1,33 @@
 package com.example.nurse_connect.ui.flashcards;
 
-import android.os.Bundle;
-import androidx.appcompat.app.AppCompatActivity;
-import com.example.nurse_connect.R;
+import android.widget.Toast;
+
+/**
+ * Daily challenge: one fixed-size review session per day taken from the deck's
+ * due queue, with a larger share of new cards than a regular review session.
+ */
+public class FlashcardDailyChallengeActivity extends FlashcardSpacedRepetitionActivity {
+
+    private static final int DAILY_DUE_LIMIT = 10;
+    private static final int DAILY_NEW_LIMIT = 10;
+
+    @Override
+    protected int getDueLimit() {
+        return DAILY_DUE_LIMIT;
+    }
+
+    @Override
+    protected int getNewLimit() {
+        return DAILY_NEW_LIMIT;
+    }
+
+    @Override
+    protected String getSessionTitle() {
+        return "Daily Challenge";
+    }
 
-public class FlashcardDailyChallengeActivity extends AppCompatActivity {
-    
     @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_flashcard_daily_challenge);
-        
-        // TODO: Implement daily challenge functionality
-        // - Daily streak-based challenges
-        // - Time-limited sessions
-        // - Community leaderboards
-        // - Reward systems
+    protected void onSessionCompleted(int reviewed, int correct) {
+        Toast.makeText(this, "Daily challenge complete: " + correct + "/" + reviewed, Toast.LENGTH_LONG).show();
     }
 }
@@ -1,20 +1,262 @@
 package com.example.nurse_connect.ui.flashcards;
 
 import android.os.Bundle;
+import android.text.format.DateUtils;
+import android.util.Log;
+import android.view.View;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
 import androidx.appcompat.app.AppCompatActivity;
+
 import com.example.nurse_connect.R;
+import com.example.nurse_connect.models.Flashcard;
+import com.example.nurse_connect.models.FlashcardDeck;
+import com.example.nurse_connect.services.FlashcardService;
+import com.example.nurse_connect.services.srs.DueQueue;
+import com.example.nurse_connect.services.srs.DueQueueIndex;
+import com.example.nurse_connect.services.srs.ReviewScheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Review session driven by the deck's due queue: due cards first, most overdue
+ * first, with a few new cards mixed in. Each card is graded Again/Hard/Good/Easy
+ * and rescheduled by the current review scheduler.
+ */
 public class FlashcardSpacedRepetitionActivity extends AppCompatActivity {
-    
+    private static final String TAG = "FlashcardSpacedRep";
+
+    private FlashcardDeck selectedDeck;
+    private String deckKey;
+    private final List<Flashcard> sessionCards = new ArrayList<>();
+    private int currentIndex = 0;
+    private int reviewedCount = 0;
+    private int correctCount = 0;
+
+    // UI Components
+    private TextView titleText;
+    private TextView progressText;
+    private ProgressBar progressBar;
+    private TextView questionText;
+    private TextView answerText;
+    private TextView rationaleText;
+    private Button showAnswerButton;
+    private LinearLayout gradeButtons;
+
+    private FlashcardService flashcardService;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_flashcard_spaced_repetition);
-        
-        // TODO: Implement spaced repetition functionality
-        // - AI-optimized learning intervals
-        // - Difficulty-based scheduling
-        // - Progress tracking
-        // - Adaptive learning paths
+
+        selectedDeck = getIntent().getParcelableExtra("selected_deck");
+        if (selectedDeck == null) {
+            finish();
+            return;
+        }
+        deckKey = selectedDeck.getDeckId() != null && !selectedDeck.getDeckId().isEmpty()
+                ? selectedDeck.getDeckId() : selectedDeck.getName();
+
+        flashcardService = new FlashcardService(this);
+        initializeViews();
+        loadSession();
+    }
+
+    /**
+     * Maximum number of due reviews in one session
+     */
+    protected int getDueLimit() {
+        return FlashcardService.SESSION_DUE_LIMIT;
+    }
+
+    /**
+     * Maximum number of new cards mixed into one session
+     */
+    protected int getNewLimit() {
+        return FlashcardService.SESSION_NEW_LIMIT;
+    }
+
+    protected String getSessionTitle() {
+        return "Spaced Repetition";
+    }
+
+    /**
+     * Called once every card of the session has been reviewed
+     */
+    protected void onSessionCompleted(int reviewed, int correct) {
+    }
+
+    private void initializeViews() {
+        titleText = findViewById(R.id.title_text);
+        progressText = findViewById(R.id.progress_text);
+        progressBar = findViewById(R.id.progress_bar);
+        questionText = findViewById(R.id.question_text);
+        answerText = findViewById(R.id.answer_text);
+        rationaleText = findViewById(R.id.rationale_text);
+        showAnswerButton = findViewById(R.id.show_answer_button);
+        gradeButtons = findViewById(R.id.grade_buttons);
+
+        titleText.setText(getSessionTitle());
+        showAnswerButton.setOnClickListener(v -> revealAnswer());
+        findViewById(R.id.again_button).setOnClickListener(v -> gradeCurrentCard(ReviewScheduler.AGAIN));
+        findViewById(R.id.hard_button).setOnClickListener(v -> gradeCurrentCard(ReviewScheduler.HARD));
+        findViewById(R.id.good_button).setOnClickListener(v -> gradeCurrentCard(ReviewScheduler.GOOD));
+        findViewById(R.id.easy_button).setOnClickListener(v -> gradeCurrentCard(ReviewScheduler.EASY));
+    }
+
+    private void loadSession() {
+        List<Flashcard> passedFlashcards = getIntent().getParcelableArrayListExtra("flashcards");
+        if (passedFlashcards != null && !passedFlashcards.isEmpty()) {
+            // Cards handed over by the setup screen (e.g. freshly generated) are queued locally
+            DueQueue queue = DueQueueIndex.getInstance().getQueue(deckKey);
+            Map<String, Flashcard> byId = new HashMap<>();
+            for (Flashcard flashcard : passedFlashcards) {
+                byId.put(flashcard.getFlashcardId(), flashcard);
+                queue.putIfAbsent(flashcard.getFlashcardId(), flashcard.getSchedule().getDueMillis());
+            }
+            for (String flashcardId : queue.next(System.currentTimeMillis(), getDueLimit(), getNewLimit())) {
+                Flashcard flashcard = byId.get(flashcardId);
+                if (flashcard != null) {
+                    sessionCards.add(flashcard);
+                }
+            }
+            startSession();
+            return;
+        }
+
+        flashcardService.getDueFlashcards(deckKey, selectedDeck.getFlashcardIds(), getDueLimit(), getNewLimit(),
+                new FlashcardService.FlashcardCallback() {
+                    @Override
+                    public void onFlashcardsLoaded(List<Flashcard> flashcards) {
+                        runOnUiThread(() -> {
+                            sessionCards.addAll(flashcards);
+                            startSession();
+                        });
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        runOnUiThread(() -> {
+                            Log.e(TAG, "Error loading review session: " + error);
+                            Toast.makeText(FlashcardSpacedRepetitionActivity.this,
+                                    "Failed to load flashcards: " + error, Toast.LENGTH_LONG).show();
+                            finish();
+                        });
+                    }
+                });
+    }
+
+    private void startSession() {
+        Log.d(TAG, "Starting session with " + sessionCards.size() + " cards for deck " + deckKey);
+        if (sessionCards.isEmpty()) {
+            showNothingDue();
+            return;
+        }
+        progressBar.setMax(sessionCards.size());
+        showCurrentCard();
+    }
+
+    private void showCurrentCard() {
+        Flashcard flashcard = sessionCards.get(currentIndex);
+        questionText.setText(flashcard.getQuestion());
+        answerText.setText(flashcard.getAnswer());
+        rationaleText.setText(flashcard.getRationale());
+        answerText.setVisibility(View.GONE);
+        rationaleText.setVisibility(View.GONE);
+        gradeButtons.setVisibility(View.GONE);
+        showAnswerButton.setVisibility(View.VISIBLE);
+
+        progressText.setText("Card " + (currentIndex + 1) + " of " + sessionCards.size()
+                + (flashcard.getTimesReviewed() == 0 ? " • New" : ""));
+        progressBar.setProgress(currentIndex);
+    }
+
+    private void revealAnswer() {
+        answerText.setVisibility(View.VISIBLE);
+        if (flashcard().getRationale() != null && !flashcard().getRationale().isEmpty()) {
+            rationaleText.setVisibility(View.VISIBLE);
+        }
+        showAnswerButton.setVisibility(View.GONE);
+        gradeButtons.setVisibility(View.VISIBLE);
+    }
+
+    private void gradeCurrentCard(int grade) {
+        Flashcard flashcard = flashcard();
+        reviewedCount++;
+        if (grade != ReviewScheduler.AGAIN) {
+            correctCount++;
+        }
+
+        // Updates the card in place; the write itself is deferred and batched
+        flashcardService.recordReview(flashcard, grade, new FlashcardService.ProgressCallback() {
+            @Override
+            public void onProgressUpdated(boolean success) {
+                Log.d(TAG, "Review recorded for " + flashcard.getFlashcardId());
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Failed to record review: " + error);
+            }
+        });
+        DueQueueIndex.getInstance().getQueue(deckKey)
+                .put(flashcard.getFlashcardId(), flashcard.getSchedule().getDueMillis());
+
+        currentIndex++;
+        if (currentIndex < sessionCards.size()) {
+            showCurrentCard();
+        } else {
+            showSessionComplete();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (flashcardService != null) {
+            flashcardService.flushProgress();
+        }
+    }
+
+    private Flashcard flashcard() {
+        return sessionCards.get(currentIndex);
+    }
+
+    private void showSessionComplete() {
+        progressBar.setProgress(sessionCards.size());
+        progressText.setText("Session complete");
+        questionText.setText("Reviewed " + reviewedCount + " cards, " + correctCount + " remembered.\n\n"
+                + nextReviewMessage());
+        answerText.setVisibility(View.GONE);
+        rationaleText.setVisibility(View.GONE);
+        gradeButtons.setVisibility(View.GONE);
+        showAnswerButton.setVisibility(View.VISIBLE);
+        showAnswerButton.setText("Done");
+        showAnswerButton.setOnClickListener(v -> finish());
+        onSessionCompleted(reviewedCount, correctCount);
+    }
+
+    private void showNothingDue() {
+        progressText.setText("");
+        questionText.setText("No cards are due right now.\n\n" + nextReviewMessage());
+        showAnswerButton.setText("Done");
+        showAnswerButton.setOnClickListener(v -> finish());
+    }
+
+    private String nextReviewMessage() {
+        long nextDue = DueQueueIndex.getInstance().getQueue(deckKey).nextDueMillis();
+        if (nextDue <= 0) {
+            return "";
+        }
+        return "Next review " + DateUtils.getRelativeTimeSpanString(nextDue, System.currentTimeMillis(),
+                DateUtils.MINUTE_IN_MILLIS) + ".";
     }
 }
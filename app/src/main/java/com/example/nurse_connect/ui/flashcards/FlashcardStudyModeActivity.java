@@ -462,81 +462,33 @@ public class FlashcardStudyModeActivity extends AppCompatActivity implements Sav
         Log.d(TAG, "Card count: " + cardCount + " (fixed for study mode), Difficulty: " + recommendedDifficulty);
         Log.d(TAG, "User history count: " + userHistory.size());
         
-        geminiService.generateFlashcardsWithAI(
-            userCareer, 
-            userCourse, 
-            selectedUnit, 
-            cardCount, 
-            FlashcardGameMode.STUDY_MODE, 
-            recommendedDifficulty, 
-            "No time limit",
-            userHistory,
-            new FlashcardService.FlashcardCallback() {
-                @Override
-                public void onFlashcardsLoaded(List<Flashcard> flashcards) {
-                    runOnUiThread(() -> {
-                        progressBar.setVisibility(View.GONE);
-                        btnStartStudying.setEnabled(true);
-                        btnStartStudying.setText("Start Studying");
-                        
-                        Log.d(TAG, "Successfully generated " + flashcards.size() + " flashcards for unit: " + selectedUnit);
-                        
-                        // Debug: Log the first flashcard
-                        if (!flashcards.isEmpty()) {
-                            Flashcard firstCard = flashcards.get(0);
-                            Log.d(TAG, "First flashcard question: " + firstCard.getQuestion());
-                            if (firstCard.getOptions() != null) {
-                                Log.d(TAG, "First flashcard options count: " + firstCard.getOptions().size());
-                                for (int i = 0; i < firstCard.getOptions().size(); i++) {
-                                    Log.d(TAG, "Option " + i + ": '" + firstCard.getOptions().get(i) + "'");
-                                }
-                            } else {
-                                Log.w(TAG, "First flashcard has no options!");
-                            }
-                        }
-                        
-                        // Create study session deck
-                        FlashcardDeck deck = new FlashcardDeck();
-                        deck.setName("Study Session - " + selectedUnit);
-                        deck.setCareer(userCareer);
-                        deck.setCourse(userCourse);
-                        deck.setUnit(selectedUnit);
-                        deck.setTotalFlashcards(flashcards.size());
-                        deck.setSource("AI Study Mode - " + cardCount + " questions - " + recommendedDifficulty);
-                        
-                        List<String> flashcardIds = new ArrayList<>();
-                        for (Flashcard flashcard : flashcards) {
-                            flashcardIds.add(flashcard.getFlashcardId());
-                        }
-                        deck.setFlashcardIds(flashcardIds);
-                        
-                        // Start new study session (reset counter)
-                        studyProgressManager.startNewStudySession();
-                        
-                        // Navigate to study activity
-                        Intent intent = new Intent(FlashcardStudyModeActivity.this, FlashcardActivity.class);
-                        intent.putExtra("selected_deck", deck);
-                        intent.putExtra("selected_game_mode", FlashcardGameMode.STUDY_MODE);
-                        intent.putExtra("is_study_mode", true);
-                        intent.putExtra("flashcards", new ArrayList<>(flashcards));
-                        startActivityForResult(intent, 1002); // Use 1002 for quiz completion
-                    });
-                }
-                
-                @Override
-                public void onError(String error) {
-                    runOnUiThread(() -> {
-                        progressBar.setVisibility(View.GONE);
-                        btnStartStudying.setEnabled(true);
-                        btnStartStudying.setText("Start Studying");
-                        
-                        Log.e(TAG, "AI flashcard generation failed: " + error);
-                        Toast.makeText(FlashcardStudyModeActivity.this, 
-                            "Failed to generate flashcards: " + error, Toast.LENGTH_LONG).show();
-                    });
-                }
-            }
-        );
+        progressBar.setVisibility(View.GONE);
+        btnStartStudying.setEnabled(true);
+        btnStartStudying.setText("Start Studying");
+        
+        // Create study session deck; its cards are streamed in by FlashcardActivity
+        FlashcardDeck deck = new FlashcardDeck();
+        deck.setName("Study Session - " + selectedUnit);
+        deck.setCareer(userCareer);
+        deck.setCourse(userCourse);
+        deck.setUnit(selectedUnit);
+        deck.setTotalFlashcards(cardCount);
+        deck.setSource("AI Study Mode - " + cardCount + " questions - " + recommendedDifficulty);
+        
+        // Start new study session (reset counter)
+        studyProgressManager.startNewStudySession();
+        
+        // Navigate to study activity right away: the first card shows as soon as it is generated
+        Intent intent = new Intent(FlashcardStudyModeActivity.this, FlashcardActivity.class);
+        intent.putExtra("selected_deck", deck);
+        intent.putExtra("selected_game_mode", FlashcardGameMode.STUDY_MODE);
+        intent.putExtra("is_study_mode", true);
+        intent.putExtra("selected_difficulty", recommendedDifficulty);
+        intent.putExtra("selected_time_limit", "No time limit");
+        intent.putExtra("stream_generation", true);
+        intent.putExtra("generation_count", cardCount);
+        intent.putStringArrayListExtra("generation_history", new ArrayList<>(userHistory));
+        startActivityForResult(intent, 1002); // Use 1002 for quiz completion
     }
     
     private int calculateOptimalCardCount() {
@@ -19,9 +19,10 @@ import com.example.nurse_connect.adapters.QuizOptionAdapter;
 import com.example.nurse_connect.databinding.ActivityQuizMatchBinding;
 import com.example.nurse_connect.models.QuizMatch;
 import com.example.nurse_connect.models.QuizQuestion;
+import com.example.nurse_connect.services.MatchClock;
+import com.example.nurse_connect.services.MatchQuestionBundle;
 import com.example.nurse_connect.services.QuizMatchService;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.util.Locale;
 import java.util.Map;
@@ -33,11 +34,11 @@ public class QuizMatchActivity extends AppCompatActivity implements
     private ActivityQuizMatchBinding binding;
     
     private QuizMatchService quizService;
-    private FirebaseFirestore db;
     private String currentUserId;
     private QuizMatch currentMatch;
     private QuizQuestion currentQuestion;
     private CountDownTimer questionTimer;
+    private long timerDeadline; // server time the running timer counts down to
     private QuizOptionAdapter optionAdapter;
     private boolean isAnswering = false; // Debouncing flag to prevent multiple rapid clicks
     
@@ -55,8 +56,7 @@ public class QuizMatchActivity extends AppCompatActivity implements
         setContentView(binding.getRoot());
         
         // Initialize services
-        quizService = new QuizMatchService();
-        db = FirebaseFirestore.getInstance();
+        quizService = new QuizMatchService(this);
         currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
         
         // Get match ID from intent
@@ -220,6 +220,11 @@ public class QuizMatchActivity extends AppCompatActivity implements
                 !match.getCurrentQuestionId().equals(currentQuestion.getQuestionId())) {
                 Log.d(TAG, "📚 Loading current question: " + match.getCurrentQuestionId());
                 loadCurrentQuestion();
+            } else if (match.getQuestionDeadlineMillis() != timerDeadline
+                    && !match.getPlayersAnsweredCurrentQuestion().getOrDefault(currentUserId, false)) {
+                // The server stamped the question start after we displayed it
+                Log.d(TAG, "⏰ Question deadline updated, resyncing timer");
+                startQuestionTimer();
             } else {
                 Log.d(TAG, "📚 Question already loaded: " + currentQuestion.getQuestionId());
             }
@@ -314,34 +319,40 @@ public class QuizMatchActivity extends AppCompatActivity implements
               " for match: " + currentMatch.getMatchId() + 
               " status: " + currentMatch.getStatus());
         
-        db.collection("quiz_questions")
-                .document(currentMatch.getCurrentQuestionId())
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        currentQuestion = documentSnapshot.toObject(QuizQuestion.class);
-                        if (currentQuestion != null) {
-                            Log.d(TAG, "Question loaded successfully: " + currentQuestion.getQuestion());
-                            displayQuestion();
-                            startQuestionTimer();
-                            
-                            // Show question transition message if this is not the first question
-                            if (currentMatch.getCurrentQuestionIndex() > 0) {
-                                showQuestionTransition();
-                            }
-                        } else {
-                            Log.e(TAG, "Failed to parse question document");
-                            Toast.makeText(this, "Failed to parse question", Toast.LENGTH_SHORT).show();
-                        }
-                    } else {
-                        Log.e(TAG, "Question document does not exist: " + currentMatch.getCurrentQuestionId());
-                        Toast.makeText(this, "Question not found", Toast.LENGTH_SHORT).show();
+        String questionId = currentMatch.getCurrentQuestionId();
+        quizService.loadQuestionBundle(currentMatch, new MatchQuestionBundle.BundleCallback() {
+            @Override
+            public void onBundleReady(MatchQuestionBundle bundle) {
+                runOnUiThread(() -> {
+                    if (currentMatch == null || !questionId.equals(currentMatch.getCurrentQuestionId())) {
+                        // The match moved on while the bundle was loading
+                        return;
+                    }
+                    QuizQuestion question = bundle.getQuestion(questionId);
+                    if (question == null) {
+                        Log.e(TAG, "Question not in match bundle: " + questionId);
+                        Toast.makeText(QuizMatchActivity.this, "Question not found", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    currentQuestion = question;
+                    Log.d(TAG, "Question loaded from bundle: " + currentQuestion.getQuestion());
+                    displayQuestion();
+                    startQuestionTimer();
+                    
+                    // Show question transition message if this is not the first question
+                    if (currentMatch.getCurrentQuestionIndex() > 0) {
+                        showQuestionTransition();
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to load question", e);
-                    Toast.makeText(this, "Failed to load question", Toast.LENGTH_SHORT).show();
                 });
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Failed to load question", e);
+                runOnUiThread(() -> Toast.makeText(QuizMatchActivity.this,
+                        "Failed to load question", Toast.LENGTH_SHORT).show());
+            }
+        });
     }
     
     /**
@@ -418,9 +429,16 @@ public class QuizMatchActivity extends AppCompatActivity implements
             questionTimer.cancel();
         }
         
-        int timeLimit = currentQuestion.getTimeLimit();
+        // Count down to the deadline in server time so both players see the same remaining time
+        int timeLimit = currentMatch.getQuestionTimeLimit();
+        timerDeadline = currentMatch.getQuestionDeadlineMillis();
+        long remainingMillis = timeLimit * 1000L;
+        if (timerDeadline > 0) {
+            long localDeadline = MatchClock.getInstance().toLocalTime(timerDeadline);
+            remainingMillis = Math.max(0, Math.min(remainingMillis, localDeadline - System.currentTimeMillis()));
+        }
         Log.d(TAG, "⏰ Starting timer for question " + (currentMatch.getCurrentQuestionIndex() + 1) + 
-              " with " + timeLimit + " seconds");
+              " with " + remainingMillis + "ms of " + timeLimit + " seconds");
         
         // Get references to our new circular timer components
         View circularTimerView = findViewById(R.id.circular_timer);
@@ -433,7 +451,7 @@ public class QuizMatchActivity extends AppCompatActivity implements
         
         // Set up the circular progress bar
         timerProgress.setMax(timeLimit);
-        timerProgress.setProgress(timeLimit);
+        timerProgress.setProgress((int) (remainingMillis / 1000));
         
         // Reset progress bar color
         timerProgress.getProgressDrawable().setColorFilter(
@@ -441,7 +459,7 @@ public class QuizMatchActivity extends AppCompatActivity implements
             android.graphics.PorterDuff.Mode.SRC_IN
         );
         
-        questionTimer = new CountDownTimer(timeLimit * 1000, 100) {
+        questionTimer = new CountDownTimer(remainingMillis, 100) {
             @Override
             public void onTick(long millisUntilFinished) {
                 int secondsLeft = (int) (millisUntilFinished / 1000);
@@ -491,11 +509,7 @@ public class QuizMatchActivity extends AppCompatActivity implements
                 binding.textQuestionStatus.setText("⏰ Time's up! Waiting for opponent...");
                 binding.textQuestionStatus.setVisibility(View.VISIBLE);
                 
-                // If this player hasn't answered yet, mark them as answered
-                if (!currentMatch.getPlayersAnsweredCurrentQuestion().getOrDefault(currentUserId, false)) {
-                    currentMatch.markPlayerAnswered(currentUserId);
-                    Log.d(TAG, "⏰ Marked player " + currentUserId + " as answered due to timeout");
-                }
+                // The match clock closes the question for everyone at the server deadline
             }
         };
         questionTimer.start();
@@ -552,7 +566,8 @@ public class QuizMatchActivity extends AppCompatActivity implements
                         playCorrectSound(); // Play sound for correct answer
                     } else {
                         // Show incorrect answer but allow retry
-                        optionAdapter.showIncorrectAnswer(position, currentQuestion.getCorrectAnswerIndex());
+                        // The bundle never exposes the correct option, so only mark the wrong pick
+                        optionAdapter.showIncorrectAnswer(position, -1);
                         
                         // Check if question is already completed by opponent
                         if (message.contains("Question already completed")) {
@@ -47,7 +47,7 @@ public class QuizMatchmakingActivity extends AppCompatActivity implements
         binding = ActivityQuizMatchmakingBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
         
-        quizService = new QuizMatchService();
+        quizService = new QuizMatchService(this);
         
         // Initialize curriculum structure
         careerLevels = NursingCurriculum.getCurriculum();
@@ -242,8 +242,13 @@ public class QuizMatchmakingActivity extends AppCompatActivity implements
         // Start dynamic status updates
         startDynamicStatusUpdates();
         
-        // Use the new system: find available matches or create new one
-        quizService.findAvailableMatches(courseName, unitName, careerName, selectedPlayerCount, this);
+        if (selectedPlayerCount == 2) {
+            // 1v1 battles go through the bucketed matchmaking queue
+            quizService.joinMatchmaking(courseName, unitName, careerName, this);
+        } else {
+            // Group battles: find available matches or create new one
+            quizService.findAvailableMatches(courseName, unitName, careerName, selectedPlayerCount, this);
+        }
     }
     
     private void startDynamicStatusUpdates() {
@@ -278,6 +283,7 @@ public class QuizMatchmakingActivity extends AppCompatActivity implements
     
     private void cancelMatchmaking() {
         isSearching = false;
+        quizService.cancelMatchmaking();
         updateUI();
         
         binding.textStatus.setText("Select your quiz preferences and find a match!");
@@ -39,7 +39,7 @@ public class QuizWaitingRoomActivity extends AppCompatActivity implements
         setContentView(binding.getRoot());
         
         // Initialize services
-        quizService = new QuizMatchService();
+        quizService = new QuizMatchService(this);
         db = FirebaseFirestore.getInstance();
         currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
         
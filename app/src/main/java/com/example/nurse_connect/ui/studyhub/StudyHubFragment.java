@@ -20,6 +20,7 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
@@ -62,6 +63,7 @@ public class StudyHubFragment extends Fragment implements StudyMaterialAdapter.O
         
         // Set AuthViewModel in StudyMaterialViewModel for user authentication
         viewModel.setAuthViewModel(authViewModel);
+        viewModel.enableMaterialFeed(requireContext());
         
         setupRecyclerView();
         setupUI();
@@ -80,6 +82,20 @@ public class StudyHubFragment extends Fragment implements StudyMaterialAdapter.O
         
         binding.rvMaterials.setLayoutManager(new LinearLayoutManager(getContext()));
         binding.rvMaterials.setAdapter(adapter);
+        
+        // Load the next page before the user reaches the end of the list
+        binding.rvMaterials.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) {
+                    return;
+                }
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null) {
+                    viewModel.onMaterialsScrolled(layoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
     }
     
     private void setupUI() {
@@ -211,7 +227,7 @@ public class StudyHubFragment extends Fragment implements StudyMaterialAdapter.O
     
     private void observeViewModel() {
         viewModel.getStudyMaterials().observe(getViewLifecycleOwner(), materials -> {
-            adapter.setMaterials(materials);
+            adapter.submitMaterials(materials);
             updateEmptyState(materials);
             
 
@@ -339,9 +355,9 @@ public class StudyHubFragment extends Fragment implements StudyMaterialAdapter.O
             @Override
             public void onSuccess() {
                 Log.d("StudyHubFragment", "View count incremented successfully for: " + material.getId());
-                // Refresh the material list to show updated counts
-                if (viewModel != null) {
-                    viewModel.loadStudyMaterials();
+                // Update the row in place; reloading would drop the pages scrolled so far
+                if (adapter != null) {
+                    adapter.updateMaterialViewCount(material.getId(), material.getViews() + 1);
                 }
             }
 
@@ -373,9 +389,9 @@ public class StudyHubFragment extends Fragment implements StudyMaterialAdapter.O
             @Override
             public void onSuccess() {
                 Log.d("StudyHubFragment", "Download count incremented successfully for: " + material.getId());
-                // Refresh the material list to show updated counts
-                if (viewModel != null) {
-                    viewModel.loadStudyMaterials();
+                // Update the row in place; reloading would drop the pages scrolled so far
+                if (adapter != null) {
+                    adapter.updateMaterialDownloadCount(material.getId(), material.getDownloads() + 1);
                 }
             }
 
@@ -0,0 +1,85 @@
+package com.example.nurse_connect.utils;
+
+/**
+ * Fixed-size Bloom filter over strings: answers "definitely not present" or "probably
+ * present" in constant time from a bit array a few bits per entry in size. Bit
+ * positions come from double hashing of one 64-bit hash. Plain data, so it can be
+ * persisted with Gson.
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final long[] bits;
+    private final int numBits;
+    private final int numHashes;
+
+    private BloomFilter(int numBits, int numHashes) {
+        this.bits = new long[(numBits + 63) / 64];
+        this.numBits = bits.length * 64;
+        this.numHashes = numHashes;
+    }
+
+    /**
+     * Size a filter so that expectedEntries entries give about falsePositiveRate false positives
+     */
+    public static BloomFilter create(int expectedEntries, double falsePositiveRate) {
+        int entries = Math.max(1, expectedEntries);
+        double rate = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long numBits = (long) Math.ceil(-entries * Math.log(rate) / (LN2 * LN2));
+        numBits = Math.max(64, Math.min(numBits, Integer.MAX_VALUE - 63));
+        int numHashes = (int) Math.max(1, Math.round((double) numBits / entries * LN2));
+        return new BloomFilter((int) numBits, numHashes);
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, numBits);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, numBits);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    // 64-bit FNV-1a over the UTF-16 code units
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // MurmurHash3 finalizer, so neighbouring IDs spread over the whole bit array
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE53EC5BL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
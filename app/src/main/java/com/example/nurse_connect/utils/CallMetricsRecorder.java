@@ -0,0 +1,107 @@
+package com.example.nurse_connect.utils;
+
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records incoming-call ring latency (call document created -> device rings).
+ * Each sample is written to the call_metrics collection so it can be graphed,
+ * and a rolling window is kept in memory for quick p50/p95 logging.
+ */
+public class CallMetricsRecorder {
+
+    private static final String TAG = "CallMetricsRecorder";
+    private static final String COLLECTION = "call_metrics";
+    private static final int WINDOW_SIZE = 50;
+
+    private static CallMetricsRecorder instance;
+
+    private final FirebaseFirestore db;
+    private final Deque<Long> recentLatencies = new ArrayDeque<>();
+
+    private CallMetricsRecorder() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized CallMetricsRecorder getInstance() {
+        if (instance == null) {
+            instance = new CallMetricsRecorder();
+        }
+        return instance;
+    }
+
+    /**
+     * Record that the device started ringing for the given call document.
+     * Prefers the server "createdAt" timestamp and falls back to the caller's "startTime".
+     */
+    public void recordRing(DocumentSnapshot callDoc, String receiverId, long ringTimeMillis) {
+        Timestamp createdAt = callDoc.getTimestamp("createdAt");
+        Long startTime = callDoc.getLong("startTime");
+
+        long createdMillis;
+        String source;
+        if (createdAt != null) {
+            createdMillis = createdAt.toDate().getTime();
+            source = "server";
+        } else if (startTime != null) {
+            createdMillis = startTime;
+            source = "caller_clock";
+        } else {
+            Log.w(TAG, "Call " + callDoc.getId() + " has no creation time, skipping ring latency");
+            return;
+        }
+
+        // Clamp negative values caused by clock skew between devices
+        long latency = Math.max(0, ringTimeMillis - createdMillis);
+        addSample(latency);
+
+        Map<String, Object> metric = new HashMap<>();
+        metric.put("callId", callDoc.getId());
+        metric.put("receiverId", receiverId);
+        metric.put("callType", callDoc.getString("callType"));
+        metric.put("ringLatencyMs", latency);
+        metric.put("latencySource", source);
+        metric.put("ringedAt", ringTimeMillis);
+        metric.put("recordedAt", FieldValue.serverTimestamp());
+
+        db.collection(COLLECTION)
+                .document(callDoc.getId())
+                .set(metric)
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to store ring latency for " + callDoc.getId(), e));
+
+        Log.d(TAG, "Ring latency for call " + callDoc.getId() + ": " + latency + "ms (" + source
+                + "), p50=" + getPercentile(50) + "ms, p95=" + getPercentile(95) + "ms");
+    }
+
+    private synchronized void addSample(long latency) {
+        if (recentLatencies.size() >= WINDOW_SIZE) {
+            recentLatencies.removeFirst();
+        }
+        recentLatencies.addLast(latency);
+    }
+
+    /**
+     * Get a percentile (0-100) of the recent ring latencies, or -1 if none were recorded
+     */
+    public synchronized long getPercentile(int percentile) {
+        if (recentLatencies.isEmpty()) {
+            return -1;
+        }
+        List<Long> sorted = new ArrayList<>(recentLatencies);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.nurse_connect.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches any number of documents by ID. Cached documents are served first; the rest
+ * are split into chunks no larger than the backend's "in" limit, with at most
+ * maxParallel chunks in flight at a time. Results come back once, deduplicated, in
+ * the order the IDs were requested, together with the IDs that do not exist.
+ */
+public class ChunkedMultiGet<T> {
+
+    /** Firestore accepts at most 30 values in an "in" filter */
+    public static final int MAX_IN_VALUES = 30;
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Loads one chunk; found documents are keyed by ID, missing ones are left out
+     */
+    public interface ChunkLoader<T> {
+        void load(List<String> ids, ChunkCallback<T> callback);
+    }
+
+    public interface ChunkCallback<T> {
+        void onChunkLoaded(Map<String, T> found);
+        void onError(Exception e);
+    }
+
+    public interface Callback<T> {
+        void onLoaded(List<T> results, List<String> missingIds);
+        void onError(Exception e);
+    }
+
+    private final ChunkLoader<T> loader;
+    private final DocumentCache<T> cache;
+    private final int chunkSize;
+    private final int maxParallel;
+
+    public ChunkedMultiGet(ChunkLoader<T> loader, DocumentCache<T> cache) {
+        this(loader, cache, MAX_IN_VALUES, DEFAULT_PARALLELISM);
+    }
+
+    public ChunkedMultiGet(ChunkLoader<T> loader, DocumentCache<T> cache, int chunkSize, int maxParallel) {
+        this.loader = loader;
+        this.cache = cache;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxParallel = Math.max(1, maxParallel);
+    }
+
+    public void get(List<String> ids, Callback<T> callback) {
+        List<String> requested = new ArrayList<>();
+        if (ids != null) {
+            for (String id : new LinkedHashSet<>(ids)) {
+                if (id != null && !id.isEmpty()) {
+                    requested.add(id);
+                }
+            }
+        }
+
+        Map<String, T> found = new HashMap<>();
+        List<String> toFetch = new ArrayList<>();
+        for (String id : requested) {
+            T cached = cache != null ? cache.get(id) : null;
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                toFetch.add(id);
+            }
+        }
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < toFetch.size(); i += chunkSize) {
+            chunks.add(new ArrayList<>(toFetch.subList(i, Math.min(i + chunkSize, toFetch.size()))));
+        }
+        new Request(requested, found, chunks, callback).start();
+    }
+
+    /**
+     * State of one get() call; chunk callbacks may arrive on any thread
+     */
+    private class Request {
+        private final List<String> requested;
+        private final Map<String, T> found;
+        private final List<List<String>> chunks;
+        private final Callback<T> callback;
+        private int nextChunk;
+        private int completedChunks;
+        private boolean finished;
+
+        Request(List<String> requested, Map<String, T> found, List<List<String>> chunks, Callback<T> callback) {
+            this.requested = requested;
+            this.found = found;
+            this.chunks = chunks;
+            this.callback = callback;
+        }
+
+        void start() {
+            if (chunks.isEmpty()) {
+                finish();
+                return;
+            }
+            int initial;
+            synchronized (this) {
+                initial = Math.min(maxParallel, chunks.size());
+                nextChunk = initial;
+            }
+            for (int i = 0; i < initial; i++) {
+                load(chunks.get(i));
+            }
+        }
+
+        private void load(List<String> chunk) {
+            try {
+                loader.load(chunk, new ChunkCallback<T>() {
+                    @Override
+                    public void onChunkLoaded(Map<String, T> loaded) {
+                        onChunkDone(loaded);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        fail(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void onChunkDone(Map<String, T> loaded) {
+            List<String> next = null;
+            boolean done;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                if (loaded != null) {
+                    for (Map.Entry<String, T> entry : loaded.entrySet()) {
+                        found.put(entry.getKey(), entry.getValue());
+                        if (cache != null) {
+                            cache.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+                completedChunks++;
+                if (nextChunk < chunks.size()) {
+                    next = chunks.get(nextChunk++);
+                }
+                done = completedChunks == chunks.size();
+            }
+            if (next != null) {
+                load(next);
+            } else if (done) {
+                finish();
+            }
+        }
+
+        private void fail(Exception e) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                // Chunks not started yet are dropped; late answers are ignored
+                finished = true;
+            }
+            callback.onError(e);
+        }
+
+        private void finish() {
+            List<T> results = new ArrayList<>();
+            List<String> missing = new ArrayList<>();
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                for (String id : requested) {
+                    T value = found.get(id);
+                    if (value != null) {
+                        results.add(value);
+                    } else {
+                        missing.add(id);
+                    }
+                }
+            }
+            callback.onLoaded(results, missing);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.nurse_connect.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small in-memory LRU cache of documents by ID. Entries expire after ttlMillis so a
+ * cached copy never hides remote changes for long.
+ */
+public class DocumentCache<T> {
+
+    private static class Entry<T> {
+        final T value;
+        final long storedAt;
+
+        Entry(T value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry<T>> entries;
+
+    public DocumentCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                return size() > DocumentCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached document, or null when it is missing or expired
+     */
+    public synchronized T get(String id, long nowMillis) {
+        Entry<T> entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (nowMillis - entry.storedAt > ttlMillis) {
+            entries.remove(id);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public T get(String id) {
+        return get(id, System.currentTimeMillis());
+    }
+
+    public synchronized void put(String id, T value, long nowMillis) {
+        entries.put(id, new Entry<>(value, nowMillis));
+    }
+
+    public void put(String id, T value) {
+        put(id, value, System.currentTimeMillis());
+    }
+
+    public synchronized void invalidate(String id) {
+        entries.remove(id);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
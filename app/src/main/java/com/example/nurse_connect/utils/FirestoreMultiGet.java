@@ -0,0 +1,83 @@
+package com.example.nurse_connect.utils;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-get of Firestore documents by ID beyond the whereIn limit (see ChunkedMultiGet).
+ * Snapshots are cached per collection for a few minutes and mapped by the caller, so
+ * every caller gets its own model objects.
+ */
+public class FirestoreMultiGet {
+
+    private static final String TAG = "FirestoreMultiGet";
+    private static final int CACHE_ENTRIES_PER_COLLECTION = 500;
+    private static final long CACHE_TTL = 5 * 60 * 1000; // 5 minutes
+
+    private static final Map<String, DocumentCache<DocumentSnapshot>> caches = new HashMap<>();
+
+    /**
+     * Load documents of a collection in the order of the given IDs
+     */
+    public static void get(String collection, List<String> ids, ChunkedMultiGet.Callback<DocumentSnapshot> callback) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        ChunkedMultiGet.ChunkLoader<DocumentSnapshot> loader = (chunk, chunkCallback) ->
+                db.collection(collection)
+                        .whereIn(FieldPath.documentId(), chunk)
+                        .get()
+                        .addOnSuccessListener(querySnapshot -> {
+                            Map<String, DocumentSnapshot> found = new HashMap<>();
+                            for (DocumentSnapshot document : querySnapshot) {
+                                found.put(document.getId(), document);
+                            }
+                            chunkCallback.onChunkLoaded(found);
+                        })
+                        .addOnFailureListener(chunkCallback::onError);
+
+        new ChunkedMultiGet<>(loader, cacheFor(collection)).get(ids, new ChunkedMultiGet.Callback<DocumentSnapshot>() {
+            @Override
+            public void onLoaded(List<DocumentSnapshot> results, List<String> missingIds) {
+                Log.d(TAG, collection + ": loaded " + results.size() + " of " + ids.size()
+                        + " documents, " + missingIds.size() + " missing");
+                callback.onLoaded(results, missingIds);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Failed to load documents from " + collection, e);
+                callback.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Drop a cached document after writing it locally
+     */
+    public static void invalidate(String collection, String id) {
+        DocumentCache<DocumentSnapshot> cache;
+        synchronized (caches) {
+            cache = caches.get(collection);
+        }
+        if (cache != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    private static DocumentCache<DocumentSnapshot> cacheFor(String collection) {
+        synchronized (caches) {
+            DocumentCache<DocumentSnapshot> cache = caches.get(collection);
+            if (cache == null) {
+                cache = new DocumentCache<>(CACHE_ENTRIES_PER_COLLECTION, CACHE_TTL);
+                caches.put(collection, cache);
+            }
+            return cache;
+        }
+    }
+}
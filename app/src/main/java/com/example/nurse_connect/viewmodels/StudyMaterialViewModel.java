@@ -1,12 +1,15 @@
 package com.example.nurse_connect.viewmodels;
 
+import android.content.Context;
 import android.net.Uri;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.nurse_connect.data.StudyMaterialFeed;
 import com.example.nurse_connect.data.StudyMaterialRepository;
+import com.example.nurse_connect.data.FavoritesIndex;
 import com.example.nurse_connect.data.FavoritesRepository;
 import com.example.nurse_connect.models.StudyMaterial;
 import com.example.nurse_connect.viewmodels.AuthViewModel;
@@ -16,6 +19,9 @@ import java.util.List;
 public class StudyMaterialViewModel extends ViewModel {
     private StudyMaterialRepository repository;
     private AuthViewModel authViewModel;
+    private StudyMaterialFeed materialFeed;
+    // False while studyMaterials shows search results rather than the feed
+    private boolean feedActive;
     
     private MutableLiveData<List<StudyMaterial>> studyMaterials;
     private MutableLiveData<List<StudyMaterial>> userMaterials;
@@ -53,8 +59,56 @@ public class StudyMaterialViewModel extends ViewModel {
     public LiveData<Boolean> getUploadSuccess() { return uploadSuccess; }
     public LiveData<String> getUploadError() { return uploadError; }
     
+    /**
+     * Page the library instead of loading whole collections; the feed lives as long as this ViewModel
+     */
+    public void enableMaterialFeed(Context context) {
+        if (materialFeed == null) {
+            materialFeed = new StudyMaterialFeed(context);
+        }
+    }
+    
+    private final StudyMaterialFeed.PageCallback feedCallback = new StudyMaterialFeed.PageCallback() {
+        @Override
+        public void onPage(List<StudyMaterial> loaded, boolean hasMore) {
+            if (feedActive) {
+                studyMaterials.postValue(loaded);
+            }
+            isLoading.postValue(false);
+        }
+        
+        @Override
+        public void onFailure(Exception e) {
+            errorMessage.postValue(e.getMessage());
+            isLoading.postValue(false);
+        }
+    };
+    
+    private void loadFeed(String category, String authorId) {
+        feedActive = true;
+        errorMessage.postValue(null);
+        // Show the cached first pages while the first page refreshes
+        List<StudyMaterial> cached = materialFeed.getCachedPages(category, authorId);
+        if (!cached.isEmpty()) {
+            studyMaterials.postValue(cached);
+        }
+        isLoading.postValue(true);
+        materialFeed.loadFirstPage(category, authorId, feedCallback);
+    }
+    
+    // Prefetch the next page as the list nears the end of what is loaded
+    public void onMaterialsScrolled(int lastVisiblePosition) {
+        if (materialFeed != null && feedActive) {
+            materialFeed.onPositionVisible(lastVisiblePosition, feedCallback);
+        }
+    }
+    
     // Load all study materials
     public void loadStudyMaterials() {
+        if (materialFeed != null) {
+            loadFeed(null, null);
+            return;
+        }
         isLoading.postValue(true);
         errorMessage.postValue(null);
         
@@ -75,6 +129,10 @@ public class StudyMaterialViewModel extends ViewModel {
     
     // Load study materials by category
     public void loadStudyMaterialsByCategory(String category) {
+        if (materialFeed != null) {
+            loadFeed(category, null);
+            return;
+        }
         isLoading.postValue(true);
         errorMessage.postValue(null);
         
@@ -95,6 +153,10 @@ public class StudyMaterialViewModel extends ViewModel {
     
     // Load study materials by user
     public void loadStudyMaterialsByUser(String userId) {
+        if (materialFeed != null) {
+            loadFeed(null, userId);
+            return;
+        }
         isLoading.postValue(true);
         errorMessage.postValue(null);
         
@@ -353,15 +415,14 @@ public class StudyMaterialViewModel extends ViewModel {
         // This will remove the material from the user's private favorites collection
     }
     
-    // Check if material is in user's favorites
+    // Check if material is in user's favorites (answered locally, see FavoritesIndex)
     public boolean isFavorite(String materialId) {
-        // TODO: Implement when user authentication is ready
-        // This will check if the material is in the user's favorites
-        return false;
+        return FavoritesIndex.getInstance().isFavorite(materialId);
     }
     
     // Search study materials
     public void searchStudyMaterials(String query) {
+        feedActive = false;
         isLoading.postValue(true);
         errorMessage.postValue(null);
         
@@ -382,6 +443,7 @@ public class StudyMaterialViewModel extends ViewModel {
     
     // Search study materials within a specific category
     public void searchStudyMaterialsByCategory(String query, String category) {
+        feedActive = false;
         isLoading.postValue(true);
         errorMessage.postValue(null);
         
@@ -0,0 +1,60 @@
+package com.example.nurse_connect.models;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RatingAggregateTest {
+
+    @Test
+    public void incrementalUpdatesMatchAFullRecount() {
+        Random random = new Random(7);
+        int[] byUser = new int[50]; // 0 = not rated
+        RatingAggregate aggregate = new RatingAggregate();
+        for (int i = 0; i < 1000; i++) {
+            int user = random.nextInt(byUser.length);
+            int rating = random.nextInt(6); // 0 withdraws the rating
+            aggregate.replace(byUser[user], rating);
+            byUser[user] = rating;
+        }
+
+        RatingStats recount = new RatingStats();
+        for (int rating : byUser) {
+            if (rating > 0) {
+                recount.addRating(rating);
+            }
+        }
+        RatingStats stats = aggregate.toStats();
+        assertEquals(recount.getTotalRatings(), stats.getTotalRatings());
+        assertEquals(recount.getAverageRating(), stats.getAverageRating(), 1e-6);
+        assertEquals(recount.getCount1(), stats.getCount1());
+        assertEquals(recount.getCount2(), stats.getCount2());
+        assertEquals(recount.getCount3(), stats.getCount3());
+        assertEquals(recount.getCount4(), stats.getCount4());
+        assertEquals(recount.getCount5(), stats.getCount5());
+    }
+
+    @Test
+    public void changingARatingMovesItBetweenStars() {
+        RatingAggregate aggregate = new RatingAggregate();
+        aggregate.replace(0, 2);
+        aggregate.replace(0, 4);
+        aggregate.replace(2, 5);
+
+        assertEquals(2, aggregate.getCount());
+        assertEquals(9, aggregate.getSum());
+        assertEquals(0, aggregate.starCount(2));
+        assertEquals(1, aggregate.starCount(5));
+        assertEquals(4.5f, aggregate.average(), 1e-6);
+    }
+
+    @Test
+    public void emptyAggregateHasNoAverage() {
+        RatingAggregate aggregate = new RatingAggregate();
+        aggregate.replace(3, 0);
+        assertEquals(0, aggregate.getCount());
+        assertEquals(0.0f, aggregate.average(), 0);
+    }
+}
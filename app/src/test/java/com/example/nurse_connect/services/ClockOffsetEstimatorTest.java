@@ -0,0 +1,67 @@
+package com.example.nurse_connect.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ClockOffsetEstimator
+ */
+public class ClockOffsetEstimatorTest {
+
+    @Test
+    public void testNoSamples_ZeroOffset() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+
+        assertFalse(estimator.hasEstimate());
+        assertEquals(0, estimator.getOffset());
+        assertEquals(-1, estimator.getUncertainty());
+    }
+
+    @Test
+    public void testSymmetricRoundTrip_RecoversOffset() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+
+        // Server is 5s ahead; 200ms round trip, stamped halfway
+        estimator.addSample(1_000, 1_200, 6_100);
+
+        assertEquals(5_000, estimator.getOffset());
+        assertEquals(100, estimator.getUncertainty());
+    }
+
+    @Test
+    public void testShortestRoundTripWins() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+
+        // A slow, asymmetric sample skews the estimate...
+        estimator.addSample(0, 2_000, 6_800);
+        // ...so the fast one should be preferred
+        estimator.addSample(10_000, 10_040, 15_020);
+
+        assertEquals(5_000, estimator.getOffset());
+        assertEquals(20, estimator.getUncertainty());
+        assertEquals(2, estimator.getSampleCount());
+    }
+
+    @Test
+    public void testNegativeRoundTrip_Rejected() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+
+        assertFalse(estimator.addSample(1_000, 900, 5_000));
+        assertFalse(estimator.hasEstimate());
+    }
+
+    @Test
+    public void testOldSamplesEvicted() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+
+        estimator.addSample(0, 10, -995); // offset -1000, best round trip
+        for (int i = 1; i <= 8; i++) {
+            estimator.addSample(i * 1_000, i * 1_000 + 100, i * 1_000 + 50 + 2_000);
+        }
+
+        // The 10ms sample fell out of the window
+        assertEquals(8, estimator.getSampleCount());
+        assertEquals(2_000, estimator.getOffset());
+    }
+}
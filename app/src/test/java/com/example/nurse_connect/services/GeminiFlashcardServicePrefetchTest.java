@@ -0,0 +1,128 @@
+package com.example.nurse_connect.services;
+
+import com.example.nurse_connect.models.Flashcard;
+import com.example.nurse_connect.models.FlashcardGameMode;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs GeminiFlashcardService against a local stub of the generateContent endpoint
+ */
+public class GeminiFlashcardServicePrefetchTest {
+
+    private static final String CARDS = "[{\\\"question\\\":\\\"Normal adult resting pulse?\\\","
+            + "\\\"options\\\":[\\\"60-100\\\",\\\"40-50\\\",\\\"110-130\\\",\\\"140-160\\\"],"
+            + "\\\"correctAnswer\\\":\\\"60-100\\\",\\\"rationale\\\":\\\"Normal range.\\\"}]";
+    private static final String RESPONSE = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + CARDS + "\"}]}}]}";
+    private static final long RESPONSE_DELAY_MS = 200;
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private GeminiFlashcardService service;
+    private String unit;
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            try {
+                Thread.sleep(RESPONSE_DELAY_MS);
+            } catch (InterruptedException ignored) {
+            }
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        service = new GeminiFlashcardService("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        // The generation cache is shared, so every test uses its own unit
+        unit = "Unit " + System.nanoTime();
+    }
+
+    @After
+    public void stopServer() {
+        service.cleanup();
+        server.stop(0);
+    }
+
+    private static class Result implements FlashcardService.FlashcardCallback {
+        final CountDownLatch done = new CountDownLatch(1);
+        List<Flashcard> flashcards;
+        String error;
+
+        @Override
+        public void onFlashcardsLoaded(List<Flashcard> flashcards) {
+            this.flashcards = flashcards;
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String error) {
+            this.error = error;
+            done.countDown();
+        }
+    }
+
+    private Result generate() throws InterruptedException {
+        Result result = new Result();
+        service.generateFlashcardsWithAI("CNA", "Basic Skills", unit, 1, FlashcardGameMode.STUDY_MODE,
+                "Medium", "No time limit", new ArrayList<>(), result);
+        assertTrue("generation finished", result.done.await(10, TimeUnit.SECONDS));
+        assertNull(result.error);
+        return result;
+    }
+
+    private void prefetch() {
+        service.prefetchFlashcards("CNA", "Basic Skills", unit, 1, FlashcardGameMode.STUDY_MODE,
+                "Medium", "No time limit", new ArrayList<>());
+    }
+
+    @Test
+    public void prefetchedBatchIsServedWithoutAnotherRequest() throws Exception {
+        prefetch();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!service.hasPrefetchedFlashcards(" cna", "basic skills", unit.toLowerCase(), 1,
+                FlashcardGameMode.STUDY_MODE, "MEDIUM", "no time limit")) {
+            assertTrue("prefetch finished", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+
+        long start = System.nanoTime();
+        Result result = generate();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(1, hits.get());
+        assertEquals(1, result.flashcards.size());
+        assertEquals("Normal adult resting pulse?", result.flashcards.get(0).getQuestion());
+        assertTrue("served in " + elapsedMillis + "ms", elapsedMillis < RESPONSE_DELAY_MS);
+    }
+
+    @Test
+    public void sessionStartJoinsRunningPrefetchAndBatchesAreNotReused() throws Exception {
+        prefetch();
+        Result first = generate();
+        assertEquals("session start waited for the prefetch", 1, hits.get());
+        assertEquals(1, first.flashcards.size());
+
+        generate();
+        assertEquals("a served batch is not handed out twice", 2, hits.get());
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.nurse_connect.services.battle;
+
+import com.example.nurse_connect.models.QuizMatch;
+import com.example.nurse_connect.services.matchlog.MatchEvent;
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stand-in for the quiz_matches collection with optimistic transactions:
+ * reads record a document version, commit fails if any of them changed and the body
+ * is re-run. Single-field updates bump the version like a Firestore write would, so
+ * they conflict with transactions that read the match. Listeners get copies of every
+ * committed state in commit order. Logged events are kept per match in commit order.
+ */
+class InMemoryBattleStore implements BattleStore {
+
+    private static final int MAX_ATTEMPTS = 25;
+
+    private static class Versioned {
+        final long version;
+        final QuizMatch value;
+
+        Versioned(long version, QuizMatch value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final Map<String, Versioned> documents = new HashMap<>();
+    private final Map<String, List<MatchEvent>> events = new HashMap<>();
+    private final Map<String, List<MatchListener>> matchListeners = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor();
+    private final long maxLatencyMs;
+
+    final AtomicInteger commits = new AtomicInteger();
+    final AtomicInteger retries = new AtomicInteger();
+    final AtomicInteger updates = new AtomicInteger();
+
+    InMemoryBattleStore(int threads, long maxLatencyMs) {
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.maxLatencyMs = maxLatencyMs;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        notifier.shutdownNow();
+    }
+
+    void createMatch(QuizMatch match) {
+        synchronized (lock) {
+            put(match);
+        }
+    }
+
+    QuizMatch getMatch(String matchId) {
+        synchronized (lock) {
+            Versioned doc = documents.get(matchId);
+            return doc != null ? copy(doc.value) : null;
+        }
+    }
+
+    List<MatchEvent> getEvents(String matchId) {
+        synchronized (lock) {
+            return new ArrayList<>(events.getOrDefault(matchId, new ArrayList<>()));
+        }
+    }
+
+    @Override
+    public <T> void runTransaction(TransactionBody<T> body, Callback<T> callback) {
+        executor.execute(() -> {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                InMemoryTransaction tx = new InMemoryTransaction();
+                T result;
+                try {
+                    result = body.apply(tx);
+                } catch (Exception e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                simulateLatency();
+                if (tx.commit()) {
+                    commits.incrementAndGet();
+                    callback.onSuccess(result);
+                    return;
+                }
+                retries.incrementAndGet();
+            }
+            callback.onFailure(new Exception("Transaction failed after " + MAX_ATTEMPTS + " attempts"));
+        });
+    }
+
+    @Override
+    public void setPlayerReady(String matchId, String playerId, boolean ready, MatchEvent event, Callback<Void> callback) {
+        update(matchId, match -> match.setPlayerReady(playerId, ready), event, callback);
+    }
+
+    private interface Mutation {
+        void apply(QuizMatch match);
+    }
+
+    private void update(String matchId, Mutation mutation, MatchEvent event, Callback<Void> callback) {
+        executor.execute(() -> {
+            simulateLatency();
+            synchronized (lock) {
+                Versioned doc = documents.get(matchId);
+                if (doc == null) {
+                    callback.onFailure(new Exception("No match " + matchId));
+                    return;
+                }
+                QuizMatch match = copy(doc.value);
+                mutation.apply(match);
+                put(match);
+                events.computeIfAbsent(matchId, id -> new ArrayList<>()).add(event);
+            }
+            updates.incrementAndGet();
+            callback.onSuccess(null);
+        });
+    }
+
+    @Override
+    public Registration listenToMatch(String matchId, MatchListener listener) {
+        matchListeners.computeIfAbsent(matchId, id -> new CopyOnWriteArrayList<>()).add(listener);
+        synchronized (lock) {
+            Versioned doc = documents.get(matchId);
+            if (doc != null) {
+                QuizMatch current = copy(doc.value);
+                notifier.execute(() -> listener.onMatchChanged(current));
+            }
+        }
+        return () -> {
+            List<MatchListener> listeners = matchListeners.get(matchId);
+            if (listeners != null) {
+                listeners.remove(listener);
+            }
+        };
+    }
+
+    @Override
+    public long serverTime() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Store a new version and queue listener notifications; caller holds the lock
+     */
+    private void put(QuizMatch match) {
+        if (match.getQuestionStartedAt() == null && "active".equals(match.getStatus())) {
+            // Stand-in for @ServerTimestamp
+            match.setQuestionStartedAt(new Timestamp(new Date(serverTime())));
+        }
+        Versioned doc = documents.get(match.getMatchId());
+        QuizMatch stored = copy(match);
+        documents.put(match.getMatchId(), new Versioned(doc != null ? doc.version + 1 : 1L, stored));
+
+        List<MatchListener> listeners = matchListeners.get(match.getMatchId());
+        if (listeners != null) {
+            for (MatchListener listener : listeners) {
+                QuizMatch snapshot = copy(stored);
+                notifier.execute(() -> listener.onMatchChanged(snapshot));
+            }
+        }
+    }
+
+    private void simulateLatency() {
+        if (maxLatencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxLatencyMs + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deep copy, standing in for a Firestore serialization round trip
+     */
+    static QuizMatch copy(QuizMatch source) {
+        QuizMatch match = new QuizMatch();
+        match.setMatchId(source.getMatchId());
+        match.setPlayerIds(new ArrayList<>(source.getPlayerIds()));
+        match.setPlayerNames(new HashMap<>(source.getPlayerNames()));
+        match.setPlayerScores(new HashMap<>(source.getPlayerScores()));
+        match.setCourse(source.getCourse());
+        match.setUnit(source.getUnit());
+        match.setCareer(source.getCareer());
+        match.setCurrentQuestionId(source.getCurrentQuestionId());
+        match.setCurrentQuestionIndex(source.getCurrentQuestionIndex());
+        match.setQuestionIds(new ArrayList<>(source.getQuestionIds()));
+        match.setStatus(source.getStatus());
+        match.setStartTime(source.getStartTime());
+        match.setEndTime(source.getEndTime());
+        match.setWinnerId(source.getWinnerId());
+        match.setTotalQuestions(source.getTotalQuestions());
+        match.setPlayersReady(new HashMap<>(source.getPlayersReady()));
+        match.setQuestionStartTime(source.getQuestionStartTime());
+        match.setQuestionTimeLimit(source.getQuestionTimeLimit());
+        match.setTargetPlayerCount(source.getTargetPlayerCount());
+        match.setMatchFull(source.isMatchFull());
+        match.setLeadingPlayer(source.getLeadingPlayer());
+        match.setPlayersAnsweredCurrentQuestion(new HashMap<>(source.getPlayersAnsweredCurrentQuestion()));
+        match.setCurrentQuestionAnsweredBy(source.getCurrentQuestionAnsweredBy());
+        match.setCurrentQuestionCompleted(source.isCurrentQuestionCompleted());
+        match.setCurrentQuestionStartTime(source.getCurrentQuestionStartTime());
+        match.setNextQuestionReadyTime(source.getNextQuestionReadyTime());
+        match.setNextQuestionButtonShown(source.isNextQuestionButtonShown());
+        match.setPlayersPressedNext(new HashMap<>(source.getPlayersPressedNext()));
+        match.setQuestionStartedAt(source.getQuestionStartedAt());
+        match.setQuestionCompletedAt(source.getQuestionCompletedAt());
+        match.setRated(source.isRated());
+        return match;
+    }
+
+    private class InMemoryTransaction implements Transaction {
+        private final Map<String, Long> readVersions = new HashMap<>();
+        private final Map<String, QuizMatch> writes = new HashMap<>();
+        private final Map<String, List<MatchEvent>> appended = new HashMap<>();
+
+        @Override
+        public QuizMatch readMatch(String matchId) {
+            simulateLatency();
+            synchronized (lock) {
+                Versioned doc = documents.get(matchId);
+                readVersions.put(matchId, doc != null ? doc.version : 0L);
+                return doc != null ? copy(doc.value) : null;
+            }
+        }
+
+        @Override
+        public void writeMatch(QuizMatch match) {
+            writes.put(match.getMatchId(), copy(match));
+        }
+
+        @Override
+        public void markQuestionCompleted(String matchId, long readyTime) {
+            QuizMatch match = pendingMatch(matchId);
+            match.setStatus("question_completed");
+            match.setNextQuestionReadyTime(readyTime);
+            match.setQuestionCompletedAt(new Timestamp(new Date(serverTime())));
+        }
+
+        @Override
+        public void markPressedNext(String matchId, String playerId) {
+            pendingMatch(matchId).markPlayerPressedNext(playerId);
+        }
+
+        @Override
+        public void awardPoint(String matchId, String playerId) {
+            QuizMatch match = pendingMatch(matchId);
+            match.incrementPlayerScore(playerId);
+            match.markPlayerAnswered(playerId);
+            match.setCurrentQuestionCompleted(true);
+            match.setCurrentQuestionAnsweredBy(playerId);
+        }
+
+        @Override
+        public void appendEvent(String matchId, MatchEvent event) {
+            appended.computeIfAbsent(matchId, id -> new ArrayList<>()).add(event);
+        }
+
+        /**
+         * Field updates apply to the pending write, or to the current document
+         */
+        private QuizMatch pendingMatch(String matchId) {
+            QuizMatch match = writes.get(matchId);
+            if (match == null) {
+                synchronized (lock) {
+                    match = copy(documents.get(matchId).value);
+                }
+                writes.put(matchId, match);
+            }
+            return match;
+        }
+
+        boolean commit() {
+            synchronized (lock) {
+                for (Map.Entry<String, Long> read : readVersions.entrySet()) {
+                    Versioned doc = documents.get(read.getKey());
+                    long current = doc != null ? doc.version : 0L;
+                    if (current != read.getValue()) {
+                        return false;
+                    }
+                }
+                for (QuizMatch match : writes.values()) {
+                    put(match);
+                }
+                for (Map.Entry<String, List<MatchEvent>> entry : appended.entrySet()) {
+                    events.computeIfAbsent(entry.getKey(), id -> new ArrayList<>()).addAll(entry.getValue());
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.nurse_connect.services.battle;
+
+import com.example.nurse_connect.models.QuizMatch;
+import com.example.nurse_connect.services.matchlog.MatchEvent;
+import com.example.nurse_connect.services.matchlog.MatchReplay;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays the event log written by the battle engine itself for a match that
+ * matchmaking or a group join started (players ready at creation, no Ready presses)
+ */
+public class QuizBattleEventLogTest {
+
+    private static final String MATCH = "logged_match";
+
+    private InMemoryBattleStore store;
+    private QuizBattleEngine engine;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryBattleStore(1, 0);
+        engine = new QuizBattleEngine(store);
+
+        QuizMatch match = new QuizMatch(MATCH, "Fundamentals", "Unit 1", "Nursing");
+        match.setQuestionIds(new ArrayList<>(Arrays.asList("q1", "q2")));
+        match.setTotalQuestions(2);
+        match.setCurrentQuestionId("q1");
+        match.addPlayer("alice", "Alice");
+        match.addPlayer("bob", "Bob");
+        match.setPlayerReady("alice", true);
+        match.setPlayerReady("bob", true);
+        store.createMatch(match);
+    }
+
+    @After
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    public void replayOfAnEngineDrivenMatchMatchesTheStoredMatch() throws Exception {
+        assertNotNull(QuizBattleEventLogTest.<QuizMatch>await(cb -> engine.startMatchIfAllReady(MATCH, cb)));
+
+        // Question 1: alice answers, both press Next
+        assertTrue(await(cb -> engine.awardPoint(MATCH, "alice", 0, 2, cb)));
+        assertTrue(await(cb -> engine.completeQuestion(MATCH, 0, false, cb)));
+        QuizBattleEventLogTest.<QuizMatch>await(cb -> engine.advance(MATCH, "alice", 0, true, cb));
+        QuizBattleEventLogTest.<QuizMatch>await(cb -> engine.advance(MATCH, "bob", 0, true, cb));
+        // A late auto-advance of the same question is a no-op
+        assertNull(QuizBattleEventLogTest.<QuizMatch>await(cb -> engine.advance(MATCH, "alice", 0, false, cb)));
+
+        // Question 2: bob answers, the auto-advance finishes the match
+        assertTrue(await(cb -> engine.awardPoint(MATCH, "bob", 1, 0, cb)));
+        assertTrue(await(cb -> engine.completeQuestion(MATCH, 1, false, cb)));
+        QuizMatch finished = await(cb -> engine.advance(MATCH, "bob", 1, false, cb));
+        assertEquals("completed", finished.getStatus());
+
+        QuizMatch stored = store.getMatch(MATCH);
+        List<MatchEvent> events = store.getEvents(MATCH);
+        assertEquals(MatchEvent.START, events.get(0).getType());
+
+        MatchReplay replay = MatchReplay.run(stored, events);
+        assertEquals(replay.report(), 0, replay.getRejectedCount());
+        assertTrue(replay.diff(stored).toString(), replay.diff(stored).isEmpty());
+        assertEquals(1, replay.getFinalState().getPlayerScores().get("alice").intValue());
+        assertEquals(1, replay.getFinalState().getPlayerScores().get("bob").intValue());
+    }
+
+    private static <T> T await(Consumer<BattleStore.Callback<T>> call) throws Exception {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        call.accept(new BattleStore.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.nurse_connect.services.battle;
+
+import com.example.nurse_connect.models.QuizMatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load harness for QuizBattleEngine: hundreds of two-player battles played
+ * concurrently against an in-memory transactional store. Each simulated client
+ * reacts to match snapshots the way QuizMatchService does (ready, answer, Next,
+ * host auto-advance and deadline timers with a fallback grace for the guest), so
+ * every transition is raced by both clients. Reports throughput and per-operation
+ * latency and checks that no question is closed or advanced twice and no point is lost.
+ * A separate case sends an answer after its question closed and checks it is not scored.
+ */
+public class QuizBattleLoadHarnessTest {
+
+    private static final int MATCHES = 300;
+    private static final int QUESTIONS = 4;
+    private static final int QUESTION_TIME_LIMIT_SECONDS = 1;
+    private static final long START_WINDOW_MS = 1000;
+    private static final long MAX_THINK_MS = 700;
+    private static final double ANSWER_PROBABILITY = 0.6;
+    private static final double PRESS_NEXT_PROBABILITY = 0.7;
+    private static final long AUTO_ADVANCE_DELAY_MS = 400;
+    private static final long FALLBACK_GRACE_MS = 100;
+
+    private InMemoryBattleStore store;
+    private ScheduledExecutorService scheduler;
+
+    private final Map<String, List<Long>> latenciesMs = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> completions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> advances = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> awardedPoints = new ConcurrentHashMap<>();
+    private final AtomicInteger starts = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        store = new InMemoryBattleStore(32, 2);
+        scheduler = Executors.newScheduledThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        store.shutdown();
+    }
+
+    @Test
+    public void concurrentBattlesAdvanceExactlyOnce() throws Exception {
+        QuizBattleEngine engine = new QuizBattleEngine(store);
+        Random random = new Random(7);
+        CountDownLatch finished = new CountDownLatch(MATCHES);
+        Set<String> finishedMatches = ConcurrentHashMap.newKeySet();
+
+        long started = System.nanoTime();
+        for (int m = 0; m < MATCHES; m++) {
+            String matchId = "match_" + m;
+            QuizMatch match = new QuizMatch(matchId, "Fundamentals", "Unit 1", "CNA");
+            match.setQuestionTimeLimit(QUESTION_TIME_LIMIT_SECONDS);
+            for (int q = 0; q < QUESTIONS; q++) {
+                match.getQuestionIds().add("q_" + q);
+            }
+            match.setCurrentQuestionId("q_0");
+            match.setTotalQuestions(QUESTIONS);
+            match.addPlayer(matchId + "_host", "Host");
+            match.addPlayer(matchId + "_guest", "Guest");
+            store.createMatch(match);
+
+            for (String playerId : match.getPlayerIds()) {
+                SimulatedClient client = new SimulatedClient(engine, matchId, playerId, new Random(random.nextLong()));
+                store.listenToMatch(matchId, snapshot -> {
+                    if ("completed".equals(snapshot.getStatus()) && finishedMatches.add(matchId)) {
+                        finished.countDown();
+                    }
+                    client.onMatchChanged(snapshot);
+                });
+                scheduler.schedule(client::ready, random.nextInt((int) START_WINDOW_MS), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        long budgetMs = START_WINDOW_MS + QUESTIONS * (QUESTION_TIME_LIMIT_SECONDS * 1000L
+                + AUTO_ADVANCE_DELAY_MS + FALLBACK_GRACE_MS) + 30000;
+        boolean allFinished = finished.await(budgetMs, TimeUnit.MILLISECONDS);
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+        // Let in-flight callbacks land before counting
+        Thread.sleep(200);
+
+        int doubleCompleted = countAbove(completions, 1);
+        int doubleAdvanced = countAbove(advances, 1);
+        int missedTransitions = 0;
+        int lostPoints = 0;
+        for (int m = 0; m < MATCHES; m++) {
+            String matchId = "match_" + m;
+            for (int q = 0; q < QUESTIONS; q++) {
+                String key = matchId + "#" + q;
+                if (!completions.containsKey(key) || !advances.containsKey(key)) {
+                    missedTransitions++;
+                }
+            }
+            QuizMatch stored = store.getMatch(matchId);
+            for (String playerId : stored.getPlayerIds()) {
+                AtomicInteger awarded = awardedPoints.get(playerId);
+                int expected = awarded != null ? awarded.get() : 0;
+                if (stored.getPlayerScores().getOrDefault(playerId, 0) != expected) {
+                    lostPoints++;
+                }
+            }
+        }
+
+        int operations = store.commits.get() + store.updates.get();
+        System.out.println("=== Quiz battle load harness ===");
+        System.out.println("Matches: " + MATCHES + " x " + QUESTIONS + " questions, finished: "
+                + finishedMatches.size() + " in " + String.format("%.2f", elapsedSeconds) + "s");
+        System.out.println("Store writes: " + operations + " ("
+                + String.format("%.0f", operations / elapsedSeconds) + "/s), transactions committed: "
+                + store.commits.get() + ", retries: " + store.retries.get() + ", errors: " + errors.get());
+        List<String> names = new ArrayList<>(latenciesMs.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            List<Long> sorted = new ArrayList<>(latenciesMs.get(name));
+            Collections.sort(sorted);
+            System.out.println(name + ": n=" + sorted.size() + ", p50 " + percentile(sorted, 50)
+                    + "ms, p99 " + percentile(sorted, 99) + "ms");
+        }
+        System.out.println("Double completions: " + doubleCompleted + ", double advances: " + doubleAdvanced
+                + ", missed transitions: " + missedTransitions + ", lost points: " + lostPoints);
+
+        assertTrue("Not every match finished in time", allFinished);
+        assertEquals("Matches started more than once", MATCHES, starts.get());
+        assertEquals("Questions completed more than once", 0, doubleCompleted);
+        assertEquals("Questions advanced more than once", 0, doubleAdvanced);
+        assertEquals("Questions never completed or advanced", 0, missedTransitions);
+        assertEquals("Score increments lost", 0, lostPoints);
+        assertEquals(0, errors.get());
+    }
+
+    @Test
+    public void lateAnswerToAnEarlierQuestionDoesNotScore() throws Exception {
+        QuizBattleEngine engine = new QuizBattleEngine(store);
+        QuizMatch match = new QuizMatch("late_answer", "Fundamentals", "Unit 1", "CNA");
+        match.getQuestionIds().add("q_0");
+        match.getQuestionIds().add("q_1");
+        match.setCurrentQuestionId("q_0");
+        match.setTotalQuestions(2);
+        match.addPlayer("host", "Host");
+        match.addPlayer("guest", "Guest");
+        match.setPlayerReady("host", true);
+        match.setPlayerReady("guest", true);
+        store.createMatch(match);
+
+        assertNotNull(QuizBattleLoadHarnessTest.<QuizMatch>await(callback -> engine.startMatchIfAllReady("late_answer", callback)));
+        assertTrue(await(callback -> engine.completeQuestion("late_answer", 0, false, callback)));
+        assertNotNull(QuizBattleLoadHarnessTest.<QuizMatch>await(callback -> engine.advance("late_answer", "host", 0, false, callback)));
+
+        // The guest's answer to question 0 lands after the match moved to question 1
+        assertFalse(await(callback -> engine.awardPoint("late_answer", "guest", 0, 0, callback)));
+        QuizMatch stored = store.getMatch("late_answer");
+        assertEquals(1, stored.getCurrentQuestionIndex());
+        assertEquals(0, stored.getPlayerScores().getOrDefault("guest", 0).intValue());
+        assertFalse("the late answer must not complete the next question", stored.isCurrentQuestionCompleted());
+        assertFalse(stored.getPlayersAnsweredCurrentQuestion().getOrDefault("guest", false));
+
+        // The current question still scores
+        assertTrue(await(callback -> engine.awardPoint("late_answer", "guest", 1, 0, callback)));
+        assertEquals(1, store.getMatch("late_answer").getPlayerScores().get("guest").intValue());
+    }
+
+    private static <T> T await(Consumer<BattleStore.Callback<T>> call) throws Exception {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        call.accept(new BattleStore.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * One player's device: schedules at most one action of each kind per question
+     */
+    private class SimulatedClient {
+        private final QuizBattleEngine engine;
+        private final String matchId;
+        private final String playerId;
+        private final Random random;
+        private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+
+        SimulatedClient(QuizBattleEngine engine, String matchId, String playerId, Random random) {
+            this.engine = engine;
+            this.matchId = matchId;
+            this.playerId = playerId;
+            this.random = random;
+        }
+
+        void ready() {
+            long start = System.nanoTime();
+            engine.setPlayerReady(matchId, playerId, true, callback("setPlayerReady", start, result -> { }));
+        }
+
+        void onMatchChanged(QuizMatch match) {
+            int index = match.getCurrentQuestionIndex();
+            boolean host = playerId.equals(match.getHostId());
+            long grace = host ? 0 : FALLBACK_GRACE_MS;
+
+            if ("waiting".equals(match.getStatus()) && match.areAllPlayersReady()) {
+                if (scheduled.add("start")) {
+                    long start = System.nanoTime();
+                    engine.startMatchIfAllReady(matchId, callback("startMatch", start, started -> {
+                        if (started != null) {
+                            starts.incrementAndGet();
+                        }
+                    }));
+                }
+            } else if ("active".equals(match.getStatus()) && match.getQuestionDeadlineMillis() > 0) {
+                if (scheduled.add("answer#" + index)) {
+                    long think = nextThinkTime();
+                    if (random.nextDouble() < ANSWER_PROBABILITY) {
+                        scheduler.schedule(() -> answer(index), think, TimeUnit.MILLISECONDS);
+                    }
+                }
+                if (scheduled.add("deadline#" + index)) {
+                    long delay = Math.max(0, match.getQuestionDeadlineMillis() - store.serverTime()) + grace;
+                    scheduler.schedule(() -> complete(index, true), delay, TimeUnit.MILLISECONDS);
+                }
+            } else if ("question_completed".equals(match.getStatus())) {
+                if (scheduled.add("next#" + index) && random.nextDouble() < PRESS_NEXT_PROBABILITY) {
+                    scheduler.schedule(() -> advance(index, true), nextThinkTime(), TimeUnit.MILLISECONDS);
+                }
+                if (scheduled.add("auto#" + index)) {
+                    long delay = Math.max(0, match.getNextQuestionReadyTime() + AUTO_ADVANCE_DELAY_MS
+                            - store.serverTime()) + grace;
+                    scheduler.schedule(() -> advance(index, false), delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        private void answer(int index) {
+            long start = System.nanoTime();
+            engine.awardPoint(matchId, playerId, index, 0, callback("awardPoint", start, awarded -> {
+                if (!awarded) {
+                    return;
+                }
+                awardedPoints.computeIfAbsent(playerId, id -> new AtomicInteger()).incrementAndGet();
+                complete(index, false);
+            }));
+        }
+
+        private void complete(int index, boolean onDeadline) {
+            long start = System.nanoTime();
+            engine.completeQuestion(matchId, index, onDeadline, callback("completeQuestion", start, completed -> {
+                if (completed) {
+                    completions.computeIfAbsent(matchId + "#" + index, key -> new AtomicInteger()).incrementAndGet();
+                }
+            }));
+        }
+
+        private void advance(int index, boolean pressedNext) {
+            long start = System.nanoTime();
+            engine.advance(matchId, playerId, index, pressedNext, callback("advance", start, match -> {
+                if (match != null && (match.getCurrentQuestionIndex() != index
+                        || "completed".equals(match.getStatus()))) {
+                    advances.computeIfAbsent(matchId + "#" + index, key -> new AtomicInteger()).incrementAndGet();
+                }
+            }));
+        }
+
+        private long nextThinkTime() {
+            return (long) (random.nextDouble() * MAX_THINK_MS);
+        }
+    }
+
+    private interface ResultHandler<T> {
+        void handle(T result);
+    }
+
+    private <T> BattleStore.Callback<T> callback(String operation, long startNanos, ResultHandler<T> handler) {
+        return new BattleStore.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                record(operation, startNanos);
+                handler.handle(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                record(operation, startNanos);
+                errors.incrementAndGet();
+            }
+        };
+    }
+
+    private void record(String operation, long startNanos) {
+        latenciesMs.computeIfAbsent(operation, name -> Collections.synchronizedList(new ArrayList<>()))
+                .add((System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private static int countAbove(Map<String, AtomicInteger> counts, int limit) {
+        int count = 0;
+        for (AtomicInteger value : counts.values()) {
+            if (value.get() > limit) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return -1;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.nurse_connect.services.cascade;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class CascadeDeleteJobTest {
+
+    private static final String MATERIAL = "popular";
+    private static final List<Dependent> DEPENDENTS = Arrays.asList(
+            Dependent.field("comments", "materialId"),
+            Dependent.subcollection("likes"),
+            Dependent.document("rating_aggregates"));
+
+    /**
+     * In-memory store whose callbacks wait until the test runs them. Reads finish before
+     * batch commits, as they do against Firestore, so several batches can be outstanding.
+     */
+    private static class QueuedStore implements CascadeStore {
+        // dependent -> (id -> owning material)
+        final Map<String, TreeMap<String, String>> collections = new HashMap<>();
+        final Deque<Runnable> reads = new ArrayDeque<>();
+        final Deque<Runnable> commits = new ArrayDeque<>();
+        int batchesInFlight;
+        int maxBatchesInFlight;
+        int maxBatchSize;
+        int failAfterBatches = -1;
+        int batchesCommitted;
+        String deniedDependent;
+
+        void add(Dependent dependent, String materialId, int count) {
+            TreeMap<String, String> docs = collections.computeIfAbsent(dependent.toString(), k -> new TreeMap<>());
+            for (int i = 0; i < count; i++) {
+                docs.put(String.format("%s-%05d", materialId, i), materialId);
+            }
+        }
+
+        int remaining(String materialId) {
+            int count = 0;
+            for (TreeMap<String, String> docs : collections.values()) {
+                for (String owner : docs.values()) {
+                    if (owner.equals(materialId)) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        void drain() {
+            while (!reads.isEmpty() || !commits.isEmpty()) {
+                (!reads.isEmpty() ? reads : commits).poll().run();
+            }
+        }
+
+        @Override
+        public void page(Dependent dependent, String materialId, String afterId, int limit, Callback<List<String>> callback) {
+            TreeMap<String, String> docs = collections.getOrDefault(dependent.toString(), new TreeMap<>());
+            List<String> ids = new ArrayList<>();
+            for (Map.Entry<String, String> doc : (afterId == null ? docs : docs.tailMap(afterId, false)).entrySet()) {
+                if (ids.size() == limit) {
+                    break;
+                }
+                if (doc.getValue().equals(materialId)) {
+                    ids.add(doc.getKey());
+                }
+            }
+            reads.add(() -> callback.onSuccess(ids));
+        }
+
+        @Override
+        public void deleteBatch(Dependent dependent, String materialId, List<String> ids, Callback<Void> callback) {
+            batchesInFlight++;
+            maxBatchesInFlight = Math.max(maxBatchesInFlight, batchesInFlight);
+            maxBatchSize = Math.max(maxBatchSize, ids.size());
+            commits.add(() -> {
+                batchesInFlight--;
+                if (dependent.toString().equals(deniedDependent)) {
+                    callback.onFailure(new Exception("permission denied"));
+                    return;
+                }
+                if (batchesCommitted == failAfterBatches) {
+                    callback.onFailure(new Exception("connection lost"));
+                    return;
+                }
+                for (String id : ids) {
+                    collections.get(dependent.toString()).remove(id);
+                }
+                batchesCommitted++;
+                callback.onSuccess(null);
+            });
+        }
+
+        @Override
+        public boolean isDenied(Exception e) {
+            return "permission denied".equals(e.getMessage());
+        }
+    }
+
+    private static class RecordingListener implements CascadeDeleteJob.Listener {
+        int nextDependent;
+        int deleted;
+        boolean complete;
+        Exception failure;
+        final List<Dependent> skipped = new ArrayList<>();
+
+        @Override
+        public void onProgress(int nextDependent, int deleted) {
+            this.nextDependent = nextDependent;
+            this.deleted = deleted;
+        }
+
+        @Override
+        public void onDependentSkipped(Dependent dependent, Exception e) {
+            skipped.add(dependent);
+        }
+
+        @Override
+        public void onComplete(int deleted) {
+            this.deleted = deleted;
+            complete = true;
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            failure = e;
+        }
+    }
+
+    @Test
+    public void deletesEveryDependentInBoundedBatches() {
+        QueuedStore store = new QueuedStore();
+        store.add(DEPENDENTS.get(0), MATERIAL, 2345);
+        store.add(DEPENDENTS.get(0), "other", 300);
+        store.add(DEPENDENTS.get(1), MATERIAL, 501);
+        store.add(DEPENDENTS.get(2), MATERIAL, 1);
+
+        RecordingListener listener = new RecordingListener();
+        new CascadeDeleteJob(store, MATERIAL, DEPENDENTS, 0, 0, 500, 3, listener).start();
+        store.drain();
+
+        assertTrue(listener.complete);
+        assertNull(listener.failure);
+        assertEquals(2345 + 501 + 1, listener.deleted);
+        assertEquals(0, store.remaining(MATERIAL));
+        assertEquals("other materials are untouched", 300, store.remaining("other"));
+        assertEquals(500, store.maxBatchSize);
+        assertTrue(store.maxBatchesInFlight > 1);
+        assertTrue(store.maxBatchesInFlight <= 3);
+    }
+
+    @Test
+    public void interruptedJobResumesFromItsCheckpoint() {
+        QueuedStore store = new QueuedStore();
+        store.add(DEPENDENTS.get(0), MATERIAL, 1200);
+        store.add(DEPENDENTS.get(1), MATERIAL, 700);
+        store.add(DEPENDENTS.get(2), MATERIAL, 1);
+        store.failAfterBatches = 4; // partway into the likes
+
+        RecordingListener first = new RecordingListener();
+        new CascadeDeleteJob(store, MATERIAL, DEPENDENTS, 0, 0, 500, 2, first).start();
+        store.drain();
+        assertNotNull(first.failure);
+        assertFalse(first.complete);
+        assertEquals("comments were finished", 1, first.nextDependent);
+
+        store.failAfterBatches = -1;
+        RecordingListener resumed = new RecordingListener();
+        new CascadeDeleteJob(store, MATERIAL, DEPENDENTS, first.nextDependent, first.deleted, 500, 2, resumed).start();
+        store.drain();
+
+        assertTrue(resumed.complete);
+        assertEquals(0, store.remaining(MATERIAL));
+        assertEquals(1200 + 700 + 1, resumed.deleted);
+    }
+
+    @Test
+    public void materialWithoutDependentsCompletesImmediately() {
+        QueuedStore store = new QueuedStore();
+        RecordingListener listener = new RecordingListener();
+        new CascadeDeleteJob(store, MATERIAL, DEPENDENTS, 0, 0, 500, 4, listener).start();
+        store.drain();
+        assertTrue(listener.complete);
+        assertEquals(0, listener.deleted);
+    }
+
+    @Test
+    public void deniedDependentIsSkippedAndTheRestStillGo() {
+        QueuedStore store = new QueuedStore();
+        store.add(DEPENDENTS.get(0), MATERIAL, 1200);
+        store.add(DEPENDENTS.get(1), MATERIAL, 30);
+        store.add(DEPENDENTS.get(2), MATERIAL, 1);
+        store.deniedDependent = DEPENDENTS.get(0).toString();
+
+        RecordingListener listener = new RecordingListener();
+        new CascadeDeleteJob(store, MATERIAL, DEPENDENTS, 0, 0, 500, 3, listener).start();
+        store.drain();
+
+        assertTrue(listener.complete);
+        assertNull(listener.failure);
+        assertEquals(Collections.singletonList(DEPENDENTS.get(0)), listener.skipped);
+        assertEquals(30 + 1, listener.deleted);
+        assertEquals("only the denied comments are left", 1200, store.remaining(MATERIAL));
+    }
+}
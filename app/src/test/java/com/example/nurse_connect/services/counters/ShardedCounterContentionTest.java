@@ -0,0 +1,229 @@
+package com.example.nurse_connect.services.counters;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Contention benchmark for the material counters: many clients viewing, downloading and
+ * liking one popular material, against a store that accepts one write per second per
+ * document. Compares the old pattern (every event written to one document) with
+ * sharded, coalesced increments, and checks that no increment is lost.
+ */
+public class ShardedCounterContentionTest {
+
+    private static final String MATERIAL = "hot_material";
+    private static final int CLIENTS = 100;
+    private static final int EVENTS_PER_CLIENT = 10;
+    private static final long DURATION_MS = 10_000;
+    private static final long TICK_MS = 100;
+    private static final long WRITE_INTERVAL_MS = 1000;
+    private static final long COALESCE_WINDOW_MS = 3000;
+    private static final long ROLLUP_INTERVAL_MS = 60_000;
+
+    private static class Result {
+        SimulatedCounterStore store;
+        long expectedViews;
+        long expectedDownloads;
+        long expectedLikes;
+        long p99DelayMs;
+        long drainMs;
+    }
+
+    @Test
+    public void shardedCoalescedCountersRelieveTheHotDocument() {
+        Result single = run(1, 0);
+        Result sharded = run(10, COALESCE_WINDOW_MS);
+
+        System.out.println("=== Material counter contention ===");
+        System.out.println("Clients: " + CLIENTS + " x " + EVENTS_PER_CLIENT + " events over "
+                + DURATION_MS / 1000 + "s, 1 write/s per document");
+        System.out.println("Single document: " + single.store.getMaxWritesPerDocument()
+                + " writes on the hottest document, p99 write delay " + single.p99DelayMs
+                + "ms, all durable after " + single.drainMs / 1000 + "s");
+        System.out.println("10 shards, " + COALESCE_WINDOW_MS / 1000 + "s coalescing: "
+                + sharded.store.getMaxWritesPerDocument() + " writes on the hottest document, p99 write delay "
+                + sharded.p99DelayMs + "ms, all durable after " + sharded.drainMs / 1000 + "s");
+
+        for (Result result : new Result[]{single, sharded}) {
+            assertEquals(result.expectedViews, result.store.getRolledUp(MATERIAL, ShardedCounter.VIEWS));
+            assertEquals(result.expectedDownloads, result.store.getRolledUp(MATERIAL, ShardedCounter.DOWNLOADS));
+            assertEquals(result.expectedLikes, result.store.getRolledUp(MATERIAL, ShardedCounter.LIKES));
+        }
+        assertTrue(sharded.store.getMaxWritesPerDocument() * 10 <= single.store.getMaxWritesPerDocument());
+        assertTrue(sharded.p99DelayMs * 10 <= single.p99DelayMs);
+    }
+
+    @Test
+    public void failedShardWritesAreRetriedWithLaterIncrements() {
+        SimulatedCounterStore backing = new SimulatedCounterStore(0);
+        boolean[] failing = {true};
+        CounterStore flaky = new CounterStore() {
+            @Override
+            public void addToShard(String materialId, int shard, Map<String, Long> deltas, Callback<Void> callback) {
+                if (failing[0]) {
+                    callback.onFailure(new Exception("unavailable"));
+                } else {
+                    backing.addToShard(materialId, shard, deltas, callback);
+                }
+            }
+
+            @Override
+            public void setLiked(String materialId, String userId, boolean liked, int shard, Callback<Boolean> callback) {
+                backing.setLiked(materialId, userId, liked, shard, callback);
+            }
+
+            @Override
+            public void rollUp(String materialId, int numShards, long minIntervalMs, Callback<Map<String, Long>> callback) {
+                backing.rollUp(materialId, numShards, minIntervalMs, callback);
+            }
+
+            @Override
+            public void readTotals(String materialId, Callback<Map<String, Long>> callback) {
+                backing.readTotals(materialId, callback);
+            }
+        };
+        ShardedCounter counter = new ShardedCounter(flaky, 4, new Random(1));
+
+        counter.increment(MATERIAL, ShardedCounter.VIEWS, 1);
+        counter.increment(MATERIAL, ShardedCounter.VIEWS, 1);
+        counter.flush(null);
+        assertTrue(counter.hasPending());
+        assertFalse(counter.hasUnrolled());
+        long[] seen = new long[1];
+        counter.readTotals(MATERIAL, totals(seen));
+        assertEquals("local increments count while unsynced", 2, seen[0]);
+
+        failing[0] = false;
+        counter.increment(MATERIAL, ShardedCounter.VIEWS, 1);
+        assertEquals(1, counter.flush(null));
+        assertFalse(counter.hasPending());
+        counter.rollUp(0, null);
+        assertEquals(3, backing.getRolledUp(MATERIAL, ShardedCounter.VIEWS));
+    }
+
+    @Test
+    public void likeAndUnlikeWithinAWindowWriteNothing() {
+        SimulatedCounterStore store = new SimulatedCounterStore(0);
+        ShardedCounter counter = new ShardedCounter(store, 4, new Random(1));
+        counter.increment(MATERIAL, ShardedCounter.LIKES, 1);
+        counter.increment(MATERIAL, ShardedCounter.LIKES, -1);
+        assertEquals(0, counter.flush(null));
+        assertTrue(store.writesPerDocument.isEmpty());
+    }
+
+    @Test
+    public void repeatedLikeTapsCountOnce() {
+        SimulatedCounterStore store = new SimulatedCounterStore(0);
+        ShardedCounter counter = new ShardedCounter(store, 4, new Random(1));
+        List<Boolean> changed = new ArrayList<>();
+        counter.setLiked(MATERIAL, "alice", true, recordInto(changed));
+        counter.setLiked(MATERIAL, "alice", true, recordInto(changed));
+        counter.setLiked(MATERIAL, "bob", true, recordInto(changed));
+        counter.setLiked(MATERIAL, "bob", false, recordInto(changed));
+        counter.setLiked(MATERIAL, "bob", false, recordInto(changed));
+
+        assertEquals(Arrays.asList(true, false, true, true, false), changed);
+        assertTrue(counter.hasUnrolled());
+        counter.rollUp(0, null);
+        assertEquals(1, store.getRolledUp(MATERIAL, ShardedCounter.LIKES));
+    }
+
+    /**
+     * One simulated run; a coalesce window of 0 writes every event as it happens
+     */
+    private static Result run(int numShards, long coalesceWindowMs) {
+        Random random = new Random(42);
+        Result result = new Result();
+        result.store = new SimulatedCounterStore(WRITE_INTERVAL_MS);
+        ShardedCounter[] clients = new ShardedCounter[CLIENTS];
+        long[] flushAt = new long[CLIENTS];
+        List<long[]> events = new ArrayList<>(); // {time, client, kind}
+        for (int c = 0; c < CLIENTS; c++) {
+            clients[c] = new ShardedCounter(result.store, numShards, new Random(random.nextLong()));
+            flushAt[c] = -1;
+            for (int e = 0; e < EVENTS_PER_CLIENT; e++) {
+                events.add(new long[]{(long) (random.nextDouble() * DURATION_MS), c, random.nextInt(10)});
+            }
+        }
+        Collections.sort(events, (a, b) -> Long.compare(a[0], b[0]));
+
+        int next = 0;
+        for (long now = 0; now <= DURATION_MS + coalesceWindowMs; now += TICK_MS) {
+            result.store.now = now;
+            while (next < events.size() && events.get(next)[0] < now + TICK_MS) {
+                long[] event = events.get(next++);
+                int client = (int) event[1];
+                // 70% views, 20% downloads, 10% likes
+                String field = event[2] < 7 ? ShardedCounter.VIEWS
+                        : event[2] < 9 ? ShardedCounter.DOWNLOADS : ShardedCounter.LIKES;
+                clients[client].increment(MATERIAL, field, 1);
+                if (field.equals(ShardedCounter.VIEWS)) {
+                    result.expectedViews++;
+                } else if (field.equals(ShardedCounter.DOWNLOADS)) {
+                    result.expectedDownloads++;
+                } else {
+                    result.expectedLikes++;
+                }
+                if (coalesceWindowMs == 0) {
+                    clients[client].flush(null);
+                } else if (flushAt[client] < 0) {
+                    flushAt[client] = now + coalesceWindowMs;
+                }
+            }
+            for (int c = 0; c < CLIENTS; c++) {
+                if (flushAt[c] >= 0 && now >= flushAt[c]) {
+                    clients[c].flush(null);
+                    flushAt[c] = -1;
+                }
+            }
+        }
+
+        List<Long> delays = new ArrayList<>(result.store.writeDelaysMs);
+        Collections.sort(delays);
+        result.p99DelayMs = delays.get((int) Math.ceil(delays.size() * 0.99) - 1);
+        result.drainMs = result.store.lastCompletion;
+
+        // The periodic roll-up: only the first client within the interval does the work
+        result.store.now = result.store.lastCompletion;
+        for (ShardedCounter client : clients) {
+            client.rollUp(ROLLUP_INTERVAL_MS, null);
+        }
+        return result;
+    }
+
+    private static CounterStore.Callback<Boolean> recordInto(List<Boolean> changed) {
+        return new CounterStore.Callback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean result) {
+                changed.add(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail(e.getMessage());
+            }
+        };
+    }
+
+    private static CounterStore.Callback<Map<String, Long>> totals(long[] views) {
+        return new CounterStore.Callback<Map<String, Long>>() {
+            @Override
+            public void onSuccess(Map<String, Long> totals) {
+                views[0] = totals.getOrDefault(ShardedCounter.VIEWS, 0L);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail(e.getMessage());
+            }
+        };
+    }
+}
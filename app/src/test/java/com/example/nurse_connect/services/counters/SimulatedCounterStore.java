@@ -0,0 +1,132 @@
+package com.example.nurse_connect.services.counters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counter store on a virtual clock that models Firestore's per-document write limit:
+ * a document takes one write per writeIntervalMs, and writes arriving faster queue up
+ * behind each other. Callbacks run synchronously; the queueing shows up as the delay
+ * between issuing a write and the virtual time it completes.
+ */
+class SimulatedCounterStore implements CounterStore {
+
+    private final long writeIntervalMs;
+    private final Map<String, Map<String, Long>> documents = new HashMap<>();
+    private final Map<String, Long> busyUntil = new HashMap<>();
+    private final Map<String, Long> rolledUpAt = new HashMap<>();
+    private final Set<String> likes = new HashSet<>();
+
+    final Map<String, Integer> writesPerDocument = new HashMap<>();
+    final List<Long> writeDelaysMs = new ArrayList<>();
+    long now;
+    long lastCompletion;
+
+    SimulatedCounterStore(long writeIntervalMs) {
+        this.writeIntervalMs = writeIntervalMs;
+    }
+
+    @Override
+    public void addToShard(String materialId, int shard, Map<String, Long> deltas, Callback<Void> callback) {
+        String key = shardKey(materialId, shard);
+        write(key);
+        Map<String, Long> values = documents.computeIfAbsent(key, k -> new HashMap<>());
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            values.merge(delta.getKey(), delta.getValue(), Long::sum);
+        }
+        callback.onSuccess(null);
+    }
+
+    @Override
+    public void setLiked(String materialId, String userId, boolean liked, int shard, Callback<Boolean> callback) {
+        String like = materialId + "/likes/" + userId;
+        if (likes.contains(like) == liked) {
+            callback.onSuccess(false);
+            return;
+        }
+        if (liked) {
+            likes.add(like);
+        } else {
+            likes.remove(like);
+        }
+        Map<String, Long> delta = new HashMap<>();
+        delta.put(ShardedCounter.LIKES, liked ? 1L : -1L);
+        addToShard(materialId, shard, delta, new Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                callback.onSuccess(true);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    @Override
+    public void rollUp(String materialId, int numShards, long minIntervalMs, Callback<Map<String, Long>> callback) {
+        Long last = rolledUpAt.get(materialId);
+        if (last != null && now - last < minIntervalMs) {
+            callback.onSuccess(null);
+            return;
+        }
+        Map<String, Long> moved = new HashMap<>();
+        for (int i = 0; i < numShards; i++) {
+            Map<String, Long> shard = documents.get(shardKey(materialId, i));
+            if (shard != null && !shard.isEmpty()) {
+                shard.forEach((field, value) -> moved.merge(field, value, Long::sum));
+                shard.clear();
+                write(shardKey(materialId, i));
+            }
+        }
+        Map<String, Long> material = documents.computeIfAbsent(materialId, k -> new HashMap<>());
+        moved.forEach((field, value) -> material.merge(field, value, Long::sum));
+        write(materialId);
+        rolledUpAt.put(materialId, now);
+        callback.onSuccess(moved);
+    }
+
+    @Override
+    public void readTotals(String materialId, Callback<Map<String, Long>> callback) {
+        Map<String, Long> totals = new HashMap<>();
+        for (Map.Entry<String, Map<String, Long>> document : documents.entrySet()) {
+            if (document.getKey().equals(materialId) || document.getKey().startsWith(materialId + "/")) {
+                document.getValue().forEach((field, value) -> totals.merge(field, value, Long::sum));
+            }
+        }
+        callback.onSuccess(totals);
+    }
+
+    /** Rolled-up value shown in lists, without what the shards still hold */
+    long getRolledUp(String materialId, String field) {
+        Map<String, Long> material = documents.get(materialId);
+        Long value = material != null ? material.get(field) : null;
+        return value != null ? value : 0;
+    }
+
+    int getMaxWritesPerDocument() {
+        int max = 0;
+        for (int writes : writesPerDocument.values()) {
+            max = Math.max(max, writes);
+        }
+        return max;
+    }
+
+    private void write(String key) {
+        long start = Math.max(now, busyUntil.getOrDefault(key, 0L));
+        long completion = start + writeIntervalMs;
+        busyUntil.put(key, completion);
+        writesPerDocument.merge(key, 1, Integer::sum);
+        writeDelaysMs.add(completion - now);
+        lastCompletion = Math.max(lastCompletion, completion);
+    }
+
+    private static String shardKey(String materialId, int shard) {
+        return materialId + "/counter_shards/" + shard;
+    }
+}
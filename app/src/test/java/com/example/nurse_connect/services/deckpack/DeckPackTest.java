@@ -0,0 +1,79 @@
+package com.example.nurse_connect.services.deckpack;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DeckPackTest {
+
+    private static DeckPackWriter sampleWriter(int cards) {
+        DeckPackWriter writer = new DeckPackWriter("CNA", "Basic Skills", "Unit 1");
+        for (int i = 0; i < cards; i++) {
+            writer.addCard("card" + i, "Question " + i + " \u2013 r\u00e9sum\u00e9?", "Answer " + i, i % 2 == 0 ? "Because " + i : null,
+                    Arrays.asList("Answer " + i, "Always", "Never", "Sometimes"), i % 3 == 0 ? "hard" : "medium",
+                    "Quiz Questions Database");
+        }
+        return writer;
+    }
+
+    @Test
+    public void roundTripsCardsInOrder() throws IOException {
+        DeckPackWriter writer = sampleWriter(3);
+        assertFalse("duplicate IDs are skipped", writer.addCard("card1", "q", "a", null, null, null, null));
+        writer.addCard("bare", "q", "a", null, null, null, null);
+
+        DeckPack pack = DeckPack.wrap(writer.toByteArray(1234L));
+        assertEquals(4, pack.getCardCount());
+        assertEquals("CNA", pack.getCareer());
+        assertEquals("Basic Skills", pack.getCourse());
+        assertEquals("Unit 1", pack.getUnit());
+        assertEquals(1234L, pack.getBuiltAtMillis());
+
+        assertEquals("card1", pack.getCardId(1));
+        assertEquals("Question 1 \u2013 r\u00e9sum\u00e9?", pack.getQuestion(1));
+        assertEquals("Answer 1", pack.getAnswer(1));
+        assertNull(pack.getRationale(1));
+        assertEquals("Because 2", pack.getRationale(2));
+        assertEquals("hard", pack.getDifficulty(0));
+        assertEquals(Arrays.asList("Answer 2", "Always", "Never", "Sometimes"), pack.getOptions(2));
+        assertNull(pack.getOptions(3));
+        assertEquals(3, pack.indexOf("bare"));
+        assertEquals(-1, pack.indexOf("unknown"));
+    }
+
+    @Test
+    public void sharedStringsAreStoredOnce() throws IOException {
+        byte[] small = sampleWriter(10).toByteArray(0);
+        byte[] large = sampleWriter(20).toByteArray(0);
+        int perCard = (large.length - small.length) / 10;
+        assertTrue("per-card cost " + perCard + " bytes", perCard < 140);
+    }
+
+    @Test
+    public void opensLargePackMemoryMappedQuickly() throws IOException {
+        File file = File.createTempFile("deck", ".ncdp");
+        try {
+            sampleWriter(5000).writeTo(file, 0);
+            long start = System.nanoTime();
+            DeckPack pack = DeckPack.open(file);
+            String last = pack.getQuestion(4999);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Opened 5000-card pack (" + file.length() + " bytes) in " + elapsedMillis + "ms");
+
+            assertEquals("Question 4999 \u2013 r\u00e9sum\u00e9?", last);
+            assertTrue("open took " + elapsedMillis + "ms", elapsedMillis < 100);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedPack() throws IOException {
+        byte[] bytes = sampleWriter(5).toByteArray(0);
+        DeckPack.wrap(Arrays.copyOf(bytes, bytes.length - 10));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.nurse_connect.services.dedup;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NearDuplicateIndexTest {
+
+    @Test
+    public void rewordedQuestionsAreNearDuplicates() {
+        NearDuplicateIndex index = new NearDuplicateIndex(100);
+        assertTrue(index.add("What is the normal resting heart rate for an adult patient?"));
+
+        assertTrue(index.isNearDuplicate("What is the normal resting heart rate for adults?"));
+        assertFalse(index.add("Which is the normal resting heart rate of an adult client?"));
+        assertFalse(index.isNearDuplicate("How long should you wash your hands with soap and water?"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void oldestQuestionsAreForgottenFirst() {
+        NearDuplicateIndex index = new NearDuplicateIndex(2);
+        index.add("How often should vital signs be taken after surgery?");
+        index.add("Which PPE is removed first when leaving an isolation room?");
+        index.add("What position helps a client with shortness of breath?");
+
+        assertEquals(2, index.size());
+        assertFalse(index.isNearDuplicate("How often should vital signs be taken after surgery?"));
+        assertTrue(index.isNearDuplicate("Which PPE is removed first when leaving an isolation room?"));
+        assertFalse("evicted terms leave the summary", index.topTerms(20).contains("surgery"));
+    }
+
+    @Test
+    public void summaryListsMostFrequentTopicsInsteadOfQuestions() {
+        NearDuplicateIndex index = new NearDuplicateIndex(100);
+        index.add("Where is the radial pulse measured?");
+        index.add("What does a weak thready pulse indicate?");
+        index.add("Which blood pressure cuff size is correct for an obese arm?");
+
+        List<String> terms = index.topTerms(3);
+        assertEquals("pulse", terms.get(0));
+        String summary = index.topicSummary(5);
+        assertTrue(summary, summary.startsWith("3 questions already studied"));
+        assertNull(new NearDuplicateIndex(10).topicSummary(5));
+    }
+
+    @Test
+    public void indexSurvivesJsonRoundTripAndCopiesAreIndependent() {
+        NearDuplicateIndex index = new NearDuplicateIndex(50);
+        index.add("What is the first step of hand hygiene?");
+        Gson gson = new Gson();
+        NearDuplicateIndex restored = gson.fromJson(gson.toJson(index), NearDuplicateIndex.class);
+
+        assertTrue(restored.isNearDuplicate("What is the first step in hand hygiene?"));
+        NearDuplicateIndex copy = restored.copy();
+        copy.add("When should gloves be changed between tasks?");
+        assertEquals(2, copy.size());
+        assertEquals(1, restored.size());
+    }
+}
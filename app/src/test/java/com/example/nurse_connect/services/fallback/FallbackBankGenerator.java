@@ -0,0 +1,89 @@
+package com.example.nurse_connect.services.fallback;
+
+import com.example.nurse_connect.services.deckpack.DeckPackWriter;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds the packaged fallback bank from its JSON source:
+ *
+ *   java FallbackBankGenerator app/src/main/fallback/fallback_flashcards.json app/src/main/resources/fallback
+ *
+ * FallbackFlashcardBankTest fails when the checked-in resources differ from what this produces.
+ */
+public class FallbackBankGenerator {
+
+    static final String SOURCE = "src/main/fallback/fallback_flashcards.json";
+    static final String OUTPUT = "src/main/resources/fallback";
+
+    static class Source {
+        List<Unit> units;
+    }
+
+    static class Unit {
+        String career;
+        String course;
+        List<String> unitKeywords;
+        String topic;
+        List<Card> cards;
+    }
+
+    static class Card {
+        String question;
+        String answer;
+        String rationale;
+        List<String> options;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File source = new File(args.length > 0 ? args[0] : SOURCE);
+        File output = new File(args.length > 1 ? args[1] : OUTPUT);
+        generate(source, output);
+        System.out.println("Wrote fallback bank to " + output);
+    }
+
+    static void generate(File sourceFile, File outputDir) throws IOException {
+        Source source;
+        try (Reader reader = new InputStreamReader(new FileInputStream(sourceFile), StandardCharsets.UTF_8)) {
+            source = new Gson().fromJson(reader, Source.class);
+        }
+        if (!outputDir.exists() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create " + outputDir);
+        }
+
+        StringBuilder index = new StringBuilder("# career\tcourse\tunit keywords\ttopic\tpack\n");
+        for (Unit unit : source.units) {
+            String packName = (unit.topic != null ? unit.topic : "generic")
+                    .toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_") + ".ncdp";
+            DeckPackWriter writer = new DeckPackWriter(unit.career, unit.course, unit.topic);
+            int number = 0;
+            for (Card card : unit.cards) {
+                if (!card.options.contains(card.answer)) {
+                    throw new IllegalArgumentException("Answer is not an option: " + card.question);
+                }
+                writer.addCard(packName + "#" + (++number), card.question, card.answer, card.rationale,
+                        card.options, "easy", "Fallback");
+            }
+            // A fixed build time keeps regenerated packs byte-identical
+            writer.writeTo(new File(outputDir, packName), 0L);
+
+            index.append(unit.career).append('\t')
+                    .append(unit.course).append('\t')
+                    .append(String.join(",", unit.unitKeywords)).append('\t')
+                    .append(unit.topic != null ? unit.topic : FallbackFlashcardBank.NO_TOPIC).append('\t')
+                    .append(packName).append('\n');
+        }
+        try (FileOutputStream out = new FileOutputStream(new File(outputDir, FallbackFlashcardBank.INDEX_NAME))) {
+            out.write(index.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
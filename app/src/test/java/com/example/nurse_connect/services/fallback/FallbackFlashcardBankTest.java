@@ -0,0 +1,93 @@
+package com.example.nurse_connect.services.fallback;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class FallbackFlashcardBankTest {
+
+    // Ten cards with their options take about 16 KB; the bound leaves room for other JVMs
+    private static final long WARM_LOOKUP_MAX_ALLOCATED = 64 * 1024;
+
+    @Test
+    public void packagedResourcesMatchTheirSource() throws Exception {
+        File generated = Files.createTempDirectory("fallback").toFile();
+        FallbackBankGenerator.generate(new File(FallbackBankGenerator.SOURCE), generated);
+
+        File[] files = generated.listFiles();
+        assertNotNull(files);
+        assertTrue(files.length > 1);
+        for (File file : files) {
+            try (InputStream packaged = FallbackFlashcardBank.class.getResourceAsStream(
+                    FallbackFlashcardBank.RESOURCE_DIR + file.getName())) {
+                assertNotNull("regenerate the bank: " + file.getName() + " is not packaged", packaged);
+                assertArrayEquals("regenerate the bank: " + file.getName() + " is stale",
+                        Files.readAllBytes(file.toPath()), packaged.readAllBytes());
+            }
+            file.delete();
+        }
+        generated.delete();
+    }
+
+    @Test
+    public void unitsResolveToTheirTopicAndFillPlaceholders() throws Exception {
+        FallbackFlashcardBank bank = new FallbackFlashcardBank(FallbackFlashcardBank.RESOURCE_DIR);
+        assertEquals("Vital Signs", bank.topicFor("CNA", "Basic Skills", "Unit 3: Vital Signs"));
+        assertEquals("Introduction to Healthcare", bank.topicFor("LPN", "Fundamentals", "Unit 1: Basic Concepts"));
+        assertNull(bank.topicFor("CNA", "Pharmacology", "Unit 7: Dosage"));
+
+        List<FallbackFlashcardBank.Card> cards = bank.cards("LPN", "Pharmacology", "Unit 7: Dosage", "7 Dosage", 4);
+        assertEquals(4, cards.size());
+        assertEquals("What is the primary role of a LPN?", cards.get(0).question);
+        assertEquals("What is the most important aspect of 7 dosage?", cards.get(2).question);
+        for (FallbackFlashcardBank.Card card : cards) {
+            assertTrue(card.options.contains(card.answer));
+        }
+    }
+
+    @Test
+    public void fallbackReadsOnlyTheRequestedUnit() throws Exception {
+        FallbackFlashcardBank bank = new FallbackFlashcardBank(FallbackFlashcardBank.RESOURCE_DIR);
+        List<FallbackFlashcardBank.Card> cards = bank.cards("CNA", "Basic Skills", "Unit 2: Infection Control",
+                "Infection Control", 10);
+
+        long packagedBytes = 0;
+        File[] all = new File(FallbackBankGenerator.OUTPUT).listFiles();
+        assertNotNull(all);
+        for (File file : all) {
+            packagedBytes += file.length();
+        }
+        assertEquals(10, cards.size());
+        assertTrue("only the index and one pack are read", bank.getResourceBytesRead() < packagedBytes / 3);
+    }
+
+    @Test
+    public void warmLookupReadsNothingAndAllocatesLittle() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue("per-thread allocation is not measurable on this JVM",
+                threads instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        long threadId = Thread.currentThread().getId();
+        FallbackFlashcardBank bank = new FallbackFlashcardBank(FallbackFlashcardBank.RESOURCE_DIR);
+        bank.cards("CNA", "Basic Skills", "Unit 2: Infection Control", "Infection Control", 10);
+        long bytesRead = bank.getResourceBytesRead();
+
+        long allocatedBefore = allocation.getThreadAllocatedBytes(threadId);
+        List<FallbackFlashcardBank.Card> cards = bank.cards("CNA", "Basic Skills", "Unit 2: Infection Control",
+                "Infection Control", 10);
+        long allocated = allocation.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertEquals(10, cards.size());
+        assertEquals("the open pack is reused", bytesRead, bank.getResourceBytesRead());
+        assertTrue("a warm lookup allocated " + allocated + " bytes", allocated < WARM_LOOKUP_MAX_ALLOCATED);
+    }
+}
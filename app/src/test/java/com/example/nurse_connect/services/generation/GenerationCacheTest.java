@@ -0,0 +1,95 @@
+package com.example.nurse_connect.services.generation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GenerationCacheTest {
+
+    private static class RecordingWaiter implements GenerationCache.Waiter<String> {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onBatch(String batch) {
+            events.add("batch:" + batch);
+        }
+
+        @Override
+        public void onFailed(String error) {
+            events.add("failed:" + error);
+        }
+    }
+
+    @Test
+    public void keysIgnoreCaseAndSpacing() {
+        assertEquals(GenerationKey.of("CNA", "Basic Skills", "Unit 1: Vital Signs", 10, "STUDY_MODE", "Medium", "No time limit"),
+                GenerationKey.of(" cna", "basic  skills", "unit 1:   vital signs ", 10, "study_mode", "MEDIUM", "no time limit"));
+        assertNotEquals(GenerationKey.of("CNA", "Basic Skills", "Unit 1", 10, "STUDY_MODE", "Medium", null),
+                GenerationKey.of("CNA", "Basic Skills", "Unit 1", 5, "STUDY_MODE", "Medium", null));
+    }
+
+    @Test
+    public void batchesAreServedOnceInOrderUntilTheyExpire() {
+        GenerationCache<String> cache = new GenerationCache<>(4, 2, 1000);
+        cache.put("k", "first", 0);
+        cache.put("k", "second", 100);
+        cache.put("k", "third", 200);
+
+        assertEquals("oldest batch beyond the bound is dropped", "second", cache.take("k", 300));
+        assertEquals("third", cache.take("k", 300));
+        assertNull(cache.take("k", 300));
+
+        cache.put("k", "stale", 0);
+        assertNull("expired batch is not served", cache.take("k", 1500));
+    }
+
+    @Test
+    public void leastRecentlyUsedKeysAreEvicted() {
+        GenerationCache<String> cache = new GenerationCache<>(2, 2, 10_000);
+        cache.put("a", "A", 0);
+        cache.put("b", "B", 0);
+        cache.readyCount("a", 0);
+        cache.put("c", "C", 0);
+
+        assertEquals(1, cache.readyCount("a", 0));
+        assertEquals(0, cache.readyCount("b", 0));
+        assertEquals(1, cache.readyCount("c", 0));
+    }
+
+    @Test
+    public void waiterTakesTheRunningGenerationsBatch() {
+        GenerationCache<String> cache = new GenerationCache<>(4, 1, 10_000);
+        assertTrue(cache.startGeneration("k", 0));
+        assertFalse("one generation per key", cache.startGeneration("k", 0));
+
+        RecordingWaiter first = new RecordingWaiter();
+        RecordingWaiter second = new RecordingWaiter();
+        assertTrue(cache.await("k", first));
+        assertTrue(cache.await("k", second));
+        cache.generationSucceeded("k", "batch", 0);
+
+        assertEquals("batch:batch", first.events.get(0));
+        assertTrue(second.events.get(0).startsWith("failed:"));
+        assertNull("a batch handed to a waiter is not cached too", cache.take("k", 0));
+        assertFalse(cache.await("k", new RecordingWaiter()));
+    }
+
+    @Test
+    public void generationWithoutWaitersIsCachedAndFailuresReleaseTheKey() {
+        GenerationCache<String> cache = new GenerationCache<>(4, 1, 10_000);
+        assertTrue(cache.startGeneration("k", 0));
+        cache.generationSucceeded("k", "batch", 0);
+        assertFalse("enough batches ready", cache.startGeneration("k", 0));
+        assertEquals("batch", cache.take("k", 0));
+
+        assertTrue(cache.startGeneration("k", 0));
+        RecordingWaiter waiter = new RecordingWaiter();
+        cache.await("k", waiter);
+        cache.generationFailed("k", "quota");
+        assertEquals("failed:quota", waiter.events.get(0));
+        assertFalse(cache.isGenerating("k"));
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.nurse_connect.services.generation;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RequestSchedulerTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class RecordingListener implements RequestScheduler.Listener<String> {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile String outcome;
+
+        @Override
+        public void onResult(String result) {
+            outcome = "result:" + result;
+            done.countDown();
+        }
+
+        @Override
+        public void onRetriesExhausted(String lastError) {
+            outcome = "exhausted:" + lastError;
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String error) {
+            outcome = "error:" + error;
+            done.countDown();
+        }
+
+        String await() throws InterruptedException {
+            assertTrue("request finished", done.await(5, TimeUnit.SECONDS));
+            return outcome;
+        }
+    }
+
+    private RequestScheduler<String> scheduler(TokenBucket bucket, int maxAttempts) {
+        return new RequestScheduler<>(bucket, maxAttempts, 10, 40, executor, new Random(7));
+    }
+
+    @Test
+    public void bucketAllowsBurstThenRefillsAndHonorsPauses() {
+        TokenBucket bucket = new TokenBucket(2, 100);
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(100, bucket.tryAcquire(0));
+        assertEquals(50, bucket.tryAcquire(50));
+        assertEquals(0, bucket.tryAcquire(100));
+
+        bucket.pauseUntil(1000);
+        assertEquals("Retry-After holds back even a full bucket", 500, bucket.waitMillis(500));
+        assertEquals(0, bucket.tryAcquire(1000));
+
+        bucket.limitTo(0, 3000, 1000);
+        assertEquals("no quota left until the reset", 2000, bucket.waitMillis(1000));
+    }
+
+    @Test
+    public void interactiveRequestsOvertakeQueuedPrefetches() throws Exception {
+        RequestScheduler<String> scheduler = scheduler(new TokenBucket(1, 150), 1);
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        RecordingListener first = new RecordingListener();
+        RecordingListener prefetch = new RecordingListener();
+        RecordingListener interactive = new RecordingListener();
+
+        scheduler.submit("a", RequestScheduler.Priority.INTERACTIVE, attempt -> {
+            started.add("a");
+            attempt.succeed("A");
+        }, first);
+        first.await();
+        scheduler.submit("prefetch", RequestScheduler.Priority.PREFETCH, attempt -> {
+            started.add("prefetch");
+            attempt.succeed("P");
+        }, prefetch);
+        scheduler.submit("interactive", RequestScheduler.Priority.INTERACTIVE, attempt -> {
+            started.add("interactive");
+            attempt.succeed("I");
+        }, interactive);
+
+        assertEquals("result:P", prefetch.await());
+        assertEquals("result:I", interactive.await());
+        assertEquals(List.of("a", "interactive", "prefetch"), started);
+        assertTrue(scheduler.getStats().maxWaitMillis > 0);
+    }
+
+    @Test
+    public void identicalRequestsShareOneCall() throws Exception {
+        RequestScheduler<String> scheduler = scheduler(new TokenBucket(1, 1000), 1);
+        scheduler.submit(null, RequestScheduler.Priority.INTERACTIVE, attempt -> attempt.succeed("x"),
+                new RecordingListener());
+        AtomicInteger calls = new AtomicInteger();
+        RequestScheduler.Request<String> request = attempt -> {
+            calls.incrementAndGet();
+            attempt.succeed("cards");
+        };
+        RecordingListener one = new RecordingListener();
+        RecordingListener two = new RecordingListener();
+
+        assertFalse(scheduler.submit("k", RequestScheduler.Priority.PREFETCH, request, one));
+        assertTrue(scheduler.submit("k", RequestScheduler.Priority.INTERACTIVE, request, two));
+
+        assertEquals("result:cards", one.await());
+        assertEquals("result:cards", two.await());
+        assertEquals(1, calls.get());
+        assertEquals(1, scheduler.getStats().coalesced);
+    }
+
+    @Test
+    public void retriesBackOffUntilAttemptsRunOut() throws Exception {
+        RequestScheduler<String> scheduler = scheduler(new TokenBucket(10, 1), 3);
+        AtomicInteger calls = new AtomicInteger();
+        RecordingListener flaky = new RecordingListener();
+        scheduler.submit("flaky", RequestScheduler.Priority.INTERACTIVE, attempt -> {
+            calls.incrementAndGet();
+            if (attempt.getNumber() < 2) {
+                attempt.retry("503", 0);
+            } else {
+                attempt.succeed("ok");
+            }
+        }, flaky);
+        assertEquals("result:ok", flaky.await());
+
+        RecordingListener down = new RecordingListener();
+        scheduler.submit("down", RequestScheduler.Priority.INTERACTIVE, attempt -> attempt.retry("429", 0), down);
+        assertEquals("exhausted:429", down.await());
+
+        RecordingListener denied = new RecordingListener();
+        scheduler.submit("denied", RequestScheduler.Priority.INTERACTIVE, attempt -> attempt.fail("403"), denied);
+        assertEquals("error:403", denied.await());
+
+        RequestScheduler.Stats stats = scheduler.getStats();
+        assertEquals(2, calls.get());
+        assertEquals(3, stats.retries);
+        assertEquals(1.0 / 3, stats.getFallbackRate(), 1e-9);
+        for (int attempt = 1; attempt <= 6; attempt++) {
+            long cap = Math.min(40, 10L << (attempt - 1));
+            long delay = scheduler.backoffMillis(attempt);
+            assertTrue("backoff " + delay + " within [" + cap / 2 + ", " + cap + "]", delay >= cap / 2 && delay <= cap);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.nurse_connect.services.generation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StreamingCardSplitterTest {
+
+    private static final String CARD_1 = "{\"question\":\"Which {brace} is \\\"quoted\\\"?\",\"options\":[\"a\",\"b\",\"c\",\"d\"]}";
+    private static final String CARD_2 = "{\"question\":\"Second ] card\",\"meta\":{\"tags\":[\"x\"]}}";
+
+    private static List<String> feedInChunks(String text, int chunkSize) {
+        StreamingCardSplitter splitter = new StreamingCardSplitter();
+        List<String> cards = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += chunkSize) {
+            cards.addAll(splitter.feed(text.substring(i, Math.min(i + chunkSize, text.length()))));
+        }
+        return cards;
+    }
+
+    @Test
+    public void emitsEachCardOfAnArrayWhateverTheChunking() {
+        String text = "[" + CARD_1 + ",\n " + CARD_2 + "]";
+        for (int chunkSize = 1; chunkSize <= text.length(); chunkSize += 7) {
+            List<String> cards = feedInChunks(text, chunkSize);
+            assertEquals("chunk size " + chunkSize, 2, cards.size());
+            assertEquals(CARD_1, cards.get(0));
+            assertEquals(CARD_2, cards.get(1));
+        }
+    }
+
+    @Test
+    public void emitsACardAsSoonAsItCloses() {
+        StreamingCardSplitter splitter = new StreamingCardSplitter();
+        assertTrue(splitter.feed("[" + CARD_1.substring(0, 20)).isEmpty());
+        List<String> first = splitter.feed(CARD_1.substring(20) + ", {\"question\":");
+        assertEquals(1, first.size());
+        assertEquals(1, splitter.getEmittedCount());
+    }
+
+    @Test
+    public void handlesWrapperObjectsMarkdownAndProse() {
+        String text = "Here are your \"flashcards\":\n```json\n{\"flashcards\": [" + CARD_1 + "," + CARD_2 + "]}\n```";
+        List<String> cards = feedInChunks(text, 5);
+        assertEquals(2, cards.size());
+        assertEquals(CARD_2, cards.get(1));
+    }
+
+    @Test
+    public void incompleteTrailingCardIsNotEmitted() {
+        List<String> cards = feedInChunks("[" + CARD_1 + ", {\"question\":\"cut off", 4);
+        assertEquals(1, cards.size());
+    }
+}
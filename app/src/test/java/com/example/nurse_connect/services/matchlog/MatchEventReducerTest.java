@@ -0,0 +1,103 @@
+package com.example.nurse_connect.services.matchlog;
+
+import com.example.nurse_connect.models.QuizMatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the match event encoding, reducer and replay
+ */
+public class MatchEventReducerTest {
+
+    private QuizMatch base;
+
+    @Before
+    public void setUp() {
+        base = new QuizMatch("match1", "Fundamentals", "Unit 1", "Nursing");
+        base.setQuestionIds(new ArrayList<>(Arrays.asList("q1", "q2")));
+        base.setTotalQuestions(2);
+        base.addPlayer("alice", "Alice");
+        base.addPlayer("bob", "Bob");
+    }
+
+    @Test
+    public void testEncodeDecodeRoundTrip() {
+        MatchEvent event = MatchEvent.answer("alice", 7, 2, true, 1_700_000_123_456L);
+        MatchEvent decoded = MatchEvent.decode(event.encode());
+
+        assertEquals(MatchEvent.ANSWER, decoded.getType());
+        assertEquals("alice", decoded.getPlayerId());
+        assertEquals(7, decoded.getQuestionIndex());
+        assertEquals(2, decoded.getValue());
+        assertTrue(decoded.getFlag());
+        assertEquals(1_700_000_123_456L, decoded.getAt());
+
+        MatchEvent system = MatchEvent.end(5);
+        assertEquals("", MatchEvent.decode(system.encode()).getPlayerId());
+        assertEquals(-1, MatchEvent.decode(system.encode()).getQuestionIndex());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeMalformed() {
+        MatchEvent.decode("A|alice|zz");
+    }
+
+    @Test
+    public void testFullMatchReducesToWinner() {
+        List<MatchEvent> events = Arrays.asList(
+                MatchEvent.ready("alice", true, 1_000),
+                MatchEvent.ready("bob", true, 1_100),
+                MatchEvent.start(1_100),
+                MatchEvent.answer("bob", 0, 1, false, 3_000),
+                MatchEvent.answer("alice", 0, 2, true, 4_000),
+                MatchEvent.complete(0, 4_200),
+                MatchEvent.next("alice", 0, 5_000),
+                MatchEvent.next("bob", 0, 5_500),
+                MatchEvent.advance(0, 5_600),
+                // A second advancer must not skip a question
+                MatchEvent.advance(0, 5_650),
+                MatchEvent.answer("alice", 1, 0, true, 7_000),
+                MatchEvent.complete(1, 7_100),
+                MatchEvent.end(9_000));
+
+        QuizMatch state = MatchEventReducer.reduce(base, events);
+
+        assertEquals("completed", state.getStatus());
+        assertEquals(2, state.getPlayerScores().get("alice").intValue());
+        assertEquals(0, state.getPlayerScores().get("bob").intValue());
+        assertEquals("alice", state.getWinnerId());
+        assertEquals(9_000, state.getEndTime());
+    }
+
+    @Test
+    public void testReplayTimelineAndDiff() {
+        List<MatchEvent> events = Arrays.asList(
+                MatchEvent.ready("alice", true, 1_000),
+                MatchEvent.ready("bob", true, 2_000),
+                MatchEvent.start(2_000),
+                MatchEvent.answer("bob", 0, 3, true, 6_500),
+                // Late answer to the same question after it was already won by bob
+                MatchEvent.answer("bob", 0, 3, true, 6_600));
+
+        MatchReplay replay = MatchReplay.run(base, events);
+
+        assertEquals(5, replay.getFrames().size());
+        assertEquals(1, replay.getRejectedCount());
+        assertEquals(4_500, replay.getFrames().get(3).sinceQuestionStartMs);
+        assertEquals(1_000, replay.getFrames().get(1).sincePreviousMs);
+
+        QuizMatch stored = MatchEventReducer.reduce(base, events);
+        assertTrue(replay.diff(stored).isEmpty());
+
+        stored.getPlayerScores().put("alice", 1);
+        assertEquals(1, replay.diff(stored).size());
+        assertFalse(replay.report().isEmpty());
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.nurse_connect.services.matchmaking;
+
+import com.example.nurse_connect.models.MatchmakingQueue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stand-in for Firestore with optimistic transactions: reads record a
+ * document version, commit fails if any of them changed and the body is re-run.
+ * Every read and commit sleeps for a random simulated network latency.
+ */
+class InMemoryMatchmakingStore implements MatchmakingStore {
+
+    private static final int MAX_ATTEMPTS = 25;
+
+    private static class Versioned {
+        final long version;
+        final Object value;
+
+        Versioned(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final Map<String, Versioned> documents = new HashMap<>();
+    private final Map<String, List<TicketListener>> ticketListeners = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final long maxLatencyMs;
+
+    final AtomicInteger commits = new AtomicInteger();
+    final AtomicInteger retries = new AtomicInteger();
+    final List<MatchPairing> createdMatches = new CopyOnWriteArrayList<>();
+
+    InMemoryMatchmakingStore(int threads, long maxLatencyMs) {
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.maxLatencyMs = maxLatencyMs;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public <T> void runTransaction(TransactionBody<T> body, Callback<T> callback) {
+        executor.execute(() -> {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                InMemoryTransaction tx = new InMemoryTransaction();
+                T result;
+                try {
+                    result = body.apply(tx);
+                } catch (Exception e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                simulateLatency();
+                if (tx.commit()) {
+                    commits.incrementAndGet();
+                    callback.onSuccess(result);
+                    return;
+                }
+                retries.incrementAndGet();
+            }
+            callback.onFailure(new Exception("Transaction failed after " + MAX_ATTEMPTS + " attempts"));
+        });
+    }
+
+    @Override
+    public Registration listenToTicket(String playerId, TicketListener listener) {
+        ticketListeners.computeIfAbsent(playerId, id -> new CopyOnWriteArrayList<>()).add(listener);
+        MatchmakingQueue current;
+        synchronized (lock) {
+            Versioned doc = documents.get(ticketPath(playerId));
+            current = doc != null ? (MatchmakingQueue) doc.value : null;
+        }
+        if (current != null) {
+            executor.execute(() -> listener.onTicketChanged(current));
+        }
+        return () -> {
+            List<TicketListener> listeners = ticketListeners.get(playerId);
+            if (listeners != null) {
+                listeners.remove(listener);
+            }
+        };
+    }
+
+    private void simulateLatency() {
+        if (maxLatencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxLatencyMs + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String bucketPath(String bucketKey) {
+        return "matchmaking_buckets/" + bucketKey;
+    }
+
+    private static String ticketPath(String playerId) {
+        return "matchmaking_queue/" + playerId;
+    }
+
+    private class InMemoryTransaction implements Transaction {
+        private final Map<String, Long> readVersions = new HashMap<>();
+        private final Map<String, Object> writes = new HashMap<>();
+        private final List<MatchPairing> matches = new ArrayList<>();
+
+        private Object read(String path) {
+            simulateLatency();
+            synchronized (lock) {
+                Versioned doc = documents.get(path);
+                readVersions.put(path, doc != null ? doc.version : 0L);
+                return doc != null ? doc.value : null;
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<MatchmakingQueue> readBucket(String bucketKey) {
+            Object value = read(bucketPath(bucketKey));
+            return value != null ? new ArrayList<>((List<MatchmakingQueue>) value) : new ArrayList<>();
+        }
+
+        @Override
+        public MatchmakingQueue readTicket(String playerId) {
+            return (MatchmakingQueue) read(ticketPath(playerId));
+        }
+
+        @Override
+        public void writeBucket(String bucketKey, List<MatchmakingQueue> waiting) {
+            writes.put(bucketPath(bucketKey), Collections.unmodifiableList(new ArrayList<>(waiting)));
+        }
+
+        @Override
+        public void writeTicket(MatchmakingQueue ticket) {
+            writes.put(ticketPath(ticket.getPlayerId()), ticket);
+        }
+
+        @Override
+        public void createMatch(MatchPairing pairing) {
+            matches.add(pairing);
+        }
+
+        boolean commit() {
+            List<MatchmakingQueue> changedTickets = new ArrayList<>();
+            synchronized (lock) {
+                for (Map.Entry<String, Long> read : readVersions.entrySet()) {
+                    Versioned doc = documents.get(read.getKey());
+                    long current = doc != null ? doc.version : 0L;
+                    if (current != read.getValue()) {
+                        return false;
+                    }
+                }
+                for (Map.Entry<String, Object> write : writes.entrySet()) {
+                    Versioned doc = documents.get(write.getKey());
+                    documents.put(write.getKey(), new Versioned(doc != null ? doc.version + 1 : 1L, write.getValue()));
+                    if (write.getValue() instanceof MatchmakingQueue) {
+                        changedTickets.add((MatchmakingQueue) write.getValue());
+                    }
+                }
+                createdMatches.addAll(matches);
+            }
+            for (MatchmakingQueue ticket : changedTickets) {
+                List<TicketListener> listeners = ticketListeners.get(ticket.getPlayerId());
+                if (listeners != null) {
+                    for (TicketListener listener : listeners) {
+                        executor.execute(() -> listener.onTicketChanged(ticket));
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
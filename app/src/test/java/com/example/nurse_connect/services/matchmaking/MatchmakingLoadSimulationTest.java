@@ -0,0 +1,162 @@
+package com.example.nurse_connect.services.matchmaking;
+
+import com.example.nurse_connect.models.MatchmakingQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load simulation for MatchmakingEngine: thousands of concurrent joiners against an
+ * in-memory transactional store. Reports pair latency and the double-match rate.
+ */
+public class MatchmakingLoadSimulationTest {
+
+    private static final int PLAYERS = 2000;
+    private static final long JOIN_WINDOW_MS = 1000;
+    private static final long[] WIDEN_AFTER_MS = {100, 300, 600};
+    private static final long MAX_WAIT_MS = 3000;
+
+    private InMemoryMatchmakingStore store;
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryMatchmakingStore(32, 2);
+        scheduler = Executors.newScheduledThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        store.shutdown();
+    }
+
+    @Test
+    public void concurrentJoinersArePairedAtMostOnce() throws Exception {
+        MatchmakingEngine engine = new MatchmakingEngine(store, scheduler, WIDEN_AFTER_MS, MAX_WAIT_MS);
+        Random random = new Random(42);
+        String[] courses = {"Fundamentals", "Pharmacology"};
+        String[] units = {"Unit 1", "Unit 2"};
+
+        CountDownLatch finished = new CountDownLatch(PLAYERS);
+        Map<String, Long> joinedAt = new ConcurrentHashMap<>();
+        Map<String, Long> pairLatencyMs = new ConcurrentHashMap<>();
+        Map<String, String> notifiedMatch = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> notifications = new ConcurrentHashMap<>();
+        AtomicInteger timeouts = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        for (int i = 0; i < PLAYERS; i++) {
+            String playerId = "player_" + i;
+            MatchmakingQueue ticket = new MatchmakingQueue(playerId, "Player " + i,
+                    courses[random.nextInt(courses.length)], units[random.nextInt(units.length)], "CNA");
+            ticket.setPlayerRank(RankBands.RANKS[random.nextInt(RankBands.RANKS.length)]);
+            notifications.put(playerId, new AtomicInteger());
+
+            scheduler.schedule(() -> {
+                joinedAt.put(playerId, System.nanoTime());
+                engine.join(ticket, new ArrayList<>(), new MatchmakingEngine.Listener() {
+                    @Override
+                    public void onMatched(String matchId) {
+                        pairLatencyMs.put(playerId, (System.nanoTime() - joinedAt.get(playerId)) / 1_000_000);
+                        notifiedMatch.put(playerId, matchId);
+                        notifications.get(playerId).incrementAndGet();
+                        finished.countDown();
+                    }
+
+                    @Override
+                    public void onTimeout() {
+                        timeouts.incrementAndGet();
+                        finished.countDown();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        errors.incrementAndGet();
+                        finished.countDown();
+                    }
+                });
+            }, random.nextInt((int) JOIN_WINDOW_MS), TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue("Simulation did not finish in time",
+                finished.await(JOIN_WINDOW_MS + MAX_WAIT_MS + 30000, TimeUnit.MILLISECONDS));
+
+        // Every player may appear in at most one created match, never against themselves
+        Map<String, Integer> matchesPerPlayer = new HashMap<>();
+        Map<String, String> createdMatchOf = new HashMap<>();
+        int selfMatches = 0;
+        for (MatchPairing pairing : store.createdMatches) {
+            String host = pairing.getHost().getPlayerId();
+            String opponent = pairing.getOpponent().getPlayerId();
+            if (host.equals(opponent)) {
+                selfMatches++;
+            }
+            for (String playerId : new String[]{host, opponent}) {
+                matchesPerPlayer.merge(playerId, 1, Integer::sum);
+                createdMatchOf.put(playerId, pairing.getMatchId());
+            }
+        }
+
+        Set<String> doubleMatched = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : matchesPerPlayer.entrySet()) {
+            if (entry.getValue() > 1) {
+                doubleMatched.add(entry.getKey());
+            }
+        }
+        int duplicateNotifications = 0;
+        int wrongNotifications = 0;
+        for (String playerId : notifications.keySet()) {
+            if (notifications.get(playerId).get() > 1) {
+                duplicateNotifications++;
+            }
+            String notified = notifiedMatch.get(playerId);
+            if (notified != null && !notified.equals(createdMatchOf.get(playerId))) {
+                wrongNotifications++;
+            }
+        }
+
+        List<Long> latencies = new ArrayList<>(pairLatencyMs.values());
+        Collections.sort(latencies);
+        System.out.println("=== Matchmaking load simulation ===");
+        System.out.println("Players: " + PLAYERS + ", matches: " + store.createdMatches.size()
+                + ", paired players: " + latencies.size());
+        System.out.println("Timeouts: " + timeouts.get() + ", errors: " + errors.get());
+        System.out.println("Pair latency p50: " + percentile(latencies, 50) + "ms, p99: "
+                + percentile(latencies, 99) + "ms, max: " + percentile(latencies, 100) + "ms");
+        System.out.println("Transactions committed: " + store.commits.get() + ", retries: " + store.retries.get());
+        System.out.println("Double-match rate: " + ((double) doubleMatched.size() / PLAYERS));
+
+        assertEquals("Players paired more than once", 0, doubleMatched.size());
+        assertEquals("Players paired with themselves", 0, selfMatches);
+        assertEquals("Players notified more than once", 0, duplicateNotifications);
+        assertEquals("Players notified of the wrong match", 0, wrongNotifications);
+        assertEquals(PLAYERS, latencies.size() + timeouts.get() + errors.get());
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return -1;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
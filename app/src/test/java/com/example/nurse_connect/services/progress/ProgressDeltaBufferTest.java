@@ -0,0 +1,119 @@
+package com.example.nurse_connect.services.progress;
+
+import com.example.nurse_connect.services.srs.CardSchedule;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ProgressDeltaBufferTest {
+
+    private static CardSchedule dueAt(long dueMillis) {
+        CardSchedule schedule = new CardSchedule();
+        schedule.setLastReviewMillis(1);
+        schedule.setDueMillis(dueMillis);
+        return schedule;
+    }
+
+    @Test
+    public void accumulatesAnswersPerCard() {
+        ProgressDeltaBuffer buffer = new ProgressDeltaBuffer();
+        buffer.record("a", true, 1.0, dueAt(100), 10);
+        buffer.record("a", false, 0.5, dueAt(200), 20);
+        buffer.record("b", true, 1.0, dueAt(300), 30);
+
+        Map<String, PendingProgress> flush = buffer.beginFlush("f1", 10);
+        assertEquals(2, flush.size());
+        PendingProgress a = flush.get("a");
+        assertEquals(2, a.getReviewed());
+        assertEquals(1, a.getCorrect());
+        assertEquals(1, a.getIncorrect());
+        assertEquals(0.5, a.getConfidenceScore(), 0);
+        assertEquals(200, a.getSchedule().getDueMillis());
+        assertEquals(20, a.getLastAnsweredMillis());
+    }
+
+    @Test
+    public void onlyOneFlushInFlightAndSuccessDropsIt() {
+        ProgressDeltaBuffer buffer = new ProgressDeltaBuffer();
+        buffer.record("a", true, 1.0, dueAt(100), 10);
+        assertNotNull(buffer.beginFlush("f1", 10));
+
+        buffer.record("b", true, 1.0, dueAt(100), 20);
+        assertNull("second flush while one is in flight", buffer.beginFlush("f2", 10));
+        assertEquals("f1", buffer.getInFlightId());
+
+        buffer.flushSucceeded("f1");
+        Map<String, PendingProgress> next = buffer.beginFlush("f2", 10);
+        assertEquals(1, next.size());
+        assertTrue(next.containsKey("b"));
+        buffer.flushSucceeded("f2");
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void failedFlushIsMergedBackBeforeNewerAnswers() {
+        ProgressDeltaBuffer buffer = new ProgressDeltaBuffer();
+        buffer.record("a", true, 1.0, dueAt(100), 10);
+        buffer.beginFlush("f1", 10);
+        buffer.record("a", false, 0.5, dueAt(50), 20);
+
+        buffer.flushFailed("f1");
+        assertNull(buffer.getInFlightId());
+        Map<String, PendingProgress> retry = buffer.beginFlush("f2", 10);
+        PendingProgress a = retry.get("a");
+        assertEquals("no answer lost or counted twice", 2, a.getReviewed());
+        assertEquals(1, a.getCorrect());
+        assertEquals("newest state wins", 50, a.getSchedule().getDueMillis());
+
+        // A stale callback for an old flush changes nothing
+        buffer.flushFailed("f1");
+        assertEquals("f2", buffer.getInFlightId());
+    }
+
+    @Test
+    public void rejectedFlushDropsMissingCardsForGood() {
+        ProgressDeltaBuffer buffer = new ProgressDeltaBuffer();
+        buffer.record("card", true, 1.0, dueAt(100), 10);
+        buffer.record("question", true, 1.0, dueAt(100), 20);
+        buffer.beginFlush("f1", 10);
+        buffer.record("question", false, 0.5, dueAt(50), 30);
+
+        buffer.flushRejected("f1", Collections.singletonList("question"));
+        buffer.record("question", true, 1.0, dueAt(100), 40);
+        Map<String, PendingProgress> retry = buffer.beginFlush("f2", 10);
+        assertEquals(1, retry.size());
+        assertEquals(1, retry.get("card").getReviewed());
+    }
+
+    @Test
+    public void flushesAreCappedInSize() {
+        ProgressDeltaBuffer buffer = new ProgressDeltaBuffer();
+        for (int i = 0; i < 5; i++) {
+            buffer.record("card" + i, true, 1.0, dueAt(100), i);
+        }
+        assertEquals(2, buffer.beginFlush("f1", 2).size());
+        assertEquals(3, buffer.pendingCount());
+    }
+
+    @Test
+    public void latestScheduleCoversInFlightAndNewerAnswers() {
+        ProgressDeltaBuffer buffer = new ProgressDeltaBuffer();
+        assertNull(buffer.latestSchedule("a"));
+
+        buffer.record("a", true, 1.0, dueAt(100), 10);
+        buffer.beginFlush("f1", 10);
+        assertEquals(100, buffer.latestSchedule("a").getDueMillis());
+
+        buffer.record("a", true, 1.0, dueAt(200), 20);
+        assertEquals(200, buffer.latestSchedule("a").getDueMillis());
+
+        buffer.flushSucceeded("f1");
+        buffer.beginFlush("f2", 10);
+        buffer.flushSucceeded("f2");
+        assertNull(buffer.latestSchedule("a"));
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.nurse_connect.services.progress;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class StudyProgressLogTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long HOUR = StudyProgressState.HOUR_MILLIS;
+    private static final long DAY = StudyProgressState.DAY_MILLIS;
+    private static final long START = 1_700_000_000_000L;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("study-progress").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void sessionsUpdateStreakTotalsAndDailyCounts() throws IOException {
+        StudyProgressLog log = StudyProgressLog.open(dir, UTC);
+        assertTrue(log.isNew());
+        log.recordFlashcard("card-1");
+        assertFalse(log.recordFlashcard("card-1"));
+        log.append(StudyRecord.SESSION, START, 10);
+        log.append(StudyRecord.SESSION, START + 2 * HOUR, 10);
+        log.append(StudyRecord.SESSION, START + 11 * HOUR, 5);
+
+        StudyProgressState state = log.getState();
+        assertEquals(2, state.getCurrentStreak());
+        assertEquals(2, state.getMaxStreak());
+        assertEquals(25, state.getTotalQuestionsStudied());
+        assertEquals(5, state.getCurrentSessionQuestions());
+        assertEquals(3, state.getTotalSessions());
+        assertEquals(1, state.getUniqueFlashcardsCompleted());
+        long day = StudyProgressState.localDay(START, UTC);
+        long nextDay = StudyProgressState.localDay(START + 11 * HOUR, UTC);
+        assertEquals(25, state.getQuestionsOnDay(day) + (nextDay != day ? state.getQuestionsOnDay(nextDay) : 0));
+
+        log.append(StudyRecord.SESSION, START + 31 * DAY, 10);
+        assertEquals("streak restarts after the challenge window", 1, log.getState().getCurrentStreak());
+        assertEquals(2, log.getState().getMaxStreak());
+    }
+
+    @Test
+    public void reopeningReplaysOneLineAndOneSyncPerSession() throws IOException {
+        StudyProgressLog log = StudyProgressLog.open(dir, UTC);
+        log.recordFlashcard("a|b,c%");
+        log.recordFlashcard("card-2");
+        log.append(StudyRecord.SESSION, START, 2);
+        log.sync();
+        log.append(StudyRecord.SESSION_START, START + HOUR, 0);
+        log.sync();
+
+        assertEquals(2, Files.readAllLines(new File(dir, StudyProgressLog.LOG_NAME).toPath()).size());
+        StudyProgressLog reopened = StudyProgressLog.open(dir, UTC);
+        assertFalse(reopened.isNew());
+        assertTrue(reopened.getState().isCompleted("a|b,c%"));
+        assertEquals(2, reopened.getState().getUniqueFlashcardsCompleted());
+        assertEquals(0, reopened.getState().getCurrentSessionQuestions());
+        assertEquals(2, reopened.getState().getTotalQuestionsStudied());
+    }
+
+    @Test
+    public void compactionSnapshotsStateAndTruncatesLog() throws IOException {
+        StudyProgressLog log = StudyProgressLog.open(dir, UTC);
+        for (int i = 0; i < StudyProgressLog.COMPACT_AFTER_RECORDS; i++) {
+            log.recordFlashcard("card-" + i);
+            log.append(StudyRecord.SESSION, START + i * 9 * HOUR, 1);
+            log.sync();
+        }
+        assertEquals(0, log.getRecordsInLog());
+        assertEquals(0, new File(dir, StudyProgressLog.LOG_NAME).length());
+        log.append(StudyRecord.SESSION, START + 1000 * HOUR, 1);
+        log.sync();
+
+        StudyProgressLog reopened = StudyProgressLog.open(dir, UTC);
+        assertEquals(StudyProgressLog.COMPACT_AFTER_RECORDS + 1, reopened.getState().getTotalSessions());
+        assertEquals(StudyProgressLog.COMPACT_AFTER_RECORDS, reopened.getState().getUniqueFlashcardsCompleted());
+        assertEquals(1, reopened.getRecordsInLog());
+    }
+
+    @Test
+    public void tornTailIsDroppedOnReplay() throws IOException {
+        StudyProgressLog log = StudyProgressLog.open(dir, UTC);
+        log.append(StudyRecord.SESSION, START, 10);
+        log.sync();
+        String torn = new StudyRecord(2, StudyRecord.SESSION, START + HOUR, 10,
+                Collections.singletonList("card")).encode();
+        try (FileOutputStream out = new FileOutputStream(new File(dir, StudyProgressLog.LOG_NAME), true)) {
+            out.write(torn.substring(0, torn.length() - 3).getBytes(StandardCharsets.UTF_8));
+        }
+
+        StudyProgressLog reopened = StudyProgressLog.open(dir, UTC);
+        assertEquals(10, reopened.getState().getTotalQuestionsStudied());
+        assertFalse(reopened.getState().isCompleted("card"));
+        reopened.append(StudyRecord.SESSION, START + 2 * HOUR, 5);
+        reopened.sync();
+        assertEquals(15, StudyProgressLog.open(dir, UTC).getState().getTotalQuestionsStudied());
+    }
+
+    @Test
+    public void resetAndRestartClearProgress() throws IOException {
+        StudyProgressLog log = StudyProgressLog.open(dir, UTC);
+        log.recordFlashcard("card");
+        log.append(StudyRecord.SESSION, START, 10);
+        log.append(StudyRecord.RESTART, START + DAY, 0);
+        assertEquals(1, log.getState().getCurrentStreak());
+        assertEquals(START + DAY, log.getState().getFirstStudyTime());
+        assertEquals(0, log.getState().getUniqueFlashcardsCompleted());
+        assertEquals(10, log.getState().getTotalQuestionsStudied());
+
+        log.append(StudyRecord.RESET, START + 2 * DAY, 0);
+        log.sync();
+        StudyProgressState state = StudyProgressLog.open(dir, UTC).getState();
+        assertEquals(0, state.getFirstStudyTime());
+        assertEquals(0, state.getTotalQuestionsStudied());
+        assertEquals(0, state.getMaxStreak());
+    }
+
+    @Test
+    public void mergingSyncedProgressKeepsOfflineSessions() throws IOException {
+        StudyProgressLog log = StudyProgressLog.open(dir, UTC);
+        log.recordFlashcard("local-card");
+        log.append(StudyRecord.SESSION, START, 10);
+        log.append(StudyRecord.SESSION, START + 9 * HOUR, 10);
+        long seq = log.getState().getLastSeq();
+
+        // Another device synced more sessions of the same challenge, with a higher log sequence
+        StudyProgressState remote = StudyProgressState.fromRemote(0, START - HOUR, START + 20 * HOUR,
+                START - HOUR, 3, 3, 1, 5, 40, Collections.singleton("remote-card"));
+        assertFalse(log.mergeState(remote));
+        assertFalse(log.mergeState(remote));
+
+        StudyProgressState state = log.getState();
+        assertEquals(seq, state.getLastSeq());
+        assertEquals(START - HOUR, state.getFirstStudyTime());
+        assertEquals(START + 20 * HOUR, state.getLastStudyTime());
+        assertEquals(3, state.getCurrentStreak());
+        assertEquals(5, state.getTotalSessions());
+        assertEquals(40, state.getTotalQuestionsStudied());
+        assertEquals(2, state.getUniqueFlashcardsCompleted());
+
+        // A challenge restarted elsewhere after this one replaces it
+        StudyProgressState restarted = StudyProgressState.fromRemote(START + DAY, START + DAY, START + DAY,
+                START + DAY, 1, 1, 0, 0, 40, Collections.emptySet());
+        assertTrue(log.mergeState(restarted));
+        assertEquals(START + DAY, log.getState().getFirstStudyTime());
+        assertEquals(0, log.getState().getUniqueFlashcardsCompleted());
+        // An older copy of the replaced challenge no longer counts
+        assertFalse(log.mergeState(remote));
+        assertEquals(0, log.getState().getTotalSessions());
+
+        log.snapshot();
+        assertEquals(START + DAY, StudyProgressLog.open(dir, UTC).getState().getRestartedAt());
+    }
+}
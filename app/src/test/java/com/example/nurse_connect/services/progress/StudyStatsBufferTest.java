@@ -0,0 +1,86 @@
+package com.example.nurse_connect.services.progress;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StudyStatsBufferTest {
+
+    @Test
+    public void changesMergeIntoOneDelta() {
+        StudyStatsBuffer buffer = new StudyStatsBuffer();
+        buffer.setUser("u1");
+        buffer.recordAnswer(true, 10);
+        buffer.recordAnswer(false, 30);
+        buffer.recordAnswer(true, 20);
+        buffer.recordCompleted("a");
+        buffer.recordCompleted("a");
+        buffer.markProgressChanged();
+        buffer.markProgressChanged();
+
+        StudyStatsBuffer.Delta delta = buffer.beginFlush("f1");
+        assertEquals(3, delta.getCardsStudied());
+        assertEquals(2, delta.getCorrectAnswers());
+        assertEquals(30, delta.getLastStudiedMillis());
+        assertEquals(1, delta.getCompletedFlashcardIds().size());
+        assertTrue(delta.isProgressChanged());
+        assertNull("one flush at a time", buffer.beginFlush("f2"));
+        buffer.flushSucceeded("f1");
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void failedFlushIsFoldedBackBeforeNewerChanges() {
+        StudyStatsBuffer buffer = new StudyStatsBuffer();
+        buffer.setUser("u1");
+        buffer.recordAnswer(true, 10);
+        buffer.recordCompleted("a");
+        buffer.recordSession(10);
+        buffer.beginFlush("f1");
+        buffer.recordSession(5);
+        buffer.markCompletedIdsReset();
+        buffer.recordCompleted("b");
+        buffer.recordAnswer(false, 20);
+        buffer.flushFailed("f1");
+
+        StudyStatsBuffer.Delta delta = buffer.beginFlush("f2");
+        assertEquals(2, delta.getCardsStudied());
+        assertEquals(1, delta.getCorrectAnswers());
+        assertEquals(2, delta.getSessions());
+        assertEquals(15, delta.getQuestionsStudied());
+        assertTrue("the later reset wins", delta.isCompletedIdsReset());
+        assertEquals(1, delta.getCompletedFlashcardIds().size());
+        assertTrue(delta.getCompletedFlashcardIds().contains("b"));
+    }
+
+    @Test
+    public void switchingUsersDropsUnsyncedChanges() {
+        StudyStatsBuffer buffer = new StudyStatsBuffer();
+        buffer.setUser("u1");
+        buffer.recordAnswer(true, 10);
+        buffer.setUser("u1");
+        assertFalse(buffer.isEmpty());
+        buffer.setUser("u2");
+        assertTrue(buffer.isEmpty());
+        assertEquals("u2", buffer.getUserId());
+    }
+
+    @Test
+    public void bufferSurvivesJsonRoundTripWithFlightInProgress() {
+        StudyStatsBuffer buffer = new StudyStatsBuffer();
+        buffer.setUser("u1");
+        buffer.recordAnswer(true, 10);
+        buffer.beginFlush("f1");
+        buffer.markProgressChanged();
+        Gson gson = new Gson();
+        StudyStatsBuffer restored = gson.fromJson(gson.toJson(buffer), StudyStatsBuffer.class);
+
+        assertEquals("f1", restored.getInFlightId());
+        restored.flushFailed("f1");
+        StudyStatsBuffer.Delta delta = restored.beginFlush("f2");
+        assertEquals(1, delta.getCardsStudied());
+        assertTrue(delta.isProgressChanged());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.nurse_connect.services.ranking;
+
+import com.example.nurse_connect.models.PlayerStats;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the leaderboard shard, friend rank index and Elo update
+ */
+public class RankingStructuresTest {
+
+    @Test
+    public void testFriendRankIndex_PositionAndUpdates() {
+        FriendRankIndex index = new FriendRankIndex();
+        index.put("me", 1200);
+        index.put("a", 1350);
+        index.put("b", 1100);
+        index.put("c", 1200);
+
+        assertEquals(4, index.size());
+        assertEquals(2, index.positionOf("me")); // shares second place with c
+        assertEquals(1, index.positionOf("a"));
+        assertEquals(4, index.positionOf("b"));
+
+        index.put("b", 1500);
+        assertEquals(3, index.positionOf("me"));
+        assertEquals(1, index.positionOf("b"));
+
+        index.remove("a");
+        assertEquals(2, index.positionOf("me"));
+        assertEquals(-1, index.positionOf("a"));
+    }
+
+    @Test
+    public void testLeaderboardShard_UpsertKeepsSortedTopN() {
+        LeaderboardShard shard = new LeaderboardShard("Fundamentals", 0);
+        for (int i = 0; i < LeaderboardShard.MAX_ENTRIES + 10; i++) {
+            shard.upsert(new LeaderboardEntry("p" + i, "Player " + i, 1000 + i));
+        }
+
+        List<LeaderboardEntry> entries = shard.getEntries();
+        assertEquals(LeaderboardShard.MAX_ENTRIES, entries.size());
+        assertEquals("p59", entries.get(0).getPlayerId());
+        assertFalse(shard.upsert(new LeaderboardEntry("low", "Low", 900)));
+
+        // Moving an existing player does not duplicate them
+        shard.upsert(new LeaderboardEntry("p20", "Player 20", 2000));
+        assertEquals("p20", entries.get(0).getPlayerId());
+        assertEquals(LeaderboardShard.MAX_ENTRIES, entries.size());
+        for (int i = 1; i < entries.size(); i++) {
+            assertTrue(entries.get(i - 1).getRating() >= entries.get(i).getRating());
+        }
+    }
+
+    @Test
+    public void testLeaderboardShard_MergeAcrossShards() {
+        LeaderboardShard first = new LeaderboardShard("Fundamentals", 0);
+        LeaderboardShard second = new LeaderboardShard("Fundamentals", 1);
+        first.upsert(new LeaderboardEntry("a", "A", 1500));
+        first.upsert(new LeaderboardEntry("b", "B", 1300));
+        second.upsert(new LeaderboardEntry("c", "C", 1400));
+
+        List<LeaderboardEntry> top = LeaderboardShard.merge(Arrays.asList(first, second), 2);
+        assertEquals(2, top.size());
+        assertEquals("a", top.get(0).getPlayerId());
+        assertEquals("c", top.get(1).getPlayerId());
+    }
+
+    @Test
+    public void testEloRating_ZeroSumForEqualK() {
+        double winner = EloRating.updatedRating(1200, 1200, 1, 5);
+        double loser = EloRating.updatedRating(1200, 1200, 0, 5);
+
+        assertEquals(1220, winner, 0.001);
+        assertEquals(1180, loser, 0.001);
+        assertEquals(1200, EloRating.updatedRating(1200, 1200, 0.5, 50), 0.001);
+        assertTrue(EloRating.updatedRating(1600, 1200, 1, 50) - 1600 < 2);
+    }
+
+    @Test
+    public void testPlayerStats_LegacyRankPointsKeepTheirTier() {
+        assertEquals(PlayerStats.INITIAL_RATING, new PlayerStats("new", "New").getRating(), 0.001);
+
+        String[] tiers = {"Bronze", "Silver", "Gold", "Platinum", "Diamond"};
+        int[] legacyPoints = {120, 250, 600, 750, 1000};
+        for (int i = 0; i < tiers.length; i++) {
+            PlayerStats legacy = new PlayerStats();
+            legacy.setRankPoints(legacyPoints[i]);
+            legacy.updateAfterMatch(true, 10, 5, "course", legacy.getRating());
+            assertEquals(tiers[i], legacy.getCurrentRank());
+        }
+    }
+}
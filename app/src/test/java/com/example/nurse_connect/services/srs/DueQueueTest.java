@@ -0,0 +1,76 @@
+package com.example.nurse_connect.services.srs;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DueQueueTest {
+
+    @Test
+    public void returnsMostOverdueFirstAndSkipsFutureCards() {
+        DueQueue queue = new DueQueue();
+        queue.put("a", 300);
+        queue.put("b", 100);
+        queue.put("c", 200);
+        queue.put("later", 10_000);
+
+        assertEquals(Arrays.asList("b", "c", "a"), queue.next(1000, 10, 0));
+        assertEquals(Arrays.asList("b", "c"), queue.next(1000, 2, 0));
+        assertEquals(3, queue.dueCount(1000));
+        assertEquals(100, queue.nextDueMillis());
+    }
+
+    @Test
+    public void rescheduledCardsMoveAndStaleEntriesAreSkipped() {
+        DueQueue queue = new DueQueue();
+        queue.put("a", 100);
+        queue.put("b", 200);
+        queue.put("a", 5000); // reviewed: pushed out
+        queue.remove("b");
+
+        assertTrue(queue.next(1000, 10, 0).isEmpty());
+        assertEquals(5000, queue.nextDueMillis());
+        assertEquals(1, queue.size());
+
+        // Many reschedules of one card compact the heap instead of growing it
+        for (int i = 0; i < 1000; i++) {
+            queue.put("a", 6000 + i);
+        }
+        assertEquals(Arrays.asList("a"), queue.next(10_000, 10, 0));
+    }
+
+    @Test
+    public void cardMovedBackToAnEarlierDueTimeIsReturnedOnce() {
+        DueQueue queue = new DueQueue();
+        queue.put("a", 100);
+        queue.put("a", 200);
+        queue.put("a", 100);
+        assertEquals(Arrays.asList("a"), queue.next(1000, 10, 0));
+
+        queue.put("b", 100);
+        queue.remove("b");
+        queue.put("b", 100);
+        assertEquals(Arrays.asList("a", "b"), queue.next(1000, 10, 0));
+    }
+
+    @Test
+    public void interleavesNewCardsBetweenDueCards() {
+        DueQueue queue = new DueQueue();
+        for (int i = 0; i < 6; i++) {
+            queue.put("due" + i, 100 + i);
+        }
+        queue.put("new0", 0);
+        queue.put("new1", 0);
+        queue.put("new2", 0);
+
+        List<String> session = queue.next(1000, 6, 2);
+        assertEquals(Arrays.asList("due0", "due1", "new0", "due2", "due3", "new1", "due4", "due5"), session);
+
+        // Only new cards left to study
+        assertEquals(Arrays.asList("new0", "new1", "new2"), queue.next(50, 6, 5));
+        assertEquals(3, queue.newCount());
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.nurse_connect.services.srs;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Simulation benchmark for the review schedulers: simulated students study a deck
+ * every day through a DueQueue, recalling each card with a probability given by a
+ * hidden memory model that none of the schedulers knows. Reports reviews spent,
+ * recall at review time and retention at the end of the period per scheduler.
+ */
+public class SchedulerSimulationTest {
+
+    private static final long DAY = ReviewScheduler.DAY_MILLIS;
+    private static final int STUDENTS = 20;
+    private static final int CARDS = 300;
+    private static final int NEW_PER_DAY = 15;
+    private static final int DAYS = 90;
+    private static final long START = 1_700_000_000_000L;
+
+    /**
+     * Hidden memory of one card: recall decays exponentially, a successful recall
+     * strengthens memory more the harder it was, a lapse weakens it
+     */
+    private static class MemoryModel {
+        final double easiness; // card-specific, 0.5 (hard) .. 1.5 (easy)
+        double halfLifeDays;
+        long lastSeen;
+
+        MemoryModel(double easiness) {
+            this.easiness = easiness;
+            this.halfLifeDays = 2.0 * easiness;
+        }
+
+        double recallProbability(long now) {
+            double days = (now - lastSeen) / (double) DAY;
+            return Math.pow(0.5, days / halfLifeDays);
+        }
+
+        void reviewed(boolean recalled, double probability, long now) {
+            if (recalled) {
+                halfLifeDays *= 1 + easiness * (0.8 + 3.0 * (1 - probability));
+            } else {
+                halfLifeDays = Math.max(0.3, halfLifeDays * 0.35);
+            }
+            lastSeen = now;
+        }
+    }
+
+    private static class Result {
+        long reviews;
+        double recallAtReviewSum;
+        double finalRetentionSum;
+        int cardsStudied;
+
+        double recallAtReview() {
+            return recallAtReviewSum / reviews;
+        }
+
+        double finalRetention() {
+            return finalRetentionSum / cardsStudied;
+        }
+
+        /**
+         * Cards remembered at the end per 100 reviews spent
+         */
+        double retainedPer100Reviews() {
+            return 100.0 * finalRetentionSum / reviews;
+        }
+    }
+
+    private Result simulate(ReviewScheduler scheduler, long seed) {
+        Result result = new Result();
+        Random random = new Random(seed);
+        for (int student = 0; student < STUDENTS; student++) {
+            DueQueue queue = new DueQueue();
+            List<CardSchedule> schedules = new ArrayList<>();
+            List<MemoryModel> memories = new ArrayList<>();
+            for (int card = 0; card < CARDS; card++) {
+                schedules.add(new CardSchedule());
+                memories.add(new MemoryModel(0.5 + random.nextDouble()));
+                queue.put(String.valueOf(card), 0);
+            }
+
+            for (int day = 0; day < DAYS; day++) {
+                long now = START + day * DAY;
+                for (String cardId : queue.next(now, Integer.MAX_VALUE, NEW_PER_DAY)) {
+                    int card = Integer.parseInt(cardId);
+                    CardSchedule schedule = schedules.get(card);
+                    MemoryModel memory = memories.get(card);
+
+                    double probability = schedule.isNew() ? 0 : memory.recallProbability(now);
+                    boolean recalled = random.nextDouble() < probability;
+                    int grade = !recalled ? ReviewScheduler.AGAIN
+                            : probability > 0.95 ? ReviewScheduler.EASY
+                            : probability < 0.6 ? ReviewScheduler.HARD : ReviewScheduler.GOOD;
+
+                    if (!schedule.isNew()) {
+                        result.reviews++;
+                        result.recallAtReviewSum += probability;
+                    }
+                    memory.reviewed(recalled, probability, now);
+                    CardSchedule next = scheduler.review(schedule, grade, now);
+                    assertTrue(scheduler.getName() + " scheduled a card in the past", next.getDueMillis() > now);
+                    schedules.set(card, next);
+                    queue.put(cardId, next.getDueMillis());
+                }
+            }
+
+            long end = START + DAYS * DAY;
+            for (int card = 0; card < CARDS; card++) {
+                if (!schedules.get(card).isNew()) {
+                    result.cardsStudied++;
+                    result.finalRetentionSum += memories.get(card).recallProbability(end);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void comparesSchedulersOnSimulatedStudents() {
+        ReviewScheduler[] schedulers = {new LadderScheduler(), new Sm2Scheduler(), new FsrsScheduler()};
+        Result[] results = new Result[schedulers.length];
+
+        System.out.println("=== Spaced repetition simulation: " + STUDENTS + " students x " + CARDS
+                + " cards, " + DAYS + " days ===");
+        for (int i = 0; i < schedulers.length; i++) {
+            results[i] = simulate(schedulers[i], 11);
+            Result r = results[i];
+            System.out.println(String.format("%-7s reviews/student %6d, recall at review %.3f, "
+                            + "final retention %.3f, retained per 100 reviews %.2f",
+                    schedulers[i].getName(), r.reviews / STUDENTS, r.recallAtReview(),
+                    r.finalRetention(), r.retainedPer100Reviews()));
+        }
+
+        for (Result r : results) {
+            assertEquals(STUDENTS * Math.min(CARDS, NEW_PER_DAY * DAYS), r.cardsStudied);
+            assertTrue(r.recallAtReview() > 0 && r.recallAtReview() < 1);
+        }
+        Result ladder = results[0];
+        Result fsrs = results[2];
+        // Adaptive intervals retain more per review than the fixed ladder
+        assertTrue("FSRS should beat the fixed ladder on retention per review",
+                fsrs.retainedPer100Reviews() > ladder.retainedPer100Reviews());
+    }
+
+    @Test
+    public void fsrsIntervalsGrowWithSuccessAndShrinkOnLapse() {
+        FsrsScheduler fsrs = new FsrsScheduler();
+        CardSchedule card = fsrs.review(new CardSchedule(), ReviewScheduler.GOOD, START);
+        double previous = card.getIntervalDays();
+        long now = card.getDueMillis();
+        for (int i = 0; i < 4; i++) {
+            card = fsrs.review(card, ReviewScheduler.GOOD, now);
+            assertTrue(card.getIntervalDays() > previous);
+            previous = card.getIntervalDays();
+            now = card.getDueMillis();
+        }
+        CardSchedule lapsed = fsrs.review(card, ReviewScheduler.AGAIN, now);
+        assertTrue(lapsed.getIntervalDays() < card.getIntervalDays());
+        assertEquals(1, lapsed.getLapses());
+        // At the due date predicted recall is the desired retention
+        assertEquals(0.9, fsrs.retrievability(card, card.getLastReviewMillis()
+                + Math.round(card.getStability() * DAY)), 1e-6);
+    }
+
+    @Test
+    public void sm2FollowsTheClassicSequence() {
+        Sm2Scheduler sm2 = new Sm2Scheduler();
+        CardSchedule card = sm2.review(new CardSchedule(), ReviewScheduler.GOOD, START);
+        assertEquals(1, card.getIntervalDays(), 0);
+        card = sm2.review(card, ReviewScheduler.GOOD, card.getDueMillis());
+        assertEquals(6, card.getIntervalDays(), 0);
+        card = sm2.review(card, ReviewScheduler.GOOD, card.getDueMillis());
+        assertEquals(15, card.getIntervalDays(), 0); // round(6 * 2.5)
+        card = sm2.review(card, ReviewScheduler.AGAIN, card.getDueMillis());
+        assertEquals(1, card.getIntervalDays(), 0);
+        assertEquals(0, card.getRepetitions());
+        assertTrue(card.getEase() < CardSchedule.INITIAL_EASE);
+    }
+}
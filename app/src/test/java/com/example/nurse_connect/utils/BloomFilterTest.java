@@ -0,0 +1,51 @@
+package com.example.nurse_connect.utils;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void addedValuesAreAlwaysFound() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("material-" + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("material-" + i));
+        }
+    }
+
+    @Test
+    public void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("material-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 2000);
+        assertTrue("about 10 bits per entry", filter.getNumBits() < 12_000);
+    }
+
+    @Test
+    public void filterSurvivesJsonRoundTrip() {
+        BloomFilter filter = BloomFilter.create(10, 0.01);
+        filter.put("a");
+        filter.put("b");
+        Gson gson = new Gson();
+        BloomFilter restored = gson.fromJson(gson.toJson(filter), BloomFilter.class);
+
+        assertTrue(restored.mightContain("a"));
+        assertTrue(restored.mightContain("b"));
+        assertEquals(filter.getNumHashes(), restored.getNumHashes());
+        assertFalse(BloomFilter.create(10, 0.01).mightContain("a"));
+    }
+}
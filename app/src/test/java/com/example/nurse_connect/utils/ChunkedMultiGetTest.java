@@ -0,0 +1,138 @@
+package com.example.nurse_connect.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ChunkedMultiGetTest {
+
+    /** Holds chunk requests until the test answers them, like a slow backend */
+    private static class FakeLoader implements ChunkedMultiGet.ChunkLoader<String> {
+        final List<List<String>> requests = new ArrayList<>();
+        final List<ChunkedMultiGet.ChunkCallback<String>> pending = new ArrayList<>();
+        int maxInFlight;
+
+        @Override
+        public void load(List<String> ids, ChunkedMultiGet.ChunkCallback<String> callback) {
+            requests.add(ids);
+            pending.add(callback);
+            maxInFlight = Math.max(maxInFlight, pending.size());
+        }
+
+        void answerOldest(String missingId) {
+            List<String> ids = requests.get(requests.size() - pending.size());
+            ChunkedMultiGet.ChunkCallback<String> callback = pending.remove(0);
+            Map<String, String> found = new HashMap<>();
+            for (String id : ids) {
+                if (!id.equals(missingId)) {
+                    found.put(id, "doc-" + id);
+                }
+            }
+            callback.onChunkLoaded(found);
+        }
+    }
+
+    private static class Result implements ChunkedMultiGet.Callback<String> {
+        List<String> results;
+        List<String> missing;
+        Exception error;
+        int calls;
+
+        @Override
+        public void onLoaded(List<String> results, List<String> missingIds) {
+            this.results = results;
+            this.missing = missingIds;
+            calls++;
+        }
+
+        @Override
+        public void onError(Exception e) {
+            error = e;
+            calls++;
+        }
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            ids.add("id" + i);
+        }
+        return ids;
+    }
+
+    @Test
+    public void splitsIntoBoundedParallelChunksAndKeepsRequestedOrder() {
+        FakeLoader loader = new FakeLoader();
+        ChunkedMultiGet<String> multiGet = new ChunkedMultiGet<>(loader, null, 30, 2);
+        Result result = new Result();
+        List<String> requested = ids(100);
+
+        multiGet.get(requested, result);
+        assertEquals("only maxParallel chunks start", 2, loader.pending.size());
+        while (!loader.pending.isEmpty()) {
+            loader.answerOldest("id42");
+        }
+
+        assertEquals(4, loader.requests.size());
+        for (List<String> chunk : loader.requests) {
+            assertTrue(chunk.size() <= 30);
+        }
+        assertEquals(2, loader.maxInFlight);
+        assertEquals(1, result.calls);
+        assertEquals(99, result.results.size());
+        assertEquals("doc-id99", result.results.get(0));
+        assertEquals("doc-id0", result.results.get(98));
+        assertEquals(Arrays.asList("id42"), result.missing);
+    }
+
+    @Test
+    public void servesCachedDocumentsWithoutLoadingThem() {
+        DocumentCache<String> cache = new DocumentCache<>(100, 60_000);
+        cache.put("b", "cached-b");
+        FakeLoader loader = new FakeLoader();
+        Result result = new Result();
+
+        new ChunkedMultiGet<>(loader, cache).get(Arrays.asList("a", "b", "a", null, "c"), result);
+        assertEquals(Arrays.asList("a", "c"), loader.requests.get(0));
+        loader.answerOldest(null);
+
+        assertEquals(Arrays.asList("doc-a", "cached-b", "doc-c"), result.results);
+        assertEquals("doc-c", cache.get("c"));
+
+        FakeLoader second = new FakeLoader();
+        Result cachedResult = new Result();
+        new ChunkedMultiGet<>(second, cache).get(Arrays.asList("c", "a"), cachedResult);
+        assertTrue("all hits come from the cache", second.requests.isEmpty());
+        assertEquals(Arrays.asList("doc-c", "doc-a"), cachedResult.results);
+    }
+
+    @Test
+    public void firstErrorFailsOnceAndStopsQueuedChunks() {
+        FakeLoader loader = new FakeLoader();
+        Result result = new Result();
+        new ChunkedMultiGet<>(loader, null, 10, 1).get(ids(30), result);
+
+        loader.pending.remove(0).onError(new Exception("offline"));
+        assertEquals(1, result.calls);
+        assertEquals("offline", result.error.getMessage());
+        assertEquals("queued chunks are not started", 1, loader.requests.size());
+    }
+
+    @Test
+    public void expiredAndEvictedEntriesAreDropped() {
+        DocumentCache<String> cache = new DocumentCache<>(2, 1000);
+        cache.put("a", "A", 0);
+        cache.put("b", "B", 0);
+        assertEquals("A", cache.get("a", 500));
+        cache.put("c", "C", 500);
+        assertNull("least recently used entry is evicted", cache.get("b", 500));
+        assertNull("entry expires after the TTL", cache.get("a", 1500));
+        assertEquals("C", cache.get("c", 1500));
+    }
+}